@@ -0,0 +1,40 @@
+package com.dong.socks_dfcf.config;
+
+import com.dong.socks_dfcf.service.ClistPageFetcher;
+import com.dong.socks_dfcf.service.HttpClistPageFetcher;
+import com.dong.socks_dfcf.service.ReplayClistPageFetcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 爬虫组件配置，根据 crawler.fetch-mode 选择页面获取方式
+ */
+@Slf4j
+@Configuration
+public class CrawlerConfig {
+
+    @Bean
+    public ClistPageFetcher clistPageFetcher(CrawlerProperties crawlerProperties) throws IOException {
+        String mode = crawlerProperties.getFetchMode();
+        switch (mode) {
+            case "live" -> {
+                return new HttpClistPageFetcher(crawlerProperties.getMaxInFlightPages(), null);
+            }
+            case "record" -> {
+                return new HttpClistPageFetcher(crawlerProperties.getMaxInFlightPages(),
+                        Path.of(crawlerProperties.getRecordDir()));
+            }
+            case "replay" -> {
+                CrawlerProperties.Replay replay = crawlerProperties.getReplay();
+                log.info("爬虫使用回放模式，不会请求线上接口");
+                return new ReplayClistPageFetcher(Path.of(replay.getDir()), replay.getScale(), replay.getMaxPageSize(),
+                        replay.getLatencyMillis(), replay.getJitterMillis(), replay.getErrorRate(), replay.getSeed());
+            }
+            default -> throw new IllegalArgumentException("Unknown crawler.fetch-mode: " + mode);
+        }
+    }
+}
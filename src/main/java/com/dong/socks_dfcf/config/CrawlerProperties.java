@@ -0,0 +1,212 @@
+package com.dong.socks_dfcf.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 爬虫配置，对应 application.properties 中 crawler.* 配置项
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "crawler")
+public class CrawlerProperties {
+
+    /**
+     * clist接口每页条数；关闭自动探测时全量爬取使用该值，单页爬取始终使用该值
+     */
+    private int pageSize = 100;
+
+    /**
+     * 全量爬取时是否自动探测接口支持的最大页大小
+     */
+    private boolean pageSizeAutoTune = true;
+
+    /**
+     * 自动探测时第一页请求的页大小，接口会截断到它支持的最大值
+     */
+    private int pageSizeProbe = 5000;
+
+    /**
+     * 自适应并发控制：同时在途页面请求数的上限，也决定HTTP连接池大小
+     */
+    private int maxInFlightPages = 32;
+
+    /**
+     * 自适应并发控制：同时在途页面请求数的下限
+     */
+    private int minInFlightPages = 1;
+
+    /**
+     * 自适应并发控制：初始并发数
+     */
+    private int initialInFlightPages = 4;
+
+    /**
+     * 自适应并发控制：单页响应超过该耗时（毫秒）视为上游变慢，降低并发
+     */
+    private long latencyThresholdMillis = 3000;
+
+    /**
+     * 单页最大尝试次数
+     */
+    private int maxRetries = 3;
+
+    /**
+     * 重试等待基数（毫秒），第n次重试的等待上限为 retryBackoffMillis * 2^(n-1)，带随机抖动
+     */
+    private long retryBackoffMillis = 500;
+
+    /**
+     * 重试等待上限（毫秒）
+     */
+    private long retryBackoffMaxMillis = 10000;
+
+    /**
+     * 全量爬取的最长等待时间（分钟）
+     */
+    private long crawlTimeoutMinutes = 30;
+
+    /**
+     * 抓取阶段与入库阶段之间的有界队列容量（页）
+     */
+    private int parsedQueueCapacity = 32;
+
+    /**
+     * 入库阶段每批写入的行数
+     */
+    private int persistBatchSize = 500;
+
+    /**
+     * 入库阶段最长刷新间隔（毫秒），不足一批也会写入
+     */
+    private long persistFlushMillis = 2000;
+
+    /**
+     * 批量写库时每条多行INSERT（一个事务）包含的行数
+     */
+    private int insertChunkSize = 500;
+
+    /**
+     * 是否跳过与上次写库相比没有变化的行情
+     */
+    private boolean changeDetectionEnabled = true;
+
+    /**
+     * 保留的最近爬取任务数
+     */
+    private int jobHistorySize = 20;
+
+    /**
+     * 写库时同步汇总的K线周期：Nm（N分钟）、1d、1w，为空时不汇总
+     */
+    private List<String> barIntervals = List.of("30m", "1d", "1w");
+
+    /**
+     * 页面获取方式：live 请求线上接口；record 请求线上接口并录制响应；replay 回放录制的响应
+     */
+    private String fetchMode = "live";
+
+    /**
+     * record 模式下原始响应的保存目录
+     */
+    private String recordDir = "crawl-records";
+
+    /**
+     * replay 模式配置
+     */
+    private Replay replay = new Replay();
+
+    /**
+     * 本地列式行情存储配置
+     */
+    private Ticks ticks = new Ticks();
+
+    /**
+     * 技术指标引擎配置
+     */
+    private Indicators indicators = new Indicators();
+
+    /**
+     * 回放配置，对应 crawler.replay.*
+     */
+    @Data
+    public static class Replay {
+
+        /**
+         * 录制文件所在目录
+         */
+        private String dir = "crawl-records";
+
+        /**
+         * 每次请求的基础延迟（毫秒）
+         */
+        private long latencyMillis = 50;
+
+        /**
+         * 在基础延迟上增加的随机延迟上限（毫秒）
+         */
+        private long jitterMillis = 100;
+
+        /**
+         * 请求失败概率，0~1
+         */
+        private double errorRate = 0.0;
+
+        /**
+         * 市场放大倍数，把录制的股票复制成多份
+         */
+        private int scale = 1;
+
+        /**
+         * 模拟接口支持的最大页大小
+         */
+        private int maxPageSize = 100;
+
+        /**
+         * 随机种子，相同种子得到相同的延迟和错误序列
+         */
+        private long seed = 42;
+    }
+
+    /**
+     * 本地列式行情存储配置，对应 crawler.ticks.*
+     */
+    @Data
+    public static class Ticks {
+
+        /**
+         * 是否在写库后同时追加到本地列式存储
+         */
+        private boolean enabled = false;
+
+        /**
+         * 存储目录，每只股票一个文件
+         */
+        private String dir = "tick-store";
+    }
+
+    /**
+     * 技术指标引擎配置，对应 crawler.indicators.*
+     */
+    @Data
+    public static class Indicators {
+
+        /**
+         * 是否在写库后更新技术指标
+         */
+        private boolean enabled = true;
+
+        /**
+         * 启动后首次使用时从 stock_bar 加载最近多少天的日线作为指标的历史（需启用 1d K线）
+         */
+        private int seedDays = 180;
+
+        /**
+         * 每单位成交量对应的股数，计算成交均价（VWAP）时使用
+         */
+        private int volumeUnitShares = 100;
+    }
+}
@@ -0,0 +1,54 @@
+package com.dong.socks_dfcf.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 走势预测模型训练配置，对应 application.properties 中 prediction.* 配置项
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "prediction")
+public class PredictionProperties {
+
+    /**
+     * 是否按 prediction.train-cron 定时训练
+     */
+    private boolean trainEnabled = true;
+
+    /**
+     * 模型文件目录，每次训练生成一个带版本号的文件
+     */
+    private String modelDir = "models";
+
+    /**
+     * 保留的模型版本数，更早的文件在训练成功后删除
+     */
+    private int keepModels = 5;
+
+    /**
+     * 训练使用最近多少天的日线（需启用 1d K线）
+     */
+    private int trainingDays = 365;
+
+    /**
+     * 随机森林的树数
+     */
+    private int trees = 100;
+
+    /**
+     * 单棵树的最大深度，0 表示不限
+     */
+    private int maxDepth = 0;
+
+    /**
+     * 特征提取和建树的线程数，0 表示使用全部CPU核数
+     */
+    private int threads = 0;
+
+    /**
+     * 随机种子，相同数据和种子训练出相同的模型
+     */
+    private int seed = 1;
+}
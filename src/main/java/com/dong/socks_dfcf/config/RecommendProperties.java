@@ -0,0 +1,40 @@
+package com.dong.socks_dfcf.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 股票推荐的多因子评分配置，对应 application.properties 中 recommend.* 配置项
+ * 评分 = 动量权重 * 涨跌幅(%) + 放量权重 * ln(量比) + 成交额权重 * log10(成交额)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "recommend")
+public class RecommendProperties {
+
+    /**
+     * 推荐的股票数
+     */
+    private int topK = 15;
+
+    /**
+     * 动量因子（当天涨跌幅）的权重
+     */
+    private double momentumWeight = 1.0;
+
+    /**
+     * 放量因子（量比的对数，需启用技术指标）的权重
+     */
+    private double volumeSurgeWeight = 2.0;
+
+    /**
+     * 成交额因子（成交额的常用对数）的权重
+     */
+    private double turnoverWeight = 0.5;
+
+    /**
+     * 成交额低于该值（元）的股票不参与推荐，过滤停牌和流动性差的股票
+     */
+    private double minTurnover = 10_000_000;
+}
@@ -0,0 +1,209 @@
+package com.dong.socks_dfcf.config;
+
+import com.dong.socks_dfcf.service.DataEpoch;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 读接口的 ETag 和响应缓存
+ * 数据只在爬取后变化，ETag 由数据版本号（DataEpoch）和请求路径、参数组成，不需要先生成响应再计算；
+ * If-None-Match 命中时直接返回 304，否则优先返回缓存的响应字节，都不进入控制器和数据库。
+ * 缓存按 LRU 限制条数，数据版本变化时整体清空；只缓存 success 为 true 的响应。
+ * 快照未加载时控制器回退到数据库查询，结果在爬取中途每批提交后都会变而数据版本不变，这类响应由控制器调用
+ * markUncacheable 标记，不缓存也不带 ETag
+ */
+@Slf4j
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    // 控制器标记响应不可缓存时设置的请求属性
+    static final String UNCACHEABLE_ATTRIBUTE = ResponseCacheFilter.class.getName() + ".UNCACHEABLE";
+    // 可缓存的读接口，从快照读取时结果只取决于路径、参数和数据版本；
+    // /search 的回退查询和 /{code}/history 直接读库，爬取中途每批提交和历史数据清理都会改变结果，不缓存
+    private static final Pattern CACHEABLE_PATH =
+            Pattern.compile("/api/stock/(latest|codes|screen|recommend)");
+    // ETag 中请求摘要的字节数（SHA-256 的前128位）
+    private static final int DIGEST_BYTES = 16;
+
+    private final DataEpoch dataEpoch;
+    private final ResponseCacheProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Map<String, CachedResponse> cache = new LinkedHashMap<>(64, 0.75f, true);
+    // 缓存中的响应所属的数据版本
+    private long cacheEpoch;
+
+    public ResponseCacheFilter(DataEpoch dataEpoch, ResponseCacheProperties properties, ObjectMapper objectMapper) {
+        this.dataEpoch = dataEpoch;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    private record CachedResponse(String contentType, byte[] body) {
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled()
+                || !"GET".equals(request.getMethod())
+                || !CACHEABLE_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long epoch = dataEpoch.current();
+        String key = cacheKey(request);
+        String etag = "\"" + Long.toHexString(epoch) + "-" + digest(key) + "\"";
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            return;
+        }
+
+        CachedResponse cached = get(key, epoch);
+        if (cached != null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(cached.contentType());
+            response.setContentLength(cached.body().length);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            response.getOutputStream().write(cached.body());
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        byte[] body = wrapper.getContentAsByteArray();
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && request.getAttribute(UNCACHEABLE_ATTRIBUTE) == null
+                && isSuccess(body)) {
+            wrapper.setHeader(HttpHeaders.ETAG, etag);
+            wrapper.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            if (body.length <= properties.getMaxBodyBytes()) {
+                put(key, epoch, new CachedResponse(wrapper.getContentType(), body));
+            }
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    /**
+     * 标记当前请求的响应不可缓存，控制器回退到数据库查询时调用；不在请求线程中时什么也不做
+     */
+    public static void markUncacheable() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(UNCACHEABLE_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * 路径加按名称排序的参数，参数顺序不同的同一请求共用一个缓存项
+     */
+    static String cacheKey(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        request.getParameterMap().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> key.append('&').append(entry.getKey()).append('=')
+                        .append(String.join(",", Arrays.asList(entry.getValue()))));
+        return key.toString();
+    }
+
+    /**
+     * 缓存键的 SHA-256 摘要取前128位，不同请求的 ETag 实际上不会相同
+     */
+    static String digest(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, DIGEST_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * If-None-Match 可能是逗号分隔的多个 ETag、带 W/ 前缀的弱 ETag 或 *
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSuccess(byte[] body) {
+        try {
+            return objectMapper.readTree(body).path("success").asBoolean(false);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private CachedResponse get(String key, long epoch) {
+        synchronized (cache) {
+            evictIfStale();
+            return epoch == cacheEpoch ? cache.get(key) : null;
+        }
+    }
+
+    private void put(String key, long epoch, CachedResponse response) {
+        synchronized (cache) {
+            evictIfStale();
+            if (epoch != cacheEpoch) {
+                return; // 请求开始后数据版本已经变了，响应不一定对应新版本
+            }
+            cache.put(key, response);
+            Iterator<String> eldest = cache.keySet().iterator();
+            while (cache.size() > properties.getMaxEntries()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void evictIfStale() {
+        long current = dataEpoch.current();
+        if (current != cacheEpoch) {
+            log.debug("数据版本 {} -> {}，清空 {} 个缓存响应", cacheEpoch, current, cache.size());
+            cache.clear();
+            cacheEpoch = current;
+        }
+    }
+
+    /**
+     * 当前缓存的响应数
+     */
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
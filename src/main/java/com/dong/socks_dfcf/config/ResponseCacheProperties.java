@@ -0,0 +1,29 @@
+package com.dong.socks_dfcf.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 读接口 ETag 和响应缓存配置，对应 application.properties 中 response-cache.* 配置项
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * 是否启用；关闭后读接口每次都重新查询，也不返回 ETag
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最多缓存的响应数（按请求路径和参数区分），超出时淘汰最久未访问的
+     */
+    private int maxEntries = 512;
+
+    /**
+     * 单个响应超过该字节数时只返回 ETag，不缓存响应体
+     */
+    private int maxBodyBytes = 2 * 1024 * 1024;
+}
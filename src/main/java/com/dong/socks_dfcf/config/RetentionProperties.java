@@ -0,0 +1,64 @@
+package com.dong.socks_dfcf.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 历史数据清理配置（stock_data、stock_bar、本地行情文件），对应 application.properties 中 retention.* 配置项
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "retention")
+public class RetentionProperties {
+
+    /**
+     * 是否执行定时清理
+     */
+    private boolean enabled = true;
+
+    /**
+     * 清理方式：delete（按 trade_time 分批删除）/ partition（按天分区，到期整区删除，
+     * 需先执行 schema/stock_data_partitioning.sql 把表改为分区表）
+     */
+    private String mode = "delete";
+
+    /**
+     * 数据保留天数，trade_time 早于 当天零点 - retentionDays 的数据会被清理
+     */
+    private int retentionDays = 30;
+
+    /**
+     * delete 模式：每批删除的行数，每批单独提交，锁和undo都限制在一批之内
+     */
+    private int deleteChunkSize = 5000;
+
+    /**
+     * delete 模式：两批之间的暂停时间（毫秒），给复制和正常写入留出余量
+     */
+    private long deleteChunkPauseMillis = 200;
+
+    /**
+     * delete 模式：单次运行最多删除的批数，剩余的留给下一次运行
+     */
+    private int maxDeleteChunksPerRun = 2000;
+
+    /**
+     * partition 模式：提前创建的按天分区数（不含当天）
+     */
+    private int partitionsAhead = 7;
+
+    /**
+     * stock_bar 各周期的保留天数，bar_start 早于 当天零点 - 天数 的K线会被分批删除；
+     * 未配置或设为0的周期不清理。日线需覆盖指标预热（crawler.indicators.seed-days）和模型训练（prediction.training-days）的天数
+     */
+    private Map<String, Integer> barRetentionDays = new TreeMap<>(Map.of("30m", 90, "1d", 1095));
+
+    /**
+     * 本地行情文件（crawler.ticks.*）的保留天数，不大于0时不清理
+     */
+    private int tickRetentionDays = 365;
+}
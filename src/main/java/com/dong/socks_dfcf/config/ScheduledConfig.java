@@ -1,6 +1,10 @@
 package com.dong.socks_dfcf.config;
 
-import com.dong.socks_dfcf.service.StockCrawlerService;
+import com.dong.socks_dfcf.service.CrawlJob;
+import com.dong.socks_dfcf.service.CrawlJobConflictException;
+import com.dong.socks_dfcf.service.CrawlJobService;
+import com.dong.socks_dfcf.service.StockDataRetentionService;
+import com.dong.socks_dfcf.service.TrendModelService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
@@ -13,18 +17,53 @@ import org.springframework.scheduling.annotation.Scheduled;
 @RequiredArgsConstructor
 public class ScheduledConfig {
     
-    private final StockCrawlerService stockCrawlerService;
+    private final CrawlJobService crawlJobService;
+    private final StockDataRetentionService stockDataRetentionService;
+    private final RetentionProperties retentionProperties;
+    private final TrendModelService trendModelService;
+    private final PredictionProperties predictionProperties;
     
     /**
      * 定时任务：每个工作日的上午9:30-15:00之间每30分钟执行一次数据爬取
      * cron表达式含义：
      * 秒 分 时 日 月 周
      * 0 0/30 9-15 ? * MON-FRI  表示工作日的9点到15点之间每30分钟执行一次
+     * 与手动触发共用任务队列，上一次爬取还没结束时跳过本次
      */
     @Scheduled(cron = "0 0/30 9-15 ? * MON-FRI")
     public void scheduledCrawl() {
         log.info("开始定时爬取股票数据...");
-        stockCrawlerService.crawlStockData();
-        log.info("定时爬取股票数据完成");
+        try {
+            CrawlJob job = crawlJobService.submitPageCrawl(1, "scheduled");
+            log.info("定时爬取任务已提交: {}", job.getId());
+        } catch (CrawlJobConflictException e) {
+            log.warn("爬取任务 {} 仍在执行，跳过本次定时爬取", e.getRunningJob().getId());
+        }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 定时任务：每天凌晨清理 stock_data 中超过保留天数的数据（partition 模式同时提前创建分区），
+     * 时间可通过 retention.cron 修改
+     */
+    @Scheduled(cron = "${retention.cron:0 30 2 * * ?}")
+    public void scheduledRetention() {
+        if (!retentionProperties.isEnabled()) {
+            return;
+        }
+        log.info("开始定时清理历史数据...");
+        stockDataRetentionService.runRetention("scheduled");
+    }
+    
+    /**
+     * 定时任务：每个工作日收盘后用最近的日线重新训练走势模型，
+     * 时间可通过 prediction.train-cron 修改
+     */
+    @Scheduled(cron = "${prediction.train-cron:0 0 17 * * MON-FRI}")
+    public void scheduledTraining() {
+        if (!predictionProperties.isTrainEnabled()) {
+            return;
+        }
+        log.info("开始定时训练走势模型...");
+        trendModelService.train("scheduled");
+    }
+}
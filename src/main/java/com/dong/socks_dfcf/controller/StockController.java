@@ -1,16 +1,51 @@
 package com.dong.socks_dfcf.controller;
 
+import com.dong.socks_dfcf.config.ResponseCacheFilter;
 import com.dong.socks_dfcf.mapper.StockDataMapper;
 import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.service.BarInterval;
+import com.dong.socks_dfcf.service.BarRollupService;
+import com.dong.socks_dfcf.service.CrawlJob;
+import com.dong.socks_dfcf.service.CrawlJobConflictException;
+import com.dong.socks_dfcf.service.CrawlJobService;
+import com.dong.socks_dfcf.service.CrawlRunStats;
+import com.dong.socks_dfcf.service.CursorExpiredException;
+import com.dong.socks_dfcf.service.IndicatorEngine;
+import com.dong.socks_dfcf.service.ModelTrainingStats;
+import com.dong.socks_dfcf.service.Indicators;
+import com.dong.socks_dfcf.service.LatestQuoteCache;
+import com.dong.socks_dfcf.service.LatestQuoteSnapshot;
+import com.dong.socks_dfcf.service.MarketPrediction;
+import com.dong.socks_dfcf.service.MarketPredictionService;
+import com.dong.socks_dfcf.service.PageCursor;
+import com.dong.socks_dfcf.service.QuoteColumns;
+import com.dong.socks_dfcf.service.RetentionRunStats;
+import com.dong.socks_dfcf.service.ScreenerQuery;
+import com.dong.socks_dfcf.service.SearchCursor;
 import com.dong.socks_dfcf.service.StockCrawlerService;
+import com.dong.socks_dfcf.service.StockDataExporter;
+import com.dong.socks_dfcf.service.StockDataRetentionService;
 import com.dong.socks_dfcf.service.StockPredictService;
+import com.dong.socks_dfcf.service.StockSearchIndex;
+import com.dong.socks_dfcf.service.TickSeries;
+import com.dong.socks_dfcf.service.TickStore;
+import com.dong.socks_dfcf.service.TrendModelService;
 import com.dong.socks_dfcf.service.AIAnalysisService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/stock")
@@ -18,69 +53,183 @@ import java.util.Map;
 public class StockController {
     
     private final StockCrawlerService stockCrawlerService;
+    private final CrawlJobService crawlJobService;
     private final StockPredictService stockPredictService;
     private final StockDataMapper stockDataMapper;
     private final AIAnalysisService aiAnalysisService;
+    private final LatestQuoteCache latestQuoteCache;
+    private final StockDataRetentionService stockDataRetentionService;
+    private final BarRollupService barRollupService;
+    private final TickStore tickStore;
+    private final StockDataExporter stockDataExporter;
+    private final IndicatorEngine indicatorEngine;
+    private final TrendModelService trendModelService;
+    private final MarketPredictionService marketPredictionService;
     
     /**
-     * 手动触发爬取数据（单页，默认第1页）
+     * 手动触发爬取数据（单页，默认第1页），提交后台任务后立即返回任务ID
      */
     @PostMapping("/crawl")
     public Map<String, Object> crawlStockData() {
-        Map<String, Object> result = new HashMap<>();
-        try {
-            stockCrawlerService.crawlStockData();
-            result.put("success", true);
-            result.put("message", "数据爬取完成");
-        } catch (Exception e) {
-            result.put("success", false);
-            result.put("message", "数据爬取失败: " + e.getMessage());
-        }
-        return result;
+        return submitCrawlJob(() -> crawlJobService.submitPageCrawl(1, "manual"), "数据爬取任务已提交");
     }
     
     /**
-     * 爬取指定页码的数据
+     * 爬取指定页码的数据，提交后台任务后立即返回任务ID
      */
     @PostMapping("/crawl/page/{page}")
     public Map<String, Object> crawlStockDataByPage(@PathVariable int page) {
+        return submitCrawlJob(() -> crawlJobService.submitPageCrawl(page, "manual"), "第" + page + "页数据爬取任务已提交");
+    }
+    
+    /**
+     * 爬取所有数据，提交后台任务后立即返回任务ID，通过 /crawl/jobs/{jobId} 查询进度
+     */
+    @PostMapping("/crawl/all")
+    public Map<String, Object> crawlAllStockData() {
+        return submitCrawlJob(() -> crawlJobService.submitFullCrawl("manual"), "全量爬取任务已提交");
+    }
+    
+    private Map<String, Object> submitCrawlJob(Supplier<CrawlJob> submitter, String message) {
         Map<String, Object> result = new HashMap<>();
         try {
-            stockCrawlerService.crawlStockDataByPage(page);
+            CrawlJob job = submitter.get();
             result.put("success", true);
-            result.put("message", "第" + page + "页数据爬取完成");
+            result.put("data", job.toMap());
+            result.put("message", message);
+        } catch (CrawlJobConflictException e) {
+            // 已有任务在执行，返回该任务以便前端继续查询它的进度
+            result.put("success", false);
+            result.put("data", e.getRunningJob().toMap());
+            result.put("message", "已有爬取任务正在执行: " + e.getRunningJob().getId());
         } catch (Exception e) {
             result.put("success", false);
-            result.put("message", "第" + page + "页数据爬取失败: " + e.getMessage());
+            result.put("message", "爬取任务提交失败: " + e.getMessage());
         }
         return result;
     }
     
     /**
-     * 爬取所有数据
+     * 查询爬取任务的状态和进度（已完成/失败页数、已写库行数、吞吐量）
      */
-    @PostMapping("/crawl/all")
-    public Map<String, Object> crawlAllStockData() {
+    @GetMapping("/crawl/jobs/{jobId}")
+    public Map<String, Object> getCrawlJob(@PathVariable long jobId) {
         Map<String, Object> result = new HashMap<>();
-        try {
-            stockCrawlerService.crawlAllStockData();
-            result.put("success", true);
-            result.put("message", "所有数据爬取完成");
-        } catch (Exception e) {
+        CrawlJob job = crawlJobService.getJob(jobId);
+        if (job == null) {
             result.put("success", false);
-            result.put("message", "所有数据爬取失败: " + e.getMessage());
+            result.put("message", "爬取任务不存在: " + jobId);
+            return result;
         }
+        result.put("success", true);
+        result.put("data", job.toMap());
+        return result;
+    }
+    
+    /**
+     * 取消正在执行的爬取任务，已解析的数据仍会写入数据库
+     */
+    @PostMapping("/crawl/jobs/{jobId}/cancel")
+    public Map<String, Object> cancelCrawlJob(@PathVariable long jobId) {
+        Map<String, Object> result = new HashMap<>();
+        boolean cancelled = crawlJobService.cancel(jobId);
+        result.put("success", cancelled);
+        result.put("message", cancelled ? "已请求取消爬取任务" : "爬取任务不存在或已结束: " + jobId);
+        return result;
+    }
+    
+    /**
+     * 最近的爬取任务（新的在前）
+     */
+    @GetMapping("/crawl/jobs")
+    public Map<String, Object> getCrawlJobs() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", crawlJobService.getRecentJobs().stream().map(CrawlJob::toMap).toList());
+        CrawlJob running = crawlJobService.getRunningJob();
+        result.put("runningJobId", running != null ? running.getId() : null);
+        return result;
+    }
+    
+    /**
+     * 获取最近一次全量爬取的流水线统计（队列深度、各阶段吞吐量）、自适应并发指标以及行情变化检测的累计统计
+     */
+    @GetMapping("/crawl/stats")
+    public Map<String, Object> getCrawlStats() {
+        Map<String, Object> result = new HashMap<>();
+        CrawlRunStats stats = stockCrawlerService.getLastRunStats();
+        result.put("success", true);
+        result.put("data", stats != null ? stats.toMap() : null);
+        result.put("concurrency", stockCrawlerService.getConcurrencyStats());
+        result.put("changeDetection", stockCrawlerService.getChangeDetectionStats());
+        return result;
+    }
+    
+    /**
+     * 在后台执行一次历史数据清理
+     */
+    @PostMapping("/retention/run")
+    public Map<String, Object> runRetention() {
+        Map<String, Object> result = new HashMap<>();
+        boolean submitted = stockDataRetentionService.submitRetention("manual");
+        result.put("success", submitted);
+        result.put("message", submitted ? "历史数据清理已开始" : "历史数据清理正在运行");
+        return result;
+    }
+    
+    /**
+     * 获取最近一次历史数据清理的统计以及启动以来的累计清理量
+     */
+    @GetMapping("/retention/stats")
+    public Map<String, Object> getRetentionStats() {
+        Map<String, Object> result = new HashMap<>();
+        RetentionRunStats stats = stockDataRetentionService.getLastRunStats();
+        result.put("success", true);
+        result.put("data", stats != null ? stats.toMap() : null);
+        result.put("totals", stockDataRetentionService.getTotals());
+        return result;
+    }
+    
+    /**
+     * 在后台训练一次走势模型，训练成功后切换到新模型
+     */
+    @PostMapping("/model/train")
+    public Map<String, Object> trainModel() {
+        Map<String, Object> result = new HashMap<>();
+        boolean submitted = trendModelService.submitTraining("manual");
+        result.put("success", submitted);
+        result.put("message", submitted ? "模型训练已开始" : "模型训练正在运行");
         return result;
     }
     
     /**
-     * 获取所有股票代码
+     * 获取当前使用的走势模型信息以及最近一次训练的统计
+     */
+    @GetMapping("/model")
+    public Map<String, Object> getModel() {
+        Map<String, Object> result = new HashMap<>();
+        ModelTrainingStats stats = trendModelService.getLastTrainingStats();
+        result.put("success", true);
+        result.put("data", trendModelService.getModelInfo());
+        result.put("lastTraining", stats != null ? stats.toMap() : null);
+        return result;
+    }
+    
+    /**
+     * 获取所有股票代码，优先从最新行情快照读取
      */
     @GetMapping("/codes")
     public Map<String, Object> getAllStockCodes() {
         Map<String, Object> result = new HashMap<>();
         try {
-            List<StockData> stockCodes = stockDataMapper.findAllStockCodes();
+            LatestQuoteSnapshot snapshot = latestQuoteCache.getSnapshot();
+            List<StockData> stockCodes;
+            if (snapshot != null) {
+                stockCodes = snapshot.getCodes();
+            } else {
+                stockCodes = stockDataMapper.findAllStockCodes();
+                ResponseCacheFilter.markUncacheable();
+            }
             result.put("success", true);
             result.put("data", stockCodes);
         } catch (Exception e) {
@@ -91,27 +240,108 @@ public class StockController {
     }
     
     /**
-     * 获取最新的股票数据
+     * 获取最新的股票数据，优先从最新行情快照读取，快照未加载时查询数据库
+     * 传入 cursor 时使用游标分页（第一页传空串），按返回的 nextCursor 翻页，
+     * 翻页期间始终读取游标所属的同一个快照，不会因为快照刷新而重复或遗漏；
+     * 不传 cursor 时仍按 page/size 分页
+     * @param sort 排序方式：changePercent（默认）、turnover、volume，均为降序；游标分页时以游标中的排序为准
+     * @param cursor 上一页返回的 nextCursor
      */
     @GetMapping("/latest")
     public Map<String, Object> getLatestStockDataPaged(@RequestParam(defaultValue = "0") int page,
-                                                      @RequestParam(defaultValue = "20") int size) {
+                                                      @RequestParam(defaultValue = "20") int size,
+                                                      @RequestParam(defaultValue = "changePercent") String sort,
+                                                      @RequestParam(required = false) String cursor) {
         Map<String, Object> result = new HashMap<>();
         try {
+            if (cursor != null) {
+                return getLatestStockDataByCursor(cursor, size, sort);
+            }
             int offset = page * size;
-            List<StockData> latestData = stockDataMapper.findLatestStockDataPaged(offset, size);
-            int total = stockDataMapper.countAllStockData();
+            LatestQuoteSnapshot.SortKey sortKey = LatestQuoteSnapshot.SortKey.parse(sort);
+            LatestQuoteSnapshot snapshot = latestQuoteCache.getSnapshot();
+            List<StockData> latestData;
+            int total;
+            if (snapshot != null) {
+                latestData = snapshot.page(sortKey, offset, size);
+                total = snapshot.getTotal();
+            } else {
+                latestData = stockDataMapper.findLatestStockDataPaged(sortKey.getColumn(), offset, size);
+                total = stockDataMapper.countAllStockData();
+                ResponseCacheFilter.markUncacheable();
+            }
             result.put("success", true);
             result.put("data", latestData);
             result.put("total", total);
             result.put("page", page);
             result.put("size", size);
+        } catch (CursorExpiredException e) {
+            result.put("success", false);
+            result.put("cursorExpired", true);
+            result.put("message", e.getMessage());
         } catch (Exception e) {
             result.put("success", false);
             result.put("message", "分页获取最新股票数据失败: " + e.getMessage());
         }
         return result;
     }
+
+    /**
+     * 游标分页获取最新股票数据
+     * 快照未加载时走 stock_latest 的 (change_percent, stock_code) 索引，此时只支持按涨跌幅排序，之后的翻页也继续查询数据库；
+     * 游标所属的快照已被淘汰时抛出 CursorExpiredException
+     */
+    private Map<String, Object> getLatestStockDataByCursor(String cursor, int size, String sort) {
+        Map<String, Object> result = new HashMap<>();
+        PageCursor after = cursor.isEmpty() ? null : PageCursor.decode(cursor);
+        LatestQuoteSnapshot.SortKey sortKey = after != null ? after.sortKey() : LatestQuoteSnapshot.SortKey.parse(sort);
+        LatestQuoteSnapshot snapshot;
+        if (after == null) {
+            snapshot = latestQuoteCache.getSnapshot();
+        } else if (after.epoch() > 0) {
+            snapshot = latestQuoteCache.getSnapshot(after.epoch());
+            if (snapshot == null) {
+                throw new CursorExpiredException();
+            }
+        } else {
+            // 从数据库开始的翻页继续查询数据库
+            snapshot = null;
+        }
+        List<StockData> latestData;
+        int total;
+        long epoch;
+        if (snapshot != null) {
+            latestData = after != null
+                    ? snapshot.pageAfter(sortKey, after.value(), after.stockCode(), size)
+                    : snapshot.page(sortKey, 0, size);
+            total = snapshot.getTotal();
+            epoch = snapshot.getEpoch();
+        } else {
+            sortKey = LatestQuoteSnapshot.SortKey.CHANGE_PERCENT;
+            latestData = after != null
+                    ? stockDataMapper.findLatestStockDataAfter(after.value(), after.stockCode(), size)
+                    : stockDataMapper.findLatestStockDataAfter(null, null, size);
+            total = stockDataMapper.countAllStockData();
+            epoch = 0;
+            ResponseCacheFilter.markUncacheable();
+        }
+        result.put("success", true);
+        result.put("data", latestData);
+        result.put("total", total);
+        result.put("size", size);
+        result.put("nextCursor", nextCursor(sortKey, epoch, latestData, size));
+        return result;
+    }
+
+    /**
+     * 本页已满时返回下一页的游标，否则返回null表示没有下一页
+     */
+    private String nextCursor(LatestQuoteSnapshot.SortKey sortKey, long epoch, List<StockData> data, int size) {
+        if (data.isEmpty() || data.size() < size) {
+            return null;
+        }
+        return PageCursor.after(sortKey, epoch, data.get(data.size() - 1)).encode();
+    }
     
     /**
      * 根据股票代码获取历史数据
@@ -130,6 +360,164 @@ public class StockController {
         return result;
     }
     
+    /**
+     * 获取K线
+     * @param interval 周期：30m、1d（默认）、1w，需在 crawler.bar-intervals 中启用
+     * @param from 开始日期（含），yyyy-MM-dd
+     * @param to 结束日期（含），yyyy-MM-dd
+     * @param limit 最多返回区间内最近的多少条，上限1000
+     */
+    @GetMapping("/{stockCode}/bars")
+    public Map<String, Object> getStockBars(@PathVariable String stockCode,
+                                            @RequestParam(defaultValue = "1d") String interval,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                            @RequestParam(defaultValue = "300") int limit) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            BarInterval barInterval = BarInterval.parse(interval);
+            if (!barRollupService.getIntervals().contains(barInterval)) {
+                throw new IllegalArgumentException("未启用的K线周期: " + interval);
+            }
+            result.put("success", true);
+            result.put("data", barRollupService.getBars(stockCode, barInterval, from, to, limit));
+            result.put("interval", barInterval.code());
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "获取K线失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
+    /**
+     * 从本地列式存储读取原始行情（需启用 crawler.ticks.enabled），按列返回
+     * @param from 开始日期（含），yyyy-MM-dd
+     * @param to 结束日期（含），yyyy-MM-dd
+     */
+    @GetMapping("/{stockCode}/ticks")
+    public Map<String, Object> getStockTicks(@PathVariable String stockCode,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Map<String, Object> result = new HashMap<>();
+        if (!tickStore.isEnabled()) {
+            result.put("success", false);
+            result.put("message", "本地列式存储未启用");
+            return result;
+        }
+        try {
+            TickSeries ticks = tickStore.read(stockCode, from != null ? from.atStartOfDay() : null,
+                    to != null ? to.plusDays(1).atStartOfDay() : null);
+            result.put("success", true);
+            result.put("data", ticks.toMap(ZoneId.systemDefault()));
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "读取本地行情失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
+    /**
+     * 获取一只股票的最新技术指标（日线 MA、EMA、MACD、RSI、布林带、ATR、当天VWAP），从内存计算，不查询数据库
+     */
+    @GetMapping("/{stockCode}/indicators")
+    public Map<String, Object> getStockIndicators(@PathVariable String stockCode) {
+        Map<String, Object> result = new HashMap<>();
+        if (!indicatorEngine.isEnabled()) {
+            result.put("success", false);
+            result.put("message", "技术指标未启用");
+            return result;
+        }
+        try {
+            Indicators indicators = indicatorEngine.get(stockCode);
+            if (indicators == null) {
+                result.put("success", false);
+                result.put("message", "没有该股票的行情数据: " + stockCode);
+                return result;
+            }
+            result.put("success", true);
+            result.put("data", indicators);
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "获取技术指标失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
+    /**
+     * 批量获取技术指标
+     * @param codes 股票代码，逗号分隔，最多1000个；没有数据的股票不返回
+     */
+    @GetMapping("/indicators")
+    public Map<String, Object> getIndicators(@RequestParam String codes) {
+        Map<String, Object> result = new HashMap<>();
+        if (!indicatorEngine.isEnabled()) {
+            result.put("success", false);
+            result.put("message", "技术指标未启用");
+            return result;
+        }
+        try {
+            List<String> codeList = Arrays.stream(codes.split(","))
+                    .map(String::trim)
+                    .filter(code -> !code.isEmpty())
+                    .distinct()
+                    .toList();
+            if (codeList.size() > IndicatorEngine.MAX_CODES) {
+                throw new IllegalArgumentException("股票代码数不能超过 " + IndicatorEngine.MAX_CODES);
+            }
+            result.put("success", true);
+            result.put("data", indicatorEngine.get(codeList));
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "获取技术指标失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
+    /**
+     * 流式导出原始行情，边读库边写响应，不在内存中汇总
+     * @param codes 股票代码，逗号分隔，为空时导出全部股票
+     * @param from 开始日期（含），yyyy-MM-dd
+     * @param to 结束日期（含），yyyy-MM-dd，默认今天
+     * @param format csv（默认）或 columnar
+     * @param gzip 是否 gzip 压缩
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportStockData(@RequestParam(required = false) String codes,
+                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                             @RequestParam(defaultValue = "csv") String format,
+                                             @RequestParam(defaultValue = "false") boolean gzip) {
+        StockDataExporter.Format exportFormat;
+        List<String> codeList;
+        LocalDate end = to != null ? to : LocalDate.now();
+        try {
+            exportFormat = StockDataExporter.Format.parse(format);
+            codeList = codes == null ? List.of() : Arrays.stream(codes.split(","))
+                    .map(String::trim)
+                    .filter(code -> !code.isEmpty())
+                    .distinct()
+                    .toList();
+            if (codeList.size() > StockDataExporter.MAX_CODES) {
+                throw new IllegalArgumentException("股票代码数不能超过 " + StockDataExporter.MAX_CODES);
+            }
+            if (end.isBefore(from)) {
+                throw new IllegalArgumentException("结束日期不能早于开始日期");
+            }
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("message", "导出参数错误: " + e.getMessage());
+            return ResponseEntity.badRequest().body(result);
+        }
+        StreamingResponseBody body = out -> stockDataExporter.export(codeList, from.atStartOfDay(),
+                end.plusDays(1).atStartOfDay(), exportFormat, gzip, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + StockDataExporter.fileName(exportFormat, gzip) + "\"")
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .body(body);
+    }
+    
     /**
      * 预测股票走势（使用AI实现）
      */
@@ -147,6 +535,37 @@ public class StockController {
         return result;
     }
     
+    /**
+     * 分页获取全市场预测结果，结果在每次爬取后后台计算，查询只做分页
+     * @param sort 排序方式：upProbability（默认，模型预测的上涨概率）、avgChange（近7天平均涨幅），均为降序
+     */
+    @GetMapping("/predictions")
+    public Map<String, Object> getPredictions(@RequestParam(defaultValue = "0") int page,
+                                              @RequestParam(defaultValue = "20") int size,
+                                              @RequestParam(defaultValue = "upProbability") String sort) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            MarketPrediction prediction = marketPredictionService.getPrediction();
+            if (prediction == null) {
+                result.put("success", false);
+                result.put("message", "最新行情尚未加载，暂无预测结果");
+                return result;
+            }
+            result.put("success", true);
+            result.put("data", prediction.page(MarketPrediction.SortKey.parse(sort), page * size, size));
+            result.put("total", prediction.getTotal());
+            result.put("page", page);
+            result.put("size", size);
+            result.put("epoch", prediction.getEpoch());
+            result.put("modelVersion", prediction.getModelVersion());
+            result.put("generatedAt", prediction.getGeneratedAt());
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "获取全市场预测失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
     /**
      * 获取推荐股票
      */
@@ -216,26 +635,131 @@ public class StockController {
     }
 
     /**
-     * 搜索股票（模糊查询，分页）
+     * 选股（分页），在最新行情快照的列式存储上执行，不查询数据库
+     * @param filter 筛选表达式，例如 change_percent > 5 AND turnover > 1e8 AND market_type = 1，为空时匹配所有股票
+     * @param sort 排序，例如 volume desc, change_percent，默认升序，为空时按代码升序
+     */
+    @GetMapping("/screen")
+    public Map<String, Object> screenStocks(@RequestParam(required = false) String filter,
+                                            @RequestParam(required = false) String sort,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "20") int size) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            LatestQuoteSnapshot snapshot = latestQuoteCache.getSnapshot();
+            if (snapshot == null) {
+                result.put("success", false);
+                result.put("message", "最新行情尚未加载，暂不能选股");
+                return result;
+            }
+            long start = System.nanoTime();
+            QuoteColumns.Result found = snapshot.getColumns().screen(ScreenerQuery.parse(filter, sort), page * size, size);
+            result.put("success", true);
+            result.put("data", found.data());
+            result.put("total", found.total());
+            result.put("page", page);
+            result.put("size", size);
+            result.put("tookMicros", (System.nanoTime() - start) / 1000);
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "选股失败: " + e.getMessage());
+        }
+        return result;
+    }
+    
+    /**
+     * 搜索股票（分页），关键字可以是代码、名称或拼音首字母
+     * 优先使用最新行情快照中的搜索索引，按匹配程度排序；快照未加载时模糊查询数据库，按涨跌幅降序
+     * 传入 cursor 时使用游标分页（第一页传空串），按返回的 nextCursor 翻页
      */
     @GetMapping("/search")
     public Map<String, Object> searchStocks(@RequestParam String keyword,
                                            @RequestParam(defaultValue = "0") int page,
-                                           @RequestParam(defaultValue = "20") int size) {
+                                           @RequestParam(defaultValue = "20") int size,
+                                           @RequestParam(required = false) String cursor) {
         Map<String, Object> result = new HashMap<>();
         try {
-            int offset = page * size;
-            List<StockData> data = stockDataMapper.searchStocksPaged(keyword, offset, size);
-            int total = stockDataMapper.countSearchStocks(keyword);
+            if (cursor != null) {
+                return searchStocksByCursor(keyword, cursor, size);
+            }
+            List<StockData> data;
+            int total;
+            LatestQuoteSnapshot snapshot = latestQuoteCache.getSnapshot();
+            if (snapshot != null) {
+                StockSearchIndex.Result found = snapshot.getSearchIndex().search(keyword, page * size, size);
+                data = found.data();
+                total = found.total();
+            } else {
+                data = stockDataMapper.searchStocksPaged(keyword, page * size, size);
+                total = stockDataMapper.countSearchStocks(keyword);
+            }
             result.put("success", true);
             result.put("data", data);
             result.put("total", total);
             result.put("page", page);
             result.put("size", size);
+        } catch (CursorExpiredException e) {
+            result.put("success", false);
+            result.put("cursorExpired", true);
+            result.put("message", e.getMessage());
         } catch (Exception e) {
             result.put("success", false);
             result.put("message", "搜索失败: " + e.getMessage());
         }
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * 游标分页搜索股票
+     * 在游标记录的快照版本上翻页，翻页过程中结果不受新一轮爬取影响，每页的开销与第一页相同；
+     * 快照未加载时查询数据库（游标中的版本号为0），按涨跌幅降序，之后的翻页也继续查询数据库；
+     * 游标所属的快照已被淘汰时抛出 CursorExpiredException
+     */
+    private Map<String, Object> searchStocksByCursor(String keyword, String cursor, int size) {
+        Map<String, Object> result = new HashMap<>();
+        SearchCursor after = cursor.isEmpty() ? null : SearchCursor.decode(cursor);
+        LatestQuoteSnapshot snapshot;
+        if (after == null) {
+            snapshot = latestQuoteCache.getSnapshot();
+        } else if (after.isOnSnapshot()) {
+            snapshot = latestQuoteCache.getSnapshot(after.epoch());
+            if (snapshot == null) {
+                throw new CursorExpiredException();
+            }
+        } else {
+            snapshot = null;
+        }
+        List<StockData> data;
+        int total;
+        String nextCursor = null;
+        if (snapshot != null) {
+            StockSearchIndex.Result found = after != null
+                    ? snapshot.getSearchIndex().searchAfter(keyword, after.rank(), after.stockCode(), size)
+                    : snapshot.getSearchIndex().search(keyword, 0, size);
+            data = found.data();
+            total = found.total();
+            if (!data.isEmpty() && data.size() == size) {
+                nextCursor = SearchCursor.onSnapshot(snapshot.getEpoch(), found.lastRank(),
+                        data.get(data.size() - 1).getStockCode()).encode();
+            }
+        } else {
+            data = after != null
+                    ? stockDataMapper.searchStocksAfter(keyword, after.changePercent(), after.stockCode(), size)
+                    : stockDataMapper.searchStocksAfter(keyword, null, null, size);
+            total = stockDataMapper.countSearchStocks(keyword);
+            if (!data.isEmpty() && data.size() == size) {
+                StockData last = data.get(data.size() - 1);
+                nextCursor = SearchCursor.onDatabase(last.getChangePercent(), last.getStockCode()).encode();
+            }
+        }
+        result.put("success", true);
+        result.put("data", data);
+        result.put("total", total);
+        result.put("size", size);
+        result.put("nextCursor", nextCursor);
+        return result;
+    }
+}
@@ -0,0 +1,11 @@
+package com.dong.socks_dfcf.event;
+
+/**
+ * 一次爬取任务结束（无论成功、部分成功、失败还是取消）后发布
+ * 依赖最新行情的缓存据此刷新
+ * @param jobId 任务ID
+ * @param status 任务最终状态
+ * @param rowsPersisted 本次写入数据库的行数
+ */
+public record CrawlCompletedEvent(long jobId, String status, long rowsPersisted) {
+}
@@ -0,0 +1,96 @@
+package com.dong.socks_dfcf.mapper;
+
+import com.dong.socks_dfcf.model.StockBar;
+import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface StockBarMapper {
+
+    /**
+     * 把一批采样合并进K线：新周期直接插入，已有周期更新最高/最低、按交易时间取收盘价，成交量和成交额累加
+     * 传入的成交量、成交额是与上一次采样相比的增量；close_price 必须在 last_trade_time 之前赋值
+     * @param bars 每个采样在每个周期上的一行，与 stock_data 写入在同一事务中调用
+     * @return 受影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO stock_bar(stock_code, bar_interval, bar_start, open_price, high_price, low_price, close_price, volume, turnover, sample_count, last_trade_time) VALUES " +
+            "<foreach collection='list' item='b' separator=','>" +
+            "(#{b.stockCode}, #{b.barInterval}, #{b.barStart}, #{b.openPrice}, #{b.highPrice}, #{b.lowPrice}, #{b.closePrice}, #{b.volume}, #{b.turnover}, #{b.sampleCount}, #{b.lastTradeTime})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE " +
+            "high_price = GREATEST(high_price, VALUES(high_price)), " +
+            "low_price = LEAST(low_price, VALUES(low_price)), " +
+            "close_price = IF(VALUES(last_trade_time) &gt;= last_trade_time, VALUES(close_price), close_price), " +
+            "volume = volume + VALUES(volume), " +
+            "turnover = turnover + VALUES(turnover), " +
+            "sample_count = sample_count + VALUES(sample_count), " +
+            "last_trade_time = GREATEST(last_trade_time, VALUES(last_trade_time))" +
+            "</script>")
+    int upsertBars(@Param("list") List<StockBar> bars);
+
+    /**
+     * 查询一只股票某个周期的K线，按开始时间倒序
+     * @param from 开始时间（含），为null时不限
+     * @param to 结束时间（不含），为null时不限
+     * @param limit 最多返回的条数
+     */
+    @Select("<script>" +
+            "SELECT * FROM stock_bar WHERE stock_code = #{stockCode} AND bar_interval = #{barInterval}" +
+            "<if test='from != null'> AND bar_start &gt;= #{from}</if>" +
+            "<if test='to != null'> AND bar_start &lt; #{to}</if>" +
+            " ORDER BY bar_start DESC LIMIT #{limit}" +
+            "</script>")
+    @Results({
+        @Result(property = "stockCode", column = "stock_code"),
+        @Result(property = "barInterval", column = "bar_interval"),
+        @Result(property = "barStart", column = "bar_start"),
+        @Result(property = "openPrice", column = "open_price"),
+        @Result(property = "highPrice", column = "high_price"),
+        @Result(property = "lowPrice", column = "low_price"),
+        @Result(property = "closePrice", column = "close_price"),
+        @Result(property = "volume", column = "volume"),
+        @Result(property = "turnover", column = "turnover"),
+        @Result(property = "sampleCount", column = "sample_count"),
+        @Result(property = "lastTradeTime", column = "last_trade_time")
+    })
+    List<StockBar> findBars(@Param("stockCode") String stockCode, @Param("barInterval") String barInterval,
+                            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, @Param("limit") int limit);
+
+    /**
+     * 流式读取所有股票某个周期从 from 开始的K线，按股票代码、开始时间升序，沿主键顺序读取，
+     * 每读到一行回调一次 handler，用于启动时加载指标历史
+     * @param from 开始时间（含）
+     */
+    @Select("SELECT * FROM stock_bar WHERE bar_interval = #{barInterval} AND bar_start >= #{from} ORDER BY stock_code, bar_start")
+    @Options(fetchSize = Integer.MIN_VALUE, resultSetType = ResultSetType.FORWARD_ONLY)
+    @ResultType(StockBar.class)
+    @Results({
+        @Result(property = "stockCode", column = "stock_code"),
+        @Result(property = "barInterval", column = "bar_interval"),
+        @Result(property = "barStart", column = "bar_start"),
+        @Result(property = "openPrice", column = "open_price"),
+        @Result(property = "highPrice", column = "high_price"),
+        @Result(property = "lowPrice", column = "low_price"),
+        @Result(property = "closePrice", column = "close_price"),
+        @Result(property = "volume", column = "volume"),
+        @Result(property = "turnover", column = "turnover"),
+        @Result(property = "sampleCount", column = "sample_count"),
+        @Result(property = "lastTradeTime", column = "last_trade_time")
+    })
+    void scanBarsSince(@Param("barInterval") String barInterval, @Param("from") LocalDateTime from,
+                       ResultHandler<StockBar> handler);
+
+    /**
+     * 删除一批某个周期的过期K线，沿 idx_interval_start 从最早的K线开始删除
+     * @param before 删除 bar_start 早于该时间的K线
+     * @param limit 本批最多删除的行数
+     * @return 实际删除的行数，小于 limit 说明已删完
+     */
+    @Delete("DELETE FROM stock_bar WHERE bar_interval = #{barInterval} AND bar_start < #{before} ORDER BY bar_start LIMIT #{limit}")
+    int deleteBarsBefore(@Param("barInterval") String barInterval, @Param("before") LocalDateTime before, @Param("limit") int limit);
+}
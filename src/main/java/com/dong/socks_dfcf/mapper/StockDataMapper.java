@@ -2,7 +2,11 @@ package com.dong.socks_dfcf.mapper;
 
 import com.dong.socks_dfcf.model.StockData;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -14,6 +18,45 @@ public interface StockDataMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(StockData stockData);
     
+    /**
+     * 多行INSERT批量写入，一条语句一次往返
+     * @param stockDataList 股票数据列表，调用方控制每批大小
+     * @return 插入行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO stock_data(stock_code, stock_name, current_price, change_amount, change_percent, open_price, high_price, low_price, volume, turnover, market_type, trade_time) VALUES " +
+            "<foreach collection='list' item='s' separator=','>" +
+            "(#{s.stockCode}, #{s.stockName}, #{s.currentPrice}, #{s.changeAmount}, #{s.changePercent}, #{s.openPrice}, #{s.highPrice}, #{s.lowPrice}, #{s.volume}, #{s.turnover}, #{s.marketType}, #{s.tradeTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<StockData> stockDataList);
+    
+    /**
+     * 批量更新最新行情表，每只股票一行；只有交易时间不早于已有记录时才覆盖
+     * trade_time 必须最后赋值，前面各列的条件比较的是更新前的交易时间
+     * @param stockDataList 股票数据列表，与 insertBatch 在同一事务中调用
+     * @return 受影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO stock_latest(stock_code, stock_name, current_price, change_amount, change_percent, open_price, high_price, low_price, volume, turnover, market_type, trade_time) VALUES " +
+            "<foreach collection='list' item='s' separator=','>" +
+            "(#{s.stockCode}, #{s.stockName}, #{s.currentPrice}, #{s.changeAmount}, #{s.changePercent}, #{s.openPrice}, #{s.highPrice}, #{s.lowPrice}, #{s.volume}, #{s.turnover}, #{s.marketType}, #{s.tradeTime})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE " +
+            "stock_name = IF(VALUES(trade_time) &gt;= trade_time, VALUES(stock_name), stock_name), " +
+            "current_price = IF(VALUES(trade_time) &gt;= trade_time, VALUES(current_price), current_price), " +
+            "change_amount = IF(VALUES(trade_time) &gt;= trade_time, VALUES(change_amount), change_amount), " +
+            "change_percent = IF(VALUES(trade_time) &gt;= trade_time, VALUES(change_percent), change_percent), " +
+            "open_price = IF(VALUES(trade_time) &gt;= trade_time, VALUES(open_price), open_price), " +
+            "high_price = IF(VALUES(trade_time) &gt;= trade_time, VALUES(high_price), high_price), " +
+            "low_price = IF(VALUES(trade_time) &gt;= trade_time, VALUES(low_price), low_price), " +
+            "volume = IF(VALUES(trade_time) &gt;= trade_time, VALUES(volume), volume), " +
+            "turnover = IF(VALUES(trade_time) &gt;= trade_time, VALUES(turnover), turnover), " +
+            "market_type = IF(VALUES(trade_time) &gt;= trade_time, VALUES(market_type), market_type), " +
+            "trade_time = GREATEST(trade_time, VALUES(trade_time))" +
+            "</script>")
+    int upsertLatestBatch(@Param("list") List<StockData> stockDataList);
+    
     @Select("SELECT * FROM stock_data WHERE stock_code = #{stockCode} ORDER BY trade_time DESC LIMIT 100")
     @Results({
         @Result(property = "id", column = "id"),
@@ -32,22 +75,18 @@ public interface StockDataMapper {
     })
     List<StockData> findByStockCode(String stockCode);
     
-    @Select("SELECT DISTINCT stock_code, stock_name, market_type FROM stock_data ORDER BY stock_code LIMIT 1000")
-    @Results({
-        @Result(property = "stockCode", column = "stock_code"),
-        @Result(property = "stockName", column = "stock_name"),
-        @Result(property = "marketType", column = "market_type")
-    })
-    List<StockData> findAllStockCodes();
-    
-    @Delete("DELETE FROM stock_data WHERE trade_time < DATE_SUB(NOW(), INTERVAL 30 DAY)")
-    int deleteOldData();
-    
-    // 修改查询最新股票数据的方法，获取每个股票的最新一条记录
-    @Select("SELECT s1.* FROM stock_data s1 " +
-            "INNER JOIN (SELECT stock_code, MAX(trade_time) AS max_time FROM stock_data GROUP BY stock_code) s2 " +
-            "ON s1.stock_code = s2.stock_code AND s1.trade_time = s2.max_time " +
-            "ORDER BY s1.change_percent DESC LIMIT 20")
+    /**
+     * 批量查询多只股票各自最近的 limit 条数据，一条窗口查询代替逐只 findByStockCode
+     * @param codes 股票代码，不能为空，调用方控制每批数量
+     * @param limit 每只股票最多返回的条数
+     * @return 按股票代码升序、同一股票内交易时间降序排列
+     */
+    @Select("<script>" +
+            "SELECT id, stock_code, stock_name, current_price, change_amount, change_percent, open_price, high_price, low_price, volume, turnover, market_type, trade_time FROM (" +
+            "SELECT d.*, ROW_NUMBER() OVER (PARTITION BY d.stock_code ORDER BY d.trade_time DESC, d.id DESC) AS rn FROM stock_data d WHERE d.stock_code IN " +
+            "<foreach collection='codes' item='code' open='(' separator=',' close=')'>#{code}</foreach>" +
+            ") t WHERE rn &lt;= #{limit} ORDER BY stock_code, rn" +
+            "</script>")
     @Results({
         @Result(property = "id", column = "id"),
         @Result(property = "stockCode", column = "stock_code"),
@@ -63,19 +102,18 @@ public interface StockDataMapper {
         @Result(property = "marketType", column = "market_type"),
         @Result(property = "tradeTime", column = "trade_time")
     })
-    List<StockData> findLatestStockData();
-
+    List<StockData> findRecentByStockCodes(@Param("codes") List<String> codes, @Param("limit") int limit);
+    
     /**
-     * 分页查询最新股票数据
-     * @param offset 偏移量
-     * @param limit 返回数量
+     * 批量查询多只股票的最新一条数据（来自 stock_latest），没有数据的代码不返回
+     * @param codes 股票代码，不能为空
      */
-    @Select("SELECT s1.* FROM stock_data s1 " +
-            "INNER JOIN (SELECT stock_code, MAX(trade_time) AS max_time FROM stock_data GROUP BY stock_code) s2 " +
-            "ON s1.stock_code = s2.stock_code AND s1.trade_time = s2.max_time " +
-            "ORDER BY s1.change_percent DESC LIMIT #{limit} OFFSET #{offset}")
-    @Results({
-        @Result(property = "id", column = "id"),
+    @Select("<script>" +
+            "SELECT * FROM stock_latest WHERE stock_code IN " +
+            "<foreach collection='codes' item='code' open='(' separator=',' close=')'>#{code}</foreach>" +
+            "</script>")
+    // stock_latest 的结果映射（该表没有 id 列），其余 stock_latest 查询通过 @ResultMap 引用
+    @Results(id = "latestQuote", value = {
         @Result(property = "stockCode", column = "stock_code"),
         @Result(property = "stockName", column = "stock_name"),
         @Result(property = "currentPrice", column = "current_price"),
@@ -89,12 +127,33 @@ public interface StockDataMapper {
         @Result(property = "marketType", column = "market_type"),
         @Result(property = "tradeTime", column = "trade_time")
     })
-    List<StockData> findLatestStockDataPaged(@Param("offset") int offset, @Param("limit") int limit);
-
+    List<StockData> findLatestByStockCodes(@Param("codes") List<String> codes);
+    
+    @Select("SELECT stock_code, stock_name, market_type FROM stock_latest ORDER BY stock_code LIMIT 1000")
+    @Results({
+        @Result(property = "stockCode", column = "stock_code"),
+        @Result(property = "stockName", column = "stock_name"),
+        @Result(property = "marketType", column = "market_type")
+    })
+    List<StockData> findAllStockCodes();
+    
     /**
-     * 搜索股票（模糊查询，分页）
+     * 流式导出原始行情：MySQL驱动逐行读取（fetchSize = Integer.MIN_VALUE），每读到一行回调一次 handler，
+     * 不在内存中保留结果集，导出量再大内存占用也不变
+     * @param codes 股票代码，为空时导出全部股票
+     * @param from 开始时间（含）
+     * @param to 结束时间（不含）
+     * @param handler 逐行处理
      */
-    @Select("SELECT s1.* FROM stock_data s1 INNER JOIN (SELECT stock_code, MAX(trade_time) AS max_time FROM stock_data GROUP BY stock_code) s2 ON s1.stock_code = s2.stock_code AND s1.trade_time = s2.max_time WHERE s1.stock_code LIKE CONCAT('%', #{keyword}, '%') OR s1.stock_name LIKE CONCAT('%', #{keyword}, '%') ORDER BY s1.change_percent DESC LIMIT #{limit} OFFSET #{offset}")
+    @Select("<script>" +
+            "SELECT * FROM stock_data WHERE trade_time &gt;= #{from} AND trade_time &lt; #{to}" +
+            "<if test='codes != null and !codes.isEmpty()'> AND stock_code IN " +
+            "<foreach collection='codes' item='code' open='(' separator=',' close=')'>#{code}</foreach>" +
+            "</if>" +
+            " ORDER BY trade_time" +
+            "</script>")
+    @Options(fetchSize = Integer.MIN_VALUE, resultSetType = ResultSetType.FORWARD_ONLY)
+    @ResultType(StockData.class)
     @Results({
         @Result(property = "id", column = "id"),
         @Result(property = "stockCode", column = "stock_code"),
@@ -110,17 +169,93 @@ public interface StockDataMapper {
         @Result(property = "marketType", column = "market_type"),
         @Result(property = "tradeTime", column = "trade_time")
     })
+    void exportTradeData(@Param("codes") List<String> codes, @Param("from") LocalDateTime from,
+                         @Param("to") LocalDateTime to, ResultHandler<StockData> handler);
+
+    /**
+     * 删除一批过期数据，沿 idx_trade_time 从最早的数据开始删除
+     * @param cutoff 删除 trade_time 早于该时间的数据
+     * @param limit 本批最多删除的行数
+     * @return 实际删除的行数，小于 limit 说明已删完
+     */
+    @Delete("DELETE FROM stock_data WHERE trade_time < #{cutoff} ORDER BY trade_time LIMIT #{limit}")
+    int deleteTradeDataBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+    
+    // 查询最新股票数据，每个股票的最新一条记录来自 stock_latest
+    @Select("SELECT * FROM stock_latest ORDER BY change_percent DESC LIMIT 20")
+    @ResultMap("latestQuote")
+    List<StockData> findLatestStockData();
+
+    /**
+     * 涨跌幅最高的 limit 只股票，涨跌幅为空的不参与排序
+     */
+    @Select("SELECT * FROM stock_latest WHERE change_percent IS NOT NULL ORDER BY change_percent DESC, stock_code LIMIT #{limit}")
+    @ResultMap("latestQuote")
+    List<StockData> findTopGainers(@Param("limit") int limit);
+
+    /**
+     * 全部股票的最新行情，用于构建内存快照
+     */
+    @Select("SELECT * FROM stock_latest")
+    @ResultMap("latestQuote")
+    List<StockData> findAllLatest();
+
+    /**
+     * 分页查询最新股票数据
+     * @param orderColumn 降序排序列，只能传入 LatestQuoteSnapshot.SortKey 中的列名
+     * @param offset 偏移量
+     * @param limit 返回数量
+     */
+    @Select("SELECT * FROM stock_latest ORDER BY ${orderColumn} DESC, stock_code LIMIT #{limit} OFFSET #{offset}")
+    @ResultMap("latestQuote")
+    List<StockData> findLatestStockDataPaged(@Param("orderColumn") String orderColumn, @Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * 游标分页查询最新股票数据，按涨跌幅降序、代码升序，走 (change_percent DESC, stock_code) 索引，
+     * 任意一页都只扫描 limit 行
+     * @param cursorValue 上一页最后一行的涨跌幅，第一页为null
+     * @param cursorCode 上一页最后一行的代码，第一页为null
+     * @param limit 返回数量
+     */
+    @Select("<script>" +
+            "SELECT * FROM stock_latest" +
+            "<if test='cursorCode != null'> WHERE change_percent &lt; #{cursorValue} OR (change_percent = #{cursorValue} AND stock_code &gt; #{cursorCode})</if>" +
+            " ORDER BY change_percent DESC, stock_code LIMIT #{limit}" +
+            "</script>")
+    @ResultMap("latestQuote")
+    List<StockData> findLatestStockDataAfter(@Param("cursorValue") BigDecimal cursorValue, @Param("cursorCode") String cursorCode,
+                                             @Param("limit") int limit);
+
+    /**
+     * 搜索股票（模糊查询，分页）
+     */
+    @Select("SELECT * FROM stock_latest WHERE stock_code LIKE CONCAT('%', #{keyword}, '%') OR stock_name LIKE CONCAT('%', #{keyword}, '%') ORDER BY change_percent DESC, stock_code LIMIT #{limit} OFFSET #{offset}")
+    @ResultMap("latestQuote")
     List<StockData> searchStocksPaged(@Param("keyword") String keyword, @Param("offset") int offset, @Param("limit") int limit);
 
+    /**
+     * 搜索股票（游标分页），按涨跌幅降序、代码升序
+     * @param cursorValue 上一页最后一行的涨跌幅，第一页为null
+     * @param cursorCode 上一页最后一行的代码，第一页为null
+     */
+    @Select("<script>" +
+            "SELECT * FROM stock_latest WHERE (stock_code LIKE CONCAT('%', #{keyword}, '%') OR stock_name LIKE CONCAT('%', #{keyword}, '%'))" +
+            "<if test='cursorCode != null'> AND (change_percent &lt; #{cursorValue} OR (change_percent = #{cursorValue} AND stock_code &gt; #{cursorCode}))</if>" +
+            " ORDER BY change_percent DESC, stock_code LIMIT #{limit}" +
+            "</script>")
+    @ResultMap("latestQuote")
+    List<StockData> searchStocksAfter(@Param("keyword") String keyword, @Param("cursorValue") BigDecimal cursorValue,
+                                      @Param("cursorCode") String cursorCode, @Param("limit") int limit);
+
     /**
      * 搜索结果总数
      */
-    @Select("SELECT COUNT(DISTINCT stock_code) FROM stock_data WHERE stock_code LIKE CONCAT('%', #{keyword}, '%') OR stock_name LIKE CONCAT('%', #{keyword}, '%')")
+    @Select("SELECT COUNT(*) FROM stock_latest WHERE stock_code LIKE CONCAT('%', #{keyword}, '%') OR stock_name LIKE CONCAT('%', #{keyword}, '%')")
     int countSearchStocks(@Param("keyword") String keyword);
 
     /**
      * 获取所有股票总条数
      */
-    @Select("SELECT COUNT(DISTINCT stock_code) FROM stock_data")
+    @Select("SELECT COUNT(*) FROM stock_latest")
     int countAllStockData();
 }
\ No newline at end of file
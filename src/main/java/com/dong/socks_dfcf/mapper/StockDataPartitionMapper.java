@@ -0,0 +1,47 @@
+package com.dong.socks_dfcf.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * stock_data 按天分区的维护，表结构见 schema/stock_data_partitioning.sql
+ * 分区名由 StockDataRetentionService 生成（p_history / pYYYYMMDD / p_future），不接受外部输入
+ */
+@Mapper
+public interface StockDataPartitionMapper {
+
+    /**
+     * stock_data 的分区名，按分区顺序；未分区时返回空列表
+     */
+    @Select("SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'stock_data' AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION")
+    List<String> findPartitionNames();
+
+    /**
+     * 分区的估算行数（来自表统计信息，不扫描数据）
+     */
+    @Select("SELECT COALESCE(MAX(TABLE_ROWS), 0) FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'stock_data' AND PARTITION_NAME = #{name}")
+    long estimatePartitionRows(@Param("name") String name);
+
+    /**
+     * 从 p_future 中拆出一个新分区，p_future 中已有的数据按新的边界重新分配
+     * @param name 新分区名
+     * @param lessThan 新分区的上界（不含），格式 yyyy-MM-dd
+     */
+    @Update("ALTER TABLE stock_data REORGANIZE PARTITION p_future INTO (" +
+            "PARTITION ${name} VALUES LESS THAN ('${lessThan}'), " +
+            "PARTITION p_future VALUES LESS THAN (MAXVALUE))")
+    void addPartition(@Param("name") String name, @Param("lessThan") String lessThan);
+
+    /**
+     * 删除整个分区及其中的数据
+     */
+    @Update("ALTER TABLE stock_data DROP PARTITION ${name}")
+    void dropPartition(@Param("name") String name);
+}
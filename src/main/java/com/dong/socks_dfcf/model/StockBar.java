@@ -0,0 +1,20 @@
+package com.dong.socks_dfcf.model;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class StockBar {
+    private String stockCode;          // 股票代码
+    private String barInterval;        // 周期：30m / 1d / 1w
+    private LocalDateTime barStart;    // 周期开始时间
+    private BigDecimal openPrice;      // 开盘价
+    private BigDecimal highPrice;      // 最高价
+    private BigDecimal lowPrice;       // 最低价
+    private BigDecimal closePrice;     // 收盘价（周期内最后一次采样的最新价）
+    private Long volume;               // 周期内成交量
+    private BigDecimal turnover;       // 周期内成交额
+    private Integer sampleCount;       // 合并的采样数
+    private LocalDateTime lastTradeTime; // 最后一次采样的交易时间
+}
@@ -10,6 +10,7 @@ import com.alibaba.dashscope.exception.InputRequiredException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.utils.Constants;
 import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.model.StockBar;
 import com.dong.socks_dfcf.model.StockData;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,10 +19,7 @@ import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -29,6 +27,8 @@ import java.util.stream.Collectors;
 public class AIAnalysisService {
 
     private final StockDataMapper stockDataMapper;
+    private final BarRollupService barRollupService;
+    private final LatestQuoteCache latestQuoteCache;
 
     @Value("${dashscope.api-key:}")
     private String apiKey;
@@ -95,14 +95,17 @@ public class AIAnalysisService {
             prompt.append("最高价: ").append(latestData.getHighPrice()).append("\n");
             prompt.append("最低价: ").append(latestData.getLowPrice()).append("\n");
 
-            // 添加历史趋势分析
-            if (stockHistory.size() > 7) {
-                prompt.append("最近7天价格走势: \n");
-                for (int i = 0; i < Math.min(7, stockHistory.size()); i++) {
-                    StockData data = stockHistory.get(i);
-                    prompt.append("  - 日期:").append(data.getTradeTime().toLocalDate())
-                           .append(" 价格:").append(data.getCurrentPrice())
-                           .append(" 涨跌幅:").append(data.getChangePercent()).append("%\n");
+            // 添加最近7个交易日的日K线
+            List<StockBar> dailyBars = barRollupService.getRecentBars(stockCode, BarInterval.DAY, 7);
+            if (!dailyBars.isEmpty()) {
+                prompt.append("最近").append(dailyBars.size()).append("个交易日走势: \n");
+                for (StockBar bar : dailyBars) {
+                    prompt.append("  - 日期:").append(bar.getBarStart().toLocalDate())
+                           .append(" 开盘:").append(bar.getOpenPrice())
+                           .append(" 最高:").append(bar.getHighPrice())
+                           .append(" 最低:").append(bar.getLowPrice())
+                           .append(" 收盘:").append(bar.getClosePrice())
+                           .append(" 成交量:").append(formatVolume(bar.getVolume())).append("\n");
                 }
                 prompt.append("\n");
             }
@@ -141,13 +144,11 @@ public class AIAnalysisService {
      */
     public String recommendStocks() {
         try {
-            List<StockData> allStocks = stockDataMapper.findAllStockCodes();
-            if (allStocks.isEmpty()) {
-                return "没有可推荐的股票数据";
-            }
-
             // 获取涨幅前10的股票
             List<StockData> topGainers = getTopGainers(10);
+            if (topGainers.isEmpty()) {
+                return "没有可推荐的股票数据";
+            }
 
             StringBuilder prompt = new StringBuilder();
             prompt.append("你是一位专业的股票投资顾问，请分析以下股票数据并推荐3-5只最具有投资价值的股票:\n\n");
@@ -246,25 +247,14 @@ public class AIAnalysisService {
      * @return 涨幅前N的股票列表
      */
     private List<StockData> getTopGainers(int limit) {
-        // 获取所有股票的最新数据
-        List<StockData> allStocks = stockDataMapper.findAllStockCodes();
-        List<StockData> result = new ArrayList<>();
-
-        // 获取每只股票的最新数据
-        for (StockData stock : allStocks) {
-            if (result.size() >= limit * 2) break; // 多获取一些以确保质量
-            List<StockData> history = stockDataMapper.findByStockCode(stock.getStockCode());
-            if (!history.isEmpty()) {
-                result.add(history.get(0));
-            }
+        // 最新行情快照已按涨跌幅降序排好（空值在最后），快照未加载时由数据库排序取前N
+        LatestQuoteSnapshot snapshot = latestQuoteCache.getSnapshot();
+        if (snapshot == null) {
+            return stockDataMapper.findTopGainers(limit);
         }
-
-        // 按涨幅排序并取前N个
-        return result.stream()
+        return snapshot.page(LatestQuoteSnapshot.SortKey.CHANGE_PERCENT, 0, limit).stream()
                 .filter(stock -> stock.getChangePercent() != null)
-                .sorted(Comparator.comparing(StockData::getChangePercent).reversed())
-                .limit(limit)
-                .collect(Collectors.toList());
+                .toList();
     }
 
     /**
@@ -0,0 +1,148 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 爬虫自适应并发控制（AIMD）
+ * 响应正常且耗时低于阈值时，每轮（约limit个成功请求）并发上限加1；
+ * 出现超时、429、5xx或响应变慢时，上限乘以退让系数，同一轮内只退让一次
+ * 使用 ReentrantLock 而不是 synchronized，等待许可时不会钉住虚拟线程的载体线程
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * 一次请求的结果
+     */
+    public enum Outcome {
+        /** 成功 */
+        SUCCESS,
+        /** 上游过载：超时、429、5xx */
+        OVERLOAD,
+        /** 其他错误，不影响并发上限 */
+        ERROR
+    }
+
+    private static final double DECREASE_FACTOR = 0.75;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+
+    private double limit;
+    private int inFlight;
+    // 上次退让后，在这之前发出的请求的失败不再触发退让
+    private long lastDecreaseNanos;
+
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong overloadCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong decreaseCount = new AtomicLong();
+
+    public AdaptiveConcurrencyLimiter(CrawlerProperties crawlerProperties) {
+        this.maxLimit = Math.max(crawlerProperties.getMaxInFlightPages(), 1);
+        this.minLimit = Math.min(Math.max(crawlerProperties.getMinInFlightPages(), 1), maxLimit);
+        this.limit = Math.min(Math.max(crawlerProperties.getInitialInFlightPages(), minLimit), maxLimit);
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(crawlerProperties.getLatencyThresholdMillis());
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取许可，在途请求数达到当前上限时等待
+     * @return 请求开始时间，释放许可时传回
+     * @throws InterruptedException 等待时被中断
+     */
+    public long acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                permitAvailable.await();
+            }
+            inFlight++;
+            return System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 释放许可并根据结果调整并发上限
+     * @param startNanos acquire 返回的开始时间
+     * @param outcome 请求结果
+     */
+    public void release(long startNanos, Outcome outcome) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        lock.lock();
+        try {
+            inFlight--;
+            boolean slow = latencyNanos > latencyThresholdNanos;
+            if (outcome == Outcome.OVERLOAD || (outcome == Outcome.SUCCESS && slow)) {
+                // 只有在上次退让之后发出的请求才能再次触发退让，避免同一波失败连续减半
+                if (startNanos > lastDecreaseNanos) {
+                    double previous = limit;
+                    limit = Math.max(minLimit, Math.floor(limit * DECREASE_FACTOR));
+                    lastDecreaseNanos = System.nanoTime();
+                    decreaseCount.incrementAndGet();
+                    log.info("Crawler concurrency limit decreased {} -> {} ({}, {} ms)",
+                            (int) previous, (int) limit, outcome, TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+                }
+            } else if (outcome == Outcome.SUCCESS && inFlight + 1 >= (int) limit) {
+                // 只有并发真正用满时才增加上限，每轮约加1
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        switch (outcome) {
+            case SUCCESS -> successCount.incrementAndGet();
+            case OVERLOAD -> overloadCount.incrementAndGet();
+            case ERROR -> errorCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 当前并发上限
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 并发控制指标
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("limit", (int) limit);
+            stats.put("inFlight", inFlight);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("minLimit", minLimit);
+        stats.put("maxLimit", maxLimit);
+        stats.put("successes", successCount.get());
+        stats.put("overloads", overloadCount.get());
+        stats.put("errors", errorCount.get());
+        stats.put("decreases", decreaseCount.get());
+        return stats;
+    }
+}
@@ -0,0 +1,64 @@
+package com.dong.socks_dfcf.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * K线周期：Nm（N分钟，需整除一天）、1d（日线）、1w（周线，从周一开始）
+ * @param code 周期代码，写入 stock_bar.bar_interval
+ * @param minutes 分钟周期的长度；日线、周线为0
+ */
+public record BarInterval(String code, int minutes) {
+
+    public static final BarInterval DAY = new BarInterval("1d", 0);
+    public static final BarInterval WEEK = new BarInterval("1w", 0);
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * 解析周期代码
+     * @throws IllegalArgumentException 不支持的周期
+     */
+    public static BarInterval parse(String code) {
+        String normalized = code == null ? "" : code.trim().toLowerCase();
+        if (DAY.code.equals(normalized)) {
+            return DAY;
+        }
+        if (WEEK.code.equals(normalized)) {
+            return WEEK;
+        }
+        if (normalized.endsWith("m")) {
+            try {
+                int minutes = Integer.parseInt(normalized.substring(0, normalized.length() - 1));
+                if (minutes > 0 && MINUTES_PER_DAY % minutes == 0) {
+                    return new BarInterval(minutes + "m", minutes);
+                }
+            } catch (NumberFormatException e) {
+                // 落到下面的异常
+            }
+        }
+        throw new IllegalArgumentException("不支持的K线周期: " + code);
+    }
+
+    /**
+     * 是否为日内周期；日内周期的开高低取各次采样的最新价，日线和周线取接口返回的当日开高低
+     */
+    public boolean isIntraday() {
+        return minutes > 0;
+    }
+
+    /**
+     * 交易时间所在周期的开始时间
+     */
+    public LocalDateTime bucketStart(LocalDateTime tradeTime) {
+        if (this.equals(WEEK)) {
+            return tradeTime.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+        }
+        if (this.equals(DAY)) {
+            return tradeTime.toLocalDate().atStartOfDay();
+        }
+        int minuteOfDay = tradeTime.getHour() * 60 + tradeTime.getMinute();
+        return tradeTime.toLocalDate().atStartOfDay().plusMinutes(minuteOfDay / minutes * minutes);
+    }
+}
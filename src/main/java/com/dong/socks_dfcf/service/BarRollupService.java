@@ -0,0 +1,199 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.mapper.StockBarMapper;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.model.StockBar;
+import com.dong.socks_dfcf.model.StockData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * K线增量汇总：每批行情写库时，在同一事务中把这批采样合并进各周期（默认30m、1d、1w）的 stock_bar
+ * 接口返回的成交量、成交额是当日累计值，这里与同一只股票上一次采样相比得到增量再累加，
+ * 因此分钟线、日线、周线的成交量都是周期内的真实成交量；跨日时增量即为当日累计值。
+ * 周期和交易日都按行情自身的更新时间划分（见 ClistResponseParser），开盘前采到的上一交易日收盘行情
+ * 计入上一交易日的K线，不会把上一交易日的累计成交量和开盘价、最高价、最低价带进新的一天
+ * 上一次采样的累计值保存在内存中，首次使用时从 stock_latest 加载
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BarRollupService {
+
+    // 单次查询K线的最大条数
+    private static final int MAX_BARS = 1000;
+
+    private final StockDataMapper stockDataMapper;
+    private final StockBarMapper stockBarMapper;
+    private final CrawlerProperties crawlerProperties;
+
+    private final Map<String, Cumulative> cumulatives = new ConcurrentHashMap<>();
+    private volatile boolean seeded;
+
+    /**
+     * 一只股票最近一次已写库采样的当日累计成交量、成交额
+     */
+    record Cumulative(LocalDateTime tradeTime, long volume, BigDecimal turnover) {
+    }
+
+    /**
+     * 一批采样的汇总结果，事务提交后调用 commit 才更新内存中的累计值，事务回滚时直接丢弃
+     * @param bars 要合并的K线行
+     * @param cumulatives 这批采样之后各股票的累计值
+     */
+    public record Rollup(List<StockBar> bars, Map<String, Cumulative> cumulatives) {
+    }
+
+    /**
+     * 启用的周期
+     */
+    public List<BarInterval> getIntervals() {
+        return crawlerProperties.getBarIntervals().stream().map(BarInterval::parse).toList();
+    }
+
+    /**
+     * 计算一批采样对各周期K线的增量；交易时间不晚于上一次采样的行（重复或乱序）不参与汇总
+     * @param rows 即将写库的行情
+     */
+    public Rollup prepare(List<StockData> rows) {
+        List<BarInterval> intervals = getIntervals();
+        if (intervals.isEmpty()) {
+            return new Rollup(List.of(), Map.of());
+        }
+        seedIfNeeded();
+        List<StockBar> bars = new ArrayList<>(rows.size() * intervals.size());
+        Map<String, Cumulative> next = new HashMap<>();
+        for (StockData row : rows) {
+            if (row.getStockCode() == null || row.getTradeTime() == null || row.getCurrentPrice() == null) {
+                continue;
+            }
+            Cumulative previous = next.containsKey(row.getStockCode()) ? next.get(row.getStockCode()) : cumulatives.get(row.getStockCode());
+            if (previous != null && !row.getTradeTime().isAfter(previous.tradeTime())) {
+                continue;
+            }
+            Cumulative current = new Cumulative(row.getTradeTime(),
+                    row.getVolume() != null ? row.getVolume() : previousVolume(previous, row.getTradeTime()),
+                    row.getTurnover() != null ? row.getTurnover() : previousTurnover(previous, row.getTradeTime()));
+            long volumeDelta = Math.max(current.volume() - previousVolume(previous, row.getTradeTime()), 0);
+            BigDecimal turnoverDelta = current.turnover().subtract(previousTurnover(previous, row.getTradeTime())).max(BigDecimal.ZERO);
+            for (BarInterval interval : intervals) {
+                bars.add(toBar(row, interval, volumeDelta, turnoverDelta));
+            }
+            next.put(row.getStockCode(), current);
+        }
+        return new Rollup(bars, next);
+    }
+
+    /**
+     * 同一交易日的上一次累计成交量，跨日或没有记录时为0
+     */
+    private static long previousVolume(Cumulative previous, LocalDateTime tradeTime) {
+        return sameDay(previous, tradeTime) ? previous.volume() : 0;
+    }
+
+    private static BigDecimal previousTurnover(Cumulative previous, LocalDateTime tradeTime) {
+        return sameDay(previous, tradeTime) ? previous.turnover() : BigDecimal.ZERO;
+    }
+
+    private static boolean sameDay(Cumulative previous, LocalDateTime tradeTime) {
+        return previous != null && previous.tradeTime().toLocalDate().equals(tradeTime.toLocalDate());
+    }
+
+    private static StockBar toBar(StockData row, BarInterval interval, long volumeDelta, BigDecimal turnoverDelta) {
+        BigDecimal price = row.getCurrentPrice();
+        StockBar bar = new StockBar();
+        bar.setStockCode(row.getStockCode());
+        bar.setBarInterval(interval.code());
+        bar.setBarStart(interval.bucketStart(row.getTradeTime()));
+        if (interval.isIntraday()) {
+            bar.setOpenPrice(price);
+            bar.setHighPrice(price);
+            bar.setLowPrice(price);
+        } else {
+            bar.setOpenPrice(row.getOpenPrice() != null ? row.getOpenPrice() : price);
+            bar.setHighPrice(row.getHighPrice() != null ? row.getHighPrice().max(price) : price);
+            bar.setLowPrice(row.getLowPrice() != null ? row.getLowPrice().min(price) : price);
+        }
+        bar.setClosePrice(price);
+        bar.setVolume(volumeDelta);
+        bar.setTurnover(turnoverDelta);
+        bar.setSampleCount(1);
+        bar.setLastTradeTime(row.getTradeTime());
+        return bar;
+    }
+
+    /**
+     * 写入K线，在行情写库的事务中调用
+     */
+    public void persist(Rollup rollup) {
+        if (!rollup.bars().isEmpty()) {
+            stockBarMapper.upsertBars(rollup.bars());
+        }
+    }
+
+    /**
+     * 事务提交后更新内存中的累计值
+     */
+    public void commit(Rollup rollup) {
+        cumulatives.putAll(rollup.cumulatives());
+    }
+
+    /**
+     * 从 stock_latest 加载每只股票最近一次采样的累计值；stock_latest 与 stock_bar 在同一事务中更新，两者一致
+     */
+    private void seedIfNeeded() {
+        if (seeded) {
+            return;
+        }
+        synchronized (this) {
+            if (seeded) {
+                return;
+            }
+            for (StockData latest : stockDataMapper.findAllLatest()) {
+                if (latest.getTradeTime() != null) {
+                    cumulatives.putIfAbsent(latest.getStockCode(), new Cumulative(latest.getTradeTime(),
+                            latest.getVolume() != null ? latest.getVolume() : 0,
+                            latest.getTurnover() != null ? latest.getTurnover() : BigDecimal.ZERO));
+                }
+            }
+            seeded = true;
+            log.info("K线汇总已加载 {} 只股票的累计成交量", cumulatives.size());
+        }
+    }
+
+    /**
+     * 查询K线，按开始时间升序
+     * @param stockCode 股票代码
+     * @param interval 周期
+     * @param from 开始日期（含），为null时不限
+     * @param to 结束日期（含），为null时不限
+     * @param limit 最多返回最近的多少条
+     */
+    public List<StockBar> getBars(String stockCode, BarInterval interval, LocalDate from, LocalDate to, int limit) {
+        List<StockBar> bars = new ArrayList<>(stockBarMapper.findBars(stockCode, interval.code(),
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                Math.max(1, Math.min(limit, MAX_BARS))));
+        Collections.reverse(bars);
+        return bars;
+    }
+
+    /**
+     * 最近 count 条K线，按开始时间升序
+     */
+    public List<StockBar> getRecentBars(String stockCode, BarInterval interval, int count) {
+        return getBars(stockCode, interval, null, null, count);
+    }
+}
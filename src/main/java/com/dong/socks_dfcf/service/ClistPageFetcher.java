@@ -0,0 +1,19 @@
+package com.dong.socks_dfcf.service;
+
+import java.io.IOException;
+
+/**
+ * clist 接口的一页数据来源
+ * 默认实现请求东方财富线上接口，也可以录制响应或回放录制的响应（见 crawler.fetch-mode）
+ */
+public interface ClistPageFetcher {
+
+    /**
+     * 获取并解析一页数据
+     * @param page 页码，从1开始
+     * @param pageSize 页大小
+     * @return 解析后的页面数据
+     * @throws IOException 请求失败、非2xx响应（CrawlHttpStatusException）或响应格式不正确
+     */
+    ClistResponseParser.ClistPage fetch(int page, int pageSize) throws IOException;
+}
@@ -0,0 +1,208 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 东方财富 clist 接口响应的流式解析器
+ * 直接从HTTP响应流中逐个读取JSON token，跳过 jQuery..._( ... ) JSONP 包装，
+ * 不构造完整响应字符串，也不构造 JsonNode 树；数值字段按定点数解码，见 FixedPointNumber
+ * 交易时间取行情自身的更新时间（f124），开盘前采到的上一交易日收盘行情仍归入上一交易日；没有更新时间的行使用采集时间
+ */
+public class ClistResponseParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * 解析结果：data.total 和 data.diff 中的有效行
+     * @param total 接口返回的总记录数，data为空时为0
+     * @param diffSize data.diff 中的行数（包括被清洗掉的行），即接口实际返回的页大小
+     * @param rows 解析出的股票数据
+     */
+    public record ClistPage(int total, int diffSize, List<StockData> rows) {
+    }
+
+    /**
+     * 解析一页响应
+     * @param in 响应流（JSONP或纯JSON），调用方负责关闭
+     * @return 解析结果
+     * @throws IOException 读取失败或响应格式不正确
+     */
+    public ClistPage parse(InputStream in) throws IOException {
+        InputStream json = skipJsonpPrefix(in);
+        ClistPage page = new ClistPage(0, 0, new ArrayList<>());
+        // 没有行情更新时间的行使用同一页的采集时间
+        LocalDateTime tradeTime = LocalDateTime.now();
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            // 只读到根对象结束，后面的 ");" 不再读取
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected response: root is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("data".equals(field) && token == JsonToken.START_OBJECT) {
+                    page = readData(parser, tradeTime);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * 跳过JSONP回调函数名和左括号，返回从 '{' 开始的流
+     */
+    private InputStream skipJsonpPrefix(InputStream in) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(new BufferedInputStream(in), 1);
+        int b;
+        while ((b = pushback.read()) != -1) {
+            if (b == '(') {
+                return pushback;
+            }
+            if (b == '{') {
+                // 没有JSONP包装，直接是JSON
+                pushback.unread(b);
+                return pushback;
+            }
+        }
+        throw new IOException("Unexpected response: no JSON payload found");
+    }
+
+    /**
+     * 读取data对象中的total和diff
+     */
+    private ClistPage readData(JsonParser parser, LocalDateTime tradeTime) throws IOException {
+        int total = 0;
+        int diffSize = 0;
+        List<StockData> rows = new ArrayList<>();
+        // 整页复用同一个数值解码缓冲
+        FixedPointNumber number = new FixedPointNumber();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("total".equals(field)) {
+                total = parser.getValueAsInt(0);
+            } else if ("diff".equals(field) && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    diffSize++;
+                    addIfValid(rows, readRow(parser, tradeTime, number));
+                }
+            } else if ("diff".equals(field) && token == JsonToken.START_OBJECT) {
+                // np=0 时diff是以序号为key的对象
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        diffSize++;
+                        addIfValid(rows, readRow(parser, tradeTime, number));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new ClistPage(total, diffSize, rows);
+    }
+
+    private void addIfValid(List<StockData> rows, StockData stockData) {
+        // 数据清洗：代码和名称都不能为空
+        if (!stockData.getStockCode().isEmpty() && !stockData.getStockName().isEmpty()) {
+            rows.add(stockData);
+        }
+    }
+
+    /**
+     * 读取diff中的一行，解析器当前位于该行的 START_OBJECT
+     */
+    private StockData readRow(JsonParser parser, LocalDateTime tradeTime, FixedPointNumber number) throws IOException {
+        StockData stockData = new StockData();
+        stockData.setStockCode("");
+        stockData.setStockName("");
+        stockData.setMarketType(0);
+        stockData.setVolume(0L);
+        stockData.setTurnover(BigDecimal.ZERO);
+        stockData.setTradeTime(tradeTime);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "f12" -> stockData.setStockCode(readText(parser, token));      // 代码
+                case "f13" -> stockData.setMarketType(readInt(parser, token));      // 市场
+                case "f14" -> stockData.setStockName(readText(parser, token));      // 名称
+                case "f2" -> stockData.setCurrentPrice(number.read(parser, token) ? number.toDecimal() : null); // 最新价
+                case "f4" -> stockData.setChangeAmount(number.read(parser, token) ? number.toDecimal() : null); // 涨跌额
+                case "f3" -> stockData.setChangePercent(number.read(parser, token) ? number.toChangePercent() : null); // 涨跌幅
+                case "f15" -> stockData.setHighPrice(number.read(parser, token) ? number.toDecimal() : null);   // 最高
+                case "f16" -> stockData.setOpenPrice(number.read(parser, token) ? number.toDecimal() : null);   // 今开
+                case "f17" -> stockData.setLowPrice(number.read(parser, token) ? number.toDecimal() : null);    // 最低
+                // 成交量，单位"万"
+                case "f5" -> stockData.setVolume(number.read(parser, token) ? number.toTenThousandLong() : 0L);
+                // 成交额，单位"万"
+                case "f6" -> stockData.setTurnover(number.read(parser, token) ? number.toTenThousandDecimal() : BigDecimal.ZERO);
+                // 行情更新时间，Unix 秒
+                case "f124" -> {
+                    long updatedAt = readLong(parser, token);
+                    if (updatedAt > 0) {
+                        stockData.setTradeTime(LocalDateTime.ofInstant(Instant.ofEpochSecond(updatedAt), ZoneId.systemDefault()));
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return stockData;
+    }
+
+    /**
+     * 读取文本值，null和"-"视为空字符串
+     */
+    private String readText(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return "";
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return "";
+        }
+        String text = parser.getText();
+        return "-".equals(text) ? "" : text;
+    }
+
+    /**
+     * 读取整数值，无法解析时返回0
+     */
+    private int readInt(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return 0;
+        }
+        return parser.getValueAsInt(0);
+    }
+
+    /**
+     * 读取长整数值，无法解析时返回0
+     */
+    private long readLong(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return 0;
+        }
+        return parser.getValueAsLong(0);
+    }
+}
@@ -0,0 +1,110 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * 紧凑的二进制列式导出，所有整数为大端序（DataOutputStream）
+ * 文件头：魔数 "SDX1"(int)、列数(int)、各列名(writeUTF)、时区(writeUTF)
+ * 之后是若干块，每块：行数(int)，然后按列依次写出该块所有行：
+ * stock_code、stock_name 为 writeUTF；trade_time 为 epoch 秒(long)；
+ * 价格、涨跌额、成交额为 ×10^4 的定点 long，涨跌幅为 ×10^6 的定点 long；成交量为 long；
+ * market_type 为 int；数值为空时写 NULL_LONG / NULL_INT
+ * 行数为0的块表示文件结束。每块最多 BLOCK_ROWS 行，写入方只缓冲一块
+ */
+final class ColumnarExportWriter implements ExportWriter {
+
+    static final int MAGIC = 0x53445831; // "SDX1"
+    static final int BLOCK_ROWS = 4096;
+    static final long NULL_LONG = Long.MIN_VALUE;
+    static final int NULL_INT = Integer.MIN_VALUE;
+    static final String[] COLUMNS = {"stock_code", "stock_name", "trade_time", "current_price", "change_amount",
+            "change_percent", "open_price", "high_price", "low_price", "volume", "turnover", "market_type"};
+
+    private final DataOutputStream out;
+    private final ZoneId zone;
+    private final StockData[] block = new StockData[BLOCK_ROWS];
+    private int size;
+
+    ColumnarExportWriter(OutputStream out, ZoneId zone) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.zone = zone;
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(COLUMNS.length);
+        for (String column : COLUMNS) {
+            this.out.writeUTF(column);
+        }
+        this.out.writeUTF(zone.getId());
+    }
+
+    @Override
+    public void write(StockData row) throws IOException {
+        block[size++] = row;
+        if (size == BLOCK_ROWS) {
+            flushBlock();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeUTF(block[i].getStockCode());
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeUTF(block[i].getStockName() != null ? block[i].getStockName() : "");
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(block[i].getTradeTime() != null ? block[i].getTradeTime().atZone(zone).toEpochSecond() : NULL_LONG);
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(fixed(block[i].getCurrentPrice(), 4));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(fixed(block[i].getChangeAmount(), 4));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(fixed(block[i].getChangePercent(), 6));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(fixed(block[i].getOpenPrice(), 4));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(fixed(block[i].getHighPrice(), 4));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(fixed(block[i].getLowPrice(), 4));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(block[i].getVolume() != null ? block[i].getVolume() : NULL_LONG);
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeLong(fixed(block[i].getTurnover(), 4));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeInt(block[i].getMarketType() != null ? block[i].getMarketType() : NULL_INT);
+        }
+        Arrays.fill(block, 0, size, null);
+        size = 0;
+    }
+
+    private static long fixed(BigDecimal value, int scale) {
+        return value != null ? value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact() : NULL_LONG;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (size > 0) {
+            flushBlock();
+        }
+        out.writeInt(0);
+        out.flush();
+    }
+}
@@ -0,0 +1,27 @@
+package com.dong.socks_dfcf.service;
+
+import java.io.IOException;
+
+/**
+ * 上游接口返回非2xx状态码
+ */
+public class CrawlHttpStatusException extends IOException {
+
+    private final int statusCode;
+
+    public CrawlHttpStatusException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * 是否表示上游过载或限流（429、5xx），需要降低并发并重试
+     */
+    public boolean isOverload() {
+        return statusCode == 429 || statusCode >= 500;
+    }
+}
@@ -0,0 +1,142 @@
+package com.dong.socks_dfcf.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一次爬取任务（全量或单页），由 CrawlJobService 创建并在后台虚拟线程中执行
+ */
+public class CrawlJob {
+
+    /**
+     * 任务类型
+     */
+    public enum Type {
+        /** 全量爬取 */
+        FULL,
+        /** 单页爬取 */
+        PAGE
+    }
+
+    /**
+     * 任务状态
+     */
+    public enum Status {
+        /** 执行中 */
+        RUNNING,
+        /** 全部页面成功并写库 */
+        SUCCEEDED,
+        /** 完成，但有页面或行失败、或超时未完成 */
+        PARTIAL,
+        /** 整体失败（如第一页获取失败） */
+        FAILED,
+        /** 已取消 */
+        CANCELLED
+    }
+
+    private final long id;
+    private final Type type;
+    private final int page;
+    private final String trigger;
+    private final long submittedAt = System.currentTimeMillis();
+    private final CrawlRunStats stats = new CrawlRunStats();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile boolean cancelRequested;
+    private volatile Thread runner;
+
+    CrawlJob(long id, Type type, int page, String trigger) {
+        this.id = id;
+        this.type = type;
+        this.page = page;
+        this.trigger = trigger;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public CrawlRunStats getStats() {
+        return stats;
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    void setRunner(Thread runner) {
+        this.runner = runner;
+    }
+
+    /**
+     * 请求取消：中断执行线程，全量爬取会停止抓取剩余页面，已解析的数据仍会写库
+     * @return 任务仍在执行时返回true
+     */
+    boolean cancel() {
+        if (status != Status.RUNNING) {
+            return false;
+        }
+        cancelRequested = true;
+        Thread thread = runner;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        return true;
+    }
+
+    /**
+     * 根据取消标记和统计确定最终状态
+     */
+    Status resolveStatus() {
+        if (cancelRequested) {
+            return Status.CANCELLED;
+        }
+        if (stats.getError() != null) {
+            return Status.FAILED;
+        }
+        if (stats.getPagesFailed() > 0 || stats.getRowsFailed() > 0
+                || stats.getPagesCompleted() < stats.getTotalPages()) {
+            return Status.PARTIAL;
+        }
+        return Status.SUCCEEDED;
+    }
+
+    /**
+     * 执行结束
+     * @param finalStatus 最终状态
+     */
+    void complete(Status finalStatus) {
+        status = finalStatus;
+        runner = null;
+    }
+
+    /**
+     * 转换为接口返回的数据
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        int totalPages = stats.getTotalPages();
+        int donePages = stats.getPagesCompleted() + stats.getPagesFailed();
+        map.put("jobId", id);
+        map.put("type", type);
+        map.put("page", type == Type.PAGE ? page : null);
+        map.put("trigger", trigger);
+        map.put("status", status);
+        map.put("submittedAt", submittedAt);
+        map.put("progress", totalPages > 0 ? Math.min(100, donePages * 100 / totalPages) : 0);
+        map.put("stats", stats.toMap());
+        return map;
+    }
+}
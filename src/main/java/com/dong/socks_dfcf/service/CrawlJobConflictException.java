@@ -0,0 +1,18 @@
+package com.dong.socks_dfcf.service;
+
+/**
+ * 已有爬取任务在执行时提交新任务
+ */
+public class CrawlJobConflictException extends IllegalStateException {
+
+    private final CrawlJob runningJob;
+
+    public CrawlJobConflictException(CrawlJob runningJob) {
+        super("Crawl job " + runningJob.getId() + " is still running");
+        this.runningJob = runningJob;
+    }
+
+    public CrawlJob getRunningJob() {
+        return runningJob;
+    }
+}
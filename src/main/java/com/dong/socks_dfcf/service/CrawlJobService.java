@@ -0,0 +1,169 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.event.CrawlCompletedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 爬取任务管理：提交后立即返回任务ID，在后台虚拟线程中执行
+ * 同一时间只允许一个任务执行，定时任务和手动触发都通过这里提交，避免重叠爬取
+ * 保留最近若干个任务供查询进度和历史
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CrawlJobService {
+
+    private final StockCrawlerService stockCrawlerService;
+    private final CrawlerProperties crawlerProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicLong jobIdSequence = new AtomicLong();
+    private final AtomicReference<CrawlJob> runningJob = new AtomicReference<>();
+    // 最近的任务，新的在前
+    private final Deque<CrawlJob> history = new ArrayDeque<>();
+
+    /**
+     * 提交全量爬取任务
+     * @param trigger 触发来源（manual / scheduled）
+     * @return 已开始执行的任务
+     * @throws CrawlJobConflictException 已有任务在执行
+     */
+    public CrawlJob submitFullCrawl(String trigger) {
+        return submit(CrawlJob.Type.FULL, 0, trigger);
+    }
+
+    /**
+     * 提交单页爬取任务
+     * @param page 页码
+     * @param trigger 触发来源（manual / scheduled）
+     * @return 已开始执行的任务
+     * @throws CrawlJobConflictException 已有任务在执行
+     */
+    public CrawlJob submitPageCrawl(int page, String trigger) {
+        return submit(CrawlJob.Type.PAGE, page, trigger);
+    }
+
+    private CrawlJob submit(CrawlJob.Type type, int page, String trigger) {
+        CrawlJob job = new CrawlJob(jobIdSequence.incrementAndGet(), type, page, trigger);
+        // 任务对外可见（可以被取消）之前就挂上执行线程，取消时总有线程可以中断
+        Thread runner = Thread.ofVirtual().name("crawl-job-" + job.getId()).unstarted(() -> execute(job));
+        job.setRunner(runner);
+        if (!runningJob.compareAndSet(null, job)) {
+            CrawlJob current = runningJob.get();
+            throw new CrawlJobConflictException(current != null ? current : job);
+        }
+        synchronized (history) {
+            history.addFirst(job);
+            while (history.size() > Math.max(crawlerProperties.getJobHistorySize(), 1)) {
+                history.removeLast();
+            }
+        }
+        try {
+            runner.start();
+        } catch (RuntimeException e) {
+            // 线程没能启动，execute 不会执行，要在这里结束任务并释放运行标记
+            job.getStats().fail(e.getMessage());
+            job.getStats().finish();
+            job.complete(CrawlJob.Status.FAILED);
+            runningJob.compareAndSet(job, null);
+            throw e;
+        }
+        log.info("Crawl job {} submitted ({}, trigger {})", job.getId(), type, trigger);
+        return job;
+    }
+
+    private void execute(CrawlJob job) {
+        try {
+            if (job.isCancelRequested()) {
+                // 线程开始执行前已被取消
+                job.getStats().finish();
+                log.info("Crawl job {} cancelled before it started", job.getId());
+            } else if (job.getType() == CrawlJob.Type.FULL) {
+                stockCrawlerService.crawlAllStockData(job.getStats());
+            } else {
+                stockCrawlerService.crawlStockDataByPage(job.getPage(), job.getStats());
+            }
+        } catch (Exception e) {
+            log.error("Crawl job {} failed", job.getId(), e);
+            job.getStats().fail(e.getMessage());
+        } finally {
+            CrawlJob.Status status = job.resolveStatus();
+            // 取消时留下的中断标记不能影响后续的数据库查询
+            Thread.interrupted();
+            // 先刷新依赖最新行情的缓存，任务显示为结束时读接口已经是新数据
+            publishCompleted(job, status);
+            job.complete(status);
+            runningJob.compareAndSet(job, null);
+            log.info("Crawl job {} finished with status {}", job.getId(), status);
+        }
+    }
+
+    /**
+     * 通知依赖最新行情的缓存刷新；监听器在当前任务线程中同步执行，异常不影响任务状态
+     */
+    private void publishCompleted(CrawlJob job, CrawlJob.Status status) {
+        try {
+            eventPublisher.publishEvent(new CrawlCompletedEvent(job.getId(), status.name(),
+                    job.getStats().getRowsPersisted()));
+        } catch (Exception e) {
+            log.error("Failed to publish completion of crawl job {}", job.getId(), e);
+        }
+    }
+
+    /**
+     * 取消任务
+     * @param jobId 任务ID
+     * @return 任务存在且仍在执行时返回true
+     */
+    public boolean cancel(long jobId) {
+        CrawlJob job = getJob(jobId);
+        if (job == null || !job.cancel()) {
+            return false;
+        }
+        log.info("Crawl job {} cancellation requested", jobId);
+        return true;
+    }
+
+    /**
+     * 查询任务
+     * @param jobId 任务ID
+     * @return 任务，不存在或已移出历史时返回null
+     */
+    public CrawlJob getJob(long jobId) {
+        synchronized (history) {
+            for (CrawlJob job : history) {
+                if (job.getId() == jobId) {
+                    return job;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 正在执行的任务
+     */
+    public CrawlJob getRunningJob() {
+        return runningJob.get();
+    }
+
+    /**
+     * 最近的任务，新的在前
+     */
+    public List<CrawlJob> getRecentJobs() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+}
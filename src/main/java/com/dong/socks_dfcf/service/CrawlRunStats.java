@@ -0,0 +1,143 @@
+package com.dong.socks_dfcf.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次全量爬取的运行统计，各阶段并发更新
+ */
+public class CrawlRunStats {
+
+    private final long startedAt = System.currentTimeMillis();
+    private volatile long finishedAt;
+    private volatile int totalPages;
+    private volatile int pageSize;
+    private volatile BlockingQueue<?> parsedQueue;
+    // 导致整次爬取失败的错误（如第一页获取失败），单页失败只计入pagesFailed
+    private volatile String error;
+
+    private final AtomicInteger pagesCompleted = new AtomicInteger();
+    private final AtomicInteger pagesFailed = new AtomicInteger();
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final AtomicLong rowsUnchanged = new AtomicLong();
+    private final AtomicLong rowsPersisted = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicInteger persistBatches = new AtomicInteger();
+    private final AtomicLong firstPersistAt = new AtomicLong();
+
+    void setTotalPages(int totalPages) {
+        this.totalPages = totalPages;
+    }
+
+    void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    void setParsedQueue(BlockingQueue<?> parsedQueue) {
+        this.parsedQueue = parsedQueue;
+    }
+
+    void pageCompleted(int rows) {
+        pagesCompleted.incrementAndGet();
+        rowsParsed.addAndGet(rows);
+    }
+
+    void rowsRejected(int rows) {
+        rowsRejected.addAndGet(rows);
+    }
+
+    void rowsUnchanged(int rows) {
+        rowsUnchanged.addAndGet(rows);
+    }
+
+    void pageFailed() {
+        pagesFailed.incrementAndGet();
+    }
+
+    void batchPersisted(int succeeded, int failed) {
+        persistBatches.incrementAndGet();
+        rowsPersisted.addAndGet(succeeded);
+        rowsFailed.addAndGet(failed);
+        firstPersistAt.compareAndSet(0, System.currentTimeMillis());
+    }
+
+    void fail(String error) {
+        this.error = error;
+    }
+
+    void finish() {
+        finishedAt = System.currentTimeMillis();
+    }
+
+    public boolean isFinished() {
+        return finishedAt > 0;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public int getPagesCompleted() {
+        return pagesCompleted.get();
+    }
+
+    public int getPagesFailed() {
+        return pagesFailed.get();
+    }
+
+    public long getRowsParsed() {
+        return rowsParsed.get();
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected.get();
+    }
+
+    public long getRowsPersisted() {
+        return rowsPersisted.get();
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed.get();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * 转换为接口返回的统计数据，吞吐量按已运行时间计算（行/秒）
+     */
+    public Map<String, Object> toMap() {
+        long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+        double elapsedSeconds = Math.max(end - startedAt, 1) / 1000.0;
+        BlockingQueue<?> queue = parsedQueue;
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("startedAt", startedAt);
+        map.put("finishedAt", finishedAt > 0 ? finishedAt : null);
+        map.put("elapsedMillis", end - startedAt);
+        map.put("totalPages", totalPages);
+        map.put("pageSize", pageSize);
+        map.put("pagesCompleted", pagesCompleted.get());
+        map.put("pagesFailed", pagesFailed.get());
+        map.put("rowsParsed", rowsParsed.get());
+        map.put("rowsRejected", rowsRejected.get());
+        map.put("rowsUnchanged", rowsUnchanged.get());
+        map.put("unchangedRatio", rowsParsed.get() > 0 ? Math.round(rowsUnchanged.get() * 10000.0 / rowsParsed.get()) / 10000.0 : 0.0);
+        map.put("rowsPersisted", rowsPersisted.get());
+        map.put("rowsFailed", rowsFailed.get());
+        map.put("persistBatches", persistBatches.get());
+        map.put("firstPersistMillis", firstPersistAt.get() > 0 ? firstPersistAt.get() - startedAt : null);
+        map.put("parsedQueueDepth", queue != null ? queue.size() : 0);
+        map.put("fetchPagesPerSecond", Math.round(pagesCompleted.get() / elapsedSeconds * 10) / 10.0);
+        map.put("parseRowsPerSecond", Math.round(rowsParsed.get() / elapsedSeconds * 10) / 10.0);
+        map.put("persistRowsPerSecond", Math.round(rowsPersisted.get() / elapsedSeconds * 10) / 10.0);
+        map.put("error", error);
+        return map;
+    }
+}
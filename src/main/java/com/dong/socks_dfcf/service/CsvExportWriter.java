@@ -0,0 +1,85 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSV 导出，UTF-8，第一行为列名，空值为空字段；股票名称含逗号或引号时按 RFC 4180 加引号
+ */
+final class CsvExportWriter implements ExportWriter {
+
+    static final String HEADER = "stock_code,stock_name,trade_time,current_price,change_amount,change_percent,"
+            + "open_price,high_price,low_price,volume,turnover,market_type";
+
+    private final BufferedWriter writer;
+
+    CsvExportWriter(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(HEADER);
+        writer.write('\n');
+    }
+
+    @Override
+    public void write(StockData row) throws IOException {
+        writer.write(row.getStockCode());
+        writer.write(',');
+        writeText(row.getStockName());
+        writer.write(',');
+        if (row.getTradeTime() != null) {
+            writer.write(row.getTradeTime().toString());
+        }
+        writer.write(',');
+        writeDecimal(row.getCurrentPrice());
+        writer.write(',');
+        writeDecimal(row.getChangeAmount());
+        writer.write(',');
+        writeDecimal(row.getChangePercent());
+        writer.write(',');
+        writeDecimal(row.getOpenPrice());
+        writer.write(',');
+        writeDecimal(row.getHighPrice());
+        writer.write(',');
+        writeDecimal(row.getLowPrice());
+        writer.write(',');
+        if (row.getVolume() != null) {
+            writer.write(Long.toString(row.getVolume()));
+        }
+        writer.write(',');
+        writeDecimal(row.getTurnover());
+        writer.write(',');
+        if (row.getMarketType() != null) {
+            writer.write(Integer.toString(row.getMarketType()));
+        }
+        writer.write('\n');
+    }
+
+    private void writeDecimal(BigDecimal value) throws IOException {
+        if (value != null) {
+            writer.write(value.toPlainString());
+        }
+    }
+
+    private void writeText(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+}
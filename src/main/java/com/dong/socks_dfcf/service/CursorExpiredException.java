@@ -0,0 +1,11 @@
+package com.dong.socks_dfcf.service;
+
+/**
+ * 游标所属的快照已被淘汰（翻页期间又完成了几轮爬取，或服务重启过），只能从第一页重新开始
+ */
+public class CursorExpiredException extends IllegalStateException {
+
+    public CursorExpiredException() {
+        super("游标已过期，请从第一页重新开始");
+    }
+}
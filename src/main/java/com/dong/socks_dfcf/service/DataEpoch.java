@@ -0,0 +1,48 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.event.CrawlCompletedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据版本号：每次爬取写入新数据后加一，读接口的 ETag 和响应缓存以它为准
+ * 初始值取启动时间，重启后客户端持有的旧 ETag 不会误命中
+ */
+@Slf4j
+@Service
+public class DataEpoch {
+
+    private final AtomicLong epoch = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * 当前版本号
+     */
+    public long current() {
+        return epoch.get();
+    }
+
+    /**
+     * 推进版本号，之前的 ETag 和缓存的响应全部失效
+     * @return 新版本号
+     */
+    public long bump() {
+        return epoch.incrementAndGet();
+    }
+
+    /**
+     * 最后执行：最新行情快照等缓存刷新完成后才推进版本，新版本号下读到的一定是新数据
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCrawlCompleted(CrawlCompletedEvent event) {
+        if (event.rowsPersisted() == 0) {
+            return; // 没有写入新数据
+        }
+        log.debug("爬取任务 {} 写入 {} 行，数据版本推进到 {}", event.jobId(), event.rowsPersisted(), bump());
+    }
+}
@@ -0,0 +1,21 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+
+import java.io.IOException;
+
+/**
+ * 导出文件的逐行写入，实现类只缓冲固定大小的数据
+ */
+interface ExportWriter {
+
+    /**
+     * 写入一行
+     */
+    void write(StockData row) throws IOException;
+
+    /**
+     * 写出缓冲中剩余的数据和文件结尾，不关闭底层输出流
+     */
+    void finish() throws IOException;
+}
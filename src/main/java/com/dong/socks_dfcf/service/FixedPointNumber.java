@@ -0,0 +1,195 @@
+package com.dong.socks_dfcf.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * clist 数值字段的定点解码缓冲
+ * 直接扫描 JsonParser 的字符缓冲，把 "12.345" 解码成 unscaled=12345, scale=3，
+ * 不经过 asText、不构造临时 BigDecimal；涨跌幅和"万"单位换算都在 long 上完成，
+ * 每个字段只在最后构造一次 BigDecimal
+ * 超过18位有效数字或带指数的罕见写法回退到 BigDecimal 计算，结果与原实现一致
+ * 非线程安全，每次解析一页时新建一个并在各行之间复用
+ */
+final class FixedPointNumber {
+
+    // long 可以安全容纳的十进制位数
+    private static final int MAX_DIGITS = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+    // 涨跌幅保留6位小数，上限 999999.999999，避免超出数据库字段范围
+    private static final int CHANGE_PERCENT_SCALE = 6;
+    private static final long MAX_CHANGE_PERCENT_UNSCALED = 999_999_999_999L;
+    // 单位"万"换算系数
+    private static final long TEN_THOUSAND = 10_000L;
+    private static final BigDecimal TEN_THOUSAND_DECIMAL = BigDecimal.valueOf(TEN_THOUSAND);
+    private static final BigDecimal MAX_CHANGE_PERCENT = BigDecimal.valueOf(MAX_CHANGE_PERCENT_UNSCALED, CHANGE_PERCENT_SCALE);
+    private static final BigDecimal MIN_CHANGE_PERCENT = MAX_CHANGE_PERCENT.negate();
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private long unscaled;
+    private int scale;
+    // 快速路径无法表示时的回退值，否则为null
+    private BigDecimal big;
+
+    /**
+     * 读取当前token的数值
+     * @return 是否读到有效数值；null、"-"、空串和非数字文本返回false
+     */
+    boolean read(JsonParser parser, JsonToken token) throws IOException {
+        big = null;
+        switch (token) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT, VALUE_STRING -> {
+                return decode(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            }
+            case START_OBJECT, START_ARRAY -> {
+                parser.skipChildren();
+                return false;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 解码 [+-]digits[.digits]，其他写法交给 BigDecimal
+     */
+    private boolean decode(char[] chars, int offset, int length) {
+        if (length == 0 || (length == 1 && chars[offset] == '-')) {
+            return false;
+        }
+        int i = offset;
+        int end = offset + length;
+        boolean negative = false;
+        if (chars[i] == '-' || chars[i] == '+') {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_DIGITS) {
+                    return decodeSlow(chars, offset, length);
+                }
+                value = value * 10 + (c - '0');
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                // 指数、空白或非数字，按原实现交给 BigDecimal 判定
+                return decodeSlow(chars, offset, length);
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        unscaled = negative ? -value : value;
+        scale = Math.max(fractionDigits, 0);
+        return true;
+    }
+
+    private boolean decodeSlow(char[] chars, int offset, int length) {
+        try {
+            big = new BigDecimal(chars, offset, length);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 原值
+     */
+    BigDecimal toDecimal() {
+        return big != null ? big : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * 涨跌幅换算：接口返回值除以10000，保留6位小数（四舍五入）并限制在数据库字段范围内
+     */
+    BigDecimal toChangePercent() {
+        if (big == null) {
+            // 除以10000即scale+4，再舍入到6位小数
+            int shift = scale + 4 - CHANGE_PERCENT_SCALE;
+            if (shift > 0) {
+                long divisor = POWERS_OF_TEN[shift];
+                long quotient = unscaled / divisor;
+                long remainder = Math.abs(unscaled % divisor);
+                if (remainder * 2 >= divisor) {
+                    quotient += Long.signum(unscaled);
+                }
+                return BigDecimal.valueOf(clampChangePercent(quotient), CHANGE_PERCENT_SCALE);
+            }
+            long multiplier = POWERS_OF_TEN[-shift];
+            long high = Math.multiplyHigh(unscaled, multiplier);
+            long product = unscaled * multiplier;
+            if (fitsInLong(high, product)) {
+                return BigDecimal.valueOf(clampChangePercent(product), CHANGE_PERCENT_SCALE);
+            }
+            // 溢出时结果一定超出上下限
+            return unscaled > 0 ? MAX_CHANGE_PERCENT : MIN_CHANGE_PERCENT;
+        }
+        BigDecimal percentValue = big.divide(TEN_THOUSAND_DECIMAL, CHANGE_PERCENT_SCALE, RoundingMode.HALF_UP);
+        if (percentValue.compareTo(MAX_CHANGE_PERCENT) > 0) {
+            return MAX_CHANGE_PERCENT;
+        }
+        if (percentValue.compareTo(MIN_CHANGE_PERCENT) < 0) {
+            return MIN_CHANGE_PERCENT;
+        }
+        return percentValue;
+    }
+
+    /**
+     * 单位"万"换算后的金额
+     */
+    BigDecimal toTenThousandDecimal() {
+        if (big == null) {
+            long high = Math.multiplyHigh(unscaled, TEN_THOUSAND);
+            long product = unscaled * TEN_THOUSAND;
+            if (fitsInLong(high, product)) {
+                return BigDecimal.valueOf(product, scale);
+            }
+        }
+        return toDecimal().multiply(TEN_THOUSAND_DECIMAL);
+    }
+
+    /**
+     * 单位"万"换算后取整（向零截断）的数量
+     */
+    long toTenThousandLong() {
+        if (big == null) {
+            long high = Math.multiplyHigh(unscaled, TEN_THOUSAND);
+            long product = unscaled * TEN_THOUSAND;
+            if (fitsInLong(high, product)) {
+                return product / POWERS_OF_TEN[scale];
+            }
+        }
+        return toDecimal().multiply(TEN_THOUSAND_DECIMAL).longValue();
+    }
+
+    /**
+     * 128位乘积的高64位只是低64位的符号扩展时，乘积没有溢出
+     */
+    private static boolean fitsInLong(long high, long product) {
+        return high == (product >> 63);
+    }
+
+    private static long clampChangePercent(long value) {
+        return Math.max(-MAX_CHANGE_PERCENT_UNSCALED, Math.min(MAX_CHANGE_PERCENT_UNSCALED, value));
+    }
+}
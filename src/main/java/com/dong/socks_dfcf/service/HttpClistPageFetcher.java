@@ -0,0 +1,179 @@
+package com.dong.socks_dfcf.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 请求东方财富线上 clist 接口，边读边解析响应流
+ * 配置了录制目录时，同时把原始响应写入文件，供 ReplayClistPageFetcher 回放
+ */
+@Slf4j
+public class HttpClistPageFetcher implements ClistPageFetcher, Closeable {
+
+    // 东方财富网股票数据接口基础URL (根据用户提供的URL修改)
+    private static final String STOCK_API_BASE_URL = "https://push2.eastmoney.com/api/qt/clist/get?" +
+            "np=1&fltt=1&invt=2&cb=jQuery37105849300946593018_1760442054336&fs=m:128+t:3,m:128+t:4,m:128+t:1,m:128+t:2&" +
+            "fields=f12,f13,f14,f19,f1,f2,f4,f3,f152,f17,f18,f15,f16,f5,f6,f124&fid=f3&pn={page}&pz={pageSize}&po=1&dect=1&" +
+            "ut=fa5fd1943c7b386f172d6893dbfba10b&wbp2u=|0|0|0|web&_=1760442054387";
+
+    private final ClistResponseParser clistResponseParser = new ClistResponseParser();
+    private final CloseableHttpClient httpClient;
+    private final Path recordDir;
+
+    /**
+     * @param maxConnections 连接池大小，所有请求都是同一个route
+     * @param recordDir 录制目录，为null时不录制
+     */
+    public HttpClistPageFetcher(int maxConnections, Path recordDir) throws IOException {
+        this.httpClient = createHttpClient(maxConnections);
+        this.recordDir = recordDir;
+        if (recordDir != null) {
+            Files.createDirectories(recordDir);
+            log.info("Recording clist responses to {}", recordDir.toAbsolutePath());
+        }
+    }
+
+    /**
+     * 创建配置好的HttpClient实例
+     * @param maxConnections 连接池大小
+     * @return 配置好的HttpClient
+     */
+    private CloseableHttpClient createHttpClient(int maxConnections) {
+        // 创建连接管理器，连接数与自适应并发上限的最大值保持一致
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+
+        // 配置请求参数
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(Timeout.ofSeconds(10))
+                .setResponseTimeout(Timeout.ofSeconds(15))
+                .setConnectionRequestTimeout(Timeout.ofSeconds(5))
+                .build();
+
+        // 创建并配置HttpClient
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+    }
+
+    /**
+     * 获取指定页码的数据，直接从响应流中解析，不把响应体读成字符串
+     */
+    @Override
+    public ClistResponseParser.ClistPage fetch(int page, int pageSize) throws IOException {
+        String url = STOCK_API_BASE_URL.replace("{page}", String.valueOf(page))
+                .replace("{pageSize}", String.valueOf(pageSize));
+        // 对URL中包含的特殊字符进行编码
+        url = encodeUrl(url);
+
+        HttpGet request = new HttpGet(url);
+        request.setHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
+
+        return httpClient.execute(request, httpResponse -> {
+            if (httpResponse.getCode() >= 300) {
+                throw new CrawlHttpStatusException(httpResponse.getCode(),
+                        "Unexpected HTTP status " + httpResponse.getCode() + " for page " + page);
+            }
+            try (InputStream content = httpResponse.getEntity().getContent()) {
+                if (recordDir == null) {
+                    return clistResponseParser.parse(content);
+                }
+                return parseAndRecord(content, page, pageSize);
+            }
+        });
+    }
+
+    /**
+     * 解析的同时把读到的字节写入录制文件，解析结束后把剩余部分（JSONP结尾）也写完
+     */
+    private ClistResponseParser.ClistPage parseAndRecord(InputStream content, int page, int pageSize) throws IOException {
+        // 文件名以时间开头，回放时按文件名排序，后录制的覆盖先录制的同一代码
+        Path file = recordDir.resolve(System.currentTimeMillis() + "-p" + page + "-s" + pageSize + ".jsonp");
+        try (OutputStream out = Files.newOutputStream(file);
+             InputStream tee = new TeeInputStream(content, out)) {
+            ClistResponseParser.ClistPage result = clistResponseParser.parse(tee);
+            tee.transferTo(OutputStream.nullOutputStream());
+            return result;
+        }
+    }
+
+    /**
+     * 对URL进行编码处理，解决特殊字符问题
+     * @param url 原始URL
+     * @return 编码后的URL
+     */
+    private String encodeUrl(String url) {
+        try {
+            // 分离URL的基础部分和查询参数部分
+            int queryIndex = url.indexOf('?');
+            if (queryIndex == -1) {
+                return url; // 没有查询参数
+            }
+
+            String baseUrl = url.substring(0, queryIndex);
+            String query = url.substring(queryIndex + 1);
+
+            // 对查询参数中的特殊字符进行编码
+            // 注意：我们只需要编码|字符，保留其他参数格式
+            query = query.replace("|", URLEncoder.encode("|", StandardCharsets.UTF_8));
+
+            return baseUrl + "?" + query;
+        } catch (Exception e) {
+            log.warn("URL encoding failed, using original URL: {}", e.getMessage());
+            return url; // 编码失败时使用原始URL
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * 读取时把字节复制到输出流
+     */
+    private static class TeeInputStream extends FilterInputStream {
+
+        private final OutputStream copy;
+
+        TeeInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                copy.write(b, off, n);
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.mapper.StockBarMapper;
+import com.dong.socks_dfcf.model.StockBar;
+import com.dong.socks_dfcf.model.StockData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 技术指标引擎：每只股票一个 IndicatorState，行情写库成功后逐行更新，查询时直接从内存状态计算，不读数据库
+ * 指标基于日线：MA5/10/20、EMA12/26、MACD、RSI14、布林带、ATR14 和当天 VWAP
+ * 首次使用时从 stock_bar 的日线加载历史，之后只靠增量更新
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IndicatorEngine {
+
+    // 单次批量查询最多的股票代码数
+    public static final int MAX_CODES = 1000;
+
+    private final StockBarMapper stockBarMapper;
+    private final CrawlerProperties crawlerProperties;
+
+    private final Map<String, IndicatorState> states = new ConcurrentHashMap<>();
+    private volatile boolean seeded;
+
+    /**
+     * 是否启用
+     */
+    public boolean isEnabled() {
+        return crawlerProperties.getIndicators().isEnabled();
+    }
+
+    /**
+     * 用一批已写库的行情更新指标；在写库线程中调用，异常只记录日志
+     * @param rows 已提交的行情
+     */
+    public void update(List<StockData> rows) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            seedIfNeeded();
+            for (StockData row : rows) {
+                if (row.getStockCode() == null || row.getTradeTime() == null || row.getCurrentPrice() == null) {
+                    continue;
+                }
+                double price = row.getCurrentPrice().doubleValue();
+                IndicatorState state = states.computeIfAbsent(row.getStockCode(), code -> new IndicatorState());
+                synchronized (state) {
+                    state.update(row.getTradeTime(),
+                            valueOr(row.getOpenPrice(), price),
+                            Math.max(valueOr(row.getHighPrice(), price), price),
+                            Math.min(valueOr(row.getLowPrice(), price), price),
+                            price,
+                            row.getVolume() != null ? row.getVolume() : 0,
+                            valueOr(row.getTurnover(), 0));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("更新技术指标失败", e);
+        }
+    }
+
+    private static double valueOr(BigDecimal value, double defaultValue) {
+        return value != null ? value.doubleValue() : defaultValue;
+    }
+
+    /**
+     * 一只股票的最新指标
+     * @return 没有该股票的数据时返回null
+     */
+    public Indicators get(String stockCode) {
+        if (!isEnabled()) {
+            return null;
+        }
+        seedIfNeeded();
+        IndicatorState state = states.get(stockCode);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return state.snapshot(stockCode, crawlerProperties.getIndicators().getVolumeUnitShares());
+        }
+    }
+
+    /**
+     * 多只股票的最新指标，按传入顺序，没有数据的股票不返回
+     */
+    public Map<String, Indicators> get(Collection<String> stockCodes) {
+        Map<String, Indicators> result = new LinkedHashMap<>();
+        for (String stockCode : stockCodes) {
+            Indicators indicators = get(stockCode);
+            if (indicators != null) {
+                result.put(stockCode, indicators);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 所有股票的最新指标
+     */
+    public List<Indicators> getAll() {
+        if (!isEnabled()) {
+            return List.of();
+        }
+        seedIfNeeded();
+        int volumeUnitShares = crawlerProperties.getIndicators().getVolumeUnitShares();
+        List<Indicators> result = new ArrayList<>(states.size());
+        states.forEach((stockCode, state) -> {
+            Indicators indicators;
+            synchronized (state) {
+                indicators = state.snapshot(stockCode, volumeUnitShares);
+            }
+            if (indicators != null) {
+                result.add(indicators);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 从 stock_bar 流式加载最近 seedDays 天的日线；未启用 1d K线时从空状态开始
+     * 加载失败不重试，指标从之后的采样开始累积
+     */
+    private void seedIfNeeded() {
+        if (seeded) {
+            return;
+        }
+        synchronized (this) {
+            if (seeded) {
+                return;
+            }
+            if (crawlerProperties.getBarIntervals().stream().map(BarInterval::parse).noneMatch(BarInterval.DAY::equals)) {
+                log.info("未启用日线汇总，技术指标从之后的采样开始累积");
+                seeded = true;
+                return;
+            }
+            long start = System.currentTimeMillis();
+            long[] bars = new long[1];
+            try {
+                stockBarMapper.scanBarsSince(BarInterval.DAY.code(),
+                        LocalDate.now().minusDays(crawlerProperties.getIndicators().getSeedDays()).atStartOfDay(),
+                        context -> {
+                            StockBar bar = context.getResultObject();
+                            states.computeIfAbsent(bar.getStockCode(), code -> new IndicatorState())
+                                    .update(bar.getLastTradeTime() != null ? bar.getLastTradeTime() : bar.getBarStart(),
+                                            bar.getOpenPrice().doubleValue(),
+                                            bar.getHighPrice().doubleValue(),
+                                            bar.getLowPrice().doubleValue(),
+                                            bar.getClosePrice().doubleValue(),
+                                            bar.getVolume() != null ? bar.getVolume() : 0,
+                                            valueOr(bar.getTurnover(), 0));
+                            bars[0]++;
+                        });
+                log.info("技术指标已加载 {} 只股票的 {} 根日线，耗时 {} ms", states.size(), bars[0],
+                        System.currentTimeMillis() - start);
+            } catch (RuntimeException e) {
+                log.warn("加载技术指标历史失败，指标从之后的采样开始累积: {}", e.getMessage());
+            }
+            seeded = true;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.dong.socks_dfcf.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 一只股票的日线技术指标状态，只保存原始类型
+ * 已收盘日线的收盘价放在长度为 WINDOW 的环形缓冲区中，均线和布林带的窗口和、平方和随收盘增量维护，
+ * EMA、MACD、RSI、ATR 是递推量，只保存上一根日线之后的值；当天未收盘的日线单独保存，
+ * 每次采样只覆盖当天日线，查询时在已收盘状态上叠加当天日线得到最新指标，更新和查询都是 O(1)
+ * 非线程安全，由 IndicatorEngine 按股票加锁
+ */
+final class IndicatorState {
+
+    // 最长的滑动窗口（MA20、布林带），也是环形缓冲区长度
+    static final int WINDOW = 20;
+    static final int RSI_PERIOD = 14;
+    static final int ATR_PERIOD = 14;
+    static final int EMA_FAST = 12;
+    static final int EMA_SLOW = 26;
+    static final int MACD_SIGNAL = 9;
+    static final double BOLL_WIDTH = 2.0;
+    // 量比的基准：前几个交易日的平均成交量
+    static final int VOLUME_WINDOW = 5;
+
+    // 已收盘日线的收盘价，closes[head - 1] 为最近一根
+    private final double[] closes = new double[WINDOW];
+    private int head;
+    private int closedBars;
+    // 最近 5 / 10 / 20 根已收盘日线的收盘价之和，以及最近 20 根的平方和
+    private double sum5;
+    private double sum10;
+    private double sum20;
+    private double sumSquares20;
+    private double emaFast;
+    private double emaSlow;
+    private double dea;
+    // Wilder 平滑：不足周期时保存累加和，达到周期后保存平均值
+    private double avgGain;
+    private double avgLoss;
+    private double atr;
+    // 最近 VOLUME_WINDOW 根已收盘日线的成交量，volumes[closedBars % VOLUME_WINDOW] 为下一个被替换的
+    private final long[] volumes = new long[VOLUME_WINDOW];
+    private long volumeSum;
+
+    // 当天（未收盘）日线
+    private LocalDate day;
+    private LocalDateTime lastTradeTime;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private long volume;
+    private double turnover;
+
+    /**
+     * 合并一次采样或一根日线
+     * @param tradeTime 交易时间（行情自身的更新时间，开盘前采到的上一交易日行情仍属于上一交易日）；
+     *                  不晚于上一次的忽略，跨日时先把前一天的日线收盘
+     * @param volume 当天累计成交量
+     * @param turnover 当天累计成交额
+     * @return 是否被采纳
+     */
+    boolean update(LocalDateTime tradeTime, double open, double high, double low, double close, long volume, double turnover) {
+        if (lastTradeTime != null && !tradeTime.isAfter(lastTradeTime)) {
+            return false;
+        }
+        LocalDate tradeDay = tradeTime.toLocalDate();
+        if (day != null && !tradeDay.equals(day)) {
+            if (volume == this.volume && turnover == this.turnover && close == this.close) {
+                // 没有行情更新时间、只有采集时间的行：非交易日采到的仍是上一交易日的行情，不能当作新的一天
+                return false;
+            }
+            closeDay();
+        }
+        if (day == null || !tradeDay.equals(day)) {
+            day = tradeDay;
+            this.open = open;
+            this.high = high;
+            this.low = low;
+        } else {
+            this.high = Math.max(this.high, high);
+            this.low = Math.min(this.low, low);
+        }
+        this.close = close;
+        this.volume = volume;
+        this.turnover = turnover;
+        lastTradeTime = tradeTime;
+        return true;
+    }
+
+    /**
+     * 当天日线收盘，计入滑动窗口和递推量
+     */
+    private void closeDay() {
+        double x = close;
+        sum5 += x - closedAgo(5);
+        sum10 += x - closedAgo(10);
+        double evicted = closedAgo(WINDOW);
+        sum20 += x - evicted;
+        sumSquares20 += x * x - evicted * evicted;
+        double tr = trueRange();
+        if (closedBars > 0) {
+            double change = x - closedAgo(1);
+            avgGain = wilder(avgGain, Math.max(change, 0), closedBars, RSI_PERIOD);
+            avgLoss = wilder(avgLoss, Math.max(-change, 0), closedBars, RSI_PERIOD);
+        }
+        atr = wilder(atr, tr, closedBars + 1, ATR_PERIOD);
+        emaFast = ema(emaFast, x, EMA_FAST);
+        emaSlow = ema(emaSlow, x, EMA_SLOW);
+        dea = ema(dea, emaFast - emaSlow, MACD_SIGNAL);
+        int slot = closedBars % VOLUME_WINDOW;
+        volumeSum += volume - volumes[slot];
+        volumes[slot] = volume;
+        closes[head] = x;
+        head = (head + 1) % WINDOW;
+        closedBars++;
+    }
+
+    /**
+     * 在已收盘状态上叠加当天日线，得到最新指标；历史不足的指标为null
+     * @param volumeUnitShares 每单位成交量对应的股数
+     * @return 尚无数据时返回null
+     */
+    Indicators snapshot(String stockCode, int volumeUnitShares) {
+        if (day == null) {
+            return null;
+        }
+        int bars = closedBars + 1;
+        double x = close;
+        double ma20 = movingAverage(sum20, WINDOW, x);
+        Double bollUpper = null;
+        Double bollLower = null;
+        if (bars >= WINDOW) {
+            double evicted = closedAgo(WINDOW);
+            double variance = Math.max((sumSquares20 - evicted * evicted + x * x) / WINDOW - ma20 * ma20, 0);
+            double width = BOLL_WIDTH * Math.sqrt(variance);
+            bollUpper = ma20 + width;
+            bollLower = ma20 - width;
+        }
+        Double rsi = null;
+        if (closedBars >= RSI_PERIOD) {
+            double change = x - closedAgo(1);
+            rsi = rsi(wilder(avgGain, Math.max(change, 0), closedBars, RSI_PERIOD),
+                    wilder(avgLoss, Math.max(-change, 0), closedBars, RSI_PERIOD));
+        }
+        double fast = ema(emaFast, x, EMA_FAST);
+        double slow = ema(emaSlow, x, EMA_SLOW);
+        double dif = fast - slow;
+        double signal = ema(dea, dif, MACD_SIGNAL);
+        boolean macdReady = bars >= EMA_SLOW + MACD_SIGNAL - 1;
+        return new Indicators(stockCode, day, lastTradeTime, bars, round(x),
+                bars >= 5 ? round(movingAverage(sum5, 5, x)) : null,
+                bars >= 10 ? round(movingAverage(sum10, 10, x)) : null,
+                bars >= WINDOW ? round(ma20) : null,
+                bars >= EMA_FAST ? round(fast) : null,
+                bars >= EMA_SLOW ? round(slow) : null,
+                bars >= EMA_SLOW ? round(dif) : null,
+                macdReady ? round(signal) : null,
+                macdReady ? round(2 * (dif - signal)) : null,
+                round(rsi),
+                bars >= WINDOW ? round(ma20) : null,
+                round(bollUpper),
+                round(bollLower),
+                bars >= ATR_PERIOD ? round(wilder(atr, trueRange(), bars, ATR_PERIOD)) : null,
+                volume > 0 ? round(turnover / ((double) volume * volumeUnitShares)) : null,
+                closedBars >= VOLUME_WINDOW && volumeSum > 0 ? round(volume * (double) VOLUME_WINDOW / volumeSum) : null);
+    }
+
+    /**
+     * 窗口内最近 n-1 根已收盘日线加当天日线的平均值
+     */
+    private double movingAverage(double closedSum, int n, double x) {
+        return (closedSum - closedAgo(n) + x) / n;
+    }
+
+    /**
+     * 倒数第 k 根已收盘日线的收盘价，k 超出已有根数时为0
+     */
+    private double closedAgo(int k) {
+        if (k > closedBars || k > WINDOW) {
+            return 0;
+        }
+        return closes[(head - k + WINDOW) % WINDOW];
+    }
+
+    private double trueRange() {
+        if (closedBars == 0) {
+            return high - low;
+        }
+        double previousClose = closedAgo(1);
+        return Math.max(high - low, Math.max(Math.abs(high - previousClose), Math.abs(low - previousClose)));
+    }
+
+    private double ema(double previous, double x, int period) {
+        return closedBars == 0 ? x : previous + (x - previous) * 2 / (period + 1);
+    }
+
+    /**
+     * Wilder 平滑
+     * @param previous 前 count-1 个值的累加和（count <= period）或平均值（count > period）
+     * @param count 计入当前值后的个数
+     * @return 累加和（count < period）或平均值
+     */
+    private static double wilder(double previous, double value, int count, int period) {
+        if (count < period) {
+            return previous + value;
+        }
+        if (count == period) {
+            return (previous + value) / period;
+        }
+        return (previous * (period - 1) + value) / period;
+    }
+
+    private static double rsi(double gain, double loss) {
+        if (loss == 0) {
+            return gain == 0 ? 50 : 100;
+        }
+        return 100 - 100 / (1 + gain / loss);
+    }
+
+    private static Double round(Double value) {
+        return value != null ? Math.round(value * 10000) / 10000.0 : null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.dong.socks_dfcf.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 一只股票基于日线的最新技术指标，当天日线按最新采样计算；历史日线数不足的指标为null
+ * @param barDate 当天日线的日期
+ * @param tradeTime 最新采样的交易时间
+ * @param bars 参与计算的日线数（含当天）
+ * @param close 最新价
+ * @param dif MACD 快线 EMA12 - EMA26
+ * @param dea MACD 信号线，DIF 的 EMA9
+ * @param macd MACD 柱 2 * (DIF - DEA)
+ * @param rsi14 14日 RSI（Wilder 平滑）
+ * @param bollMid 布林带中轨（MA20），上下轨为中轨加减2倍标准差
+ * @param atr14 14日 ATR（Wilder 平滑）
+ * @param vwap 当天成交均价，成交额 / 成交股数
+ * @param volumeRatio5 当天累计成交量 / 前5个交易日的平均成交量，盘中随成交累积逐渐增大
+ */
+public record Indicators(String stockCode, LocalDate barDate, LocalDateTime tradeTime, int bars, Double close,
+                         Double ma5, Double ma10, Double ma20, Double ema12, Double ema26,
+                         Double dif, Double dea, Double macd, Double rsi14,
+                         Double bollMid, Double bollUpper, Double bollLower, Double atr14, Double vwap,
+                         Double volumeRatio5) {
+}
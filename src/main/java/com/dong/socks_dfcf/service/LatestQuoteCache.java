@@ -0,0 +1,101 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.event.CrawlCompletedEvent;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 最新行情的进程内快照
+ * 数据只在爬取写库后变化：启动时和每次爬取任务结束后从 stock_latest 整表加载，构建好新快照后原子替换，
+ * 读请求始终看到一个完整的快照；快照未加载（启动时数据库不可用）时返回null，由调用方回退到数据库查询
+ * 保留最近几个快照，游标分页时按游标中的版本号继续在同一个快照上翻页，翻页过程中结果不会因爬取而变化
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LatestQuoteCache {
+
+    // 保留的历史快照数（包括当前快照）
+    private static final int RETAINED_SNAPSHOTS = 3;
+
+    private final StockDataMapper stockDataMapper;
+    private final AtomicReference<LatestQuoteSnapshot> snapshot = new AtomicReference<>();
+    // 按启动时间起算，重启前发出的游标不会和重启后的快照版本号撞上
+    private final AtomicLong epochSequence = new AtomicLong(System.currentTimeMillis());
+    // 最近的快照，按版本号查找
+    private final Map<Long, LatestQuoteSnapshot> retained = new LinkedHashMap<>();
+
+    /**
+     * 当前快照
+     * @return 快照，尚未加载时返回null
+     */
+    public LatestQuoteSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * 按版本号查找快照，用于游标分页
+     * @param epoch 游标中的快照版本号
+     * @return 该版本的快照；已被淘汰或不是本次启动的版本时返回null，调用方应让客户端从第一页重新开始
+     */
+    public LatestQuoteSnapshot getSnapshot(long epoch) {
+        synchronized (retained) {
+            return retained.get(epoch);
+        }
+    }
+
+    /**
+     * 从数据库重新加载并替换快照
+     * @return 新快照
+     */
+    public LatestQuoteSnapshot refresh() {
+        long start = System.currentTimeMillis();
+        LatestQuoteSnapshot loaded = LatestQuoteSnapshot.build(stockDataMapper.findAllLatest(), epochSequence.incrementAndGet());
+        synchronized (retained) {
+            retained.put(loaded.getEpoch(), loaded);
+            Iterator<Long> oldest = retained.keySet().iterator();
+            while (retained.size() > RETAINED_SNAPSHOTS) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+        snapshot.set(loaded);
+        log.info("最新行情快照已刷新: {} 只股票, 耗时 {} ms", loaded.getTotal(), System.currentTimeMillis() - start);
+        return loaded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("启动时加载最新行情快照失败，读请求将直接查询数据库: {}", e.getMessage());
+        }
+    }
+
+    // 先于 DataEpoch 执行，数据版本推进时快照已经是新的
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCrawlCompleted(CrawlCompletedEvent event) {
+        if (event.rowsPersisted() == 0 && snapshot.get() != null) {
+            return; // 没有写入新数据
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("爬取任务 {} 结束后刷新最新行情快照失败", event.jobId(), e);
+        }
+    }
+}
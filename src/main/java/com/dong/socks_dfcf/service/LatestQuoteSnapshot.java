@@ -0,0 +1,225 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * 每只股票最新行情的不可变快照
+ * 构建时按代码排序，并预先生成按涨跌幅、成交额、成交量降序的下标数组，分页只是数组切片；
+ * 游标分页时在下标数组上二分查找 (排序值, 代码) 的位置，任意一页的代价都与第一页相同
+ * 同时构建代码/名称/拼音首字母的搜索索引和选股用的列式存储
+ * 快照中的 StockData 由所有请求共享，调用方不能修改
+ */
+public final class LatestQuoteSnapshot {
+
+    /**
+     * 排序方式，column 为回退到数据库查询时的排序列
+     */
+    public enum SortKey {
+        CHANGE_PERCENT("change_percent", StockData::getChangePercent),
+        TURNOVER("turnover", StockData::getTurnover),
+        VOLUME("volume", s -> s.getVolume() != null ? BigDecimal.valueOf(s.getVolume()) : null);
+
+        private final String column;
+        private final Function<StockData, BigDecimal> value;
+
+        SortKey(String column, Function<StockData, BigDecimal> value) {
+            this.column = column;
+            this.value = value;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * 该排序方式下的排序值，可能为null
+         */
+        public BigDecimal valueOf(StockData stockData) {
+            return value.apply(stockData);
+        }
+
+        /**
+         * 排序值降序（空值在最后），相同时按代码升序
+         */
+        int compare(BigDecimal leftValue, String leftCode, BigDecimal rightValue, String rightCode) {
+            int byValue = VALUE_DESCENDING.compare(leftValue, rightValue);
+            return byValue != 0 ? byValue : leftCode.compareTo(rightCode);
+        }
+
+        /**
+         * 解析请求参数（changePercent / turnover / volume），无法识别时按涨跌幅排序
+         */
+        public static SortKey parse(String sort) {
+            if (sort == null) {
+                return CHANGE_PERCENT;
+            }
+            return switch (sort.toLowerCase()) {
+                case "turnover" -> TURNOVER;
+                case "volume" -> VOLUME;
+                default -> CHANGE_PERCENT;
+            };
+        }
+    }
+
+    private static final Comparator<BigDecimal> VALUE_DESCENDING =
+            Comparator.nullsFirst(Comparator.<BigDecimal>naturalOrder()).reversed();
+
+    // 股票代码最多返回的数量，与原 findAllStockCodes 的 LIMIT 一致
+    private static final int MAX_CODES = 1000;
+
+    private final List<StockData> quotes;
+    private final int[][] orders;
+    private final List<StockData> codes;
+    private final StockSearchIndex searchIndex;
+    private final QuoteColumns columns;
+    private final long epoch;
+    private final long builtAt = System.currentTimeMillis();
+
+    private LatestQuoteSnapshot(List<StockData> quotes, long epoch) {
+        this.quotes = quotes;
+        this.epoch = epoch;
+        this.orders = new int[SortKey.values().length][];
+        for (SortKey key : SortKey.values()) {
+            orders[key.ordinal()] = sortedDescending(quotes, key);
+        }
+        List<StockData> codeList = new ArrayList<>(Math.min(quotes.size(), MAX_CODES));
+        for (StockData quote : quotes.subList(0, Math.min(quotes.size(), MAX_CODES))) {
+            StockData code = new StockData();
+            code.setStockCode(quote.getStockCode());
+            code.setStockName(quote.getStockName());
+            code.setMarketType(quote.getMarketType());
+            codeList.add(code);
+        }
+        this.codes = Collections.unmodifiableList(codeList);
+        this.searchIndex = StockSearchIndex.build(quotes);
+        this.columns = QuoteColumns.build(quotes);
+    }
+
+    /**
+     * 构建快照
+     * @param rows 每只股票一行的最新行情
+     * @param epoch 快照版本号，写入游标，用于翻页时找回同一个快照
+     */
+    public static LatestQuoteSnapshot build(List<StockData> rows, long epoch) {
+        List<StockData> quotes = new ArrayList<>(rows);
+        quotes.sort(Comparator.comparing(StockData::getStockCode));
+        return new LatestQuoteSnapshot(Collections.unmodifiableList(quotes), epoch);
+    }
+
+    /**
+     * 按排序方式排列的下标；quotes已按代码排序，下标相同即代码相同
+     */
+    private static int[] sortedDescending(List<StockData> quotes, SortKey key) {
+        BigDecimal[] values = new BigDecimal[quotes.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = key.valueOf(quotes.get(i));
+        }
+        Comparator<Integer> byValue = (a, b) -> VALUE_DESCENDING.compare(values[a], values[b]);
+        return IntStream.range(0, quotes.size()).boxed()
+                .sorted(byValue.thenComparing(i -> i))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * 游标分页：返回排在 (value, stockCode) 之后的 limit 行
+     * 游标指向的股票不在本快照中时同样适用，结果不会重复也不会遗漏排在游标之后的股票
+     * @param key 排序方式
+     * @param value 上一页最后一行的排序值，可能为null
+     * @param stockCode 上一页最后一行的代码
+     * @param limit 返回数量
+     */
+    public List<StockData> pageAfter(SortKey key, BigDecimal value, String stockCode, int limit) {
+        int[] order = orders[key.ordinal()];
+        // 二分查找第一个排在游标之后的位置
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            StockData quote = quotes.get(order[mid]);
+            if (key.compare(key.valueOf(quote), quote.getStockCode(), value, stockCode) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return page(key, low, limit);
+    }
+
+    /**
+     * 按指定排序分页
+     * @param key 排序方式
+     * @param offset 偏移量
+     * @param limit 返回数量
+     */
+    public List<StockData> page(SortKey key, int offset, int limit) {
+        int[] order = orders[key.ordinal()];
+        int from = Math.max(offset, 0);
+        int to = (int) Math.min((long) from + Math.max(limit, 0), order.length);
+        if (from >= to) {
+            return List.of();
+        }
+        List<StockData> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(quotes.get(order[i]));
+        }
+        return page;
+    }
+
+    /**
+     * 所有股票，按代码升序
+     */
+    public List<StockData> getQuotes() {
+        return quotes;
+    }
+
+    /**
+     * 股票代码、名称和市场（按代码升序，最多1000个）
+     */
+    public List<StockData> getCodes() {
+        return codes;
+    }
+
+    /**
+     * 代码/名称/拼音首字母搜索索引
+     */
+    public StockSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * 列式存储，用于选股
+     */
+    public QuoteColumns getColumns() {
+        return columns;
+    }
+
+    /**
+     * 股票总数
+     */
+    public int getTotal() {
+        return quotes.size();
+    }
+
+    /**
+     * 快照版本号
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * 快照构建时间
+     */
+    public long getBuiltAt() {
+        return builtAt;
+    }
+}
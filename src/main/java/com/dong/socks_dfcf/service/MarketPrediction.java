@@ -0,0 +1,151 @@
+package com.dong.socks_dfcf.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * 一次全市场预测的不可变结果
+ * 构建时按代码排序，并预先生成按上涨概率、平均涨幅降序的下标数组，分页只是数组切片
+ */
+public final class MarketPrediction {
+
+    /**
+     * 一只股票的预测
+     * @param trend up / down，有模型预测时以模型为准，否则按近7天平均涨幅
+     * @param upProbability 模型预测的下一交易日上涨概率，没有模型或日线不足时为null
+     * @param avgChangePercent 近7天平均涨幅，历史行情不足时为null
+     */
+    public record Item(String stockCode, String stockName, String trend, Double upProbability, BigDecimal avgChangePercent) {
+    }
+
+    /**
+     * 排序方式，均为降序，空值在最后，相同时按代码升序
+     */
+    public enum SortKey {
+        UP_PROBABILITY(item -> item.upProbability()),
+        AVG_CHANGE(item -> item.avgChangePercent() != null ? item.avgChangePercent().doubleValue() : null);
+
+        private final Function<Item, Double> value;
+
+        SortKey(Function<Item, Double> value) {
+            this.value = value;
+        }
+
+        /**
+         * 解析请求参数（upProbability / avgChange），无法识别时按上涨概率排序
+         */
+        public static SortKey parse(String sort) {
+            if (sort == null) {
+                return UP_PROBABILITY;
+            }
+            return switch (sort.toLowerCase()) {
+                case "avgchange" -> AVG_CHANGE;
+                default -> UP_PROBABILITY;
+            };
+        }
+    }
+
+    private static final Comparator<Double> VALUE_DESCENDING =
+            Comparator.nullsFirst(Comparator.<Double>naturalOrder()).reversed();
+
+    private final List<Item> items;
+    private final int[][] orders;
+    private final long epoch;
+    private final String modelVersion;
+    private final long generatedAt = System.currentTimeMillis();
+    private final long elapsedMillis;
+
+    private MarketPrediction(List<Item> items, long epoch, String modelVersion, long elapsedMillis) {
+        this.items = items;
+        this.epoch = epoch;
+        this.modelVersion = modelVersion;
+        this.elapsedMillis = elapsedMillis;
+        this.orders = new int[SortKey.values().length][];
+        for (SortKey key : SortKey.values()) {
+            orders[key.ordinal()] = sortedDescending(items, key);
+        }
+    }
+
+    /**
+     * 构建预测结果
+     * @param items 每只股票一条
+     * @param epoch 预测所用的最新行情快照版本号
+     * @param modelVersion 使用的模型版本，没有模型时为null
+     * @param elapsedMillis 预测耗时
+     */
+    public static MarketPrediction build(List<Item> items, long epoch, String modelVersion, long elapsedMillis) {
+        List<Item> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparing(Item::stockCode));
+        return new MarketPrediction(Collections.unmodifiableList(sorted), epoch, modelVersion, elapsedMillis);
+    }
+
+    private static int[] sortedDescending(List<Item> items, SortKey key) {
+        Double[] values = new Double[items.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = key.value.apply(items.get(i));
+        }
+        Comparator<Integer> byValue = (a, b) -> VALUE_DESCENDING.compare(values[a], values[b]);
+        return IntStream.range(0, items.size()).boxed()
+                .sorted(byValue.thenComparing(i -> i))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * 按指定排序分页
+     * @param key 排序方式
+     * @param offset 偏移量
+     * @param limit 返回数量
+     */
+    public List<Item> page(SortKey key, int offset, int limit) {
+        int[] order = orders[key.ordinal()];
+        int from = Math.max(offset, 0);
+        int to = (int) Math.min((long) from + Math.max(limit, 0), order.length);
+        if (from >= to) {
+            return List.of();
+        }
+        List<Item> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(items.get(order[i]));
+        }
+        return page;
+    }
+
+    /**
+     * 所有股票，按代码升序
+     */
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public int getTotal() {
+        return items.size();
+    }
+
+    /**
+     * 预测所用的最新行情快照版本号
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * 使用的模型版本，没有模型时为null
+     */
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public long getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,189 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.event.CrawlCompletedEvent;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.model.StockData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 全市场预测：每次爬取写入新数据后在后台对所有股票预测一遍，结果整体替换，接口只做分页
+ * 股票按批切分，每批一次查询取回近期行情、一次批量模型预测，各批在虚拟线程上并行执行；
+ * 一次预测的所有批次使用同一个模型版本；预测运行期间又有新数据时，本次结束后再预测一次
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MarketPredictionService {
+
+    // 每批的股票数，决定单次历史行情查询的 IN 列表长度
+    static final int BATCH_SIZE = 200;
+
+    private final LatestQuoteCache latestQuoteCache;
+    private final StockDataMapper stockDataMapper;
+    private final IndicatorEngine indicatorEngine;
+    private final TrendModelService trendModelService;
+
+    private final AtomicReference<MarketPrediction> prediction = new AtomicReference<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    // 最近一次开始预测之后又有新的预测请求
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * 当前预测结果；首次调用时同步计算，模型已切换到新版本时在后台重新预测，本次仍返回旧结果
+     * @return 最新行情快照尚未加载时返回null
+     */
+    public MarketPrediction getPrediction() {
+        MarketPrediction current = prediction.get();
+        if (current == null) {
+            return refresh();
+        }
+        TrendModelService.TrendModel model = trendModelService.currentModel();
+        if (model != null && !model.version().equals(current.getModelVersion())) {
+            submit();
+        }
+        return current;
+    }
+
+    /**
+     * 在后台重新预测；已有预测在运行时记下请求，由运行中的预测结束后再预测一次
+     * @return 已有预测在运行时返回false
+     */
+    public boolean submit() {
+        dirty.set(true);
+        // 先占住运行标记再启动线程，并发的两次提交只启动一个线程
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            Thread.ofVirtual().name("market-prediction").start(this::refreshWhileDirty);
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * 对最新行情快照中的所有股票预测并替换结果
+     * @return 新结果；已有预测在运行时返回当前结果，快照尚未加载时返回null
+     */
+    public MarketPrediction refresh() {
+        if (!running.compareAndSet(false, true)) {
+            return prediction.get();
+        }
+        return refreshWhileDirty();
+    }
+
+    /**
+     * 预测一次，调用方已占住运行标记；释放标记后如果期间又有预测请求，重新占住标记再预测一次
+     * 先释放再检查，提交方要么在释放前记下请求、由这里重跑，要么在释放后自己占住标记启动新线程
+     */
+    private MarketPrediction refreshWhileDirty() {
+        MarketPrediction result;
+        do {
+            dirty.set(false);
+            try {
+                result = predictSnapshot();
+            } finally {
+                running.set(false);
+            }
+        } while (dirty.get() && running.compareAndSet(false, true));
+        return result;
+    }
+
+    private MarketPrediction predictSnapshot() {
+        try {
+            LatestQuoteSnapshot snapshot = latestQuoteCache.getSnapshot();
+            if (snapshot == null) {
+                return null;
+            }
+            MarketPrediction result = predict(snapshot.getQuotes(), snapshot.getEpoch());
+            prediction.set(result);
+            log.info("全市场预测完成: {} 只股票, 模型 {}, 耗时 {} ms",
+                    result.getTotal(), result.getModelVersion(), result.getElapsedMillis());
+            return result;
+        } catch (Exception e) {
+            log.error("全市场预测失败", e);
+            return prediction.get();
+        }
+    }
+
+    MarketPrediction predict(List<StockData> quotes, long epoch) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        TrendModelService.TrendModel model = trendModelService.currentModel();
+        List<Future<List<MarketPrediction.Item>>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < quotes.size(); from += BATCH_SIZE) {
+                List<StockData> batch = quotes.subList(from, Math.min(from + BATCH_SIZE, quotes.size()));
+                futures.add(executor.submit(() -> predictBatch(batch, model)));
+            }
+        }
+        List<MarketPrediction.Item> items = new ArrayList<>(quotes.size());
+        try {
+            for (Future<List<MarketPrediction.Item>> future : futures) {
+                items.addAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("预测失败: " + e.getCause().getMessage(), e.getCause());
+        }
+        return MarketPrediction.build(items, epoch, model != null ? model.version() : null,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 一批股票：一次查询取回近期行情计算简单规则，一次批量模型预测；两者都没有结果的股票不返回
+     */
+    private List<MarketPrediction.Item> predictBatch(List<StockData> batch, TrendModelService.TrendModel model) {
+        List<String> codes = batch.stream().map(StockData::getStockCode).toList();
+        Map<String, List<StockData>> recentByCode = StockPredictService.groupByStockCode(
+                stockDataMapper.findRecentByStockCodes(codes, StockPredictService.RULE_HISTORY_ROWS));
+        Map<String, Double> upProbabilities = new HashMap<>();
+        if (model != null) {
+            List<Indicators> indicators = new ArrayList<>(indicatorEngine.get(codes).values());
+            for (TrendModelService.TrendScore score : trendModelService.score(model, indicators)) {
+                upProbabilities.put(score.stockCode(), score.upProbability());
+            }
+        }
+        List<MarketPrediction.Item> items = new ArrayList<>(batch.size());
+        for (StockData quote : batch) {
+            Double upProbability = upProbabilities.get(quote.getStockCode());
+            BigDecimal avgChange = StockPredictService.averageChange(recentByCode.get(quote.getStockCode()));
+            String trend;
+            if (upProbability != null) {
+                trend = upProbability >= 0.5 ? "up" : "down";
+            } else if (avgChange != null) {
+                trend = avgChange.compareTo(BigDecimal.ZERO) > 0 ? "up" : "down";
+            } else {
+                continue;
+            }
+            items.add(new MarketPrediction.Item(quote.getStockCode(), quote.getStockName(), trend, upProbability, avgChange));
+        }
+        return items;
+    }
+
+    // 技术指标在写库时已经更新，最新行情快照由 LatestQuoteCache 先行刷新；预测放到后台，不拖慢爬取任务的结束
+    @EventListener
+    public void onCrawlCompleted(CrawlCompletedEvent event) {
+        if (event.rowsPersisted() == 0 && prediction.get() != null) {
+            return; // 没有写入新数据
+        }
+        if (!submit()) {
+            log.info("全市场预测仍在运行，结束后按爬取任务 {} 写入的数据再预测一次", event.jobId());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.dong.socks_dfcf.service;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一次走势模型训练的运行统计
+ */
+public class ModelTrainingStats {
+
+    private final String trigger;
+    private final LocalDate since;
+    private final long startedAt = System.currentTimeMillis();
+    private volatile long featuresExtractedAt;
+    private volatile long finishedAt;
+    private volatile int symbols;
+    private volatile int rows;
+    private volatile int upRows;
+    private volatile double outOfBagError = Double.NaN;
+    private volatile String version;
+    private volatile String error;
+
+    ModelTrainingStats(String trigger, LocalDate since) {
+        this.trigger = trigger;
+        this.since = since;
+    }
+
+    void featuresExtracted(int symbols, int rows, int upRows) {
+        this.symbols = symbols;
+        this.rows = rows;
+        this.upRows = upRows;
+        featuresExtractedAt = System.currentTimeMillis();
+    }
+
+    void trained(String version, double outOfBagError) {
+        this.version = version;
+        this.outOfBagError = outOfBagError;
+    }
+
+    void fail(String error) {
+        this.error = error;
+    }
+
+    void finish() {
+        finishedAt = System.currentTimeMillis();
+    }
+
+    public int getSymbols() {
+        return symbols;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * 转换为接口返回的统计数据
+     */
+    public Map<String, Object> toMap() {
+        long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("trigger", trigger);
+        map.put("since", since.toString());
+        map.put("startedAt", startedAt);
+        map.put("finishedAt", finishedAt > 0 ? finishedAt : null);
+        map.put("elapsedMillis", end - startedAt);
+        map.put("featureMillis", featuresExtractedAt > 0 ? featuresExtractedAt - startedAt : null);
+        map.put("trainMillis", featuresExtractedAt > 0 && finishedAt > 0 ? finishedAt - featuresExtractedAt : null);
+        map.put("symbols", symbols);
+        map.put("rows", rows);
+        map.put("upRows", upRows);
+        map.put("outOfBagError", Double.isNaN(outOfBagError) ? null : outOfBagError);
+        map.put("version", version);
+        map.put("error", error);
+        return map;
+    }
+}
@@ -0,0 +1,54 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * /latest 游标分页的位置：上一页最后一行的 (排序值, 股票代码)，以及数据快照的版本号
+ * 对外是不透明的URL安全字符串；搜索使用单独的 SearchCursor
+ * @param sortKey 排序方式
+ * @param epoch 快照版本号，直接查询数据库时为0
+ * @param value 上一页最后一行的排序值，可能为null
+ * @param stockCode 上一页最后一行的股票代码
+ */
+public record PageCursor(LatestQuoteSnapshot.SortKey sortKey, long epoch, BigDecimal value, String stockCode) {
+
+    /**
+     * 以某一行为终点生成下一页的游标
+     */
+    public static PageCursor after(LatestQuoteSnapshot.SortKey sortKey, long epoch, StockData last) {
+        return new PageCursor(sortKey, epoch, sortKey.valueOf(last), last.getStockCode());
+    }
+
+    /**
+     * 编码为请求参数
+     */
+    public String encode() {
+        String raw = sortKey.name() + "|" + epoch + "|" + (value != null ? value.toPlainString() : "") + "|" + stockCode;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析请求参数
+     * @param token encode 生成的字符串
+     * @return 游标
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4 || parts[3].isEmpty()) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            BigDecimal value = parts[2].isEmpty() ? null : new BigDecimal(parts[2]);
+            return new PageCursor(LatestQuoteSnapshot.SortKey.valueOf(parts[0]), Long.parseLong(parts[1]), value, parts[3]);
+        } catch (IllegalArgumentException e) {
+            // Base64、数字和枚举解析失败都是 IllegalArgumentException 的子类
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+}
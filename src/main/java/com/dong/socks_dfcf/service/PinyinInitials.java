@@ -0,0 +1,87 @@
+package com.dong.socks_dfcf.service;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 股票名称的拼音首字母，如 "贵州茅台" -> "gzmt"
+ * 多音字会产生多种组合（"平安银行" -> "payx"、"payh"），最多保留 MAX_VARIANTS 种；
+ * 非汉字字符转小写后原样保留，空白忽略
+ */
+final class PinyinInitials {
+
+    // 多音字组合数上限，超出后只沿用已有组合
+    private static final int MAX_VARIANTS = 8;
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+    }
+
+    private PinyinInitials() {
+    }
+
+    /**
+     * 计算名称的拼音首字母组合
+     * @param name 股票名称，可以为null
+     * @return 至少包含一个元素的组合列表，名称为空时返回 [""]
+     */
+    static List<String> of(String name) {
+        if (name == null) {
+            return List.of("");
+        }
+        List<StringBuilder> variants = new ArrayList<>();
+        variants.add(new StringBuilder());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            Set<Character> initials = initialsOf(c);
+            if (initials.size() <= 1 || variants.size() * initials.size() > MAX_VARIANTS) {
+                char initial = initials.isEmpty() ? Character.toLowerCase(c) : initials.iterator().next();
+                variants.forEach(variant -> variant.append(initial));
+                continue;
+            }
+            List<StringBuilder> expanded = new ArrayList<>(variants.size() * initials.size());
+            for (StringBuilder variant : variants) {
+                for (char initial : initials) {
+                    expanded.add(new StringBuilder(variant).append(initial));
+                }
+            }
+            variants = expanded;
+        }
+        return variants.stream().map(StringBuilder::toString).distinct().toList();
+    }
+
+    /**
+     * 单个汉字所有读音的首字母（按 pinyin4j 的读音顺序去重），非汉字返回空集合
+     */
+    private static Set<Character> initialsOf(char c) {
+        Set<Character> initials = new LinkedHashSet<>();
+        try {
+            String[] readings = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            if (readings != null) {
+                for (String reading : readings) {
+                    if (!reading.isEmpty()) {
+                        initials.add(reading.charAt(0));
+                    }
+                }
+            }
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            // LOWERCASE + WITHOUT_TONE 是合法组合，不会发生
+            throw new IllegalStateException(e);
+        }
+        return initials;
+    }
+}
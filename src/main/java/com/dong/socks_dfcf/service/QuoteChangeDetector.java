@@ -0,0 +1,92 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 行情变化检测
+ * 为每个股票代码保存上一次写库行情的指纹（数值字段的64位哈希），
+ * 价格、成交量、成交额等都没有变化的行（停牌、午休、收盘后）不再重复写库
+ */
+@Component
+public class QuoteChangeDetector {
+
+    private final Map<String, Long> lastFingerprints = new ConcurrentHashMap<>();
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * 过滤出与上次相比有变化的行，并记录这些行的指纹
+     * @param stockDataList 本次解析出的行
+     * @return 需要写库的行
+     */
+    public List<StockData> filterChanged(List<StockData> stockDataList) {
+        List<StockData> changed = new ArrayList<>(stockDataList.size());
+        for (StockData stockData : stockDataList) {
+            long fingerprint = fingerprint(stockData);
+            Long previous = lastFingerprints.put(stockData.getStockCode(), fingerprint);
+            if (previous == null || previous != fingerprint) {
+                changed.add(stockData);
+            }
+        }
+        checked.addAndGet(stockDataList.size());
+        skipped.addAndGet(stockDataList.size() - changed.size());
+        return changed;
+    }
+
+    /**
+     * 写库失败时清除指纹，下一轮重新写入
+     * @param stockCode 股票代码
+     */
+    public void forget(String stockCode) {
+        lastFingerprints.remove(stockCode);
+    }
+
+    /**
+     * 累计跳过/写入统计
+     */
+    public Map<String, Object> getStats() {
+        long checkedCount = checked.get();
+        long skippedCount = skipped.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedSymbols", lastFingerprints.size());
+        stats.put("rowsChecked", checkedCount);
+        stats.put("rowsSkipped", skippedCount);
+        stats.put("rowsWritten", checkedCount - skippedCount);
+        stats.put("skipRatio", checkedCount > 0 ? Math.round(skippedCount * 10000.0 / checkedCount) / 10000.0 : 0.0);
+        return stats;
+    }
+
+    /**
+     * 数值字段和名称的64位指纹，交易时间不参与
+     */
+    private long fingerprint(StockData stockData) {
+        long hash = 0x9E3779B97F4A7C15L;
+        hash = mix(hash, Objects.hashCode(stockData.getStockName()));
+        hash = mix(hash, Objects.hashCode(stockData.getCurrentPrice()));
+        hash = mix(hash, Objects.hashCode(stockData.getChangeAmount()));
+        hash = mix(hash, Objects.hashCode(stockData.getChangePercent()));
+        hash = mix(hash, Objects.hashCode(stockData.getOpenPrice()));
+        hash = mix(hash, Objects.hashCode(stockData.getHighPrice()));
+        hash = mix(hash, Objects.hashCode(stockData.getLowPrice()));
+        hash = mix(hash, Objects.hashCode(stockData.getVolume()));
+        hash = mix(hash, Objects.hashCode(stockData.getTurnover()));
+        hash = mix(hash, Objects.hashCode(stockData.getMarketType()));
+        return hash;
+    }
+
+    private static long mix(long hash, int value) {
+        // splitmix64 风格的混合，避免简单累加导致的碰撞
+        long z = (hash ^ value) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
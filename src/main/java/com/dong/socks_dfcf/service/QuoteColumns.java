@@ -0,0 +1,305 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * 最新行情的列式存储，随最新行情快照一起构建，用于选股
+ * 每个数值字段一个 double 数组（空值为 NaN），文本字段一个 String 数组，下标与快照中按代码升序的行一致；
+ * 筛选时每个比较式在一列上做一次紧凑循环，结果写入位图，AND / OR 按64位字逐字合并；
+ * NOT 下推到比较式（反转运算符），空值在取反后同样不满足
+ */
+public final class QuoteColumns {
+
+    /**
+     * 选股结果
+     * @param data 当前页
+     * @param total 满足条件的股票总数
+     */
+    public record Result(List<StockData> data, int total) {
+    }
+
+    /**
+     * 可筛选的字段，名称与 stock_data 的列名一致，也可以写成驼峰形式
+     */
+    public enum Column {
+        STOCK_CODE(StockData::getStockCode, null),
+        STOCK_NAME(StockData::getStockName, null),
+        CURRENT_PRICE(null, StockData::getCurrentPrice),
+        CHANGE_AMOUNT(null, StockData::getChangeAmount),
+        CHANGE_PERCENT(null, StockData::getChangePercent),
+        OPEN_PRICE(null, StockData::getOpenPrice),
+        HIGH_PRICE(null, StockData::getHighPrice),
+        LOW_PRICE(null, StockData::getLowPrice),
+        VOLUME(null, s -> s.getVolume() != null ? BigDecimal.valueOf(s.getVolume()) : null),
+        TURNOVER(null, StockData::getTurnover),
+        MARKET_TYPE(null, s -> s.getMarketType() != null ? BigDecimal.valueOf(s.getMarketType()) : null);
+
+        private final Function<StockData, String> text;
+        private final Function<StockData, BigDecimal> number;
+
+        Column(Function<StockData, String> text, Function<StockData, BigDecimal> number) {
+            this.text = text;
+            this.number = number;
+        }
+
+        public boolean isNumeric() {
+            return number != null;
+        }
+
+        /**
+         * 解析字段名，change_percent 和 changePercent 均可，不区分大小写
+         * @throws IllegalArgumentException 字段不存在
+         */
+        public static Column parse(String name) {
+            String normalized = name.replace("_", "").toLowerCase(Locale.ROOT);
+            for (Column column : values()) {
+                if (column.name().replace("_", "").toLowerCase(Locale.ROOT).equals(normalized)) {
+                    return column;
+                }
+            }
+            throw new IllegalArgumentException("未知字段 " + name);
+        }
+    }
+
+    private final List<StockData> quotes;
+    private final int size;
+    // 按 Column 序号存放，数值字段只有 numbers 不为空，文本字段只有 texts 不为空
+    private final double[][] numbers = new double[Column.values().length][];
+    private final String[][] texts = new String[Column.values().length][];
+
+    private QuoteColumns(List<StockData> quotes) {
+        this.quotes = quotes;
+        this.size = quotes.size();
+        for (Column column : Column.values()) {
+            if (column.isNumeric()) {
+                double[] values = new double[size];
+                for (int i = 0; i < size; i++) {
+                    BigDecimal value = column.number.apply(quotes.get(i));
+                    values[i] = value != null ? value.doubleValue() : Double.NaN;
+                }
+                numbers[column.ordinal()] = values;
+            } else {
+                String[] values = new String[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = column.text.apply(quotes.get(i));
+                }
+                texts[column.ordinal()] = values;
+            }
+        }
+    }
+
+    /**
+     * 构建列式存储
+     * @param quotes 按代码升序排列的最新行情
+     */
+    static QuoteColumns build(List<StockData> quotes) {
+        return new QuoteColumns(quotes);
+    }
+
+    /**
+     * 选股
+     * @param query 选股条件
+     * @param offset 偏移量
+     * @param limit 返回数量
+     */
+    public Result screen(ScreenerQuery query, int offset, int limit) {
+        long[] matched = evaluate(query.getPredicate());
+        int total = 0;
+        for (long word : matched) {
+            total += Long.bitCount(word);
+        }
+        int from = Math.max(offset, 0);
+        int to = (int) Math.min((long) from + Math.max(limit, 0), total);
+        if (from >= to) {
+            return new Result(List.of(), total);
+        }
+        int[] rows = query.getOrders().isEmpty() ? firstRows(matched, to) : topRows(matched, total, comparator(query.getOrders()), to);
+        List<StockData> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(quotes.get(rows[i]));
+        }
+        return new Result(page, total);
+    }
+
+    /**
+     * 计算满足表达式的行的位图，第 i 行对应第 i / 64 个字的第 i % 64 位
+     */
+    long[] evaluate(ScreenerQuery.Predicate predicate) {
+        return evaluate(predicate, false);
+    }
+
+    /**
+     * @param negated 是否对表达式取反：按德摩根定律交换 AND / OR，比较式反转运算符；
+     *                不对结果位图取补，空值行不会因为取反而满足条件
+     */
+    private long[] evaluate(ScreenerQuery.Predicate predicate, boolean negated) {
+        return switch (predicate) {
+            case ScreenerQuery.All all -> negated ? new long[words()] : all();
+            case ScreenerQuery.Compare compare -> {
+                ScreenerQuery.Operator operator = negated ? compare.operator().negate() : compare.operator();
+                yield compare.column().isNumeric()
+                        ? compareNumbers(numbers[compare.column().ordinal()], operator, compare.number())
+                        : compareTexts(texts[compare.column().ordinal()], operator, compare.text());
+            }
+            case ScreenerQuery.And and -> negated
+                    ? or(evaluate(and.left(), true), evaluate(and.right(), true))
+                    : and(evaluate(and.left(), false), evaluate(and.right(), false));
+            case ScreenerQuery.Or or -> negated
+                    ? and(evaluate(or.left(), true), evaluate(or.right(), true))
+                    : or(evaluate(or.left(), false), evaluate(or.right(), false));
+            case ScreenerQuery.Not not -> evaluate(not.operand(), !negated);
+        };
+    }
+
+    private static long[] and(long[] left, long[] right) {
+        for (int w = 0; w < left.length; w++) {
+            left[w] &= right[w];
+        }
+        return left;
+    }
+
+    private static long[] or(long[] left, long[] right) {
+        for (int w = 0; w < left.length; w++) {
+            left[w] |= right[w];
+        }
+        return left;
+    }
+
+    private long[] all() {
+        long[] bits = new long[words()];
+        Arrays.fill(bits, -1L);
+        if (size % 64 != 0) {
+            bits[bits.length - 1] = (1L << (size % 64)) - 1;
+        }
+        return bits;
+    }
+
+    private int words() {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * 数值比较；每种运算符一个循环，循环内没有分支判断运算符。NaN 与任何值比较都为 false
+     */
+    private long[] compareNumbers(double[] values, ScreenerQuery.Operator operator, double x) {
+        long[] bits = new long[words()];
+        switch (operator) {
+            case GT -> {
+                for (int i = 0; i < size; i++) {
+                    bits[i >>> 6] |= (values[i] > x ? 1L : 0L) << i;
+                }
+            }
+            case GE -> {
+                for (int i = 0; i < size; i++) {
+                    bits[i >>> 6] |= (values[i] >= x ? 1L : 0L) << i;
+                }
+            }
+            case LT -> {
+                for (int i = 0; i < size; i++) {
+                    bits[i >>> 6] |= (values[i] < x ? 1L : 0L) << i;
+                }
+            }
+            case LE -> {
+                for (int i = 0; i < size; i++) {
+                    bits[i >>> 6] |= (values[i] <= x ? 1L : 0L) << i;
+                }
+            }
+            case EQ -> {
+                for (int i = 0; i < size; i++) {
+                    bits[i >>> 6] |= (values[i] == x ? 1L : 0L) << i;
+                }
+            }
+            case NE -> {
+                for (int i = 0; i < size; i++) {
+                    double value = values[i];
+                    bits[i >>> 6] |= (value != x && value == value ? 1L : 0L) << i;
+                }
+            }
+        }
+        return bits;
+    }
+
+    private long[] compareTexts(String[] values, ScreenerQuery.Operator operator, String x) {
+        long[] bits = new long[words()];
+        boolean equal = operator == ScreenerQuery.Operator.EQ;
+        for (int i = 0; i < size; i++) {
+            if (values[i] != null && values[i].equals(x) == equal) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * 不排序时按代码顺序取前 count 个满足条件的行
+     */
+    private static int[] firstRows(long[] matched, int count) {
+        int[] rows = new int[count];
+        int n = 0;
+        for (int w = 0; w < matched.length && n < count; w++) {
+            long word = matched[w];
+            while (word != 0 && n < count) {
+                rows[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 排序后的前 count 行：只需要一小部分时用大小为 count 的堆选出，否则整体排序
+     */
+    private static int[] topRows(long[] matched, int total, Comparator<Integer> comparator, int count) {
+        int[] all = firstRows(matched, total);
+        if (count * 4L >= total) {
+            return Arrays.stream(all).boxed().sorted(comparator).mapToInt(Integer::intValue).toArray();
+        }
+        PriorityQueue<Integer> heap = new PriorityQueue<>(count + 1, comparator.reversed());
+        for (int row : all) {
+            if (heap.size() < count) {
+                heap.add(row);
+            } else if (comparator.compare(row, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(row);
+            }
+        }
+        return heap.stream().sorted(comparator).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 按排序字段依次比较，空值在最后；全部相同时按行号即代码升序
+     */
+    private Comparator<Integer> comparator(List<ScreenerQuery.Order> orders) {
+        Comparator<Integer> comparator = null;
+        for (ScreenerQuery.Order order : orders) {
+            double[] values = numbers[order.column().ordinal()];
+            boolean descending = order.descending();
+            Comparator<Integer> next = (a, b) -> {
+                double x = values[a];
+                double y = values[b];
+                if (Double.isNaN(x) || Double.isNaN(y)) {
+                    return Boolean.compare(Double.isNaN(x), Double.isNaN(y));
+                }
+                return descending ? Double.compare(y, x) : Double.compare(x, y);
+            };
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator == null ? Comparator.naturalOrder() : comparator.thenComparing(Comparator.naturalOrder());
+    }
+
+    /**
+     * 行数
+     */
+    public int size() {
+        return size;
+    }
+}
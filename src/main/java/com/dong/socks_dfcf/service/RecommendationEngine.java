@@ -0,0 +1,177 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.RecommendProperties;
+import com.dong.socks_dfcf.event.CrawlCompletedEvent;
+import com.dong.socks_dfcf.model.StockData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 股票推荐：在最新行情快照上一次遍历所有股票，按多因子评分（动量、放量、成交额）保留前K名
+ * 用大小为K的小顶堆选出前K名，堆顶是当前入选的最低分，新股票只需与堆顶比较，整体 O(n log K)；
+ * 每次快照刷新后重新计算，查询直接返回计算好的列表
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecommendationEngine {
+
+    // 涨跌幅超过该值（%）视为强势上涨
+    private static final BigDecimal STRONG_CHANGE = new BigDecimal("5");
+    // 量比达到该值视为放量
+    private static final double VOLUME_SURGE_RATIO = 2.0;
+    // 成交额达到该值（元）视为成交活跃
+    private static final double ACTIVE_TURNOVER = 1_000_000_000;
+
+    private final LatestQuoteCache latestQuoteCache;
+    private final IndicatorEngine indicatorEngine;
+    private final RecommendProperties recommendProperties;
+
+    private final AtomicReference<Ranking> ranking = new AtomicReference<>();
+
+    /**
+     * 一个快照版本上的推荐结果
+     */
+    private record Ranking(long snapshotEpoch, List<String> recommendations) {
+    }
+
+    /**
+     * 入选的股票及其评分
+     */
+    record Candidate(StockData quote, Double volumeRatio, double score) {
+    }
+
+    // 堆顶为最差的候选：评分低的在前，评分相同时代码大的在前
+    private static final Comparator<Candidate> WORST_FIRST = Comparator.comparingDouble(Candidate::score)
+            .thenComparing(candidate -> candidate.quote().getStockCode(), Comparator.reverseOrder());
+
+    /**
+     * 推荐列表，按评分降序
+     * @return 最新行情快照尚未加载时返回空列表
+     */
+    public List<String> getRecommendations() {
+        LatestQuoteSnapshot snapshot = latestQuoteCache.getSnapshot();
+        if (snapshot == null) {
+            return List.of();
+        }
+        Ranking current = ranking.get();
+        if (current == null || current.snapshotEpoch() != snapshot.getEpoch()) {
+            current = rank(snapshot);
+        }
+        return current.recommendations();
+    }
+
+    private Ranking rank(LatestQuoteSnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        List<String> recommendations = new ArrayList<>();
+        for (Candidate candidate : selectTop(snapshot.getQuotes())) {
+            recommendations.add(format(candidate));
+        }
+        Ranking ranked = new Ranking(snapshot.getEpoch(), List.copyOf(recommendations));
+        ranking.set(ranked);
+        log.info("推荐列表已更新: {} 只股票中选出 {} 只, 耗时 {} ms",
+                snapshot.getTotal(), recommendations.size(), System.currentTimeMillis() - start);
+        return ranked;
+    }
+
+    /**
+     * 一次遍历选出评分最高的 topK 只股票
+     * @return 按评分降序，评分相同时按代码升序
+     */
+    List<Candidate> selectTop(List<StockData> quotes) {
+        int k = recommendProperties.getTopK();
+        if (k <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(k + 1, WORST_FIRST);
+        for (StockData quote : quotes) {
+            Indicators indicators = indicatorEngine.get(quote.getStockCode());
+            Double volumeRatio = indicators != null ? indicators.volumeRatio5() : null;
+            Double score = score(quote, volumeRatio);
+            if (score == null) {
+                continue;
+            }
+            Candidate candidate = new Candidate(quote, volumeRatio, score);
+            if (heap.size() < k) {
+                heap.add(candidate);
+            } else if (WORST_FIRST.compare(candidate, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        List<Candidate> top = new ArrayList<>(heap);
+        top.sort(WORST_FIRST.reversed());
+        return top;
+    }
+
+    /**
+     * 多因子评分
+     * @param volumeRatio 量比，没有技术指标时为null，放量因子按0计
+     * @return 缺少涨跌幅或成交额、成交额低于下限时返回null，不参与推荐
+     */
+    Double score(StockData quote, Double volumeRatio) {
+        if (quote.getChangePercent() == null || quote.getTurnover() == null) {
+            return null;
+        }
+        double turnover = quote.getTurnover().doubleValue();
+        if (turnover < recommendProperties.getMinTurnover() || turnover <= 0) {
+            return null;
+        }
+        double score = recommendProperties.getMomentumWeight() * quote.getChangePercent().doubleValue()
+                + recommendProperties.getTurnoverWeight() * Math.log10(turnover);
+        if (volumeRatio != null && volumeRatio > 0) {
+            score += recommendProperties.getVolumeSurgeWeight() * Math.log(volumeRatio);
+        }
+        return score;
+    }
+
+    private static String format(Candidate candidate) {
+        StockData quote = candidate.quote();
+        BigDecimal changePercent = quote.getChangePercent();
+        List<String> reasons = new ArrayList<>();
+        if (changePercent.compareTo(STRONG_CHANGE) > 0) {
+            reasons.add("近期强势上涨");
+        } else if (changePercent.compareTo(BigDecimal.ZERO) > 0) {
+            reasons.add("稳步上涨中");
+        } else if (changePercent.compareTo(new BigDecimal("-3")) > 0) {
+            reasons.add("小幅回调，可关注");
+        } else {
+            reasons.add("超跌反弹机会");
+        }
+        if (candidate.volumeRatio() != null && candidate.volumeRatio() >= VOLUME_SURGE_RATIO) {
+            reasons.add(String.format("量比%.1f放量", candidate.volumeRatio()));
+        }
+        if (quote.getTurnover().doubleValue() >= ACTIVE_TURNOVER) {
+            reasons.add("成交活跃");
+        }
+        return quote.getStockCode() + " " + quote.getStockName()
+                + " (涨幅: " + changePercent + "%, 推荐理由: " + String.join("，", reasons) + ")";
+    }
+
+    // 紧接 LatestQuoteCache 之后、DataEpoch 推进版本之前执行，新版本号下的推荐已经是新结果
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onCrawlCompleted(CrawlCompletedEvent event) {
+        LatestQuoteSnapshot snapshot = latestQuoteCache.getSnapshot();
+        Ranking current = ranking.get();
+        if (snapshot == null || current != null && current.snapshotEpoch() == snapshot.getEpoch()) {
+            return; // 快照没有变化
+        }
+        try {
+            rank(snapshot);
+        } catch (Exception e) {
+            log.error("爬取任务 {} 结束后更新推荐列表失败", event.jobId(), e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.dong.socks_dfcf.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 回放录制的 clist 响应，用于离线、可重复地压测爬虫和入库链路
+ * 启动时读取录制目录中的所有响应，按股票代码去重后组成一个虚拟市场，并可按倍数复制放大；
+ * 请求时按页码和页大小现场生成JSONP响应，再交给同一个流式解析器解析，
+ * 可以模拟延迟、抖动、错误和接口的页大小上限。随机性由种子、页码和第几次请求决定，与线程调度无关
+ */
+@Slf4j
+public class ReplayClistPageFetcher implements ClistPageFetcher {
+
+    private static final byte[] PREFIX = "jQuery_replay({\"rc\":0,\"rt\":6,\"svr\":0,\"lt\":1,\"full\":1,\"dlmkts\":\"\",\"data\":"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final ClistResponseParser clistResponseParser = new ClistResponseParser();
+    private final List<byte[]> rows;
+    private final int maxPageSize;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final long seed;
+    // 每页的请求次数，重试时得到不同的随机结果
+    private final Map<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+    /**
+     * @param recordDir 录制目录
+     * @param scale 市场放大倍数，第k份复制的代码为 原代码.k
+     * @param maxPageSize 模拟接口支持的最大页大小
+     * @param latencyMillis 每次请求的基础延迟
+     * @param jitterMillis 在基础延迟上增加的随机延迟上限
+     * @param errorRate 请求失败概率（一半返回503，一半读超时）
+     * @param seed 随机种子
+     */
+    public ReplayClistPageFetcher(Path recordDir, int scale, int maxPageSize, long latencyMillis,
+                                  long jitterMillis, double errorRate, long seed) throws IOException {
+        Map<String, ObjectNode> recorded = loadRecordedRows(recordDir);
+        if (recorded.isEmpty()) {
+            throw new IOException("No recorded clist rows found in " + recordDir.toAbsolutePath());
+        }
+        this.rows = buildMarket(recorded, Math.max(scale, 1));
+        this.maxPageSize = Math.max(maxPageSize, 1);
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.seed = seed;
+        log.info("Replaying {} recorded symbols x{} = {} rows from {}", recorded.size(), scale, rows.size(), recordDir.toAbsolutePath());
+    }
+
+    /**
+     * 虚拟市场的总行数
+     */
+    public int getTotal() {
+        return rows.size();
+    }
+
+    @Override
+    public ClistResponseParser.ClistPage fetch(int page, int pageSize) throws IOException {
+        int attempt = attempts.computeIfAbsent(page, p -> new AtomicInteger()).getAndIncrement();
+        long random = mix(seed, page, attempt);
+        simulateLatency(random);
+
+        if (unitInterval(random) < errorRate) {
+            if ((random & 1) == 0) {
+                throw new CrawlHttpStatusException(503, "Injected HTTP 503 for page " + page);
+            }
+            throw new SocketTimeoutException("Injected read timeout for page " + page);
+        }
+        return clistResponseParser.parse(new ByteArrayInputStream(render(page, Math.min(pageSize, maxPageSize))));
+    }
+
+    private void simulateLatency(long random) throws IOException {
+        long delay = latencyMillis + (jitterMillis > 0 ? Math.floorMod(random >>> 11, jitterMillis + 1) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during simulated latency");
+        }
+    }
+
+    /**
+     * 生成与线上接口格式相同的JSONP响应
+     */
+    private byte[] render(int page, int pageSize) {
+        int from = (page - 1) * pageSize;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pageSize * 400 + 128);
+        out.writeBytes(PREFIX);
+        if (page < 1 || from >= rows.size()) {
+            out.writeBytes("null});".getBytes(StandardCharsets.UTF_8));
+            return out.toByteArray();
+        }
+        out.writeBytes(("{\"total\":" + rows.size() + ",\"diff\":[").getBytes(StandardCharsets.UTF_8));
+        int to = Math.min(from + pageSize, rows.size());
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                out.write(',');
+            }
+            out.writeBytes(rows.get(i));
+        }
+        out.writeBytes("]}});".getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    /**
+     * 读取录制目录中所有文件的 data.diff 行，按文件名排序，同一代码后面的覆盖前面的
+     */
+    private static Map<String, ObjectNode> loadRecordedRows(Path recordDir) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, ObjectNode> recorded = new LinkedHashMap<>();
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(recordDir)) {
+            files = stream.filter(Files::isRegularFile).sorted().toList();
+        }
+        for (Path file : files) {
+            String body = Files.readString(file, StandardCharsets.UTF_8);
+            int start = body.indexOf('{');
+            int end = body.lastIndexOf('}');
+            if (start < 0 || end < start) {
+                log.warn("Skipping {}: no JSON payload", file);
+                continue;
+            }
+            JsonNode diff = objectMapper.readTree(body.substring(start, end + 1)).path("data").path("diff");
+            for (JsonNode row : diff) {
+                if (row instanceof ObjectNode objectNode && row.hasNonNull("f12")) {
+                    recorded.put(row.get("f12").asText(), objectNode);
+                }
+            }
+        }
+        return recorded;
+    }
+
+    /**
+     * 把录制的行复制 scale 份并预先序列化，第k份的代码和名称加上后缀
+     */
+    private static List<byte[]> buildMarket(Map<String, ObjectNode> recorded, int scale) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<byte[]> market = new ArrayList<>(recorded.size() * scale);
+        for (int k = 0; k < scale; k++) {
+            for (ObjectNode row : recorded.values()) {
+                ObjectNode copy = row;
+                if (k > 0) {
+                    copy = row.deepCopy();
+                    copy.put("f12", row.get("f12").asText() + "." + k);
+                    copy.put("f14", row.path("f14").asText() + "#" + k);
+                }
+                market.add(objectMapper.writeValueAsBytes(copy));
+            }
+        }
+        return market;
+    }
+
+    private static long mix(long seed, int page, int attempt) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) page << 20) + attempt + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double unitInterval(long random) {
+        return (random >>> 11) * 0x1.0p-53;
+    }
+}
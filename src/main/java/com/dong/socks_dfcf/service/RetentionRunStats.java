@@ -0,0 +1,122 @@
+package com.dong.socks_dfcf.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次历史数据清理的运行统计
+ */
+public class RetentionRunStats {
+
+    private final String mode;
+    private final String trigger;
+    private final LocalDateTime cutoff;
+    private final long startedAt = System.currentTimeMillis();
+    private volatile long finishedAt;
+    private volatile long rowsDeleted;
+    private volatile int deleteChunks;
+    // 本次运行达到单次批数上限，还有过期数据留给下一次
+    private volatile boolean truncated;
+    private final List<String> partitionsCreated = new ArrayList<>();
+    private final List<String> partitionsDropped = new ArrayList<>();
+    private volatile long partitionRowsDropped;
+    // 各周期删除的K线行数
+    private final Map<String, Long> barRowsDeleted = new LinkedHashMap<>();
+    private volatile long tickRowsDropped;
+    private volatile String error;
+
+    RetentionRunStats(String mode, String trigger, LocalDateTime cutoff) {
+        this.mode = mode;
+        this.trigger = trigger;
+        this.cutoff = cutoff;
+    }
+
+    void chunkDeleted(int rows) {
+        deleteChunks++;
+        rowsDeleted += rows;
+    }
+
+    void truncate() {
+        truncated = true;
+    }
+
+    synchronized void partitionCreated(String name) {
+        partitionsCreated.add(name);
+    }
+
+    synchronized void partitionDropped(String name, long estimatedRows) {
+        partitionsDropped.add(name);
+        partitionRowsDropped += estimatedRows;
+    }
+
+    synchronized void barsDeleted(String interval, int rows) {
+        barRowsDeleted.merge(interval, (long) rows, Long::sum);
+    }
+
+    void ticksDropped(long rows) {
+        tickRowsDropped += rows;
+    }
+
+    void fail(String error) {
+        this.error = error;
+    }
+
+    void finish() {
+        finishedAt = System.currentTimeMillis();
+    }
+
+    public long getRowsDeleted() {
+        return rowsDeleted;
+    }
+
+    public synchronized int getPartitionsCreated() {
+        return partitionsCreated.size();
+    }
+
+    public synchronized int getPartitionsDropped() {
+        return partitionsDropped.size();
+    }
+
+    public long getPartitionRowsDropped() {
+        return partitionRowsDropped;
+    }
+
+    public synchronized long getBarRowsDeleted() {
+        return barRowsDeleted.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long getTickRowsDropped() {
+        return tickRowsDropped;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * 转换为接口返回的统计数据
+     */
+    public synchronized Map<String, Object> toMap() {
+        long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("mode", mode);
+        map.put("trigger", trigger);
+        map.put("cutoff", cutoff.toString());
+        map.put("startedAt", startedAt);
+        map.put("finishedAt", finishedAt > 0 ? finishedAt : null);
+        map.put("elapsedMillis", end - startedAt);
+        map.put("rowsDeleted", rowsDeleted);
+        map.put("deleteChunks", deleteChunks);
+        map.put("truncated", truncated);
+        map.put("partitionsCreated", List.copyOf(partitionsCreated));
+        map.put("partitionsDropped", List.copyOf(partitionsDropped));
+        map.put("partitionRowsDropped", partitionRowsDropped);
+        map.put("barRowsDeleted", new LinkedHashMap<>(barRowsDeleted));
+        map.put("tickRowsDropped", tickRowsDropped);
+        map.put("error", error);
+        return map;
+    }
+}
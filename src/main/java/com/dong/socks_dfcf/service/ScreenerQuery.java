@@ -0,0 +1,305 @@
+package com.dong.socks_dfcf.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 选股条件：筛选表达式和排序，解析后在 QuoteColumns 的列数组上执行
+ * 筛选表达式：比较式用 AND / OR / NOT 和括号组合，比较式为 字段 运算符 值，例如
+ * change_percent > 5 AND turnover > 1e8 AND (market_type = 1 OR stock_name = '贵州茅台')
+ * 数值字段支持 &gt; &gt;= &lt; &lt;= = !=，文本字段支持 = 和 !=；字段值为空的股票不满足任何比较，
+ * 取反后也不满足（与 SQL 一致，NOT change_percent &gt; 5 不包含涨跌幅为空的股票）
+ * 排序：逗号分隔的 字段 [asc|desc]，默认升序，空值总在最后，最后按代码升序
+ */
+public final class ScreenerQuery {
+
+    // 筛选表达式的最大长度
+    static final int MAX_FILTER_LENGTH = 1000;
+
+    /**
+     * 比较运算符
+     */
+    enum Operator {
+        GT, GE, LT, LE, EQ, NE;
+
+        /**
+         * 取反后的运算符，用于把 NOT 下推到比较式
+         */
+        Operator negate() {
+            return switch (this) {
+                case GT -> LE;
+                case GE -> LT;
+                case LT -> GE;
+                case LE -> GT;
+                case EQ -> NE;
+                case NE -> EQ;
+            };
+        }
+    }
+
+    /**
+     * 筛选表达式的语法树
+     */
+    sealed interface Predicate permits Compare, And, Or, Not, All {
+    }
+
+    record Compare(QuoteColumns.Column column, Operator operator, double number, String text) implements Predicate {
+    }
+
+    record And(Predicate left, Predicate right) implements Predicate {
+    }
+
+    record Or(Predicate left, Predicate right) implements Predicate {
+    }
+
+    record Not(Predicate operand) implements Predicate {
+    }
+
+    // 空表达式，匹配所有股票
+    record All() implements Predicate {
+    }
+
+    /**
+     * 一个排序字段
+     */
+    record Order(QuoteColumns.Column column, boolean descending) {
+    }
+
+    private final Predicate predicate;
+    private final List<Order> orders;
+
+    private ScreenerQuery(Predicate predicate, List<Order> orders) {
+        this.predicate = predicate;
+        this.orders = orders;
+    }
+
+    /**
+     * 解析选股条件
+     * @param filter 筛选表达式，为空时匹配所有股票
+     * @param sort 排序，为空时按代码升序
+     * @throws IllegalArgumentException 表达式有语法错误或字段不存在
+     */
+    public static ScreenerQuery parse(String filter, String sort) {
+        if (filter != null && filter.length() > MAX_FILTER_LENGTH) {
+            throw new IllegalArgumentException("筛选条件不能超过 " + MAX_FILTER_LENGTH + " 个字符");
+        }
+        Predicate predicate = filter == null || filter.isBlank() ? new All() : new Parser(filter).parse();
+        return new ScreenerQuery(predicate, parseSort(sort));
+    }
+
+    Predicate getPredicate() {
+        return predicate;
+    }
+
+    List<Order> getOrders() {
+        return orders;
+    }
+
+    private static List<Order> parseSort(String sort) {
+        List<Order> orders = new ArrayList<>();
+        if (sort == null || sort.isBlank()) {
+            return orders;
+        }
+        for (String part : sort.split(",")) {
+            String[] words = part.trim().split("\\s+");
+            if (words.length == 0 || words[0].isEmpty() || words.length > 2) {
+                throw new IllegalArgumentException("排序格式错误: " + part.trim());
+            }
+            boolean descending = false;
+            if (words.length == 2) {
+                switch (words[1].toLowerCase(Locale.ROOT)) {
+                    case "asc" -> descending = false;
+                    case "desc" -> descending = true;
+                    default -> throw new IllegalArgumentException("排序方向只能是 asc 或 desc: " + words[1]);
+                }
+            }
+            QuoteColumns.Column column = QuoteColumns.Column.parse(words[0]);
+            if (!column.isNumeric()) {
+                throw new IllegalArgumentException("只能按数值字段排序: " + words[0]);
+            }
+            orders.add(new Order(column, descending));
+        }
+        return orders;
+    }
+
+    /**
+     * 递归下降解析：or := and (OR and)*，and := unary (AND unary)*，unary := NOT unary | ( or ) | 比较式
+     */
+    private static final class Parser {
+
+        private final String input;
+        private int position;
+
+        Parser(String input) {
+            this.input = input;
+        }
+
+        Predicate parse() {
+            Predicate predicate = or();
+            skipWhitespace();
+            if (position < input.length()) {
+                throw error("多余的内容");
+            }
+            return predicate;
+        }
+
+        private Predicate or() {
+            Predicate left = and();
+            while (keyword("OR")) {
+                left = new Or(left, and());
+            }
+            return left;
+        }
+
+        private Predicate and() {
+            Predicate left = unary();
+            while (keyword("AND")) {
+                left = new And(left, unary());
+            }
+            return left;
+        }
+
+        private Predicate unary() {
+            if (keyword("NOT")) {
+                return new Not(unary());
+            }
+            if (symbol("(")) {
+                Predicate inner = or();
+                if (!symbol(")")) {
+                    throw error("缺少右括号");
+                }
+                return inner;
+            }
+            return compare();
+        }
+
+        private Predicate compare() {
+            int start = position;
+            String name = identifier();
+            if (name == null) {
+                throw error("应为字段名");
+            }
+            QuoteColumns.Column column;
+            try {
+                column = QuoteColumns.Column.parse(name);
+            } catch (IllegalArgumentException e) {
+                position = start;
+                throw error(e.getMessage());
+            }
+            Operator operator = operator();
+            skipWhitespace();
+            if (column.isNumeric()) {
+                return new Compare(column, operator, number(), null);
+            }
+            if (operator != Operator.EQ && operator != Operator.NE) {
+                throw error("文本字段 " + name + " 只支持 = 和 !=");
+            }
+            return new Compare(column, operator, Double.NaN, string());
+        }
+
+        private Operator operator() {
+            skipWhitespace();
+            if (symbol(">=")) {
+                return Operator.GE;
+            }
+            if (symbol("<=")) {
+                return Operator.LE;
+            }
+            if (symbol("!=") || symbol("<>")) {
+                return Operator.NE;
+            }
+            if (symbol("==") || symbol("=")) {
+                return Operator.EQ;
+            }
+            if (symbol(">")) {
+                return Operator.GT;
+            }
+            if (symbol("<")) {
+                return Operator.LT;
+            }
+            throw error("应为比较运算符");
+        }
+
+        private double number() {
+            int start = position;
+            if (position < input.length() && (input.charAt(position) == '-' || input.charAt(position) == '+')) {
+                position++;
+            }
+            while (position < input.length()) {
+                char c = input.charAt(position);
+                boolean exponentSign = (c == '-' || c == '+') && position > start
+                        && Character.toLowerCase(input.charAt(position - 1)) == 'e';
+                if (!Character.isDigit(c) && c != '.' && c != 'e' && c != 'E' && !exponentSign) {
+                    break;
+                }
+                position++;
+            }
+            try {
+                return Double.parseDouble(input.substring(start, position));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("应为数值");
+            }
+        }
+
+        private String string() {
+            if (position >= input.length() || (input.charAt(position) != '\'' && input.charAt(position) != '"')) {
+                throw error("文本值需要用引号括起来");
+            }
+            char quote = input.charAt(position);
+            int end = input.indexOf(quote, position + 1);
+            if (end < 0) {
+                throw error("缺少结束引号");
+            }
+            String text = input.substring(position + 1, end);
+            position = end + 1;
+            return text;
+        }
+
+        private String identifier() {
+            skipWhitespace();
+            int start = position;
+            while (position < input.length()
+                    && (Character.isLetterOrDigit(input.charAt(position)) || input.charAt(position) == '_')) {
+                position++;
+            }
+            return position > start ? input.substring(start, position) : null;
+        }
+
+        /**
+         * 匹配关键字（不区分大小写），后面不能紧跟字母数字
+         */
+        private boolean keyword(String keyword) {
+            skipWhitespace();
+            int end = position + keyword.length();
+            if (end > input.length() || !input.regionMatches(true, position, keyword, 0, keyword.length())) {
+                return false;
+            }
+            if (end < input.length() && (Character.isLetterOrDigit(input.charAt(end)) || input.charAt(end) == '_')) {
+                return false;
+            }
+            position = end;
+            return true;
+        }
+
+        private boolean symbol(String symbol) {
+            skipWhitespace();
+            if (input.startsWith(symbol, position)) {
+                position += symbol.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("筛选条件第 " + (position + 1) + " 个字符处" + message);
+        }
+    }
+}
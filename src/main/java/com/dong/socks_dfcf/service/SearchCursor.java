@@ -0,0 +1,69 @@
+package com.dong.socks_dfcf.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 搜索游标分页的位置，与 /latest 的 PageCursor 互不通用：两者编码时的类型标记不同，互相解析都会失败
+ * 在快照上搜索时记录上一页最后一只股票的匹配等级，快照未加载、查询数据库时记录它的涨跌幅
+ * @param epoch 快照版本号，查询数据库时为0
+ * @param rank 匹配等级（StockSearchIndex.Result.lastRank），查询数据库时不使用
+ * @param changePercent 涨跌幅，可能为null；在快照上搜索时不使用
+ * @param stockCode 上一页最后一只股票的代码
+ */
+public record SearchCursor(long epoch, int rank, BigDecimal changePercent, String stockCode) {
+
+    private static final String TYPE = "search";
+
+    /**
+     * 在快照上搜索的下一页游标
+     */
+    public static SearchCursor onSnapshot(long epoch, int rank, String stockCode) {
+        return new SearchCursor(epoch, rank, null, stockCode);
+    }
+
+    /**
+     * 查询数据库搜索的下一页游标
+     */
+    public static SearchCursor onDatabase(BigDecimal changePercent, String stockCode) {
+        return new SearchCursor(0, 0, changePercent, stockCode);
+    }
+
+    /**
+     * 是否在快照上翻页
+     */
+    public boolean isOnSnapshot() {
+        return epoch > 0;
+    }
+
+    /**
+     * 编码为请求参数
+     */
+    public String encode() {
+        String raw = TYPE + "|" + epoch + "|" + rank + "|"
+                + (changePercent != null ? changePercent.toPlainString() : "") + "|" + stockCode;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析请求参数
+     * @param token encode 生成的字符串
+     * @return 游标
+     * @throws IllegalArgumentException 游标格式不正确，包括传入了 /latest 的游标
+     */
+    public static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 5);
+            if (parts.length != 5 || !TYPE.equals(parts[0]) || parts[4].isEmpty()) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            BigDecimal changePercent = parts[3].isEmpty() ? null : new BigDecimal(parts[3]);
+            return new SearchCursor(Long.parseLong(parts[1]), Integer.parseInt(parts[2]), changePercent, parts[4]);
+        } catch (IllegalArgumentException e) {
+            // Base64 和数字解析失败都是 IllegalArgumentException 的子类
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+}
@@ -1,75 +1,41 @@
 package com.dong.socks_dfcf.service;
 
-import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.config.CrawlerProperties;
 import com.dong.socks_dfcf.model.StockData;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.config.RequestConfig;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
-import org.apache.hc.core5.util.Timeout;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class StockCrawlerService {
     
-    private final StockDataMapper stockDataMapper;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StockDataBatchWriter stockDataBatchWriter;
+    private final QuoteChangeDetector quoteChangeDetector;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final CrawlerProperties crawlerProperties;
+    // 页面获取方式（线上接口、录制或回放），见 CrawlerConfig
+    private final ClistPageFetcher clistPageFetcher;
     
-    // 创建一个HttpClient实例用于所有请求
-    private final CloseableHttpClient httpClient = createHttpClient();
+    // 接口实际支持的最大页大小，首次探测前为0
+    private volatile int honoredPageSize;
     
-    // 东方财富网股票数据接口基础URL (根据用户提供的URL修改)
-    private static final String STOCK_API_BASE_URL = "https://push2.eastmoney.com/api/qt/clist/get?" +
-            "np=1&fltt=1&invt=2&cb=jQuery37105849300946593018_1760442054336&fs=m:128+t:3,m:128+t:4,m:128+t:1,m:128+t:2&" +
-            "fields=f12,f13,f14,f19,f1,f2,f4,f3,f152,f17,f18,f15,f16,f5,f6&fid=f3&pn={}&pz=20&po=1&dect=1&" +
-            "ut=fa5fd1943c7b386f172d6893dbfba10b&wbp2u=|0|0|0|web&_=1760442054387";
+    // 最近一次全量爬取的统计
+    private volatile CrawlRunStats lastRunStats;
     
-    // 线程池配置
-    private static final int THREAD_POOL_SIZE = 5;
-    private static final int MAX_RETRIES = 3;
+    // 探测失败时使用的页大小（接口网页端默认值）
+    private static final int DEFAULT_PAGE_SIZE = 20;
     
-    /**
-     * 创建配置好的HttpClient实例
-     * @return 配置好的HttpClient
-     */
-    private CloseableHttpClient createHttpClient() {
-        // 创建连接管理器
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-        connectionManager.setMaxTotal(20);
-        connectionManager.setDefaultMaxPerRoute(10);
-        
-        // 配置请求参数
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setConnectTimeout(Timeout.ofSeconds(10))
-                .setResponseTimeout(Timeout.ofSeconds(15))
-                .setConnectionRequestTimeout(Timeout.ofSeconds(5))
-                .build();
-        
-        // 创建并配置HttpClient
-        return HttpClients.custom()
-                .setConnectionManager(connectionManager)
-                .setDefaultRequestConfig(requestConfig)
-                .build();
-    }
+    // 抓取阶段通知入库阶段结束的标记，按引用比较
+    private static final List<StockData> END_OF_CRAWL = new ArrayList<>(0);
     
     /**
      * 爬取股票数据（单页）
@@ -79,437 +45,436 @@ public class StockCrawlerService {
     }
     
     /**
-     * 爬取所有股票数据（多页，多线程）
+     * 获取最近一次全量爬取的统计（进行中或已完成）
+     * @return 统计数据，从未运行过时返回null
      */
-    public void crawlAllStockData() {
-        // 创建线程池
-        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-        // 用于跟踪完成的任务数
-        AtomicInteger completedTasks = new AtomicInteger(0);
-        // 用于存储所有爬取到的数据
-        List<StockData> allStockData = new CopyOnWriteArrayList<>();
+    public CrawlRunStats getLastRunStats() {
+        return lastRunStats;
+    }
+    
+    /**
+     * 获取自适应并发控制指标（当前并发上限、在途请求数）
+     */
+    public Map<String, Object> getConcurrencyStats() {
+        return concurrencyLimiter.getStats();
+    }
+    
+    /**
+     * 获取行情变化检测的累计统计（跳过/写入比例）
+     */
+    public Map<String, Object> getChangeDetectionStats() {
+        return quoteChangeDetector.getStats();
+    }
+    
+    /**
+     * 爬取所有股票数据（多页，流水线）
+     * 抓取+解析阶段：每页一个虚拟线程，在途请求数由自适应并发控制限制，解析结果放入有界队列，队列满时抓取阶段阻塞（背压）；
+     * 入库阶段：单独的虚拟线程从队列取数据，按批量大小或时间间隔刷新到数据库，与抓取同时进行
+     * @return 本次爬取的统计
+     */
+    public CrawlRunStats crawlAllStockData() {
+        CrawlRunStats stats = new CrawlRunStats();
+        crawlAllStockData(stats);
+        return stats;
+    }
+    
+    /**
+     * 爬取所有股票数据，进度写入调用方提供的统计对象（爬取任务据此查询进度）
+     * 调用线程被中断时取消：停止抓取剩余页面，已解析的数据仍会写入数据库
+     * @param stats 本次爬取的统计
+     */
+    public void crawlAllStockData(CrawlRunStats stats) {
+        lastRunStats = stats;
+        BlockingQueue<List<StockData>> parsedPages = new ArrayBlockingQueue<>(crawlerProperties.getParsedQueueCapacity());
+        stats.setParsedQueue(parsedPages);
+        Thread persister = Thread.ofVirtual().name("crawl-persist").start(() -> runPersistStage(parsedPages, stats));
         
-        try {
-            // 首先获取第一页数据以确定总页数
-            String firstPageResponse = fetchPageDataWithRetry(1);
-            int totalPages = getTotalPages(firstPageResponse);
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            // 首先获取第一页数据以确定页大小和总页数，第一页的数据直接复用
+            int requestedPageSize = crawlerProperties.isPageSizeAutoTune()
+                    ? crawlerProperties.getPageSizeProbe() : crawlerProperties.getPageSize();
+            ClistResponseParser.ClistPage firstPage = fetchPageDataWithRetry(1, requestedPageSize);
+            int pageSize = resolvePageSize(requestedPageSize, firstPage);
+            int totalPages = getTotalPages(firstPage, pageSize);
+            stats.setTotalPages(totalPages);
+            stats.setPageSize(pageSize);
+            stats.pageCompleted(firstPage.rows().size());
+            enqueue(parsedPages, firstPage.rows(), stats);
             
-            log.info("Total pages to crawl: {}", totalPages);
+            log.info("Total pages to crawl: {} ({} records, page size {})", totalPages, firstPage.total(), pageSize);
             
-            // 创建计数信号量，限制并发数
-            Semaphore semaphore = new Semaphore(THREAD_POOL_SIZE);
+            // 第一页没有返回数据时（探测失败）按新的页大小重新抓取第一页
+            int startPage = firstPage.diffSize() > 0 ? 2 : 1;
             // 创建CountDownLatch等待所有任务完成
-            CountDownLatch latch = new CountDownLatch(totalPages);
+            CountDownLatch latch = new CountDownLatch(totalPages - startPage + 1);
             
-            // 提交所有爬取任务到线程池
-            for (int page = 1; page <= totalPages; page++) {
+            // 每页提交一个虚拟线程
+            for (int page = startPage; page <= totalPages; page++) {
                 final int currentPage = page;
                 executorService.submit(() -> {
                     try {
-                        semaphore.acquire(); // 获取信号量许可
-                        log.info("Crawling page {}/{}", currentPage, totalPages);
-                        
-                        // 爬取页面数据
-                        String response = fetchPageDataWithRetry(currentPage);
-                        List<StockData> pageData = parseStockData(response);
-                        allStockData.addAll(pageData);
-                        
-                        log.info("Successfully crawled page {}/{} with {} records", currentPage, totalPages, pageData.size());
+                        log.debug("Crawling page {}/{}", currentPage, totalPages);
+                        // 爬取页面数据（边读边解析），在途请求数由自适应并发控制限制
+                        List<StockData> pageData = fetchPageDataWithRetry(currentPage, pageSize).rows();
+                        stats.pageCompleted(pageData.size());
+                        // 队列满时在这里等待入库阶段消费
+                        enqueue(parsedPages, pageData, stats);
+                        log.debug("Successfully crawled page {}/{} with {} records", currentPage, totalPages, pageData.size());
+                    } catch (InterruptedException e) {
+                        stats.pageFailed();
+                        Thread.currentThread().interrupt();
                     } catch (Exception e) {
+                        stats.pageFailed();
                         log.error("Error crawling page {}: {}", currentPage, e.getMessage(), e);
                     } finally {
-                        semaphore.release(); // 释放信号量许可
                         latch.countDown(); // 计数器减1
-                        completedTasks.incrementAndGet(); // 增加完成任务数
                     }
                 });
             }
             
             // 等待所有任务完成
             try {
-                latch.await(30, TimeUnit.MINUTES); // 最多等待30分钟
+                if (!latch.await(crawlerProperties.getCrawlTimeoutMinutes(), TimeUnit.MINUTES)) {
+                    log.warn("Crawl timed out after {} minutes, {} pages unfinished",
+                            crawlerProperties.getCrawlTimeoutMinutes(), latch.getCount());
+                    executorService.shutdownNow();
+                }
             } catch (InterruptedException e) {
                 log.error("Crawling interrupted", e);
+                executorService.shutdownNow();
                 Thread.currentThread().interrupt();
             }
-            
-            // 保存所有数据到数据库
-            saveStockDataBatch(allStockData);
-            
-            log.info("Finished crawling all {} pages. Total records: {}", totalPages, allStockData.size());
+        } catch (InterruptedException e) {
+            log.warn("Crawling interrupted before all pages were submitted");
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             log.error("Error crawling all stock data", e);
+            stats.fail(e.getMessage());
         } finally {
-            // 关闭线程池
-            executorService.shutdown();
-            try {
-                if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+            finishPersistStage(parsedPages, persister);
+            stats.finish();
+            log.info("Finished crawling all {} pages: {}", stats.getTotalPages(), stats.toMap());
         }
     }
     
     /**
-     * 爬取指定页码的股票数据
-     * @param page 页码
+     * 变化检测后放入入库队列；等待时被中断（取消、超时）的行不会写库，要忘掉过滤时记下的指纹
      */
-    public void crawlStockDataByPage(int page) {
+    private void enqueue(BlockingQueue<List<StockData>> parsedPages, List<StockData> pageData, CrawlRunStats stats)
+            throws InterruptedException {
+        List<StockData> changed = filterChanged(rejectIncomplete(pageData, stats), stats);
         try {
-            String response = fetchPageDataWithRetry(page);
-            List<StockData> stockDataList = parseStockData(response);
-            saveStockDataBatch(stockDataList);
-            log.info("Successfully crawled and saved {} stock records for page {}", stockDataList.size(), page);
-        } catch (Exception e) {
-            log.error("Error crawling stock data for page {}", page, e);
+            parsedPages.put(changed);
+        } catch (InterruptedException e) {
+            forgetAll(changed);
+            throw e;
         }
     }
     
     /**
-     * 带重试机制的数据获取方法
-     * @param page 页码
-     * @return 响应数据
-     * @throws IOException IO异常
+     * 入库阶段：累计到批量大小或距上次刷新超过间隔时写库，收到结束标记后写完剩余数据退出
      */
-    private String fetchPageDataWithRetry(int page) throws IOException {
-        IOException lastException = null;
+    private void runPersistStage(BlockingQueue<List<StockData>> parsedPages, CrawlRunStats stats) {
+        int batchSize = crawlerProperties.getPersistBatchSize();
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(crawlerProperties.getPersistFlushMillis());
+        List<StockData> buffer = new ArrayList<>(batchSize);
+        long lastFlush = System.nanoTime();
         
-        for (int i = 0; i < MAX_RETRIES; i++) {
-            try {
-                return fetchPageData(page);
-            } catch (IOException e) {
-                lastException = e;
-                log.warn("Failed to fetch page {} on attempt {}/{}. Retrying in {} ms...", 
-                        page, i + 1, MAX_RETRIES, (i + 1) * 1000);
-                
-                try {
-                    Thread.sleep((i + 1) * 1000); // 递增延迟重试
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    // 当线程被中断时，直接抛出异常而不是继续重试
-                    throw new IOException("Interrupted while retrying", ie);
+        try {
+            while (true) {
+                long waitNanos = flushIntervalNanos - (System.nanoTime() - lastFlush);
+                List<StockData> pageData = parsedPages.poll(Math.max(waitNanos, 0), TimeUnit.NANOSECONDS);
+                if (pageData == END_OF_CRAWL) {
+                    break;
+                }
+                if (pageData != null) {
+                    buffer.addAll(pageData);
+                }
+                boolean intervalElapsed = System.nanoTime() - lastFlush >= flushIntervalNanos;
+                if (buffer.size() >= batchSize || (intervalElapsed && !buffer.isEmpty())) {
+                    flushPersistBuffer(buffer, stats);
+                }
+                if (buffer.isEmpty()) {
+                    lastFlush = System.nanoTime();
                 }
             }
+        } catch (InterruptedException e) {
+            log.warn("Persist stage interrupted, flushing {} buffered records", buffer.size());
+            Thread.currentThread().interrupt();
+        } finally {
+            // 入库阶段退出前把剩余数据写完，包括队列里还没取出的
+            List<StockData> pageData;
+            while ((pageData = parsedPages.poll()) != null) {
+                if (pageData != END_OF_CRAWL) {
+                    buffer.addAll(pageData);
+                }
+            }
+            flushPersistBuffer(buffer, stats);
         }
-        
-        throw new IOException("Failed to fetch page " + page + " after " + MAX_RETRIES + " attempts", lastException);
+    }
+    
+    private void flushPersistBuffer(List<StockData> buffer, CrawlRunStats stats) {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        try {
+            int succeeded = saveStockDataBatch(buffer);
+            stats.batchPersisted(succeeded, buffer.size() - succeeded);
+        } catch (Exception e) {
+            log.error("Error persisting {} stock records", buffer.size(), e);
+            stats.batchPersisted(0, buffer.size());
+            forgetAll(buffer);
+        }
+        buffer.clear();
     }
     
     /**
-     * 获取总页数
-     * @param jsonResponse JSON响应
-     * @return 总页数
+     * 通知入库阶段数据已全部产出，并等待其写完
      */
-    private int getTotalPages(String jsonResponse) {
+    private void finishPersistStage(BlockingQueue<List<StockData>> parsedPages, Thread persister) {
+        boolean interrupted = Thread.interrupted();
         try {
-            // 使用正则表达式提取JSON数据 (参考Python代码)
-            Pattern pattern = Pattern.compile("\\{\"rc\":.*?\\]\\}\\}");
-            Matcher matcher = pattern.matcher(jsonResponse);
-            if (matcher.find()) {
-                String jsonStr = matcher.group();
-                JsonNode rootNode = objectMapper.readTree(jsonStr);
-                JsonNode dataNode = rootNode.get("data");
-                if (dataNode != null) {
-                    JsonNode totalNode = dataNode.get("total");
-                    if (totalNode != null) {
-                        int totalRecords = totalNode.asInt();
-                        // 每页20条记录
-                        return (int) Math.ceil((double) totalRecords / 20);
-                    }
+            while (true) {
+                try {
+                    parsedPages.put(END_OF_CRAWL);
+                    persister.join();
+                    break;
+                } catch (InterruptedException e) {
+                    // 清理阶段不响应中断，保证已解析的数据写入数据库
+                    interrupted = true;
                 }
             }
-        } catch (Exception e) {
-            log.error("Error getting total pages", e);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
-        return 1; // 默认返回1页
     }
     
     /**
-     * 获取指定页码的数据
+     * 爬取指定页码的股票数据
      * @param page 页码
-     * @return 响应数据
-     * @throws IOException IO异常
      */
-    private String fetchPageData(int page) throws IOException {
-        // 对URL中的特殊字符进行编码处理
-        String url = STOCK_API_BASE_URL.replace("{}", String.valueOf(page));
-        // 对URL中包含的特殊字符进行编码
-        url = encodeUrl(url);
-        
-        HttpGet request = new HttpGet(url);
-        request.setHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-        
-        return httpClient.execute(request, httpResponse -> {
-            return new String(httpResponse.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8);
-        });
+    public void crawlStockDataByPage(int page) {
+        crawlStockDataByPage(page, new CrawlRunStats());
     }
     
     /**
-     * 对URL进行编码处理，解决特殊字符问题
-     * @param url 原始URL
-     * @return 编码后的URL
+     * 爬取指定页码的股票数据，结果写入调用方提供的统计对象
+     * @param page 页码
+     * @param stats 本次爬取的统计
      */
-    private String encodeUrl(String url) {
+    public void crawlStockDataByPage(int page, CrawlRunStats stats) {
+        stats.setTotalPages(1);
         try {
-            // 分离URL的基础部分和查询参数部分
-            int queryIndex = url.indexOf('?');
-            if (queryIndex == -1) {
-                return url; // 没有查询参数
+            int pageSize = honoredPageSize > 0
+                    ? Math.min(crawlerProperties.getPageSize(), honoredPageSize) : crawlerProperties.getPageSize();
+            stats.setPageSize(pageSize);
+            List<StockData> stockDataList = fetchPageDataWithRetry(page, pageSize).rows();
+            stats.pageCompleted(stockDataList.size());
+            List<StockData> changed = filterChanged(rejectIncomplete(stockDataList, stats), stats);
+            int saved;
+            try {
+                saved = saveStockDataBatch(changed);
+            } catch (RuntimeException e) {
+                forgetAll(changed);
+                throw e;
             }
-            
-            String baseUrl = url.substring(0, queryIndex);
-            String query = url.substring(queryIndex + 1);
-            
-            // 对查询参数中的特殊字符进行编码
-            // 注意：我们只需要编码|字符，保留其他参数格式
-            query = query.replace("|", URLEncoder.encode("|", StandardCharsets.UTF_8));
-            
-            return baseUrl + "?" + query;
+            if (!changed.isEmpty()) {
+                stats.batchPersisted(saved, changed.size() - saved);
+            }
+            log.info("Successfully crawled {} stock records for page {}, saved {} changed", stockDataList.size(), page, saved);
         } catch (Exception e) {
-            log.warn("URL encoding failed, using original URL: {}", e.getMessage());
-            return url; // 编码失败时使用原始URL
+            log.error("Error crawling stock data for page {}", page, e);
+            stats.pageFailed();
+            stats.fail(e.getMessage());
+        } finally {
+            stats.finish();
         }
     }
     
     /**
-     * 解析股票数据
-     * @param jsonResponse JSON响应
-     * @return 股票数据列表
+     * 带重试机制的数据获取方法
+     * 每次尝试都要先从自适应并发控制获取许可；失败后按带抖动的指数退避等待，等待期间不占用许可
+     * @param page 页码
+     * @param pageSize 页大小
+     * @return 解析后的页面数据
+     * @throws IOException IO异常
      */
-    private List<StockData> parseStockData(String jsonResponse) {
-        List<StockData> stockDataList = new ArrayList<>();
+    private ClistResponseParser.ClistPage fetchPageDataWithRetry(int page, int pageSize) throws IOException {
+        IOException lastException = null;
+        int maxRetries = crawlerProperties.getMaxRetries();
         
-        try {
-            // 使用正则表达式提取JSON数据 (参考Python代码)
-            Pattern pattern = Pattern.compile("\\{\"rc\":.*?\\]\\}\\}");
-            Matcher matcher = pattern.matcher(jsonResponse);
-            if (matcher.find()) {
-                String jsonStr = matcher.group();
-                JsonNode rootNode = objectMapper.readTree(jsonStr);
-                JsonNode dataNode = rootNode.get("data");
-                
-                if (dataNode != null && dataNode.has("diff")) {
-                    JsonNode diffNode = dataNode.get("diff");
-                    
-                    for (JsonNode node : diffNode) {
-                        StockData stockData = new StockData();
-                        
-                        // 解析字段 (根据用户提供的URL中的字段顺序)
-                        stockData.setStockCode(getTextValue(node, "f12"));
-                        stockData.setMarketType(getIntValue(node, "f13"));
-                        stockData.setStockName(getTextValue(node, "f14"));
-                        
-                        // 价格相关字段 - 使用安全的解析方法
-                        BigDecimal volumeVal = parseBigDecimalWithUnitConversion(node, "f5");
-                        BigDecimal turnoverVal = parseBigDecimalWithUnitConversion(node, "f6");
-                        stockData.setCurrentPrice(parseBigDecimal(node, "f2"));     // 最新价
-                        stockData.setChangeAmount(parseBigDecimal(node, "f4"));     // 涨跌额
-                        stockData.setChangePercent(parseChangePercent(node, "f3")); // 涨跌幅 (需要特殊处理)
-                        stockData.setHighPrice(parseBigDecimal(node, "f15"));       // 最高
-                        stockData.setOpenPrice(parseBigDecimal(node, "f16"));       // 今开
-                        stockData.setLowPrice(parseBigDecimal(node, "f17"));        // 最低
-                        stockData.setVolume(volumeVal != null ? volumeVal.longValue() : 0L);   // 成交量(单位手)
-                        stockData.setTurnover(turnoverVal != null ? turnoverVal : BigDecimal.ZERO); // 成交额(元)
-                        stockData.setTradeTime(LocalDateTime.now());
-                        // 数据清洗：检查是否所有关键字段都为空
-                        if (isValidStockData(stockData)) {
-                            stockDataList.add(stockData);
-                        }
-                    }
+        for (int i = 0; i < maxRetries; i++) {
+            try {
+                return fetchPageDataLimited(page, pageSize);
+            } catch (CrawlHttpStatusException e) {
+                if (!e.isOverload()) {
+                    throw e; // 4xx（429除外）重试也不会成功
                 }
+                lastException = e;
+            } catch (IOException e) {
+                lastException = e;
+            }
+            if (i == maxRetries - 1) {
+                break; // 最后一次失败不再等待
+            }
+            long backoff = retryBackoffMillis(i);
+            log.warn("Failed to fetch page {} on attempt {}/{}: {}. Retrying in {} ms...", 
+                    page, i + 1, maxRetries, lastException.getMessage(), backoff);
+            
+            try {
+                // 在虚拟线程上sleep只会卸载虚拟线程，不阻塞载体线程
+                Thread.sleep(backoff);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                // 当线程被中断时，直接抛出异常而不是继续重试
+                throw new IOException("Interrupted while retrying", ie);
             }
-        } catch (Exception e) {
-            log.error("Error parsing stock data: ", e);
         }
         
-        log.info("Parsed {} stock records from response", stockDataList.size());
-        return stockDataList;
+        throw new IOException("Failed to fetch page " + page + " after " + maxRetries + " attempts", lastException);
     }
     
     /**
-     * 批量保存股票数据到数据库
-     * @param stockDataList 股票数据列表
+     * 在自适应并发控制下获取一页数据，并把结果反馈给并发控制
      */
-    private void saveStockDataBatch(List<StockData> stockDataList) {
-        if (stockDataList.isEmpty()) {
-            log.info("No stock data to save");
-            return;
+    private ClistResponseParser.ClistPage fetchPageDataLimited(int page, int pageSize) throws IOException {
+        long start;
+        try {
+            start = concurrencyLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a crawl permit", e);
         }
-        
-        int successCount = 0;
-        int failureCount = 0;
-        
-        for (StockData stockData : stockDataList) {
-            try {
-                stockDataMapper.insert(stockData);
-                successCount++;
-            } catch (Exception e) {
-                log.warn("Failed to insert stock data for {}: {}", 
-                    stockData.getStockCode(), e.getMessage());
-                failureCount++;
+        AdaptiveConcurrencyLimiter.Outcome outcome = AdaptiveConcurrencyLimiter.Outcome.ERROR;
+        try {
+            ClistResponseParser.ClistPage result = clistPageFetcher.fetch(page, pageSize);
+            outcome = AdaptiveConcurrencyLimiter.Outcome.SUCCESS;
+            return result;
+        } catch (CrawlHttpStatusException e) {
+            if (e.isOverload()) {
+                outcome = AdaptiveConcurrencyLimiter.Outcome.OVERLOAD;
             }
+            throw e;
+        } catch (InterruptedIOException e) {
+            // 连接超时、读超时
+            outcome = AdaptiveConcurrencyLimiter.Outcome.OVERLOAD;
+            throw e;
+        } finally {
+            concurrencyLimiter.release(start, outcome);
         }
-        
-        log.info("Saved stock data batch: {} success, {} failures", successCount, failureCount);
     }
     
     /**
-     * 检查股票数据是否有效
-     * @param stockData 股票数据
-     * @return 是否有效
+     * 带抖动的指数退避：上限为 min(retryBackoffMaxMillis, retryBackoffMillis * 2^attempt)，
+     * 实际等待在上限的一半到上限之间随机，避免所有失败页面同时重试
+     * @param attempt 已失败的次数-1
+     * @return 等待毫秒数
      */
-    private boolean isValidStockData(StockData stockData) {
-        // 检查关键字段是否都为空
-        return stockData.getStockCode() != null && !stockData.getStockCode().isEmpty() &&
-               stockData.getStockName() != null && !stockData.getStockName().isEmpty();
+    private long retryBackoffMillis(int attempt) {
+        long base = Math.max(crawlerProperties.getRetryBackoffMillis(), 1);
+        long cap = Math.min(crawlerProperties.getRetryBackoffMaxMillis(), base << Math.min(attempt, 20));
+        long half = Math.max(cap / 2, 1);
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
     }
     
     /**
-     * 安全地获取文本值
-     * @param node JSON节点
-     * @param fieldName 字段名
-     * @return 文本值，如果获取失败则返回空字符串
+     * 根据第一页的返回确定实际页大小
+     * 接口会把过大的pz截断到它支持的最大值：total大于实际返回行数时，实际返回行数就是接口支持的页大小，
+     * 后续各页必须按这个页大小请求，否则页码对应的偏移量会错位
+     * @param requestedPageSize 第一页请求的页大小
+     * @param firstPage 第一页的解析结果
+     * @return 后续各页使用的页大小
      */
-    private String getTextValue(JsonNode node, String fieldName) {
-        try {
-            JsonNode fieldNode = node.get(fieldName);
-            if (fieldNode != null && !fieldNode.isNull()) {
-                String text = fieldNode.asText();
-                // 处理"-"值，将其转换为空字符串
-                if ("-".equals(text)) {
-                    return "";
-                }
-                return text;
-            }
-        } catch (Exception e) {
-            log.warn("Failed to get text value for field {}: {}", fieldName, e.getMessage());
+    private int resolvePageSize(int requestedPageSize, ClistResponseParser.ClistPage firstPage) {
+        if (firstPage.total() <= firstPage.diffSize() || firstPage.diffSize() >= requestedPageSize) {
+            // 一页就能放下全部数据，或者接口完整支持请求的页大小
+            return requestedPageSize;
         }
-        return "";
+        if (firstPage.diffSize() <= 0) {
+            log.warn("First page returned no rows although total is {}, using page size {}",
+                    firstPage.total(), DEFAULT_PAGE_SIZE);
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (honoredPageSize != firstPage.diffSize()) {
+            log.info("Endpoint capped page size {} to {}", requestedPageSize, firstPage.diffSize());
+        }
+        honoredPageSize = firstPage.diffSize();
+        return firstPage.diffSize();
     }
     
     /**
-     * 安全地获取整数值
-     * @param node JSON节点
-     * @param fieldName 字段名
-     * @return 整数值，如果获取失败则返回0
+     * 获取总页数
+     * @param firstPage 第一页的解析结果
+     * @param pageSize 页大小
+     * @return 总页数
      */
-    private int getIntValue(JsonNode node, String fieldName) {
-        try {
-            JsonNode fieldNode = node.get(fieldName);
-            if (fieldNode != null && !fieldNode.isNull()) {
-                // 处理"-"值
-                String text = fieldNode.asText();
-                if ("-".equals(text)) {
-                    return 0;
-                }
-                return fieldNode.asInt();
-            }
-        } catch (Exception e) {
-            log.warn("Failed to get int value for field {}: {}", fieldName, e.getMessage());
+    private int getTotalPages(ClistResponseParser.ClistPage firstPage, int pageSize) {
+        if (firstPage.total() <= 0) {
+            return 1; // 默认返回1页
         }
-        return 0;
+        return (firstPage.total() + pageSize - 1) / pageSize;
     }
     
     /**
-     * 安全地解析BigDecimal值
-     * @param node JSON节点
-     * @param fieldName 字段名
-     * @return BigDecimal值，如果解析失败则返回null
+     * 丢弃最新价、涨跌额、涨跌幅为空的行（停牌、未开盘时接口返回 "-"）：这些是写库的非空列，
+     * 混进批量插入会让整批失败并被二分重试，写库阶段的二分只用来隔离意外的失败
      */
-    private BigDecimal parseBigDecimal(JsonNode node, String fieldName) {
-        try {
-            JsonNode fieldNode = node.get(fieldName);
-            if (fieldNode != null && !fieldNode.isNull()) {
-                String textValue = fieldNode.asText();
-                // 检查是否为有效数字并且不为"-"
-                if (textValue != null && !textValue.isEmpty() && !"-".equals(textValue) && isNumeric(textValue)) {
-                    return new BigDecimal(textValue);
-                }
+    private List<StockData> rejectIncomplete(List<StockData> stockDataList, CrawlRunStats stats) {
+        List<StockData> complete = new ArrayList<>(stockDataList.size());
+        for (StockData stockData : stockDataList) {
+            if (stockData.getCurrentPrice() != null && stockData.getChangeAmount() != null
+                    && stockData.getChangePercent() != null) {
+                complete.add(stockData);
             }
-        } catch (Exception e) {
-            log.warn("Failed to parse field {} as BigDecimal: {}", fieldName, e.getMessage());
         }
-        return null;
+        if (stats != null && complete.size() < stockDataList.size()) {
+            stats.rowsRejected(stockDataList.size() - complete.size());
+        }
+        return complete;
     }
     
     /**
-     * 特殊处理涨跌幅字段
-     * 东方财富网返回的涨跌幅是以万分比形式表示的数值(例如7445表示74.45%)，正数为涨，负数为跌
-     * @param node JSON节点
-     * @param fieldName 字段名
-     * @return BigDecimal值，如果解析失败则返回null
+     * 去掉与上次写库相比没有变化的行
+     * @param stockDataList 解析出的行
+     * @param stats 全量爬取统计，单页爬取时为null
+     * @return 需要写库的行
      */
-    private BigDecimal parseChangePercent(JsonNode node, String fieldName) {
-        try {
-            JsonNode fieldNode = node.get(fieldName);
-            if (fieldNode != null && !fieldNode.isNull()) {
-                String textValue = fieldNode.asText();
-                // 检查是否为有效数字并且不为"-"
-                if (textValue != null && !textValue.isEmpty() && !"-".equals(textValue) && isNumeric(textValue)) {
-                    // 东方财富网返回的涨跌幅是以万分比形式表示的(例如7445表示74.45%)
-                    // 需要除以10000转换为正常百分比值并限制在合理范围内
-                    BigDecimal value = new BigDecimal(textValue);
-                    BigDecimal percentValue = value.divide(new BigDecimal("10000"), 6, BigDecimal.ROUND_HALF_UP);
-                    
-                    // 限制在合理范围内，避免超出数据库字段范围
-                    if (percentValue.compareTo(new BigDecimal("999999.999999")) > 0) {
-                        return new BigDecimal("999999.999999");
-                    }
-                    if (percentValue.compareTo(new BigDecimal("-999999.999999")) < 0) {
-                        return new BigDecimal("-999999.999999");
-                    }
-                    
-                    return percentValue;
-                }
-            }
-        } catch (Exception e) {
-            log.warn("Failed to parse field {} as ChangePercent: {}", fieldName, e.getMessage());
+    private List<StockData> filterChanged(List<StockData> stockDataList, CrawlRunStats stats) {
+        if (!crawlerProperties.isChangeDetectionEnabled()) {
+            return stockDataList;
         }
-        return null;
+        List<StockData> changed = quoteChangeDetector.filterChanged(stockDataList);
+        if (stats != null) {
+            stats.rowsUnchanged(stockDataList.size() - changed.size());
+        }
+        return changed;
     }
     
     /**
-     * 检查字符串是否为有效数字
-     * @param str 字符串
-     * @return 是否为有效数字
+     * 整批写库失败或没能进入入库队列时调用：这些行的指纹在过滤时已经记下，不忘掉的话行情不变时下一轮会被当作未变化跳过，
+     * 直到价格变动才会再写入
      */
-    private boolean isNumeric(String str) {
-        if (str == null || str.isEmpty()) {
-            return false;
-        }
-        try {
-            new BigDecimal(str);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
+    private void forgetAll(List<StockData> stockDataList) {
+        stockDataList.forEach(row -> quoteChangeDetector.forget(row.getStockCode()));
     }
     
     /**
-     * 安全地解析BigDecimal值并处理单位转换
-     * 根据用户提供的信息，f5和f6字段的单位是"万"
-     * @param node JSON节点
-     * @param fieldName 字段名
-     * @return BigDecimal值，如果解析失败则返回null
+     * 批量保存股票数据到数据库
+     * @param stockDataList 股票数据列表
+     * @return 成功保存的条数
      */
-    private BigDecimal parseBigDecimalWithUnitConversion(JsonNode node, String fieldName) {
-        try {
-            JsonNode fieldNode = node.get(fieldName);
-            if (fieldNode != null && !fieldNode.isNull()) {
-                String textValue = fieldNode.asText();
-                // 检查是否为有效数字并且不为"-"
-                if (textValue != null && !textValue.isEmpty() && !"-".equals(textValue) && isNumeric(textValue)) {
-                    // 由于f5和f6字段单位是"万"，需要乘以10000转换为标准单位
-                    BigDecimal value = new BigDecimal(textValue);
-                    return value.multiply(new BigDecimal("10000"));
-                }
-            }
-        } catch (Exception e) {
-            log.warn("Failed to parse field {} as BigDecimal with unit conversion: {}", fieldName, e.getMessage());
+    private int saveStockDataBatch(List<StockData> stockDataList) {
+        if (stockDataList.isEmpty()) {
+            log.info("No stock data to save");
+            return 0;
         }
-        return null;
+        
+        StockDataBatchWriter.BatchWriteResult result = stockDataBatchWriter.write(stockDataList);
+        // 写库失败的行下一轮不能被当作未变化跳过
+        result.failures().forEach(failure -> quoteChangeDetector.forget(failure.stockCode()));
+        log.info("Saved stock data batch: {} success, {} failures", result.succeeded(), result.failures().size());
+        return result.succeeded();
     }
-}
\ No newline at end of file
+}
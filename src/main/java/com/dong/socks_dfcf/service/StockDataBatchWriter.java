@@ -0,0 +1,104 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.model.StockData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 股票数据批量写入
+ * 按配置的块大小拆分，每块一条多行INSERT、一个事务，同一事务中更新 stock_latest 最新行情表和 stock_bar K线；
+ * 某块失败时对半拆分重试，只把真正出错的行剔除，其余行仍然批量写入
+ * 启用本地列式存储时，提交成功的块随后追加到 TickStore，并用来更新技术指标
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockDataBatchWriter {
+
+    private final StockDataMapper stockDataMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final CrawlerProperties crawlerProperties;
+    private final BarRollupService barRollupService;
+    private final TickStore tickStore;
+    private final IndicatorEngine indicatorEngine;
+
+    /**
+     * 写入失败的行
+     * @param stockCode 股票代码
+     * @param error 错误信息
+     */
+    public record RowFailure(String stockCode, String error) {
+    }
+
+    /**
+     * 批量写入结果
+     * @param succeeded 成功写入的行数
+     * @param failures 失败的行
+     */
+    public record BatchWriteResult(int succeeded, List<RowFailure> failures) {
+    }
+
+    /**
+     * 批量写入股票数据
+     * @param stockDataList 股票数据列表
+     * @return 写入结果
+     */
+    public BatchWriteResult write(List<StockData> stockDataList) {
+        int chunkSize = Math.max(crawlerProperties.getInsertChunkSize(), 1);
+        List<RowFailure> failures = new ArrayList<>();
+        int succeeded = 0;
+
+        for (int from = 0; from < stockDataList.size(); from += chunkSize) {
+            List<StockData> chunk = stockDataList.subList(from, Math.min(from + chunkSize, stockDataList.size()));
+            succeeded += writeChunk(chunk, failures);
+        }
+
+        for (RowFailure failure : failures) {
+            log.warn("Failed to insert stock data for {}: {}", failure.stockCode(), failure.error());
+        }
+        return new BatchWriteResult(succeeded, failures);
+    }
+
+    /**
+     * 在一个事务中写入一块，失败时拆成两半分别重试，直到定位到单行
+     * @return 成功写入的行数
+     */
+    private int writeChunk(List<StockData> chunk, List<RowFailure> failures) {
+        try {
+            BarRollupService.Rollup rollup = barRollupService.prepare(chunk);
+            transactionTemplate.executeWithoutResult(status -> {
+                stockDataMapper.insertBatch(chunk);
+                stockDataMapper.upsertLatestBatch(chunk);
+                barRollupService.persist(rollup);
+            });
+            barRollupService.commit(rollup);
+            tickStore.append(chunk);
+            indicatorEngine.update(chunk);
+            return chunk.size();
+        } catch (RuntimeException e) {
+            if (chunk.size() == 1) {
+                failures.add(new RowFailure(chunk.get(0).getStockCode(), rootMessage(e)));
+                return 0;
+            }
+            log.debug("Chunk of {} rows failed, splitting: {}", chunk.size(), rootMessage(e));
+            int middle = chunk.size() / 2;
+            return writeChunk(chunk.subList(0, middle), failures)
+                    + writeChunk(chunk.subList(middle, chunk.size()), failures);
+        }
+    }
+
+    private String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+}
@@ -0,0 +1,115 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 原始行情批量导出：stock_data 按行流式读出，逐行写到输出流，
+ * 内存中最多只有一个写出缓冲块，导出量只受数据库和网络限制
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockDataExporter {
+
+    // 单次导出最多指定的股票代码数
+    public static final int MAX_CODES = 1000;
+
+    private final StockDataMapper stockDataMapper;
+
+    /**
+     * 导出格式
+     */
+    public enum Format {
+        /** CSV，首行为列名 */
+        CSV("text/csv", "csv"),
+        /** 二进制列式格式，见 ColumnarExportWriter */
+        COLUMNAR("application/octet-stream", "sdx");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * 解析请求参数（csv / columnar）
+         * @throws IllegalArgumentException 不支持的格式
+         */
+        public static Format parse(String format) {
+            return switch (format == null ? "csv" : format.toLowerCase()) {
+                case "csv" -> CSV;
+                case "columnar", "binary" -> COLUMNAR;
+                default -> throw new IllegalArgumentException("不支持的导出格式: " + format);
+            };
+        }
+    }
+
+    /**
+     * 导出 [from, to) 范围内的行情
+     * @param codes 股票代码，为空时导出全部股票
+     * @param format 导出格式
+     * @param gzip 是否 gzip 压缩
+     * @param out 输出流，调用方负责关闭
+     * @return 导出的行数
+     */
+    public long export(List<String> codes, LocalDateTime from, LocalDateTime to, Format format, boolean gzip,
+                       OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, 64 * 1024) : null;
+        OutputStream target = gzipOut != null ? gzipOut : out;
+        ExportWriter writer = format == Format.CSV
+                ? new CsvExportWriter(target)
+                : new ColumnarExportWriter(target, ZoneId.systemDefault());
+        long[] rows = new long[1];
+        // ResultHandler 里抛出的异常会被 MyBatis 包装成 MyBatisSystemException，
+        // 所以写出错误先记下来、只停止读取，查询返回后再原样抛出
+        IOException[] writeError = new IOException[1];
+        stockDataMapper.exportTradeData(codes, from, to, context -> {
+            try {
+                writer.write(context.getResultObject());
+                rows[0]++;
+            } catch (IOException e) {
+                // 客户端断开等写出错误，停止读取
+                writeError[0] = e;
+                context.stop();
+            }
+        });
+        if (writeError[0] != null) {
+            throw writeError[0];
+        }
+        writer.finish();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
+        out.flush();
+        log.info("导出行情 {} 行 ({}, gzip={})，耗时 {} ms", rows[0], format, gzip, System.currentTimeMillis() - start);
+        return rows[0];
+    }
+
+    /**
+     * 导出文件名
+     */
+    public static String fileName(Format format, boolean gzip) {
+        return "stock_data." + format.getExtension() + (gzip ? ".gz" : "");
+    }
+}
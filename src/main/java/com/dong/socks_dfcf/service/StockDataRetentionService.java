@@ -0,0 +1,271 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.RetentionProperties;
+import com.dong.socks_dfcf.mapper.StockBarMapper;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.mapper.StockDataPartitionMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 历史数据清理。stock_data 两种方式：
+ * delete：沿 idx_trade_time 分批删除过期数据，每批单独提交并在批之间暂停，单次运行有批数上限；
+ * partition：stock_data 按天分区（pYYYYMMDD），提前创建未来几天的分区，整区删除过期分区
+ * 之后按各周期的保留天数分批删除 stock_bar 中的过期K线（与 delete 方式相同的批大小、暂停和上限），
+ * 再删除本地行情文件中的过期行
+ * 同一时间只运行一次，由定时任务或接口触发
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockDataRetentionService {
+
+    static final String HISTORY_PARTITION = "p_history";
+    static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter PARTITION_DATE = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    private final StockDataMapper stockDataMapper;
+    private final StockDataPartitionMapper stockDataPartitionMapper;
+    private final StockBarMapper stockBarMapper;
+    private final TickStore tickStore;
+    private final RetentionProperties retentionProperties;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile RetentionRunStats lastRunStats;
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalRowsDeleted = new AtomicLong();
+    private final AtomicLong totalPartitionsCreated = new AtomicLong();
+    private final AtomicLong totalPartitionsDropped = new AtomicLong();
+    private final AtomicLong totalPartitionRowsDropped = new AtomicLong();
+    private final AtomicLong totalBarRowsDeleted = new AtomicLong();
+    private final AtomicLong totalTickRowsDropped = new AtomicLong();
+
+    /**
+     * 在后台虚拟线程中执行一次清理，立即返回
+     * @param trigger 触发来源（manual / scheduled）
+     * @return 已有清理在运行时返回false
+     */
+    public boolean submitRetention(String trigger) {
+        // 先占住运行标记再启动线程，并发的两次触发只有一次返回true
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            Thread.ofVirtual().name("stock-data-retention").start(() -> doRunRetention(trigger));
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * 执行一次清理
+     * @param trigger 触发来源（manual / scheduled）
+     * @return 本次运行统计；已有清理在运行时返回null
+     */
+    public RetentionRunStats runRetention(String trigger) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("历史数据清理仍在运行，跳过本次 ({})", trigger);
+            return null;
+        }
+        return doRunRetention(trigger);
+    }
+
+    /**
+     * 执行一次清理，调用方已占住运行标记，结束时释放
+     */
+    private RetentionRunStats doRunRetention(String trigger) {
+        String mode = retentionProperties.getMode();
+        LocalDate cutoffDate = LocalDate.now().minusDays(retentionProperties.getRetentionDays());
+        RetentionRunStats stats = new RetentionRunStats(mode, trigger, cutoffDate.atStartOfDay());
+        lastRunStats = stats;
+        try {
+            switch (mode) {
+                case "delete" -> deleteInChunks(limit -> stockDataMapper.deleteTradeDataBefore(cutoffDate.atStartOfDay(), limit),
+                        stats::chunkDeleted, stats);
+                case "partition" -> maintainPartitions(cutoffDate, stats);
+                default -> throw new IllegalArgumentException("未知的清理方式: " + mode);
+            }
+            deleteExpiredBars(stats);
+            pruneTicks(stats);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stats.fail("清理被中断");
+        } catch (Exception e) {
+            log.error("历史数据清理失败", e);
+            stats.fail(e.getMessage());
+        } finally {
+            stats.finish();
+            runs.incrementAndGet();
+            totalRowsDeleted.addAndGet(stats.getRowsDeleted());
+            totalPartitionsCreated.addAndGet(stats.getPartitionsCreated());
+            totalPartitionsDropped.addAndGet(stats.getPartitionsDropped());
+            totalPartitionRowsDropped.addAndGet(stats.getPartitionRowsDropped());
+            totalBarRowsDeleted.addAndGet(stats.getBarRowsDeleted());
+            totalTickRowsDropped.addAndGet(stats.getTickRowsDropped());
+            running.set(false);
+        }
+        log.info("历史数据清理完成: {}", stats.toMap());
+        return stats;
+    }
+
+    /**
+     * 分批删除过期数据，直到某一批不足 deleteChunkSize 行或达到单次批数上限
+     * @param deleteChunk 删除一批，参数为本批最多删除的行数，返回实际删除的行数
+     * @param onChunk 每删除一批回调一次
+     */
+    private void deleteInChunks(IntUnaryOperator deleteChunk, IntConsumer onChunk, RetentionRunStats stats) throws InterruptedException {
+        int chunkSize = retentionProperties.getDeleteChunkSize();
+        for (int chunk = 0; chunk < retentionProperties.getMaxDeleteChunksPerRun(); chunk++) {
+            int deleted = deleteChunk.applyAsInt(chunkSize);
+            onChunk.accept(deleted);
+            if (deleted < chunkSize) {
+                return;
+            }
+            Thread.sleep(retentionProperties.getDeleteChunkPauseMillis());
+        }
+        stats.truncate();
+    }
+
+    /**
+     * 按各周期的保留天数删除 stock_bar 中 bar_start 早于 当天零点 - 天数 的K线
+     */
+    private void deleteExpiredBars(RetentionRunStats stats) throws InterruptedException {
+        LocalDate today = LocalDate.now();
+        for (Map.Entry<String, Integer> entry : retentionProperties.getBarRetentionDays().entrySet()) {
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                continue;
+            }
+            String interval = BarInterval.parse(entry.getKey()).code();
+            LocalDateTime before = today.minusDays(entry.getValue()).atStartOfDay();
+            deleteInChunks(limit -> stockBarMapper.deleteBarsBefore(interval, before, limit),
+                    deleted -> stats.barsDeleted(interval, deleted), stats);
+        }
+    }
+
+    /**
+     * 删除本地行情文件中早于 当天零点 - tickRetentionDays 的行
+     */
+    private void pruneTicks(RetentionRunStats stats) throws IOException {
+        int days = retentionProperties.getTickRetentionDays();
+        if (days <= 0 || !tickStore.isEnabled()) {
+            return;
+        }
+        stats.ticksDropped(tickStore.pruneBefore(LocalDate.now().minusDays(days).atStartOfDay()));
+    }
+
+    /**
+     * 补齐到 今天 + partitionsAhead 的按天分区，删除上界不晚于 cutoffDate 的分区
+     */
+    private void maintainPartitions(LocalDate cutoffDate, RetentionRunStats stats) {
+        List<String> partitions = stockDataPartitionMapper.findPartitionNames();
+        if (!partitions.contains(FUTURE_PARTITION)) {
+            throw new IllegalStateException("stock_data 不是按天分区的表，请先执行 schema/stock_data_partitioning.sql");
+        }
+        LocalDate latest = null;
+        for (String partition : partitions) {
+            LocalDate day = partitionDay(partition);
+            if (day != null && (latest == null || day.isAfter(latest))) {
+                latest = day;
+            }
+        }
+        // 新分区只能接在最后一个按天分区之后；中间停机的日期也补上，保持按天粒度
+        LocalDate today = LocalDate.now();
+        LocalDate next = latest != null ? latest.plusDays(1) : today;
+        LocalDate last = today.plusDays(retentionProperties.getPartitionsAhead());
+        for (LocalDate day = next; !day.isAfter(last); day = day.plusDays(1)) {
+            String name = partitionName(day);
+            stockDataPartitionMapper.addPartition(name, day.plusDays(1).toString());
+            stats.partitionCreated(name);
+        }
+
+        for (String expired : expiredPartitions(partitions, cutoffDate)) {
+            long rows = stockDataPartitionMapper.estimatePartitionRows(expired);
+            stockDataPartitionMapper.dropPartition(expired);
+            stats.partitionDropped(expired, rows);
+        }
+    }
+
+    /**
+     * 过期的分区：pYYYYMMDD 的上界为次日零点，上界不晚于 cutoffDate 即全部过期；
+     * p_history 的上界是最早的按天分区，最早的按天分区也过期时一起删除
+     */
+    static List<String> expiredPartitions(List<String> partitions, LocalDate cutoffDate) {
+        LocalDate earliest = null;
+        List<String> expired = new ArrayList<>();
+        for (String partition : partitions) {
+            LocalDate day = partitionDay(partition);
+            if (day == null) {
+                continue;
+            }
+            if (earliest == null || day.isBefore(earliest)) {
+                earliest = day;
+            }
+            if (!day.plusDays(1).isAfter(cutoffDate)) {
+                expired.add(partition);
+            }
+        }
+        if (earliest != null && !earliest.isAfter(cutoffDate) && partitions.contains(HISTORY_PARTITION)) {
+            expired.add(0, HISTORY_PARTITION);
+        }
+        return expired;
+    }
+
+    static String partitionName(LocalDate day) {
+        return PARTITION_DATE.format(day);
+    }
+
+    /**
+     * 按天分区对应的日期，p_history / p_future 等其他分区返回null
+     */
+    static LocalDate partitionDay(String partition) {
+        try {
+            return LocalDate.parse(partition, PARTITION_DATE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 最近一次清理的统计
+     */
+    public RetentionRunStats getLastRunStats() {
+        return lastRunStats;
+    }
+
+    /**
+     * 启动以来的累计清理量
+     */
+    public Map<String, Object> getTotals() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("mode", retentionProperties.getMode());
+        map.put("retentionDays", retentionProperties.getRetentionDays());
+        map.put("running", running.get());
+        map.put("runs", runs.get());
+        map.put("rowsDeleted", totalRowsDeleted.get());
+        map.put("partitionsCreated", totalPartitionsCreated.get());
+        map.put("partitionsDropped", totalPartitionsDropped.get());
+        map.put("partitionRowsDropped", totalPartitionRowsDropped.get());
+        map.put("barRetentionDays", retentionProperties.getBarRetentionDays());
+        map.put("barRowsDeleted", totalBarRowsDeleted.get());
+        map.put("tickRetentionDays", retentionProperties.getTickRetentionDays());
+        map.put("tickRowsDropped", totalTickRowsDropped.get());
+        return map;
+    }
+}
@@ -5,21 +5,26 @@ import com.dong.socks_dfcf.model.StockData;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import weka.classifiers.trees.RandomForest;
-import weka.core.*;
-import weka.core.converters.ConverterUtils;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class StockPredictService {
     
+    // 简单规则至少需要的历史行情条数，以及参与平均的条数
+    static final int RULE_HISTORY_ROWS = 10;
+    private static final int RULE_AVERAGE_ROWS = 7;
+    
     private final StockDataMapper stockDataMapper;
+    private final TrendModelService trendModelService;
+    private final RecommendationEngine recommendationEngine;
     
     /**
      * 预测指定股票的未来走势
@@ -28,19 +33,17 @@ public class StockPredictService {
      */
     public String predictStockTrend(String stockCode) {
         try {
-            List<StockData> stockDataList = stockDataMapper.findByStockCode(stockCode);
-            
-            if (stockDataList == null || stockDataList.size() < 10) {
-                return "数据不足，无法进行预测";
+            // 有训练好的模型且日线足够时使用模型，否则退回近7天平均涨幅的简单规则
+            TrendModelService.TrendScore score = trendModelService.score(stockCode);
+            if (score != null) {
+                return String.format("预测结果：%s趋势，模型 %s 预测下一交易日上涨概率 %.2f%%",
+                        score.upProbability() >= 0.5 ? "上涨" : "下跌", score.modelVersion(), score.upProbability() * 100);
             }
             
-            // 计算最近7天的平均涨幅
-            BigDecimal avgChange = BigDecimal.ZERO;
-            int daysToConsider = Math.min(7, stockDataList.size() - 1);
-            for (int i = 0; i < daysToConsider; i++) {
-                avgChange = avgChange.add(stockDataList.get(i).getChangePercent());
+            BigDecimal avgChange = averageChange(stockDataMapper.findRecentByStockCodes(List.of(stockCode), RULE_HISTORY_ROWS));
+            if (avgChange == null) {
+                return "数据不足，无法进行预测";
             }
-            avgChange = avgChange.divide(new BigDecimal(daysToConsider), 2, BigDecimal.ROUND_HALF_UP);
             
             // 简单预测逻辑：如果最近7天平均涨幅为正，则预测上涨，否则预测下跌
             if (avgChange.compareTo(BigDecimal.ZERO) > 0) {
@@ -55,109 +58,41 @@ public class StockPredictService {
     }
     
     /**
-     * 推荐股票
-     * @return 推荐的股票列表
+     * 推荐股票，由 RecommendationEngine 在最新行情快照上预先计算
+     * @return 推荐的股票列表，按多因子评分降序
      */
     public List<String> recommendStocks() {
-        List<String> recommendations = new ArrayList<>();
-        
-        try {
-            List<StockData> allStocks = stockDataMapper.findAllStockCodes();
-            log.info("找到 {} 只股票用于推荐分析", allStocks.size());
-            
-            // 如果没有股票数据，添加一些测试数据
-            if (allStocks.isEmpty()) {
-                log.warn("数据库中没有股票数据，添加测试数据");
-                recommendations.add("000001 平安银行 (推荐理由: 测试数据)");
-                recommendations.add("600036 招商银行 (推荐理由: 测试数据)");
-                recommendations.add("600519 贵州茅台 (推荐理由: 测试数据)");
-                return recommendations;
-            }
-            
-            // 改进策略：推荐更多股票（最多15只）并使用更好的推荐逻辑
-            int count = 0;
-            for (StockData stock : allStocks) {
-                if (count >= 15) break; // 增加推荐数量到15只
-                
-                // 获取股票历史数据
-                List<StockData> dataList = stockDataMapper.findByStockCode(stock.getStockCode());
-                
-                // 确保有足够的历史数据
-                if (dataList.size() >= 2) {  
-                    StockData latest = dataList.get(0);
-                    StockData previous = dataList.get(1);
-                    
-                    // 计算涨幅百分比
-                    BigDecimal changePercent = latest.getChangePercent();
-                    
-                    // 根据涨幅给出推荐理由
-                    String reason;
-                    if (changePercent.compareTo(new BigDecimal("5")) > 0) {
-                        reason = "近期强势上涨";
-                    } else if (changePercent.compareTo(new BigDecimal("0")) > 0) {
-                        reason = "稳步上涨中";
-                    } else if (changePercent.compareTo(new BigDecimal("-3")) > 0) {
-                        reason = "小幅回调，可关注";
-                    } else {
-                        reason = "超跌反弹机会";
-                    }
-                    
-                    String recommendation = stock.getStockCode() + " " + stock.getStockName() + 
-                                      " (涨幅: " + changePercent + "%, 推荐理由: " + reason + ")";
-                    recommendations.add(recommendation);
-                    log.debug("添加推荐股票: {}", recommendation);
-                    count++;
-                } else if (dataList.size() == 1) {
-                    // 只有一天数据的情况
-                    StockData latest = dataList.get(0);
-                    String recommendation = stock.getStockCode() + " " + stock.getStockName() + 
-                                      " (最新涨幅: " + latest.getChangePercent() + "%, 推荐理由: 新股关注)";
-                    recommendations.add(recommendation);
-                    log.debug("添加推荐股票: {}", recommendation);
-                    count++;
-                }
-            }
-            
-            log.info("总共生成 {} 条推荐", recommendations.size());
-            
-            // 如果没有足够的股票数据，添加一些备选推荐数据
-            if (recommendations.size() < 8) {
-                log.warn("推荐数据不足，添加备选推荐数据");
-                String[] sampleStocks = {
-                    "000001 平安银行",
-                    "000002 万科A",
-                    "000858 五粮液",
-                    "600036 招商银行",
-                    "600519 贵州茅台",
-                    "000333 美的集团",
-                    "000651 格力电器",
-                    "600030 中信证券",
-                    "600031 三一重工",
-                    "600048 保利发展"
-                };
-                
-                String[] reasons = {
-                    "行业龙头，基本面良好",
-                    "技术面突破，资金关注度高",
-                    "估值合理，具备长期投资价值",
-                    "近期资金流入明显",
-                    "市场关注度高，流动性好"
-                };
-                
-                Random random = new Random();
-                int needed = 10 - recommendations.size();
-                for (int i = 0; i < needed && i < sampleStocks.length; i++) {
-                    String stock = sampleStocks[i];
-                    String reason = reasons[random.nextInt(reasons.length)];
-                    double change = (random.nextDouble() * 10) - 5; // -5% 到 +5%
-                    String recommendation = stock + " (涨幅: " + String.format("%.2f", change) + "%, 推荐理由: " + reason + ")";
-                    recommendations.add(recommendation);
-                }
+        return recommendationEngine.getRecommendations();
+    }
+    
+    /**
+     * 简单规则：最近7条行情的平均涨幅
+     * @param recent 一只股票的行情，交易时间降序
+     * @return 保留两位小数；不足 RULE_HISTORY_ROWS 条或涨幅都为空时返回null
+     */
+    static BigDecimal averageChange(List<StockData> recent) {
+        if (recent == null || recent.size() < RULE_HISTORY_ROWS) {
+            return null;
+        }
+        BigDecimal sum = BigDecimal.ZERO;
+        int count = 0;
+        for (StockData row : recent.subList(0, RULE_AVERAGE_ROWS)) {
+            if (row.getChangePercent() != null) {
+                sum = sum.add(row.getChangePercent());
+                count++;
             }
-        } catch (Exception e) {
-            log.error("推荐股票时出错", e);
         }
-        
-        return recommendations;
+        return count > 0 ? sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP) : null;
+    }
+    
+    /**
+     * 把批量查询结果按股票代码分组，组内保持查询返回的顺序（交易时间降序）
+     */
+    static Map<String, List<StockData>> groupByStockCode(List<StockData> rows) {
+        Map<String, List<StockData>> grouped = new HashMap<>();
+        for (StockData row : rows) {
+            grouped.computeIfAbsent(row.getStockCode(), code -> new ArrayList<>()).add(row);
+        }
+        return grouped;
     }
-}
\ No newline at end of file
+}
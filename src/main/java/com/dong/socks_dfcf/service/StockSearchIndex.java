@@ -0,0 +1,218 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 股票代码、名称和拼音首字母的内存搜索索引，随最新行情快照一起构建
+ * 每个字符对应包含它的股票下标列表（单字倒排），搜索时取关键字中股票最少的字符作为候选集，
+ * 再逐个校验并打分，一次调用同时得到排序后的分页结果和精确总数
+ * 排序：代码完全匹配 > 代码前缀 > 名称前缀 > 拼音首字母前缀 > 代码包含 > 名称包含 > 拼音首字母包含，同级按代码升序
+ */
+public final class StockSearchIndex {
+
+    /**
+     * 搜索结果
+     * @param data 当前页
+     * @param total 匹配的股票总数
+     * @param lastRank 当前页最后一只股票的匹配等级，用于生成游标；当前页为空时为-1
+     */
+    public record Result(List<StockData> data, int total, int lastRank) {
+    }
+
+    private static final int NO_MATCH = -1;
+    private static final int[] EMPTY = new int[0];
+
+    // 按代码升序，下标即股票编号
+    private final List<StockData> quotes;
+    private final String[] codes;
+    private final String[] names;
+    private final String[][] initials;
+    private final Map<Character, int[]> postings;
+
+    private StockSearchIndex(List<StockData> quotes) {
+        this.quotes = quotes;
+        int size = quotes.size();
+        this.codes = new String[size];
+        this.names = new String[size];
+        this.initials = new String[size][];
+        Map<Character, List<Integer>> building = new HashMap<>();
+        for (int id = 0; id < size; id++) {
+            StockData quote = quotes.get(id);
+            codes[id] = normalize(quote.getStockCode());
+            names[id] = normalize(quote.getStockName());
+            initials[id] = PinyinInitials.of(names[id]).toArray(String[]::new);
+            index(building, id, codes[id]);
+            index(building, id, names[id]);
+            for (String variant : initials[id]) {
+                index(building, id, variant);
+            }
+        }
+        this.postings = new HashMap<>(building.size() * 2);
+        building.forEach((c, ids) -> postings.put(c, ids.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * 构建索引
+     * @param quotes 按代码升序排列的最新行情
+     */
+    static StockSearchIndex build(List<StockData> quotes) {
+        return new StockSearchIndex(quotes);
+    }
+
+    private static void index(Map<Character, List<Integer>> building, int id, String key) {
+        for (int i = 0; i < key.length(); i++) {
+            List<Integer> ids = building.computeIfAbsent(key.charAt(i), c -> new ArrayList<>());
+            // 同一只股票按编号递增加入，只需和末尾比较去重
+            if (ids.isEmpty() || ids.get(ids.size() - 1) != id) {
+                ids.add(id);
+            }
+        }
+    }
+
+    /**
+     * 去掉空白并转小写
+     */
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 搜索
+     * @param keyword 关键字，可以是代码、名称或拼音首字母的任意一段，不区分大小写；为空时匹配所有股票
+     * @param offset 偏移量
+     * @param limit 返回数量
+     */
+    public Result search(String keyword, int offset, int limit) {
+        Ranking ranking = rank(normalize(keyword));
+        return slice(ranking, Math.max(offset, 0), limit);
+    }
+
+    /**
+     * 游标分页搜索：返回排在 (afterRank, afterCode) 之后的股票，与 search 的排序一致
+     * 按 (匹配等级, 代码) 定位而不是按偏移量，游标对应的股票已不在索引中时也能接着翻页
+     * @param keyword 关键字
+     * @param afterRank 上一页最后一只股票的匹配等级（Result.lastRank）
+     * @param afterCode 上一页最后一只股票的代码
+     * @param limit 返回数量
+     */
+    public Result searchAfter(String keyword, int afterRank, String afterCode, int limit) {
+        Ranking ranking = rank(normalize(keyword));
+        long[] ranked = ranking.ranked();
+        // 二分查找第一个排在游标之后的位置
+        int low = 0;
+        int high = ranking.total();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int rank = (int) (ranked[mid] >>> 32);
+            int compared = rank != afterRank ? Integer.compare(rank, afterRank)
+                    : quotes.get((int) ranked[mid]).getStockCode().compareTo(afterCode);
+            if (compared <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return slice(ranking, low, limit);
+    }
+
+    /**
+     * 排好序的匹配结果
+     * @param ranked 前 total 个元素有效，高32位为匹配等级、低32位为编号
+     */
+    private record Ranking(long[] ranked, int total) {
+    }
+
+    private Ranking rank(String key) {
+        int[] candidates = candidates(key);
+        long[] ranked = new long[candidates.length];
+        int total = 0;
+        for (int id : candidates) {
+            int rank = rank(id, key);
+            if (rank != NO_MATCH) {
+                ranked[total++] = ((long) rank << 32) | id;
+            }
+        }
+        // 同级按编号即代码升序
+        Arrays.sort(ranked, 0, total);
+        return new Ranking(ranked, total);
+    }
+
+    private Result slice(Ranking ranking, int from, int limit) {
+        int to = (int) Math.min((long) from + Math.max(limit, 0), ranking.total());
+        List<StockData> page = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            page.add(quotes.get((int) ranking.ranked()[i]));
+        }
+        int lastRank = page.isEmpty() ? NO_MATCH : (int) (ranking.ranked()[to - 1] >>> 32);
+        return new Result(page, ranking.total(), lastRank);
+    }
+
+    /**
+     * 关键字中包含股票最少的字符对应的候选列表；有字符不在索引中时没有候选
+     */
+    private int[] candidates(String key) {
+        if (key.isEmpty()) {
+            int[] all = new int[quotes.size()];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+        int[] smallest = null;
+        for (int i = 0; i < key.length(); i++) {
+            int[] ids = postings.get(key.charAt(i));
+            if (ids == null) {
+                return EMPTY;
+            }
+            if (smallest == null || ids.length < smallest.length) {
+                smallest = ids;
+            }
+        }
+        return smallest;
+    }
+
+    private int rank(int id, String key) {
+        String code = codes[id];
+        if (code.equals(key)) {
+            return 0;
+        }
+        if (code.startsWith(key)) {
+            return 1;
+        }
+        if (names[id].startsWith(key)) {
+            return 2;
+        }
+        for (String variant : initials[id]) {
+            if (variant.startsWith(key)) {
+                return 3;
+            }
+        }
+        if (code.contains(key)) {
+            return 4;
+        }
+        if (names[id].contains(key)) {
+            return 5;
+        }
+        for (String variant : initials[id]) {
+            if (variant.contains(key)) {
+                return 6;
+            }
+        }
+        return NO_MATCH;
+    }
+}
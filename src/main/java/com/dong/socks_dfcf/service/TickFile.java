@@ -0,0 +1,179 @@
+package com.dong.socks_dfcf.service;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 一只股票的列式行情文件，只追加
+ * 布局：64字节文件头（魔数、版本、行数），之后是固定大小的块，每块 CHUNK_TICKS 行，
+ * 块内按列连续存放：时间(epoch秒)、价格、成交量、成交额，均为 long（价格、成交额按 SCALE 定点存储）
+ * 先写数据再更新文件头中的行数，行数以内的数据不再变化，读取时无需加锁
+ * 写入和读取都通过内存映射完成，映射建立后即关闭文件句柄，几千只股票不会占用几千个文件描述符
+ * 非线程安全的写入由 TickStore 按文件加锁；清理过期行时整体重写文件，也在同一把锁内进行
+ */
+final class TickFile {
+
+    static final int HEADER_BYTES = 64;
+    static final int CHUNK_TICKS = 256;
+    static final int COLUMNS = 4;
+    static final int CHUNK_BYTES = CHUNK_TICKS * Long.BYTES * COLUMNS;
+    static final int COLUMN_TIME = 0;
+    static final int COLUMN_PRICE = 1;
+    static final int COLUMN_VOLUME = 2;
+    static final int COLUMN_TURNOVER = 3;
+    // 价格、成交额的小数位数，与 stock_data 的 decimal(x,4) 一致
+    static final int SCALE = 4;
+
+    private static final int MAGIC = 0x5449434B; // "TICK"
+    private static final int VERSION = 1;
+    private static final int COUNT_OFFSET = 8;
+
+    private final Path path;
+    private MappedByteBuffer header;
+    private long count;
+    private long lastTime;
+    // 当前追加所在的块
+    private long tailChunk = -1;
+    private MappedByteBuffer tail;
+
+    private TickFile(Path path, MappedByteBuffer header) {
+        this.path = path;
+        this.header = header;
+        this.count = header.getLong(COUNT_OFFSET);
+    }
+
+    /**
+     * 打开或创建文件
+     * @throws IOException 文件不是合法的行情文件
+     */
+    static TickFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean created = channel.size() == 0;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (created) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(COUNT_OFFSET, 0);
+            } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a tick file: " + path);
+            }
+            TickFile file = new TickFile(path, header);
+            if (file.count > 0) {
+                file.lastTime = file.read(file.count - 1, file.count).time(0);
+            }
+            return file;
+        }
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * 追加一行，时间必须晚于最后一行
+     * @return 时间不晚于最后一行时不写入并返回false
+     */
+    boolean append(long epochSecond, long price, long volume, long turnover) throws IOException {
+        if (count > 0 && epochSecond <= lastTime) {
+            return false;
+        }
+        long chunk = count / CHUNK_TICKS;
+        if (chunk != tailChunk) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                tail = channel.map(FileChannel.MapMode.READ_WRITE, chunkOffset(chunk), CHUNK_BYTES);
+                tail.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            tailChunk = chunk;
+        }
+        int slot = (int) (count % CHUNK_TICKS);
+        tail.putLong(columnIndex(COLUMN_TIME, slot), epochSecond);
+        tail.putLong(columnIndex(COLUMN_PRICE, slot), price);
+        tail.putLong(columnIndex(COLUMN_VOLUME, slot), volume);
+        tail.putLong(columnIndex(COLUMN_TURNOVER, slot), turnover);
+        count++;
+        lastTime = epochSecond;
+        header.putLong(COUNT_OFFSET, count);
+        return true;
+    }
+
+    /**
+     * 删除前 rows 行：剩余的行复制到临时文件，替换原文件后改用新文件的映射
+     * 之前返回的 TickSeries 仍指向旧文件的映射，读取不受影响
+     */
+    void dropFirst(long rows) throws IOException {
+        if (rows <= 0) {
+            return;
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        TickFile copy = open(temp);
+        TickSeries remaining = read(Math.min(rows, count), count);
+        for (int i = 0; i < remaining.size(); i++) {
+            copy.append(remaining.time(i), remaining.priceUnscaled(i), remaining.volume(i), remaining.turnoverUnscaled(i));
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // 映射跟随文件本身，改名后仍然有效
+        header = copy.header;
+        count = copy.count;
+        lastTime = copy.lastTime;
+        tailChunk = copy.tailChunk;
+        tail = copy.tail;
+    }
+
+    /**
+     * 只读映射 [from, to) 行所在的块，返回的视图直接读取映射内存
+     */
+    TickSeries read(long from, long to) throws IOException {
+        if (from >= to) {
+            return TickSeries.EMPTY;
+        }
+        long firstChunk = from / CHUNK_TICKS;
+        long lastChunk = (to - 1) / CHUNK_TICKS;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunkOffset(firstChunk),
+                    (lastChunk - firstChunk + 1) * CHUNK_BYTES);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new TickSeries(buffer, (int) (from - firstChunk * CHUNK_TICKS), (int) (to - from));
+        }
+    }
+
+    /**
+     * 前 count 行中时间不早于 epochSecond 的第一行（时间列单调递增，二分查找）
+     * @param count 调用方在锁内读取的行数
+     */
+    long lowerBound(long epochSecond, long count) throws IOException {
+        long low = 0;
+        long high = count;
+        if (high == 0) {
+            return 0;
+        }
+        TickSeries all = read(0, high);
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (all.time((int) mid) < epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long chunkOffset(long chunk) {
+        return HEADER_BYTES + chunk * CHUNK_BYTES;
+    }
+
+    /**
+     * 块内某列某行的字节偏移
+     */
+    static int columnIndex(int column, int slot) {
+        return (column * CHUNK_TICKS + slot) * Long.BYTES;
+    }
+}
@@ -0,0 +1,97 @@
+package com.dong.socks_dfcf.service;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一段连续行情的只读列式视图，直接读取 TickFile 的内存映射，不为每行创建对象
+ * 下标从0开始，按时间升序
+ */
+public final class TickSeries {
+
+    static final TickSeries EMPTY = new TickSeries(ByteBuffer.allocate(0), 0, 0);
+
+    private final ByteBuffer buffer;
+    // 第一行在第一个块内的位置
+    private final int start;
+    private final int size;
+
+    TickSeries(ByteBuffer buffer, int start, int size) {
+        this.buffer = buffer;
+        this.start = start;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 交易时间（epoch秒）
+     */
+    public long time(int index) {
+        return column(TickFile.COLUMN_TIME, index);
+    }
+
+    /**
+     * 价格，定点值，小数位数为 TickFile.SCALE
+     */
+    public long priceUnscaled(int index) {
+        return column(TickFile.COLUMN_PRICE, index);
+    }
+
+    public double price(int index) {
+        return priceUnscaled(index) / 10_000.0;
+    }
+
+    /**
+     * 当日累计成交量
+     */
+    public long volume(int index) {
+        return column(TickFile.COLUMN_VOLUME, index);
+    }
+
+    /**
+     * 当日累计成交额，定点值，小数位数为 TickFile.SCALE
+     */
+    public long turnoverUnscaled(int index) {
+        return column(TickFile.COLUMN_TURNOVER, index);
+    }
+
+    private long column(int column, int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int row = start + index;
+        int chunk = row / TickFile.CHUNK_TICKS;
+        return buffer.getLong(chunk * TickFile.CHUNK_BYTES + TickFile.columnIndex(column, row % TickFile.CHUNK_TICKS));
+    }
+
+    /**
+     * 转换为按列组织的接口返回数据
+     */
+    public Map<String, Object> toMap(ZoneId zone) {
+        LocalDateTime[] times = new LocalDateTime[size];
+        BigDecimal[] prices = new BigDecimal[size];
+        long[] volumes = new long[size];
+        BigDecimal[] turnovers = new BigDecimal[size];
+        for (int i = 0; i < size; i++) {
+            times[i] = LocalDateTime.ofInstant(Instant.ofEpochSecond(time(i)), zone);
+            prices[i] = BigDecimal.valueOf(priceUnscaled(i), TickFile.SCALE);
+            volumes[i] = volume(i);
+            turnovers[i] = BigDecimal.valueOf(turnoverUnscaled(i), TickFile.SCALE);
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", size);
+        map.put("time", times);
+        map.put("price", prices);
+        map.put("volume", volumes);
+        map.put("turnover", turnovers);
+        return map;
+    }
+}
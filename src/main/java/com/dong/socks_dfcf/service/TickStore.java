@@ -0,0 +1,165 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.model.StockData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 本地列式行情存储（可选，crawler.ticks.enabled），每只股票一个只追加的内存映射文件
+ * 写库成功后由 StockDataBatchWriter 追加，读取长时间范围的历史时不经过 MySQL 和 MyBatis 映射；
+ * MySQL 仍是唯一的权威数据，本地文件丢失或损坏时删除目录即可，从下一次爬取开始重新积累
+ * 过期的行由 StockDataRetentionService 按 retention.tick-retention-days 调用 pruneBefore 删除
+ */
+@Slf4j
+@Service
+public class TickStore {
+
+    // 股票代码只允许这些字符，防止拼出目录外的路径
+    private static final Pattern STOCK_CODE = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,31}");
+    private static final String FILE_SUFFIX = ".ticks";
+
+    private final boolean enabled;
+    private final Path dir;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<String, TickFile> files = new ConcurrentHashMap<>();
+
+    public TickStore(CrawlerProperties crawlerProperties) {
+        this.enabled = crawlerProperties.getTicks().isEnabled();
+        this.dir = Path.of(crawlerProperties.getTicks().getDir());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 追加一批已写库的行情；交易时间不晚于该股票最后一行的行跳过
+     * 本地存储只是副本，出错时记录日志，不影响写库结果
+     * @return 实际追加的行数
+     */
+    public int append(List<StockData> rows) {
+        if (!enabled) {
+            return 0;
+        }
+        int appended = 0;
+        for (StockData row : rows) {
+            if (row.getTradeTime() == null || row.getCurrentPrice() == null || !STOCK_CODE.matcher(row.getStockCode()).matches()) {
+                continue;
+            }
+            try {
+                TickFile file = file(row.getStockCode());
+                synchronized (file) {
+                    if (file.append(row.getTradeTime().atZone(zone).toEpochSecond(),
+                            unscaled(row.getCurrentPrice()),
+                            row.getVolume() != null ? row.getVolume() : 0,
+                            row.getTurnover() != null ? unscaled(row.getTurnover()) : 0)) {
+                        appended++;
+                    }
+                }
+            } catch (IOException | UncheckedIOException | ArithmeticException e) {
+                log.warn("Failed to append tick for {}: {}", row.getStockCode(), e.getMessage());
+            }
+        }
+        return appended;
+    }
+
+    /**
+     * 读取一只股票 [from, to) 范围内的行情
+     * @param from 开始时间（含），为null时从第一行开始
+     * @param to 结束时间（不含），为null时到最后一行
+     * @return 列式视图；未启用或没有该股票的数据时为空
+     */
+    public TickSeries read(String stockCode, LocalDateTime from, LocalDateTime to) throws IOException {
+        if (!enabled || !STOCK_CODE.matcher(stockCode).matches()) {
+            return TickSeries.EMPTY;
+        }
+        TickFile file = files.get(stockCode);
+        if (file == null) {
+            if (!Files.exists(dir.resolve(stockCode + FILE_SUFFIX))) {
+                return TickSeries.EMPTY;
+            }
+            file = file(stockCode);
+        }
+        // 在锁内定位和映射，避免清理过期行时文件被替换
+        synchronized (file) {
+            long count = file.count();
+            long first = from != null ? file.lowerBound(from.atZone(zone).toEpochSecond(), count) : 0;
+            long last = to != null ? file.lowerBound(to.atZone(zone).toEpochSecond(), count) : count;
+            return file.read(first, last);
+        }
+    }
+
+    /**
+     * 删除所有股票文件中交易时间早于 before 的行，每个文件在自己的锁内重写
+     * 未启用时不做任何事；单个文件出错时记录日志，继续处理其他文件
+     * @return 删除的行数
+     */
+    public long pruneBefore(LocalDateTime before) throws IOException {
+        if (!enabled || !Files.isDirectory(dir)) {
+            return 0;
+        }
+        long cutoff = before.atZone(zone).toEpochSecond();
+        List<String> codes;
+        try (Stream<Path> paths = Files.list(dir)) {
+            codes = paths.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(FILE_SUFFIX))
+                    .map(name -> name.substring(0, name.length() - FILE_SUFFIX.length()))
+                    .filter(code -> STOCK_CODE.matcher(code).matches())
+                    .toList();
+        }
+        long dropped = 0;
+        for (String code : codes) {
+            try {
+                TickFile file = file(code);
+                synchronized (file) {
+                    long expired = file.lowerBound(cutoff, file.count());
+                    file.dropFirst(expired);
+                    dropped += expired;
+                }
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Failed to prune ticks for {}: {}", code, e.getMessage());
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * 已打开的股票文件数
+     */
+    public int getSymbolCount() {
+        return files.size();
+    }
+
+    private TickFile file(String stockCode) {
+        return files.computeIfAbsent(stockCode, code -> {
+            try {
+                Files.createDirectories(dir);
+                return TickFile.open(dir.resolve(code + FILE_SUFFIX));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 转换为 SCALE 位小数的定点值，超出范围时抛出 ArithmeticException
+     */
+    private static long unscaled(BigDecimal value) {
+        return value.setScale(TickFile.SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
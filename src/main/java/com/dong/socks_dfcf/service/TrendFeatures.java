@@ -0,0 +1,80 @@
+package com.dong.socks_dfcf.service;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 走势模型的特征定义，训练和预测共用
+ * 特征都由日线技术指标换算成相对收盘价的比例，与股价高低无关，不同股票的样本可以放在一起训练
+ */
+final class TrendFeatures {
+
+    static final List<String> NAMES = List.of("close_ma5", "close_ma10", "close_ma20", "ma5_ma20",
+            "dif", "macd", "rsi14", "boll_width", "boll_position", "atr14");
+    // 类别：下一交易日收盘价是否上涨
+    static final List<String> CLASS_VALUES = List.of("down", "up");
+    static final int UP = 1;
+    static final int DOWN = 0;
+    // MACD 信号线需要的日线数，少于这个数的日子不作为样本
+    static final int MIN_BARS = IndicatorState.EMA_SLOW + IndicatorState.MACD_SIGNAL - 1;
+
+    private TrendFeatures() {
+    }
+
+    /**
+     * 空数据集，最后一列为类别
+     */
+    static Instances header(int capacity) {
+        ArrayList<Attribute> attributes = new ArrayList<>(NAMES.size() + 1);
+        for (String name : NAMES) {
+            attributes.add(new Attribute(name));
+        }
+        attributes.add(new Attribute("trend", CLASS_VALUES));
+        Instances instances = new Instances("stock_trend", attributes, capacity);
+        instances.setClassIndex(NAMES.size());
+        return instances;
+    }
+
+    /**
+     * 由指标计算特征
+     * @return 长度为特征数+1的数组，类别为缺失值，由训练时填入；日线数不足时返回null
+     */
+    static double[] values(Indicators indicators) {
+        if (indicators.bars() < MIN_BARS || indicators.close() == null || indicators.close() <= 0) {
+            return null;
+        }
+        double close = indicators.close();
+        double[] values = new double[NAMES.size() + 1];
+        values[0] = ratio(close, indicators.ma5());
+        values[1] = ratio(close, indicators.ma10());
+        values[2] = ratio(close, indicators.ma20());
+        values[3] = indicators.ma5() != null ? ratio(indicators.ma5(), indicators.ma20()) : Utils.missingValue();
+        values[4] = scaled(indicators.dif(), close);
+        values[5] = scaled(indicators.macd(), close);
+        values[6] = scaled(indicators.rsi14(), 100);
+        Double upper = indicators.bollUpper();
+        Double lower = indicators.bollLower();
+        if (upper != null && lower != null && upper > lower) {
+            values[7] = (upper - lower) / indicators.bollMid();
+            values[8] = (close - lower) / (upper - lower);
+        } else {
+            values[7] = Utils.missingValue();
+            values[8] = Utils.missingValue();
+        }
+        values[9] = scaled(indicators.atr14(), close);
+        values[NAMES.size()] = Utils.missingValue();
+        return values;
+    }
+
+    private static double ratio(double value, Double base) {
+        return base != null && base != 0 ? value / base - 1 : Utils.missingValue();
+    }
+
+    private static double scaled(Double value, double by) {
+        return value != null ? value / by : Utils.missingValue();
+    }
+}
@@ -0,0 +1,407 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.config.PredictionProperties;
+import com.dong.socks_dfcf.mapper.StockBarMapper;
+import com.dong.socks_dfcf.model.StockBar;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import weka.classifiers.trees.RandomForest;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SerializationHelper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * 走势预测模型：离线训练随机森林并按版本保存到磁盘，预测时使用内存中的模型
+ * 训练：从 stock_bar 流式读取日线，按股票并行回放技术指标得到每日特征，以下一交易日涨跌为类别，多线程建树；
+ * 预测：特征直接取自 IndicatorEngine 的最新指标，全市场股票放进一个数据集一次批量预测
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TrendModelService {
+
+    private static final String FILE_PREFIX = "trend-rf-";
+    private static final String FILE_SUFFIX = ".model";
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // 样本少于该数时不训练
+    static final int MIN_TRAINING_ROWS = 500;
+
+    private final StockBarMapper stockBarMapper;
+    private final IndicatorEngine indicatorEngine;
+    private final PredictionProperties predictionProperties;
+    private final CrawlerProperties crawlerProperties;
+
+    private final AtomicReference<TrendModel> model = new AtomicReference<>();
+    private final AtomicBoolean training = new AtomicBoolean();
+    private volatile ModelTrainingStats lastTrainingStats;
+
+    /**
+     * 加载好的模型；header 是不含数据的数据集，预测时据此创建批量数据集
+     */
+    record TrendModel(String version, RandomForest classifier, Instances header, Map<String, Object> info) {
+    }
+
+    /**
+     * 一只股票的预测结果
+     * @param upProbability 下一交易日上涨的概率
+     * @param modelVersion 模型版本
+     */
+    public record TrendScore(String stockCode, double upProbability, String modelVersion) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadLatestModel() {
+        try {
+            List<Path> files = listModelFiles();
+            if (files.isEmpty()) {
+                log.info("没有已训练的走势模型，预测使用简单规则");
+                return;
+            }
+            model.set(load(files.get(0)));
+            log.info("已加载走势模型 {}", model.get().version());
+        } catch (Exception e) {
+            log.warn("加载走势模型失败，预测使用简单规则: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 在后台执行一次训练
+     * @return 已有训练在运行时返回false
+     */
+    public boolean submitTraining(String trigger) {
+        // 先占住训练标记再启动线程，并发的两次触发只有一次返回true
+        if (!training.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            Thread.ofVirtual().name("trend-model-training").start(() -> doTrain(trigger));
+        } catch (RuntimeException e) {
+            training.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * 训练一个新版本并替换当前模型
+     * @param trigger 触发来源（manual / scheduled）
+     * @return 本次训练统计；已有训练在运行时返回null
+     */
+    public ModelTrainingStats train(String trigger) {
+        if (!training.compareAndSet(false, true)) {
+            log.warn("走势模型仍在训练，跳过本次 ({})", trigger);
+            return null;
+        }
+        return doTrain(trigger);
+    }
+
+    /**
+     * 训练一次，调用方已占住训练标记，结束时释放
+     */
+    private ModelTrainingStats doTrain(String trigger) {
+        LocalDate since = LocalDate.now().minusDays(predictionProperties.getTrainingDays());
+        ModelTrainingStats stats = new ModelTrainingStats(trigger, since);
+        lastTrainingStats = stats;
+        try {
+            Instances data = extractTrainingData(since, stats);
+            if (data.numInstances() < MIN_TRAINING_ROWS) {
+                throw new IllegalStateException("训练样本不足: " + data.numInstances() + " 行（需启用 1d K线并积累足够的日线）");
+            }
+            RandomForest forest = new RandomForest();
+            forest.setNumIterations(predictionProperties.getTrees());
+            forest.setMaxDepth(predictionProperties.getMaxDepth());
+            forest.setNumExecutionSlots(threads());
+            forest.setSeed(predictionProperties.getSeed());
+            forest.setCalcOutOfBag(true);
+            forest.buildClassifier(data);
+            double outOfBagError = forest.measureOutOfBagError();
+
+            String version = LocalDateTime.now().format(VERSION_FORMAT);
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("version", version);
+            info.put("trainedAt", LocalDateTime.now().toString());
+            info.put("since", since.toString());
+            info.put("symbols", stats.getSymbols());
+            info.put("rows", data.numInstances());
+            info.put("trees", predictionProperties.getTrees());
+            info.put("outOfBagError", outOfBagError);
+            info.put("features", String.join(",", TrendFeatures.NAMES));
+            TrendModel trained = new TrendModel(version, forest, new Instances(data, 0), info);
+            save(trained);
+            model.set(trained);
+            stats.trained(version, outOfBagError);
+            log.info("走势模型 {} 训练完成: {} 行样本, 袋外错误率 {}", version, data.numInstances(), outOfBagError);
+        } catch (Exception e) {
+            log.error("走势模型训练失败", e);
+            stats.fail(e.getMessage());
+        } finally {
+            stats.finish();
+            training.set(false);
+        }
+        return stats;
+    }
+
+    /**
+     * 流式读取日线，按股票分组后交给线程池并行提取特征，在途的组数有上限，内存中只保留在途几组股票的日线；
+     * 各股票的样本最后在当前线程中合并成一个数据集
+     */
+    private Instances extractTrainingData(LocalDate since, ModelTrainingStats stats) throws InterruptedException {
+        int threads = threads();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            SymbolGrouper grouper = new SymbolGrouper(pool, new Semaphore(threads * 4),
+                    crawlerProperties.getIndicators().getVolumeUnitShares());
+            stockBarMapper.scanBarsSince(BarInterval.DAY.code(), since.atStartOfDay(), grouper);
+            grouper.flush();
+
+            Instances data = TrendFeatures.header(grouper.futures.size() * 200);
+            int symbols = 0;
+            int upRows = 0;
+            for (Future<List<double[]>> future : grouper.futures) {
+                List<double[]> rows = future.get();
+                if (!rows.isEmpty()) {
+                    symbols++;
+                }
+                for (double[] row : rows) {
+                    data.add(new DenseInstance(1.0, row));
+                    if (row[TrendFeatures.NAMES.size()] == TrendFeatures.UP) {
+                        upRows++;
+                    }
+                }
+            }
+            stats.featuresExtracted(symbols, data.numInstances(), upRows);
+            return data;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("特征提取失败: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 把按股票代码排序的日线流切成每只股票一组，每组提交一个特征提取任务
+     */
+    private static final class SymbolGrouper implements ResultHandler<StockBar> {
+
+        private final ExecutorService pool;
+        private final Semaphore inFlight;
+        private final int volumeUnitShares;
+        private final List<Future<List<double[]>>> futures = new ArrayList<>();
+        private List<StockBar> group = new ArrayList<>();
+
+        SymbolGrouper(ExecutorService pool, Semaphore inFlight, int volumeUnitShares) {
+            this.pool = pool;
+            this.inFlight = inFlight;
+            this.volumeUnitShares = volumeUnitShares;
+        }
+
+        @Override
+        public void handleResult(ResultContext<? extends StockBar> context) {
+            StockBar bar = context.getResultObject();
+            if (!group.isEmpty() && !group.get(0).getStockCode().equals(bar.getStockCode())) {
+                flush();
+            }
+            group.add(bar);
+        }
+
+        void flush() {
+            if (group.isEmpty()) {
+                return;
+            }
+            List<StockBar> bars = group;
+            group = new ArrayList<>();
+            inFlight.acquireUninterruptibly();
+            futures.add(pool.submit(() -> {
+                try {
+                    return extractFeatures(bars, volumeUnitShares);
+                } finally {
+                    inFlight.release();
+                }
+            }));
+        }
+    }
+
+    /**
+     * 按时间顺序回放一只股票的日线，每天收盘后的指标作为特征，下一交易日收盘价是否上涨作为类别
+     * @param bars 一只股票的日线，按开始时间升序
+     * @return 样本，最后一天没有类别不计入
+     */
+    static List<double[]> extractFeatures(List<StockBar> bars, int volumeUnitShares) {
+        List<double[]> rows = new ArrayList<>(Math.max(bars.size() - TrendFeatures.MIN_BARS, 0));
+        IndicatorState state = new IndicatorState();
+        double[] pending = null;
+        double pendingClose = 0;
+        for (StockBar bar : bars) {
+            double close = bar.getClosePrice().doubleValue();
+            boolean accepted = state.update(bar.getLastTradeTime() != null ? bar.getLastTradeTime() : bar.getBarStart(),
+                    bar.getOpenPrice().doubleValue(), bar.getHighPrice().doubleValue(), bar.getLowPrice().doubleValue(),
+                    close, bar.getVolume() != null ? bar.getVolume() : 0,
+                    bar.getTurnover() != null ? bar.getTurnover().doubleValue() : 0);
+            if (!accepted) {
+                continue;
+            }
+            if (pending != null) {
+                pending[TrendFeatures.NAMES.size()] = close > pendingClose ? TrendFeatures.UP : TrendFeatures.DOWN;
+                rows.add(pending);
+            }
+            pending = TrendFeatures.values(state.snapshot(bar.getStockCode(), volumeUnitShares));
+            pendingClose = close;
+        }
+        return rows;
+    }
+
+    /**
+     * 全市场股票的预测，一次批量预测
+     * @return 没有模型时返回空列表；日线数不足的股票不返回
+     */
+    public List<TrendScore> scoreAll() {
+        return score(indicatorEngine.getAll());
+    }
+
+    /**
+     * 一只股票的预测
+     * @return 没有模型或该股票日线数不足时返回null
+     */
+    public TrendScore score(String stockCode) {
+        Indicators indicators = indicatorEngine.get(stockCode);
+        if (indicators == null) {
+            return null;
+        }
+        List<TrendScore> scores = score(List.of(indicators));
+        return scores.isEmpty() ? null : scores.get(0);
+    }
+
+    List<TrendScore> score(List<Indicators> indicators) {
+        return score(model.get(), indicators);
+    }
+
+    /**
+     * 在模型的空数据集上建一个批量数据集，所有股票一次调用 distributionsForInstances
+     * 分批并行预测时各批传入同一个模型，训练中途切换模型不会让一次预测混用两个版本
+     */
+    List<TrendScore> score(TrendModel current, List<Indicators> indicators) {
+        if (current == null || indicators.isEmpty()) {
+            return List.of();
+        }
+        Instances batch = new Instances(current.header(), indicators.size());
+        List<String> codes = new ArrayList<>(indicators.size());
+        for (Indicators item : indicators) {
+            double[] values = TrendFeatures.values(item);
+            if (values != null) {
+                batch.add(new DenseInstance(1.0, values));
+                codes.add(item.stockCode());
+            }
+        }
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        double[][] distributions;
+        try {
+            distributions = current.classifier().distributionsForInstances(batch);
+        } catch (Exception e) {
+            throw new IllegalStateException("模型预测失败: " + e.getMessage(), e);
+        }
+        List<TrendScore> scores = new ArrayList<>(codes.size());
+        for (int i = 0; i < codes.size(); i++) {
+            scores.add(new TrendScore(codes.get(i), distributions[i][TrendFeatures.UP], current.version()));
+        }
+        return scores;
+    }
+
+    /**
+     * 当前模型的信息
+     * @return 没有模型时返回null
+     */
+    public Map<String, Object> getModelInfo() {
+        TrendModel current = model.get();
+        return current != null ? current.info() : null;
+    }
+
+    /**
+     * 当前模型，没有模型时返回null
+     */
+    TrendModel currentModel() {
+        return model.get();
+    }
+
+    public ModelTrainingStats getLastTrainingStats() {
+        return lastTrainingStats;
+    }
+
+    private int threads() {
+        int threads = predictionProperties.getThreads();
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 写入临时文件后改名，加载方不会读到写了一半的模型；然后删除超出保留数的旧版本
+     */
+    private void save(TrendModel trained) throws Exception {
+        Path dir = Paths.get(predictionProperties.getModelDir());
+        Files.createDirectories(dir);
+        Path target = dir.resolve(FILE_PREFIX + trained.version() + FILE_SUFFIX);
+        Path temp = dir.resolve(target.getFileName() + ".tmp");
+        SerializationHelper.writeAll(temp.toString(), new Object[]{trained.classifier(), trained.header(), trained.info()});
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> files = listModelFiles();
+        for (Path old : files.subList(Math.min(Math.max(predictionProperties.getKeepModels(), 1), files.size()), files.size())) {
+            Files.deleteIfExists(old);
+            log.info("删除旧走势模型 {}", old.getFileName());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private TrendModel load(Path file) throws Exception {
+        Object[] objects = SerializationHelper.readAll(file.toString());
+        String name = file.getFileName().toString();
+        String version = name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length());
+        return new TrendModel(version, (RandomForest) objects[0], (Instances) objects[1], (Map<String, Object>) objects[2]);
+    }
+
+    /**
+     * 模型文件，版本号按时间命名，最新的在前
+     */
+    private List<Path> listModelFiles() throws IOException {
+        Path dir = Paths.get(predictionProperties.getModelDir());
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+                    })
+                    .sorted(Comparator.comparing((Path file) -> file.getFileName().toString()).reversed())
+                    .toList();
+        }
+    }
+}
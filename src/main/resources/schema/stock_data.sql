@@ -17,7 +17,50 @@ CREATE TABLE IF NOT EXISTS `stock_data` (
   `market_type` int DEFAULT NULL COMMENT '市场类型',
   `trade_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '交易时间',
   PRIMARY KEY (`id`),
-  KEY `idx_stock_code` (`stock_code`),
+  -- 按代码取最近N条（含批量 ROW_NUMBER 查询）沿索引倒序读取，无需排序
+  KEY `idx_stock_code_time` (`stock_code`, `trade_time`),
   KEY `idx_trade_time` (`trade_time`),
   KEY `idx_change_percent` (`change_percent`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='股票数据表';
\ No newline at end of file
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='股票数据表';
+-- 每只股票的最新行情，爬取写库时在同一事务中upsert，最新行情、搜索和计数查询都走这张表
+CREATE TABLE IF NOT EXISTS `stock_latest` (
+  `stock_code` varchar(20) NOT NULL COMMENT '股票代码',
+  `stock_name` varchar(100) NOT NULL COMMENT '股票名称',
+  `current_price` decimal(15,4) NOT NULL COMMENT '最新价',
+  `change_amount` decimal(15,4) NOT NULL COMMENT '涨跌额',
+  `change_percent` decimal(15,6) NOT NULL COMMENT '涨跌幅',
+  `open_price` decimal(15,4) DEFAULT NULL COMMENT '开盘价',
+  `high_price` decimal(15,4) DEFAULT NULL COMMENT '最高价',
+  `low_price` decimal(15,4) DEFAULT NULL COMMENT '最低价',
+  `volume` bigint DEFAULT NULL COMMENT '成交量',
+  `turnover` decimal(20,4) DEFAULT NULL COMMENT '成交额',
+  `market_type` int DEFAULT NULL COMMENT '市场类型',
+  `trade_time` datetime NOT NULL COMMENT '交易时间',
+  PRIMARY KEY (`stock_code`),
+  -- 与 ORDER BY change_percent DESC, stock_code 一致，游标分页直接从游标位置顺序读取
+  KEY `idx_change_percent_code` (`change_percent` DESC, `stock_code`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='股票最新行情表';
+
+-- K线（30分钟、日、周），爬取写库时在同一事务中增量合并，历史走势和分析读这张表而不是原始采样
+CREATE TABLE IF NOT EXISTS `stock_bar` (
+  `stock_code` varchar(20) NOT NULL COMMENT '股票代码',
+  `bar_interval` varchar(8) NOT NULL COMMENT '周期：30m / 1d / 1w',
+  `bar_start` datetime NOT NULL COMMENT '周期开始时间',
+  `open_price` decimal(15,4) NOT NULL COMMENT '开盘价',
+  `high_price` decimal(15,4) NOT NULL COMMENT '最高价',
+  `low_price` decimal(15,4) NOT NULL COMMENT '最低价',
+  `close_price` decimal(15,4) NOT NULL COMMENT '收盘价',
+  `volume` bigint NOT NULL DEFAULT 0 COMMENT '周期内成交量',
+  `turnover` decimal(20,4) NOT NULL DEFAULT 0 COMMENT '周期内成交额',
+  `sample_count` int NOT NULL DEFAULT 0 COMMENT '合并的采样数',
+  `last_trade_time` datetime NOT NULL COMMENT '最后一次采样的交易时间',
+  PRIMARY KEY (`stock_code`, `bar_interval`, `bar_start`),
+  KEY `idx_interval_start` (`bar_interval`, `bar_start`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='股票K线表';
+
+-- 已有历史数据时，从 stock_data 回填 stock_latest（只需执行一次）
+INSERT IGNORE INTO stock_latest (stock_code, stock_name, current_price, change_amount, change_percent, open_price, high_price, low_price, volume, turnover, market_type, trade_time)
+SELECT s1.stock_code, s1.stock_name, s1.current_price, s1.change_amount, s1.change_percent, s1.open_price, s1.high_price, s1.low_price, s1.volume, s1.turnover, s1.market_type, s1.trade_time
+FROM stock_data s1
+INNER JOIN (SELECT stock_code, MAX(trade_time) AS max_time FROM stock_data GROUP BY stock_code) s2
+ON s1.stock_code = s2.stock_code AND s1.trade_time = s2.max_time;
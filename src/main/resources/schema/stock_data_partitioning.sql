@@ -0,0 +1,17 @@
+-- 可选：把 stock_data 改为按天分区，配合 retention.mode=partition 使用
+-- 分区表的每个唯一键都必须包含分区列，因此主键改为 (id, trade_time)
+-- 执行前的数据全部放入 p_history，之后的按天分区由 StockDataRetentionService 提前创建；
+-- 当最早的按天分区也过期时 p_history 随之删除
+-- 改表会重建整张表，请在非交易时段执行，并把下面的日期改为执行当天
+
+USE stock_db;
+
+ALTER TABLE `stock_data`
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (`id`, `trade_time`);
+
+ALTER TABLE `stock_data`
+  PARTITION BY RANGE COLUMNS (`trade_time`) (
+    PARTITION p_history VALUES LESS THAN ('2025-01-01'),
+    PARTITION p_future VALUES LESS THAN (MAXVALUE)
+  );
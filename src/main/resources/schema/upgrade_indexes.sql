@@ -0,0 +1,43 @@
+-- 升级已有数据库时补建索引；stock_data.sql 中的 CREATE TABLE IF NOT EXISTS 不会给已存在的表加索引
+-- 可重复执行：索引已存在时跳过
+
+USE stock_db;
+
+-- stock_data 按代码取最近N条（findByStockCode、findRecentByStockCodes）沿 (stock_code, trade_time) 倒序读取
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'stock_data' AND index_name = 'idx_stock_code_time');
+SET @ddl = IF(@missing, 'ALTER TABLE `stock_data` ADD INDEX `idx_stock_code_time` (`stock_code`, `trade_time`)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 旧的 idx_stock_code 是 idx_stock_code_time 的前缀，新索引建好后删除
+SET @present = (SELECT COUNT(*) > 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'stock_data' AND index_name = 'idx_stock_code');
+SET @ddl = IF(@present, 'ALTER TABLE `stock_data` DROP INDEX `idx_stock_code`', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- stock_latest 按涨跌幅游标分页，顺序与 ORDER BY change_percent DESC, stock_code 一致
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'stock_latest' AND index_name = 'idx_change_percent_code');
+SET @ddl = IF(@missing, 'ALTER TABLE `stock_latest` ADD INDEX `idx_change_percent_code` (`change_percent` DESC, `stock_code`)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @present = (SELECT COUNT(*) > 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'stock_latest' AND index_name = 'idx_change_percent');
+SET @ddl = IF(@present, 'ALTER TABLE `stock_latest` DROP INDEX `idx_change_percent`', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- stock_bar 按周期清理过期K线（retention.bar-retention-days）
+SET @missing = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'stock_bar' AND index_name = 'idx_interval_start');
+SET @ddl = IF(@missing, 'ALTER TABLE `stock_bar` ADD INDEX `idx_interval_start` (`bar_interval`, `bar_start`)', 'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,159 @@
+package com.dong.socks_dfcf.config;
+
+import com.dong.socks_dfcf.service.DataEpoch;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheFilterTest {
+
+    private final DataEpoch dataEpoch = new DataEpoch();
+    private final ResponseCacheProperties properties = new ResponseCacheProperties();
+    private final ResponseCacheFilter filter = new ResponseCacheFilter(dataEpoch, properties, new ObjectMapper());
+    private String body = "{\"success\":true,\"data\":[1]}";
+    private int calls;
+    // 模拟快照未加载时控制器回退到数据库查询
+    private boolean fromDatabase;
+
+    private final FilterChain chain = (request, response) -> {
+        calls++;
+        if (fromDatabase) {
+            // 与 DispatcherServlet 一样在处理请求期间绑定请求属性
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes((HttpServletRequest) request));
+            try {
+                ResponseCacheFilter.markUncacheable();
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        }
+        response.setContentType("application/json");
+        response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+    };
+
+    @Test
+    void servesCachedBytesAndNotModifiedUntilEpochChanges() throws ServletException, IOException {
+        MockHttpServletResponse first = get("/api/stock/latest", null, "page", "0", "size", "20");
+        assertEquals(200, first.getStatus());
+        String etag = first.getHeader("ETag");
+        assertNotNull(etag);
+        assertEquals(1, calls);
+
+        // 参数顺序不同也命中同一缓存项
+        MockHttpServletResponse cached = get("/api/stock/latest", null, "size", "20", "page", "0");
+        assertEquals(body, cached.getContentAsString());
+        assertEquals(etag, cached.getHeader("ETag"));
+        assertEquals(1, calls);
+
+        MockHttpServletResponse notModified = get("/api/stock/latest", "W/" + etag, "page", "0", "size", "20");
+        assertEquals(304, notModified.getStatus());
+        assertEquals(0, notModified.getContentLength());
+        assertEquals(1, calls);
+
+        dataEpoch.bump();
+        body = "{\"success\":true,\"data\":[2]}";
+        MockHttpServletResponse fresh = get("/api/stock/latest", etag, "page", "0", "size", "20");
+        assertEquals(200, fresh.getStatus());
+        assertEquals(body, fresh.getContentAsString());
+        assertNotEquals(etag, fresh.getHeader("ETag"));
+        assertEquals(2, calls);
+    }
+
+    @Test
+    void doesNotCacheFailuresOrOtherEndpoints() throws ServletException, IOException {
+        body = "{\"success\":false,\"message\":\"db down\"}";
+        MockHttpServletResponse failed = get("/api/stock/latest", null);
+        assertEquals(body, failed.getContentAsString());
+        assertNull(failed.getHeader("ETag"));
+        get("/api/stock/latest", null);
+        assertEquals(2, calls);
+
+        body = "{\"success\":true}";
+        get("/api/stock/000001/predict", null);
+        get("/api/stock/000001/predict", null);
+        assertEquals(4, calls);
+        assertEquals(0, filter.size());
+    }
+
+    @Test
+    void doesNotCacheEndpointsThatReadTheDatabaseMidCrawl() throws ServletException, IOException {
+        // 历史行情和搜索的回退查询随每批写库和历史数据清理变化，数据版本不变也要重新查询
+        MockHttpServletResponse history = get("/api/stock/000001/history", null);
+        assertNull(history.getHeader("ETag"));
+        get("/api/stock/000001/history", null);
+        get("/api/stock/search", null, "keyword", "a");
+        get("/api/stock/search", null, "keyword", "a");
+        assertEquals(4, calls);
+        assertEquals(0, filter.size());
+    }
+
+    @Test
+    void doesNotCacheDatabaseFallbackResponses() throws ServletException, IOException {
+        // 快照未加载时 /latest 和 /codes 读库，爬取中途每批提交都会改变结果
+        fromDatabase = true;
+        MockHttpServletResponse fallback = get("/api/stock/latest", null, "cursor", "");
+        assertNull(fallback.getHeader("ETag"));
+        get("/api/stock/latest", null, "cursor", "");
+        get("/api/stock/codes", null);
+        get("/api/stock/codes", null);
+        assertEquals(4, calls);
+        assertEquals(0, filter.size());
+
+        // 快照加载后同一请求正常缓存
+        fromDatabase = false;
+        assertNotNull(get("/api/stock/codes", null).getHeader("ETag"));
+        get("/api/stock/codes", null);
+        assertEquals(5, calls);
+        assertEquals(1, filter.size());
+    }
+
+    @Test
+    void etagDigestsTheFullRequest() throws ServletException, IOException {
+        String first = get("/api/stock/screen", null, "filter", "change_percent > 5").getHeader("ETag");
+        String second = get("/api/stock/screen", null, "filter", "change_percent > 6").getHeader("ETag");
+        assertNotEquals(first, second);
+        // 版本号-SHA-256前128位
+        assertTrue(first.matches("\"[0-9a-f]+-[0-9a-f]{32}\""), first);
+        assertEquals(ResponseCacheFilter.digest("/api/stock/screen&filter=change_percent > 5"), first.substring(first.indexOf('-') + 1, first.length() - 1));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxEntries() throws ServletException, IOException {
+        properties.setMaxEntries(2);
+        get("/api/stock/screen", null, "filter", "a");
+        get("/api/stock/screen", null, "filter", "b");
+        get("/api/stock/screen", null, "filter", "a");
+        get("/api/stock/screen", null, "filter", "c");
+        assertEquals(3, calls);
+        assertEquals(2, filter.size());
+
+        get("/api/stock/screen", null, "filter", "a");
+        assertEquals(3, calls);
+        get("/api/stock/screen", null, "filter", "b");
+        assertEquals(4, calls);
+    }
+
+    private MockHttpServletResponse get(String uri, String ifNoneMatch, String... params)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        for (int i = 0; i < params.length; i += 2) {
+            request.addParameter(params[i], params[i + 1]);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,49 @@
+package com.dong.socks_dfcf.mapper;
+
+import org.apache.ibatis.exceptions.ExceptionFactory;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.mybatis.spring.MyBatisSystemException;
+import org.mockito.stubbing.Answer;
+
+/**
+ * 模拟 MyBatis 流式查询：把给定行逐条交给 ResultHandler，context.stop() 后不再继续，
+ * ResultHandler 抛出的运行时异常按 DefaultSqlSession + SqlSessionTemplate 的方式包装成 MyBatisSystemException
+ */
+public final class StreamedRows {
+
+    private StreamedRows() {
+    }
+
+    /**
+     * 用法：doAnswer(StreamedRows.of(rows)).when(mapper).exportTradeData(any(), any(), any(), any())
+     */
+    public static <T> Answer<Void> of(Iterable<T> rows) {
+        return invocation -> {
+            ResultHandler<T> handler = null;
+            for (Object argument : invocation.getArguments()) {
+                if (argument instanceof ResultHandler<?>) {
+                    @SuppressWarnings("unchecked")
+                    ResultHandler<T> typed = (ResultHandler<T>) argument;
+                    handler = typed;
+                }
+            }
+            if (handler == null) {
+                throw new IllegalArgumentException(invocation.getMethod().getName() + " 没有 ResultHandler 参数");
+            }
+            DefaultResultContext<T> context = new DefaultResultContext<>();
+            try {
+                for (T row : rows) {
+                    if (context.isStopped()) {
+                        break;
+                    }
+                    context.nextResultObject(row);
+                    handler.handleResult(context);
+                }
+            } catch (RuntimeException e) {
+                throw new MyBatisSystemException(ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e));
+            }
+            return null;
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package com.dong.socks_dfcf.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 测试用的行情数据构造器，只设置测试关心的字段，其余字段为空
+ * 例如 StockDataFixture.quote("600519").name("贵州茅台").price("1500.12").volume(100L).build()
+ */
+public final class StockDataFixture {
+
+    private final StockData stockData = new StockData();
+
+    private StockDataFixture(String code) {
+        stockData.setStockCode(code);
+    }
+
+    /**
+     * 指定股票代码的行情
+     */
+    public static StockDataFixture quote(String code) {
+        return new StockDataFixture(code);
+    }
+
+    public StockDataFixture name(String name) {
+        stockData.setStockName(name);
+        return this;
+    }
+
+    public StockDataFixture price(String price) {
+        stockData.setCurrentPrice(decimal(price));
+        return this;
+    }
+
+    public StockDataFixture price(double price) {
+        stockData.setCurrentPrice(BigDecimal.valueOf(price));
+        return this;
+    }
+
+    public StockDataFixture price(BigDecimal price) {
+        stockData.setCurrentPrice(price);
+        return this;
+    }
+
+    public StockDataFixture open(String open) {
+        stockData.setOpenPrice(decimal(open));
+        return this;
+    }
+
+    public StockDataFixture high(String high) {
+        stockData.setHighPrice(decimal(high));
+        return this;
+    }
+
+    public StockDataFixture low(String low) {
+        stockData.setLowPrice(decimal(low));
+        return this;
+    }
+
+    /**
+     * 开盘价、最高价、最低价
+     */
+    public StockDataFixture range(double open, double high, double low) {
+        stockData.setOpenPrice(BigDecimal.valueOf(open));
+        stockData.setHighPrice(BigDecimal.valueOf(high));
+        stockData.setLowPrice(BigDecimal.valueOf(low));
+        return this;
+    }
+
+    /**
+     * 涨跌额、涨跌幅
+     */
+    public StockDataFixture change(String changeAmount, String changePercent) {
+        stockData.setChangeAmount(decimal(changeAmount));
+        stockData.setChangePercent(decimal(changePercent));
+        return this;
+    }
+
+    public StockDataFixture changePercent(String changePercent) {
+        stockData.setChangePercent(decimal(changePercent));
+        return this;
+    }
+
+    public StockDataFixture changePercent(BigDecimal changePercent) {
+        stockData.setChangePercent(changePercent);
+        return this;
+    }
+
+    public StockDataFixture volume(Long volume) {
+        stockData.setVolume(volume);
+        return this;
+    }
+
+    public StockDataFixture turnover(String turnover) {
+        stockData.setTurnover(decimal(turnover));
+        return this;
+    }
+
+    public StockDataFixture turnover(BigDecimal turnover) {
+        stockData.setTurnover(turnover);
+        return this;
+    }
+
+    public StockDataFixture turnover(double turnover) {
+        stockData.setTurnover(BigDecimal.valueOf(turnover));
+        return this;
+    }
+
+    public StockDataFixture marketType(Integer marketType) {
+        stockData.setMarketType(marketType);
+        return this;
+    }
+
+    public StockDataFixture at(LocalDateTime tradeTime) {
+        stockData.setTradeTime(tradeTime);
+        return this;
+    }
+
+    public StockData build() {
+        return stockData;
+    }
+
+    private static BigDecimal decimal(String value) {
+        return value != null ? new BigDecimal(value) : null;
+    }
+}
@@ -0,0 +1,190 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final CrawlerProperties properties = new CrawlerProperties();
+
+    @Test
+    void increasesByAboutOnePerSaturatedRoundUpToMax() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 4);
+
+        // 并发没有用满时不增加
+        limiter.release(limiter.acquire(), AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        assertEquals(2, limiter.getLimit());
+        limiter.release(limiter.acquire(), AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        assertEquals(2, limiter.getLimit());
+
+        // 并发一直用满时约每 limit 个成功请求加1：2->3、3->4 各三个
+        Deque<Long> held = new ArrayDeque<>();
+        int successes = 0;
+        while (limiter.getLimit() < 4) {
+            saturatedSuccess(limiter, held);
+            successes++;
+            assertTrue(successes < 100);
+        }
+        assertEquals(6, successes);
+        for (int i = 0; i < 20; i++) {
+            saturatedSuccess(limiter, held);
+        }
+        assertEquals(4, limiter.getLimit());
+        assertEquals(3, limiter.getStats().get("inFlight"));
+        while (!held.isEmpty()) {
+            limiter.release(held.poll(), AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        }
+        assertEquals(0, limiter.getStats().get("inFlight"));
+    }
+
+    @Test
+    void decreasesOncePerRoundOnOverloadDownToMin() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 8, 8);
+
+        // 同一轮发出的请求全部过载，只退让一次
+        fullRound(limiter, AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        assertEquals(6, limiter.getLimit());
+        assertEquals(1L, limiter.getStats().get("decreases"));
+        assertEquals(8L, limiter.getStats().get("overloads"));
+
+        // 退让之后发出的请求再次过载才会继续退让
+        limiter.release(limiter.acquire(), AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        assertEquals(4, limiter.getLimit());
+        limiter.release(limiter.acquire(), AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        assertEquals(3, limiter.getLimit());
+        limiter.release(limiter.acquire(), AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        assertEquals(2, limiter.getLimit());
+        limiter.release(limiter.acquire(), AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void slowSuccessDecreasesAndOtherErrorsKeepLimit() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 4, 8);
+
+        fullRound(limiter, AdaptiveConcurrencyLimiter.Outcome.ERROR);
+        assertEquals(4, limiter.getLimit());
+        assertEquals(4L, limiter.getStats().get("errors"));
+
+        properties.setLatencyThresholdMillis(0);
+        AdaptiveConcurrencyLimiter slow = limiter(1, 4, 8);
+        long start = slow.acquire();
+        Thread.sleep(2);
+        slow.release(start, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        assertEquals(3, slow.getLimit());
+    }
+
+    @Test
+    void waitersStayBlockedWhenLimitShrinksAndWakeWhenItGrows() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 2, 4);
+        long first = limiter.acquire();
+        long second = limiter.acquire();
+
+        CountDownLatch acquired = new CountDownLatch(2);
+        List<Thread> waiters = List.of(waiter(limiter, acquired), waiter(limiter, acquired));
+        awaitBlocked(waiters);
+
+        // 上限降到1，释放一个许可后在途仍为1，等待者继续等待
+        limiter.release(first, AdaptiveConcurrencyLimiter.Outcome.OVERLOAD);
+        assertEquals(1, limiter.getLimit());
+        assertFalse(acquired.await(50, TimeUnit.MILLISECONDS));
+        awaitBlocked(waiters);
+
+        // 用满上限的请求成功，上限涨到2，两个等待者都拿到许可
+        limiter.release(second, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        assertEquals(2, limiter.getLimit());
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(2, limiter.getStats().get("inFlight"));
+    }
+
+    @Test
+    void interruptedWaiterGivesUpWithoutTakingPermit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1);
+        long held = limiter.acquire();
+
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.acquire();
+            } catch (Throwable e) {
+                thrown.set(e);
+            }
+        });
+        awaitBlocked(List.of(waiter));
+        waiter.interrupt();
+        waiter.join(5000);
+
+        assertTrue(thrown.get() instanceof InterruptedException, String.valueOf(thrown.get()));
+        assertEquals(1, limiter.getStats().get("inFlight"));
+
+        // 已被中断的线程直接失败
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, limiter::acquire);
+        assertFalse(Thread.interrupted());
+
+        limiter.release(held, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        assertEquals(0, limiter.getStats().get("inFlight"));
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int min, int initial, int max) {
+        properties.setMinInFlightPages(min);
+        properties.setInitialInFlightPages(initial);
+        properties.setMaxInFlightPages(max);
+        return new AdaptiveConcurrencyLimiter(properties);
+    }
+
+    /**
+     * 同时发出当前上限个请求，再按同一结果全部释放
+     */
+    private void fullRound(AdaptiveConcurrencyLimiter limiter, AdaptiveConcurrencyLimiter.Outcome outcome) throws InterruptedException {
+        List<Long> starts = new ArrayList<>();
+        int permits = limiter.getLimit();
+        for (int i = 0; i < permits; i++) {
+            starts.add(limiter.acquire());
+        }
+        for (long start : starts) {
+            limiter.release(start, outcome);
+        }
+    }
+
+    /**
+     * 把在途请求补满到当前上限，再让最早的一个成功返回
+     */
+    private void saturatedSuccess(AdaptiveConcurrencyLimiter limiter, Deque<Long> held) throws InterruptedException {
+        while (held.size() < limiter.getLimit()) {
+            held.add(limiter.acquire());
+        }
+        limiter.release(held.poll(), AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+    }
+
+    private Thread waiter(AdaptiveConcurrencyLimiter limiter, CountDownLatch acquired) {
+        return Thread.ofVirtual().start(() -> {
+            try {
+                limiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private void awaitBlocked(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        for (Thread thread : threads) {
+            while (thread.getState() != Thread.State.WAITING) {
+                assertTrue(System.nanoTime() < deadline, "thread did not block in acquire");
+                Thread.sleep(1);
+            }
+        }
+    }
+}
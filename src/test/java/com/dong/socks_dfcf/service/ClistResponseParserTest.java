@@ -0,0 +1,243 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对比流式解析器与原先基于正则 + JsonNode 树的解析结果
+ */
+class ClistResponseParserTest {
+
+    private final ClistResponseParser parser = new ClistResponseParser();
+
+    @Test
+    void matchesLegacyParserOnDecimalResponse() throws IOException {
+        assertSameAsLegacy("clist/page_hk_fltt2.txt", 4562, 20);
+    }
+
+    @Test
+    void matchesLegacyParserOnScaledIntegerResponse() throws IOException {
+        // 包含 "-"、字符串数字、null、缺失字段、超范围涨跌幅和无效名称
+        assertSameAsLegacy("clist/page_hk_fltt1.txt", 2741, 5);
+    }
+
+    @Test
+    void reportsDiffSizeIncludingDroppedRows() throws IOException {
+        // 页大小探测依赖接口实际返回的行数，而不是清洗后的行数
+        ClistResponseParser.ClistPage page = parser.parse(new ByteArrayInputStream(readResource("clist/page_hk_fltt1.txt")));
+
+        assertEquals(6, page.diffSize());
+        assertEquals(5, page.rows().size());
+    }
+
+    @Test
+    void emptyDataYieldsNoRows() throws IOException {
+        assertSameAsLegacy("clist/page_empty.txt", 0, 0);
+    }
+
+    @Test
+    void acceptsPlainJsonWithoutJsonpWrapper() throws IOException {
+        String json = "{\"rc\":0,\"data\":{\"total\":1,\"diff\":[{\"f2\":1.5,\"f12\":\"00700\",\"f13\":116,\"f14\":\"腾讯控股\"}]}}";
+        ClistResponseParser.ClistPage page = parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, page.total());
+        assertEquals(1, page.rows().size());
+        assertEquals("00700", page.rows().get(0).getStockCode());
+        assertEquals(116, page.rows().get(0).getMarketType());
+        assertEquals(0, new BigDecimal("1.5").compareTo(page.rows().get(0).getCurrentPrice()));
+    }
+
+    @Test
+    void usesQuoteUpdateTimeAsTradeTime() throws IOException {
+        LocalDateTime updatedAt = LocalDateTime.of(2026, 10, 16, 16, 8, 30);
+        String json = "{\"data\":{\"total\":2,\"diff\":["
+                + "{\"f2\":1.5,\"f12\":\"00700\",\"f13\":116,\"f14\":\"腾讯控股\",\"f124\":"
+                + updatedAt.atZone(ZoneId.systemDefault()).toEpochSecond() + "},"
+                + "{\"f2\":2.5,\"f12\":\"00005\",\"f13\":116,\"f14\":\"汇丰控股\",\"f124\":\"-\"}]}}";
+        LocalDateTime before = LocalDateTime.now();
+        ClistResponseParser.ClistPage page = parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(updatedAt, page.rows().get(0).getTradeTime());
+        // 没有更新时间时使用采集时间
+        assertFalse(page.rows().get(1).getTradeTime().isBefore(before));
+    }
+
+    @Test
+    void rejectsResponseWithoutJson() {
+        byte[] body = "<html>502 Bad Gateway</html>".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> parser.parse(new ByteArrayInputStream(body)));
+    }
+
+    private void assertSameAsLegacy(String resource, int expectedTotal, int expectedRows) throws IOException {
+        byte[] body = readResource(resource);
+        String text = new String(body, StandardCharsets.UTF_8);
+
+        ClistResponseParser.ClistPage page = parser.parse(new ByteArrayInputStream(body));
+        List<StockData> expected = LegacyClistParser.parseStockData(text);
+
+        assertEquals(expectedTotal, page.total());
+        assertEquals(LegacyClistParser.getTotalRecords(text), page.total());
+        assertEquals(expectedRows, page.rows().size());
+        assertEquals(expected.size(), page.rows().size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameRow(expected.get(i), page.rows().get(i));
+        }
+    }
+
+    private void assertSameRow(StockData expected, StockData actual) {
+        String code = expected.getStockCode();
+        assertEquals(expected.getStockCode(), actual.getStockCode());
+        assertEquals(expected.getStockName(), actual.getStockName(), code);
+        assertEquals(expected.getMarketType(), actual.getMarketType(), code);
+        assertEquals(expected.getVolume(), actual.getVolume(), code);
+        assertSameDecimal(expected.getCurrentPrice(), actual.getCurrentPrice(), code + " currentPrice");
+        assertSameDecimal(expected.getChangeAmount(), actual.getChangeAmount(), code + " changeAmount");
+        assertSameDecimal(expected.getChangePercent(), actual.getChangePercent(), code + " changePercent");
+        assertSameDecimal(expected.getOpenPrice(), actual.getOpenPrice(), code + " openPrice");
+        assertSameDecimal(expected.getHighPrice(), actual.getHighPrice(), code + " highPrice");
+        assertSameDecimal(expected.getLowPrice(), actual.getLowPrice(), code + " lowPrice");
+        assertSameDecimal(expected.getTurnover(), actual.getTurnover(), code + " turnover");
+        assertNotNull(actual.getTradeTime());
+    }
+
+    private void assertSameDecimal(BigDecimal expected, BigDecimal actual, String message) {
+        if (expected == null || actual == null) {
+            assertEquals(expected, actual, message);
+            return;
+        }
+        // 数值相等即可，scale可能不同（原实现经过double中转）
+        assertEquals(0, expected.compareTo(actual), message + ": expected " + expected + " but was " + actual);
+    }
+
+    private byte[] readResource(String name) throws IOException {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(name)) {
+            assertNotNull(in, name);
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * 原 StockCrawlerService 中的解析逻辑，作为对照实现
+     */
+    private static class LegacyClistParser {
+
+        private static final ObjectMapper objectMapper = new ObjectMapper();
+
+        static int getTotalRecords(String jsonResponse) throws IOException {
+            Matcher matcher = Pattern.compile("\\{\"rc\":.*?\\]\\}\\}").matcher(jsonResponse);
+            if (matcher.find()) {
+                JsonNode dataNode = objectMapper.readTree(matcher.group()).get("data");
+                if (dataNode != null && dataNode.get("total") != null) {
+                    return dataNode.get("total").asInt();
+                }
+            }
+            return 0;
+        }
+
+        static List<StockData> parseStockData(String jsonResponse) throws IOException {
+            List<StockData> stockDataList = new ArrayList<>();
+            Matcher matcher = Pattern.compile("\\{\"rc\":.*?\\]\\}\\}").matcher(jsonResponse);
+            if (matcher.find()) {
+                JsonNode dataNode = objectMapper.readTree(matcher.group()).get("data");
+                if (dataNode != null && dataNode.has("diff")) {
+                    for (JsonNode node : dataNode.get("diff")) {
+                        StockData stockData = new StockData();
+                        stockData.setStockCode(getTextValue(node, "f12"));
+                        stockData.setMarketType(getIntValue(node, "f13"));
+                        stockData.setStockName(getTextValue(node, "f14"));
+                        BigDecimal volumeVal = parseBigDecimalWithUnitConversion(node, "f5");
+                        BigDecimal turnoverVal = parseBigDecimalWithUnitConversion(node, "f6");
+                        stockData.setCurrentPrice(parseBigDecimal(node, "f2"));
+                        stockData.setChangeAmount(parseBigDecimal(node, "f4"));
+                        stockData.setChangePercent(parseChangePercent(node, "f3"));
+                        stockData.setHighPrice(parseBigDecimal(node, "f15"));
+                        stockData.setOpenPrice(parseBigDecimal(node, "f16"));
+                        stockData.setLowPrice(parseBigDecimal(node, "f17"));
+                        stockData.setVolume(volumeVal != null ? volumeVal.longValue() : 0L);
+                        stockData.setTurnover(turnoverVal != null ? turnoverVal : BigDecimal.ZERO);
+                        if (!stockData.getStockCode().isEmpty() && !stockData.getStockName().isEmpty()) {
+                            stockDataList.add(stockData);
+                        }
+                    }
+                }
+            }
+            return stockDataList;
+        }
+
+        private static String getTextValue(JsonNode node, String fieldName) {
+            JsonNode fieldNode = node.get(fieldName);
+            if (fieldNode != null && !fieldNode.isNull()) {
+                String text = fieldNode.asText();
+                return "-".equals(text) ? "" : text;
+            }
+            return "";
+        }
+
+        private static int getIntValue(JsonNode node, String fieldName) {
+            JsonNode fieldNode = node.get(fieldName);
+            if (fieldNode != null && !fieldNode.isNull()) {
+                return "-".equals(fieldNode.asText()) ? 0 : fieldNode.asInt();
+            }
+            return 0;
+        }
+
+        private static BigDecimal parseBigDecimal(JsonNode node, String fieldName) {
+            String textValue = numericText(node, fieldName);
+            return textValue != null ? new BigDecimal(textValue) : null;
+        }
+
+        private static BigDecimal parseChangePercent(JsonNode node, String fieldName) {
+            String textValue = numericText(node, fieldName);
+            if (textValue == null) {
+                return null;
+            }
+            BigDecimal percentValue = new BigDecimal(textValue).divide(new BigDecimal("10000"), 6, RoundingMode.HALF_UP);
+            if (percentValue.compareTo(new BigDecimal("999999.999999")) > 0) {
+                return new BigDecimal("999999.999999");
+            }
+            if (percentValue.compareTo(new BigDecimal("-999999.999999")) < 0) {
+                return new BigDecimal("-999999.999999");
+            }
+            return percentValue;
+        }
+
+        private static BigDecimal parseBigDecimalWithUnitConversion(JsonNode node, String fieldName) {
+            String textValue = numericText(node, fieldName);
+            return textValue != null ? new BigDecimal(textValue).multiply(new BigDecimal("10000")) : null;
+        }
+
+        private static String numericText(JsonNode node, String fieldName) {
+            JsonNode fieldNode = node.get(fieldName);
+            if (fieldNode == null || fieldNode.isNull()) {
+                return null;
+            }
+            String textValue = fieldNode.asText();
+            if (textValue.isEmpty() || "-".equals(textValue)) {
+                return null;
+            }
+            try {
+                new BigDecimal(textValue);
+                return textValue;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
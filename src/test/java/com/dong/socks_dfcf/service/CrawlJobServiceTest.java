@@ -0,0 +1,158 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.model.StockData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 用回放数据离线跑完整的爬取任务：抓取、解析、变化检测、批量写库
+ */
+class CrawlJobServiceTest {
+
+    private final AtomicInteger insertedRows = new AtomicInteger();
+    private Path recordDir;
+
+    @BeforeEach
+    void copyRecording() throws IOException {
+        recordDir = Files.createTempDirectory("crawl-job");
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream("clist/page_hk_fltt2.txt")) {
+            assertNotNull(in);
+            Files.copy(in, recordDir.resolve("page_hk_fltt2.txt"));
+        }
+    }
+
+    @AfterEach
+    void deleteRecording() throws IOException {
+        Files.delete(recordDir.resolve("page_hk_fltt2.txt"));
+        Files.delete(recordDir);
+    }
+
+    @Test
+    void fullCrawlRunsInBackgroundAndRejectsOverlappingJobs() throws Exception {
+        CrawlJobService jobs = newJobService(100);
+
+        CrawlJob job = jobs.submitFullCrawl("manual");
+        CrawlJobConflictException conflict = assertThrows(CrawlJobConflictException.class,
+                () -> jobs.submitPageCrawl(1, "scheduled"));
+        assertEquals(job.getId(), conflict.getRunningJob().getId());
+
+        awaitFinished(job);
+        assertEquals(CrawlJob.Status.SUCCEEDED, job.getStatus());
+        assertEquals(4, job.getStats().getPagesCompleted());
+        assertEquals(20, job.getStats().getRowsPersisted());
+        assertEquals(20, insertedRows.get());
+        assertNull(jobs.getRunningJob());
+        assertEquals(job, jobs.getJob(job.getId()));
+    }
+
+    @Test
+    void cancelStopsRunningJob() throws Exception {
+        CrawlJobService jobs = newJobService(2000);
+
+        CrawlJob job = jobs.submitFullCrawl("manual");
+        Thread.sleep(100);
+        assertTrue(jobs.cancel(job.getId()));
+
+        awaitFinished(job);
+        assertEquals(CrawlJob.Status.CANCELLED, job.getStatus());
+        assertFalse(jobs.cancel(job.getId()));
+        // 取消后可以提交新任务
+        awaitFinished(jobs.submitPageCrawl(1, "manual"));
+    }
+
+    @Test
+    void cancelRightAfterSubmitAlwaysStopsTheJob() throws Exception {
+        // 爬取一直进行到被中断为止，没被中断的任务在 awaitFinished 里超时
+        StockCrawlerService crawler = mock(StockCrawlerService.class);
+        doAnswer(invocation -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            invocation.<CrawlRunStats>getArgument(0).finish();
+            return null;
+        }).when(crawler).crawlAllStockData(any(CrawlRunStats.class));
+        CrawlJobService jobs = new CrawlJobService(crawler, new CrawlerProperties(), event -> { });
+
+        for (int i = 0; i < 20; i++) {
+            CrawlJob job = jobs.submitFullCrawl("manual");
+            assertTrue(jobs.cancel(job.getId()));
+            awaitFinished(job);
+            assertEquals(CrawlJob.Status.CANCELLED, job.getStatus());
+            assertTrue(job.getStats().isFinished());
+        }
+        assertNull(jobs.getRunningJob());
+    }
+
+    private CrawlJobService newJobService(long latencyMillis) throws IOException {
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.setPageSizeProbe(100);
+        properties.setInitialInFlightPages(2);
+        properties.setPersistFlushMillis(50);
+        properties.setBarIntervals(List.of());
+        StockDataMapper mapper = countingMapper();
+        StockDataBatchWriter writer = new StockDataBatchWriter(mapper,
+                new TransactionTemplate(new NoopTransactionManager()), properties, new BarRollupService(mapper, null, properties),
+                new TickStore(properties), new IndicatorEngine(null, properties));
+        ReplayClistPageFetcher fetcher = new ReplayClistPageFetcher(recordDir, 1, 5, latencyMillis, 0, 0.0, 1);
+        StockCrawlerService crawler = new StockCrawlerService(writer, new QuoteChangeDetector(),
+                new AdaptiveConcurrencyLimiter(properties), properties, fetcher);
+        return new CrawlJobService(crawler, properties, event -> { });
+    }
+
+    private void awaitFinished(CrawlJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (job.getStatus() == CrawlJob.Status.RUNNING) {
+            assertTrue(System.currentTimeMillis() < deadline, "job " + job.getId() + " did not finish");
+            Thread.sleep(20);
+        }
+    }
+
+    private StockDataMapper countingMapper() {
+        StockDataMapper mapper = mock(StockDataMapper.class);
+        when(mapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            List<StockData> batch = invocation.getArgument(0);
+            insertedRows.addAndGet(batch.size());
+            return batch.size();
+        });
+        return mapper;
+    }
+
+    private static class NoopTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
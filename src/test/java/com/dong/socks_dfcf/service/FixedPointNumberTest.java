@@ -0,0 +1,93 @@
+package com.dong.socks_dfcf.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对比定点解码与原先 new BigDecimal(asText()) 的换算结果
+ */
+class FixedPointNumberTest {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final BigDecimal TEN_THOUSAND = new BigDecimal("10000");
+    private static final BigDecimal MAX_CHANGE_PERCENT = new BigDecimal("999999.999999");
+
+    @Test
+    void matchesBigDecimalOnEdgeCases() throws IOException {
+        List<String> values = List.of("0", "-0", "1", "-1", "0.5", "-0.5", "12.3456", "-12.3456", "0.00005", "-0.00005",
+                "0.000049", "25", "-25", "7.25", "123456789012345678", "-123456789012345678",
+                "1234567890123456789", "99999999999999999999.5", "1e3", "1.5E-2", "922337203685477.5807");
+        for (String value : values) {
+            assertSameAsBigDecimal(value, "[" + value + "]");
+            assertSameAsBigDecimal(value, "[\"" + value + "\"]");
+        }
+    }
+
+    @Test
+    void matchesBigDecimalOnRandomValues() throws IOException {
+        Random random = new Random(20241018);
+        for (int i = 0; i < 20000; i++) {
+            int integerDigits = 1 + random.nextInt(12);
+            int fractionDigits = random.nextInt(7);
+            StringBuilder value = new StringBuilder(random.nextBoolean() ? "-" : "");
+            value.append(1 + random.nextInt(9));
+            for (int d = 1; d < integerDigits; d++) {
+                value.append(random.nextInt(10));
+            }
+            if (fractionDigits > 0) {
+                value.append('.');
+                for (int d = 0; d < fractionDigits; d++) {
+                    value.append(random.nextInt(10));
+                }
+            }
+            assertSameAsBigDecimal(value.toString(), "[" + value + "]");
+        }
+    }
+
+    @Test
+    void treatsPlaceholdersAsMissing() throws IOException {
+        for (String json : List.of("[\"-\"]", "[\"\"]", "[\"abc\"]", "[\".\"]", "[null]", "[true]", "[{\"a\":1}]", "[[1]]")) {
+            assertFalse(read(json, new FixedPointNumber()), json);
+        }
+    }
+
+    private void assertSameAsBigDecimal(String text, String json) throws IOException {
+        FixedPointNumber number = new FixedPointNumber();
+        assertTrue(read(json, number), json);
+        BigDecimal expected = new BigDecimal(text);
+
+        assertEquals(0, expected.compareTo(number.toDecimal()), json);
+        assertEquals(expectedChangePercent(expected), number.toChangePercent(), json + " changePercent");
+        assertEquals(0, expected.multiply(TEN_THOUSAND).compareTo(number.toTenThousandDecimal()), json + " x10000");
+        assertEquals(expected.multiply(TEN_THOUSAND).longValue(), number.toTenThousandLong(), json + " x10000 long");
+    }
+
+    private BigDecimal expectedChangePercent(BigDecimal value) {
+        BigDecimal percentValue = value.divide(TEN_THOUSAND, 6, RoundingMode.HALF_UP);
+        if (percentValue.compareTo(MAX_CHANGE_PERCENT) > 0) {
+            return MAX_CHANGE_PERCENT;
+        }
+        if (percentValue.compareTo(MAX_CHANGE_PERCENT.negate()) < 0) {
+            return MAX_CHANGE_PERCENT.negate();
+        }
+        return percentValue;
+    }
+
+    private boolean read(String json, FixedPointNumber number) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            assertEquals(JsonToken.START_ARRAY, parser.nextToken());
+            return number.read(parser, parser.nextToken());
+        }
+    }
+}
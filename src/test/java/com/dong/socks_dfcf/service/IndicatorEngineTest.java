@@ -0,0 +1,217 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.mapper.StockBarMapper;
+import com.dong.socks_dfcf.mapper.StreamedRows;
+import com.dong.socks_dfcf.model.StockBar;
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class IndicatorEngineTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2026, 1, 5);
+    private static final int DAYS = 60;
+
+    private final CrawlerProperties properties = new CrawlerProperties();
+
+    @Test
+    void incrementalValuesMatchFullRecomputation() {
+        properties.setBarIntervals(List.of());
+        IndicatorEngine engine = new IndicatorEngine(null, properties);
+        double[][] days = days();
+        for (int d = 0; d < DAYS; d++) {
+            engine.update(samples("600519", d, days[d]));
+        }
+
+        Indicators indicators = engine.get("600519");
+        assertEquals(DAYS, indicators.bars());
+        assertEquals(FIRST_DAY.plusDays(DAYS - 1), indicators.barDate());
+        assertReference(days, indicators);
+        // 当天 VWAP：成交额 / (成交量 * 100)
+        assertEquals(days[DAYS - 1][3] * 1.01, indicators.vwap(), 1e-4);
+        // 每天收盘时累计成交量相同，量比为1
+        assertEquals(1.0, indicators.volumeRatio5(), 1e-9);
+
+        // 只有几天数据时长周期指标为空
+        engine.update(samples("000001", 0, days[0]));
+        Indicators young = engine.get("000001");
+        assertEquals(1, young.bars());
+        assertNull(young.ma5());
+        assertNull(young.rsi14());
+        assertNull(young.dea());
+        assertNull(young.volumeRatio5());
+        assertNotNull(young.close());
+    }
+
+    @Test
+    void seedsFromDailyBarsAndContinuesWithSamples() {
+        double[][] days = days();
+        List<StockBar> bars = new ArrayList<>();
+        for (int d = 0; d < DAYS - 1; d++) {
+            bars.add(bar("600519", d, days[d]));
+        }
+        properties.setBarIntervals(List.of("1d"));
+        IndicatorEngine engine = new IndicatorEngine(barMapper(bars), properties);
+        // 已经在日线里的采样不会重复计入
+        engine.update(samples("600519", DAYS - 2, days[DAYS - 2]));
+        engine.update(samples("600519", DAYS - 1, days[DAYS - 1]));
+
+        Indicators indicators = engine.get("600519");
+        assertEquals(DAYS, indicators.bars());
+        assertReference(days, indicators);
+        assertEquals(Map.of(), engine.get(List.of("999999")));
+        assertEquals(1, engine.get(List.of("600519", "999999")).size());
+    }
+
+    @Test
+    void ignoresStaleQuotesOnNonTradingDays() {
+        properties.setBarIntervals(List.of());
+        IndicatorEngine engine = new IndicatorEngine(null, properties);
+        double[][] days = days();
+        engine.update(samples("600519", 0, days[0]));
+        engine.update(samples("600519", 1, days[1]));
+        // 周末采到的仍是最后一个交易日的行情
+        List<StockData> weekend = samples("600519", 1, days[1]);
+        StockData last = weekend.get(weekend.size() - 1);
+        last.setTradeTime(last.getTradeTime().plusDays(2));
+        engine.update(List.of(last));
+
+        assertEquals(2, engine.get("600519").bars());
+        assertEquals(FIRST_DAY.plusDays(1), engine.get("600519").barDate());
+    }
+
+    /**
+     * 每天的开、高、低、收，收盘价为带趋势和波动的确定性序列
+     */
+    private double[][] days() {
+        double[][] days = new double[DAYS][];
+        double previous = 20;
+        for (int d = 0; d < DAYS; d++) {
+            double close = 20 + d * 0.1 + 3 * Math.sin(d * 0.7);
+            double high = Math.max(previous, close) + 0.5 + (d % 3) * 0.1;
+            double low = Math.min(previous, close) - 0.4 - (d % 2) * 0.2;
+            days[d] = new double[]{previous, high, low, close};
+            previous = close;
+        }
+        return days;
+    }
+
+    /**
+     * 一天内的三次采样，最后一次的最新价为收盘价，高低价在第二次采样时达到
+     */
+    private List<StockData> samples(String code, int d, double[] day) {
+        LocalDateTime open = FIRST_DAY.plusDays(d).atTime(9, 30);
+        double mid = (day[0] + day[3]) / 2;
+        List<StockData> rows = new ArrayList<>();
+        rows.add(sample(code, open, day[0], day[0], day[0], mid, 1000));
+        rows.add(sample(code, open.plusHours(2), day[0], day[1], day[2], mid, 5000));
+        rows.add(sample(code, open.plusHours(5), day[0], day[1], day[2], day[3], 10000));
+        return rows;
+    }
+
+    private StockData sample(String code, LocalDateTime time, double open, double high, double low, double price, long volume) {
+        return StockDataFixture.quote(code).at(time).range(open, high, low).price(price).volume(volume)
+                .turnover(price * 1.01 * volume * 100).build();
+    }
+
+    private StockBar bar(String code, int d, double[] day) {
+        StockBar bar = new StockBar();
+        bar.setStockCode(code);
+        bar.setBarInterval("1d");
+        bar.setBarStart(FIRST_DAY.plusDays(d).atStartOfDay());
+        bar.setOpenPrice(BigDecimal.valueOf(day[0]));
+        bar.setHighPrice(BigDecimal.valueOf(day[1]));
+        bar.setLowPrice(BigDecimal.valueOf(day[2]));
+        bar.setClosePrice(BigDecimal.valueOf(day[3]));
+        bar.setVolume(10000L);
+        bar.setTurnover(BigDecimal.valueOf(day[3] * 1.01 * 10000 * 100));
+        bar.setLastTradeTime(FIRST_DAY.plusDays(d).atTime(14, 30));
+        return bar;
+    }
+
+    private StockBarMapper barMapper(List<StockBar> bars) {
+        StockBarMapper mapper = mock(StockBarMapper.class);
+        doAnswer(StreamedRows.of(bars)).when(mapper).scanBarsSince(eq("1d"), any(), any());
+        return mapper;
+    }
+
+    /**
+     * 用全部日线从头计算一遍，与增量结果比较
+     */
+    private void assertReference(double[][] days, Indicators indicators) {
+        int n = days.length;
+        double[] closes = new double[n];
+        for (int i = 0; i < n; i++) {
+            closes[i] = days[i][3];
+        }
+        assertEquals(mean(closes, n - 5, n), indicators.ma5(), 1e-4);
+        assertEquals(mean(closes, n - 10, n), indicators.ma10(), 1e-4);
+        double ma20 = mean(closes, n - 20, n);
+        assertEquals(ma20, indicators.ma20(), 1e-4);
+        double variance = 0;
+        for (int i = n - 20; i < n; i++) {
+            variance += (closes[i] - ma20) * (closes[i] - ma20);
+        }
+        double width = 2 * Math.sqrt(variance / 20);
+        assertEquals(ma20 + width, indicators.bollUpper(), 1e-4);
+        assertEquals(ma20 - width, indicators.bollLower(), 1e-4);
+
+        double ema12 = closes[0];
+        double ema26 = closes[0];
+        double dea = 0;
+        for (int i = 0; i < n; i++) {
+            ema12 = i == 0 ? closes[0] : ema12 + (closes[i] - ema12) * 2 / 13;
+            ema26 = i == 0 ? closes[0] : ema26 + (closes[i] - ema26) * 2 / 27;
+            dea = i == 0 ? ema12 - ema26 : dea + (ema12 - ema26 - dea) * 2 / 10;
+        }
+        assertEquals(ema12, indicators.ema12(), 1e-4);
+        assertEquals(ema26, indicators.ema26(), 1e-4);
+        assertEquals(ema12 - ema26, indicators.dif(), 1e-4);
+        assertEquals(dea, indicators.dea(), 1e-4);
+        assertEquals(2 * (ema12 - ema26 - dea), indicators.macd(), 2e-4);
+
+        double gain = 0;
+        double loss = 0;
+        for (int i = 1; i <= 14; i++) {
+            gain += Math.max(closes[i] - closes[i - 1], 0) / 14;
+            loss += Math.max(closes[i - 1] - closes[i], 0) / 14;
+        }
+        for (int i = 15; i < n; i++) {
+            gain = (gain * 13 + Math.max(closes[i] - closes[i - 1], 0)) / 14;
+            loss = (loss * 13 + Math.max(closes[i - 1] - closes[i], 0)) / 14;
+        }
+        assertEquals(100 - 100 / (1 + gain / loss), indicators.rsi14(), 1e-4);
+
+        double atr = 0;
+        for (int i = 0; i < n; i++) {
+            double tr = days[i][1] - days[i][2];
+            if (i > 0) {
+                tr = Math.max(tr, Math.max(Math.abs(days[i][1] - closes[i - 1]), Math.abs(days[i][2] - closes[i - 1])));
+            }
+            atr = i < 14 ? atr + tr / 14 : (atr * 13 + tr) / 14;
+        }
+        assertEquals(atr, indicators.atr14(), 1e-4);
+    }
+
+    private double mean(double[] values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum / (to - from);
+    }
+}
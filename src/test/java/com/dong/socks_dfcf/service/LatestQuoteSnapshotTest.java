@@ -0,0 +1,127 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LatestQuoteSnapshotTest {
+
+    private final LatestQuoteSnapshot snapshot = LatestQuoteSnapshot.build(List.of(
+            quote("00005", "1.5", "300", 10L),
+            quote("00001", "-2.0", "900", 30L),
+            quote("00003", null, "100", null),
+            quote("00002", "1.5", null, 20L),
+            quote("00004", "7.25", "500", 5L)), 1);
+
+    @Test
+    void pagesEachOrderDescendingWithNullsLast() {
+        assertEquals(List.of("00004", "00002", "00005", "00001", "00003"),
+                codes(snapshot.page(LatestQuoteSnapshot.SortKey.CHANGE_PERCENT, 0, 10)));
+        assertEquals(List.of("00001", "00004", "00005", "00003", "00002"),
+                codes(snapshot.page(LatestQuoteSnapshot.SortKey.TURNOVER, 0, 10)));
+        assertEquals(List.of("00001", "00002", "00005", "00004", "00003"),
+                codes(snapshot.page(LatestQuoteSnapshot.SortKey.VOLUME, 0, 10)));
+    }
+
+    @Test
+    void slicesPagesAndReportsTotal() {
+        assertEquals(5, snapshot.getTotal());
+        assertEquals(List.of("00005", "00001"), codes(snapshot.page(LatestQuoteSnapshot.SortKey.CHANGE_PERCENT, 2, 2)));
+        assertTrue(snapshot.page(LatestQuoteSnapshot.SortKey.CHANGE_PERCENT, 5, 2).isEmpty());
+        assertEquals(List.of("00001", "00002", "00003", "00004", "00005"), codes(snapshot.getCodes()));
+        assertNull(snapshot.getCodes().get(0).getCurrentPrice());
+    }
+
+    @Test
+    void pagesAfterCursorWithoutGapsOrDuplicates() {
+        for (LatestQuoteSnapshot.SortKey key : LatestQuoteSnapshot.SortKey.values()) {
+            List<String> walked = new ArrayList<>();
+            List<StockData> page = snapshot.page(key, 0, 2);
+            while (!page.isEmpty()) {
+                walked.addAll(codes(page));
+                StockData last = page.get(page.size() - 1);
+                PageCursor cursor = PageCursor.decode(PageCursor.after(key, snapshot.getEpoch(), last).encode());
+                page = snapshot.pageAfter(cursor.sortKey(), cursor.value(), cursor.stockCode(), 2);
+            }
+            assertEquals(codes(snapshot.page(key, 0, 10)), walked, key.name());
+        }
+    }
+
+    @Test
+    void resumesAfterCursorRowThatIsNoLongerPresent() {
+        // 00006 不在快照中，涨跌幅 1.5 且代码更大，应排在 00005 之后
+        assertEquals(List.of("00001", "00003"),
+                codes(snapshot.pageAfter(LatestQuoteSnapshot.SortKey.CHANGE_PERCENT, new BigDecimal("1.50"), "00006", 10)));
+        // 空排序值的游标排在所有非空值之后
+        assertTrue(snapshot.pageAfter(LatestQuoteSnapshot.SortKey.CHANGE_PERCENT, null, "00003", 10).isEmpty());
+    }
+
+    @Test
+    void roundTripsCursorAndRejectsGarbage() {
+        PageCursor cursor = new PageCursor(LatestQuoteSnapshot.SortKey.TURNOVER, 7, null, "00003");
+        assertEquals(cursor, PageCursor.decode(cursor.encode()));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(""));
+    }
+
+    @Test
+    void searchAndLatestCursorsRejectEachOther() {
+        SearchCursor onSnapshot = SearchCursor.onSnapshot(1_700_000_000_001L, 3, "00003");
+        SearchCursor onDatabase = SearchCursor.onDatabase(new BigDecimal("-1.25"), "00002");
+        assertEquals(onSnapshot, SearchCursor.decode(onSnapshot.encode()));
+        assertEquals(onDatabase, SearchCursor.decode(onDatabase.encode()));
+        assertFalse(onDatabase.isOnSnapshot());
+
+        String latest = new PageCursor(LatestQuoteSnapshot.SortKey.CHANGE_PERCENT, 7, new BigDecimal("3"), "00003").encode();
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(latest));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(onSnapshot.encode()));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("not a cursor"));
+    }
+
+    @Test
+    void evictedOrPreviousBootEpochsAreNotFound() {
+        StockDataMapper mapper = mock(StockDataMapper.class);
+        when(mapper.findAllLatest()).thenReturn(List.of(quote("00001", "1", "1", 1L)));
+        long bootedAt = System.currentTimeMillis();
+        LatestQuoteCache cache = new LatestQuoteCache(mapper);
+
+        long first = cache.refresh().getEpoch();
+        // 版本号从启动时间起算，重启前的游标（小版本号）找不到快照
+        assertTrue(first > bootedAt);
+        assertNull(cache.getSnapshot(1));
+        assertSame(cache.getSnapshot(), cache.getSnapshot(first));
+
+        for (int i = 0; i < 3; i++) {
+            cache.refresh();
+        }
+        // 只保留最近3个快照，被淘汰的版本返回null而不是当前快照
+        assertNull(cache.getSnapshot(first));
+        assertNotNull(cache.getSnapshot(first + 1));
+    }
+
+    @Test
+    void parsesSortParameter() {
+        assertEquals(LatestQuoteSnapshot.SortKey.TURNOVER, LatestQuoteSnapshot.SortKey.parse("turnover"));
+        assertEquals(LatestQuoteSnapshot.SortKey.VOLUME, LatestQuoteSnapshot.SortKey.parse("Volume"));
+        assertEquals(LatestQuoteSnapshot.SortKey.CHANGE_PERCENT, LatestQuoteSnapshot.SortKey.parse("price; DROP TABLE"));
+        assertEquals(LatestQuoteSnapshot.SortKey.CHANGE_PERCENT, LatestQuoteSnapshot.SortKey.parse(null));
+    }
+
+    private StockData quote(String code, String changePercent, String turnover, Long volume) {
+        return StockDataFixture.quote(code).name("N" + code).price(BigDecimal.ONE)
+                .changePercent(changePercent).turnover(turnover).volume(volume).build();
+    }
+
+    private List<String> codes(List<StockData> rows) {
+        return rows.stream().map(StockData::getStockCode).toList();
+    }
+}
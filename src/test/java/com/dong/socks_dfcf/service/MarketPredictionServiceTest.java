@@ -0,0 +1,130 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.event.CrawlCompletedEvent;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MarketPredictionServiceTest {
+
+    private static final int SYMBOLS = 450;
+
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+    // 不为空时历史查询要等它放行
+    private volatile CountDownLatch queryGate;
+    private final CountDownLatch queryStarted = new CountDownLatch(1);
+
+    @Test
+    void predictsWholeMarketInBatchesAndPagesBySort() throws InterruptedException {
+        LatestQuoteCache cache = new LatestQuoteCache(mapper());
+        cache.refresh();
+        MarketPredictionService service = new MarketPredictionService(cache, mapper(), null,
+                new TrendModelService(null, null, null, null));
+
+        MarketPrediction prediction = service.getPrediction();
+
+        // 3批，每批一次历史查询；每7只中有1只历史不足，不返回
+        assertEquals(3, batches.size());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= MarketPredictionService.BATCH_SIZE));
+        assertEquals(SYMBOLS - (SYMBOLS + 6) / 7, prediction.getTotal());
+        assertNull(prediction.getModelVersion());
+        assertEquals(cache.getSnapshot().getEpoch(), prediction.getEpoch());
+
+        List<MarketPrediction.Item> top = prediction.page(MarketPrediction.SortKey.AVG_CHANGE, 0, 3);
+        assertEquals("000449", top.get(0).stockCode());
+        assertEquals("up", top.get(0).trend());
+        assertNull(top.get(0).upProbability());
+        assertTrue(top.get(0).avgChangePercent().compareTo(top.get(1).avgChangePercent()) >= 0);
+        MarketPrediction.Item last = prediction.page(MarketPrediction.SortKey.AVG_CHANGE, prediction.getTotal() - 1, 10).get(0);
+        assertEquals("down", last.trend());
+        assertEquals(List.of(), prediction.page(MarketPrediction.SortKey.AVG_CHANGE, prediction.getTotal(), 10));
+
+        // 已有结果时直接返回，不重复计算
+        assertSame(prediction, service.getPrediction());
+        assertEquals(3, batches.size());
+    }
+
+    @Test
+    void predictsAgainWhenCrawlCompletesDuringPrediction() throws InterruptedException {
+        LatestQuoteCache cache = new LatestQuoteCache(mapper());
+        cache.refresh();
+        MarketPredictionService service = new MarketPredictionService(cache, mapper(), null,
+                new TrendModelService(null, null, null, null));
+        queryGate = new CountDownLatch(1);
+
+        assertTrue(service.submit());
+        assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+        // 预测运行期间的两次爬取完成只记下一次重跑，不另起线程
+        service.onCrawlCompleted(new CrawlCompletedEvent(1, "SUCCEEDED", 10));
+        service.onCrawlCompleted(new CrawlCompletedEvent(2, "SUCCEEDED", 10));
+        assertFalse(service.submit());
+
+        queryGate.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (batches.size() < 6) {
+            assertTrue(System.nanoTime() < deadline, "batches " + batches.size());
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+        assertEquals(6, batches.size());
+        assertNotNull(service.getPrediction());
+    }
+
+    @Test
+    void parsesSortParameter() {
+        assertEquals(MarketPrediction.SortKey.AVG_CHANGE, MarketPrediction.SortKey.parse("avgChange"));
+        assertEquals(MarketPrediction.SortKey.UP_PROBABILITY, MarketPrediction.SortKey.parse("upProbability"));
+        assertEquals(MarketPrediction.SortKey.UP_PROBABILITY, MarketPrediction.SortKey.parse("unknown"));
+        assertEquals(MarketPrediction.SortKey.UP_PROBABILITY, MarketPrediction.SortKey.parse(null));
+    }
+
+    /**
+     * 第 i 只股票的涨幅固定为 (i - 200) / 100，代码能被7整除的只有一条历史
+     */
+    private StockDataMapper mapper() throws InterruptedException {
+        StockDataMapper mapper = mock(StockDataMapper.class);
+        List<StockData> latest = new ArrayList<>();
+        for (int i = 0; i < SYMBOLS; i++) {
+            latest.add(stock(String.format("%06d", i), BigDecimal.ZERO, LocalDateTime.of(2026, 1, 5, 15, 0)));
+        }
+        when(mapper.findAllLatest()).thenReturn(latest);
+        when(mapper.findRecentByStockCodes(anyList(), eq(StockPredictService.RULE_HISTORY_ROWS))).thenAnswer(invocation -> {
+            List<String> batch = invocation.getArgument(0);
+            CountDownLatch gate = queryGate;
+            if (gate != null) {
+                queryStarted.countDown();
+                gate.await();
+            }
+            batches.add(batch);
+            List<StockData> rows = new ArrayList<>();
+            for (String code : batch) {
+                int n = Integer.parseInt(code);
+                int count = n % 7 == 0 ? 1 : StockPredictService.RULE_HISTORY_ROWS;
+                for (int d = 0; d < count; d++) {
+                    rows.add(stock(code, BigDecimal.valueOf(n - 200, 2), LocalDateTime.of(2026, 1, 5, 15, 0).minusDays(d)));
+                }
+            }
+            return rows;
+        });
+        return mapper;
+    }
+
+    private StockData stock(String code, BigDecimal changePercent, LocalDateTime time) {
+        return StockDataFixture.quote(code).name("股票" + code).changePercent(changePercent).at(time).build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuoteChangeDetectorTest {
+
+    private final QuoteChangeDetector detector = new QuoteChangeDetector();
+
+    @Test
+    void skipsRowsWhoseNumbersDidNotMove() {
+        assertEquals(2, detector.filterChanged(List.of(quote("00700", "320.5", 1000), quote("00005", "60.1", 500))).size());
+
+        // 只有交易时间不同
+        List<StockData> changed = detector.filterChanged(List.of(quote("00700", "320.5", 1000), quote("00005", "60.1", 600)));
+
+        assertEquals(1, changed.size());
+        assertEquals("00005", changed.get(0).getStockCode());
+        assertEquals(4L, detector.getStats().get("rowsChecked"));
+        assertEquals(1L, detector.getStats().get("rowsSkipped"));
+    }
+
+    @Test
+    void forgottenSymbolIsWrittenAgain() {
+        detector.filterChanged(List.of(quote("00700", "320.5", 1000)));
+        detector.forget("00700");
+
+        assertEquals(1, detector.filterChanged(List.of(quote("00700", "320.5", 1000))).size());
+    }
+
+    private StockData quote(String code, String price, long volume) {
+        return StockDataFixture.quote(code).name("name" + code).price(price).volume(volume)
+                .turnover(BigDecimal.valueOf(volume * 10))
+                .at(LocalDateTime.now().plusNanos(System.nanoTime() % 1000)).build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuoteColumnsTest {
+
+    // 不是64的整数倍，最后一个字只用到一部分
+    private static final int SIZE = 1000;
+
+    private final List<StockData> quotes = quotes();
+    private final QuoteColumns columns = QuoteColumns.build(quotes);
+
+    @Test
+    void matchesRowByRowEvaluation() {
+        assertScreen("change_percent > 5 AND turnover > 1e8 AND market_type = 1",
+                q -> gt(q.getChangePercent(), 5) && gt(q.getTurnover(), 1e8) && q.getMarketType() == 1);
+        assertScreen("change_percent <= -3 OR volume >= 900000",
+                q -> le(q.getChangePercent(), -3) || q.getVolume() >= 900000);
+        // 空值不满足任何比较（包括 !=），取反后同样不满足
+        assertScreen("change_percent != 0", q -> q.getChangePercent() != null && q.getChangePercent().signum() != 0);
+        assertScreen("NOT (change_percent > 0)", q -> le(q.getChangePercent(), 0));
+        assertScreen("NOT (change_percent > 0 AND market_type = 1)", q -> le(q.getChangePercent(), 0) || q.getMarketType() != 1);
+        assertScreen("NOT (change_percent > 0 OR market_type = 1)", q -> le(q.getChangePercent(), 0) && q.getMarketType() != 1);
+        assertScreen("NOT NOT change_percent > 0", q -> gt(q.getChangePercent(), 0));
+        assertScreen("stock_name = '股票000007' OR stock_code = '000999'",
+                q -> q.getStockCode().equals("000007") || q.getStockCode().equals("000999"));
+        assertScreen("", q -> true);
+    }
+
+    @Test
+    void negationNeverMatchesNullValues() {
+        QuoteColumns withNulls = QuoteColumns.build(List.of(
+                StockDataFixture.quote("000001").name("有涨幅").changePercent("6").build(),
+                StockDataFixture.quote("000002").name("没有涨幅").build(),
+                StockDataFixture.quote("000003").name("小涨幅").changePercent("1").build()));
+
+        assertEquals(List.of("000003"), codes(withNulls, "NOT change_percent > 5"));
+        assertEquals(List.of("000003"), codes(withNulls, "NOT (change_percent > 5 OR stock_name = '没有涨幅')"));
+        assertEquals(List.of("000002", "000003"), codes(withNulls, "NOT (change_percent > 5 AND stock_name = '有涨幅')"));
+        assertEquals(List.of("000001", "000003"), codes(withNulls, "NOT NOT change_percent >= 0"));
+        assertEquals(List.of(), codes(withNulls, "NOT (change_percent > 5 OR change_percent <= 5)"));
+    }
+
+    @Test
+    void sortsWithNullsLastAndPagesConsistently() {
+        ScreenerQuery query = ScreenerQuery.parse("market_type = 0", "change_percent desc, volume");
+        List<StockData> expected = quotes.stream()
+                .filter(q -> q.getMarketType() == 0)
+                .sorted(Comparator.comparing(StockData::getChangePercent, Comparator.nullsLast(Comparator.<BigDecimal>reverseOrder()))
+                        .thenComparing(StockData::getVolume)
+                        .thenComparing(StockData::getStockCode))
+                .toList();
+
+        QuoteColumns.Result first = columns.screen(query, 0, 10);
+        assertEquals(expected.size(), first.total());
+        assertEquals(expected.subList(0, 10), first.data());
+        // 深翻页走整体排序，结果与堆选出的前几页衔接
+        List<StockData> all = new ArrayList<>();
+        for (int offset = 0; offset < first.total(); offset += 150) {
+            all.addAll(columns.screen(query, offset, 150).data());
+        }
+        assertEquals(expected, all);
+        assertNull(all.get(all.size() - 1).getChangePercent());
+        assertEquals(List.of(), columns.screen(query, first.total(), 10).data());
+    }
+
+    private void assertScreen(String filter, Predicate<StockData> expected) {
+        List<StockData> matching = quotes.stream().filter(expected).toList();
+        QuoteColumns.Result result = columns.screen(ScreenerQuery.parse(filter, null), 0, SIZE);
+        assertEquals(matching.size(), result.total(), filter);
+        assertEquals(matching, result.data(), filter);
+    }
+
+    private static List<String> codes(QuoteColumns columns, String filter) {
+        return columns.screen(ScreenerQuery.parse(filter, null), 0, columns.size()).data().stream()
+                .map(StockData::getStockCode).toList();
+    }
+
+    private static boolean gt(BigDecimal value, double x) {
+        return value != null && value.doubleValue() > x;
+    }
+
+    private static boolean le(BigDecimal value, double x) {
+        return value != null && value.doubleValue() <= x;
+    }
+
+    /**
+     * 按代码升序的随机行情，约十分之一的涨跌幅为空
+     */
+    private static List<StockData> quotes() {
+        Random random = new Random(3);
+        List<StockData> quotes = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            String code = String.format("%06d", i);
+            quotes.add(StockDataFixture.quote(code).name("股票" + code)
+                    .changePercent(random.nextInt(10) == 0 ? null : BigDecimal.valueOf(random.nextInt(2001) - 1000, 2))
+                    .volume((long) random.nextInt(1_000_000))
+                    .turnover(random.nextDouble() * 5e8)
+                    .marketType(random.nextInt(2))
+                    .build());
+        }
+        return quotes;
+    }
+}
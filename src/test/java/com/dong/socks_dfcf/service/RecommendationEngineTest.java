@@ -0,0 +1,111 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.config.RecommendProperties;
+import com.dong.socks_dfcf.event.CrawlCompletedEvent;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecommendationEngineTest {
+
+    private final CrawlerProperties crawlerProperties = new CrawlerProperties();
+    private final RecommendProperties recommendProperties = new RecommendProperties();
+    private final List<StockData> latest = new ArrayList<>();
+
+    @Test
+    void heapSelectionMatchesFullSort() {
+        crawlerProperties.getIndicators().setEnabled(false);
+        Random random = new Random(11);
+        for (int i = 0; i < 3000; i++) {
+            // 涨跌幅只有几十种取值，评分相同的股票很多，按代码升序决出先后
+            latest.add(quote(String.format("%06d", i), BigDecimal.valueOf(random.nextInt(41) - 20, 1),
+                    BigDecimal.valueOf(random.nextInt(4) == 0 ? 5_000_000 : 100_000_000)));
+        }
+        RecommendationEngine engine = engine();
+
+        List<String> recommendations = engine.getRecommendations();
+
+        List<String> expected = latest.stream()
+                .filter(quote -> quote.getTurnover().doubleValue() >= recommendProperties.getMinTurnover())
+                .sorted(Comparator.comparing((StockData quote) -> engine.score(quote, null)).reversed()
+                        .thenComparing(StockData::getStockCode))
+                .limit(recommendProperties.getTopK())
+                .map(StockData::getStockCode)
+                .toList();
+        assertEquals(expected, recommendations.stream().map(line -> line.substring(0, 6)).toList());
+        assertTrue(recommendations.get(0).endsWith("(涨幅: 2.0%, 推荐理由: 稳步上涨中)"));
+    }
+
+    @Test
+    void volumeSurgeLiftsStockAndIsRecomputedAfterCrawl() {
+        crawlerProperties.setBarIntervals(List.of());
+        IndicatorEngine indicatorEngine = new IndicatorEngine(null, crawlerProperties);
+        recommendProperties.setTopK(2);
+        latest.add(quote("000001", new BigDecimal("1.50"), new BigDecimal("200000000")));
+        latest.add(quote("000002", new BigDecimal("2.00"), new BigDecimal("200000000")));
+        latest.add(quote("000003", new BigDecimal("9.00"), new BigDecimal("1000")));
+        latest.add(quote("000004", new BigDecimal("-1.00"), new BigDecimal("2000000000")));
+        // 000001 前5天每天成交1000手，当天成交3000手，量比3
+        for (int d = 0; d < 6; d++) {
+            StockData sample = quote("000001", new BigDecimal("1.50"), new BigDecimal("200000000"));
+            sample.setTradeTime(LocalDateTime.of(2026, 1, 5, 15, 0).plusDays(d));
+            sample.setCurrentPrice(BigDecimal.valueOf(1000 + d, 2));
+            sample.setVolume(d < 5 ? 1000L : 3000L);
+            indicatorEngine.update(List.of(sample));
+        }
+        LatestQuoteCache cache = new LatestQuoteCache(mapper());
+        cache.refresh();
+        RecommendationEngine engine = new RecommendationEngine(cache, indicatorEngine, recommendProperties);
+
+        List<String> recommendations = engine.getRecommendations();
+
+        // 成交额不足的 000003 不参与；000004 成交额高但下跌
+        assertEquals(List.of("000001 股票000001 (涨幅: 1.50%, 推荐理由: 稳步上涨中，量比3.0放量)",
+                "000002 股票000002 (涨幅: 2.00%, 推荐理由: 稳步上涨中)"), recommendations);
+        assertSame(recommendations, engine.getRecommendations());
+
+        latest.set(3, quote("000004", new BigDecimal("6.00"), new BigDecimal("2000000000")));
+        cache.refresh();
+        engine.onCrawlCompleted(new CrawlCompletedEvent(1, "COMPLETED", 4));
+        assertEquals("000004 股票000004 (涨幅: 6.00%, 推荐理由: 近期强势上涨，成交活跃)", engine.getRecommendations().get(0));
+    }
+
+    @Test
+    void emptyWithoutSnapshot() {
+        crawlerProperties.getIndicators().setEnabled(false);
+        RecommendationEngine engine = engine();
+
+        assertEquals(List.of(), engine.getRecommendations());
+    }
+
+    private RecommendationEngine engine() {
+        LatestQuoteCache cache = new LatestQuoteCache(mapper());
+        if (!latest.isEmpty()) {
+            cache.refresh();
+        }
+        return new RecommendationEngine(cache, new IndicatorEngine(null, crawlerProperties), recommendProperties);
+    }
+
+    private StockDataMapper mapper() {
+        StockDataMapper mapper = mock(StockDataMapper.class);
+        when(mapper.findAllLatest()).thenAnswer(invocation -> new ArrayList<>(latest));
+        return mapper;
+    }
+
+    private StockData quote(String code, BigDecimal changePercent, BigDecimal turnover) {
+        return StockDataFixture.quote(code).name("股票" + code).changePercent(changePercent).turnover(turnover).build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayClistPageFetcherTest {
+
+    private Path recordDir;
+
+    @BeforeEach
+    void copyRecordings() throws IOException {
+        recordDir = Files.createTempDirectory("clist-replay");
+        for (String name : List.of("page_hk_fltt2.txt", "page_empty.txt")) {
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream("clist/" + name)) {
+                assertNotNull(in, name);
+                Files.copy(in, recordDir.resolve(name));
+            }
+        }
+    }
+
+    @AfterEach
+    void deleteRecordings() throws IOException {
+        try (Stream<Path> files = Files.list(recordDir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(recordDir);
+    }
+
+    @Test
+    void servesScaledMarketCappedToMaxPageSize() throws IOException {
+        ReplayClistPageFetcher fetcher = new ReplayClistPageFetcher(recordDir, 3, 7, 0, 0, 0.0, 1);
+
+        ClistResponseParser.ClistPage first = fetcher.fetch(1, 5000);
+        assertEquals(60, first.total());
+        assertEquals(7, first.diffSize());
+
+        Set<String> codes = new HashSet<>();
+        for (int page = 1; page <= 9; page++) {
+            for (StockData row : fetcher.fetch(page, 7).rows()) {
+                assertTrue(codes.add(row.getStockCode()), row.getStockCode());
+            }
+        }
+        assertEquals(60, codes.size());
+        assertTrue(codes.contains("08103.2"));
+        // 超出范围的页与线上接口一样返回 data:null
+        assertEquals(0, fetcher.fetch(10, 7).total());
+    }
+
+    @Test
+    void sameSeedInjectsSameFailures() throws IOException {
+        assertEquals(failurePattern(7), failurePattern(7));
+        assertNotEquals(failurePattern(7), failurePattern(8));
+    }
+
+    private List<String> failurePattern(long seed) throws IOException {
+        ReplayClistPageFetcher fetcher = new ReplayClistPageFetcher(recordDir, 1, 5, 0, 0, 0.5, seed);
+        List<String> pattern = new ArrayList<>();
+        for (int page = 1; page <= 4; page++) {
+            for (int attempt = 0; attempt < 4; attempt++) {
+                try {
+                    fetcher.fetch(page, 5);
+                    pattern.add("ok");
+                } catch (CrawlHttpStatusException e) {
+                    pattern.add(String.valueOf(e.getStatusCode()));
+                } catch (IOException e) {
+                    pattern.add("timeout");
+                }
+            }
+        }
+        return pattern;
+    }
+}
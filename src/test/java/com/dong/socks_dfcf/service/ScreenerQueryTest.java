@@ -0,0 +1,56 @@
+package com.dong.socks_dfcf.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScreenerQueryTest {
+
+    @Test
+    void parsesPrecedenceAndLiterals() {
+        ScreenerQuery query = ScreenerQuery.parse(
+                "changePercent>5 and turnover >= 1e8 or NOT (market_type = 1) AND stock_name != '平安银行'", "");
+
+        // AND 优先于 OR，NOT 只作用于紧随的括号
+        ScreenerQuery.Predicate expected = new ScreenerQuery.Or(
+                new ScreenerQuery.And(
+                        new ScreenerQuery.Compare(QuoteColumns.Column.CHANGE_PERCENT, ScreenerQuery.Operator.GT, 5, null),
+                        new ScreenerQuery.Compare(QuoteColumns.Column.TURNOVER, ScreenerQuery.Operator.GE, 1e8, null)),
+                new ScreenerQuery.And(
+                        new ScreenerQuery.Not(new ScreenerQuery.Compare(QuoteColumns.Column.MARKET_TYPE, ScreenerQuery.Operator.EQ, 1, null)),
+                        new ScreenerQuery.Compare(QuoteColumns.Column.STOCK_NAME, ScreenerQuery.Operator.NE, Double.NaN, "平安银行")));
+        assertEquals(expected, query.getPredicate());
+        assertEquals(new ScreenerQuery.All(), ScreenerQuery.parse("  ", null).getPredicate());
+        assertEquals(-2.5e-1, ((ScreenerQuery.Compare) ScreenerQuery.parse("change_amount < -2.5e-1", null).getPredicate()).number());
+    }
+
+    @Test
+    void parsesSort() {
+        assertEquals(List.of(new ScreenerQuery.Order(QuoteColumns.Column.VOLUME, true),
+                        new ScreenerQuery.Order(QuoteColumns.Column.CHANGE_PERCENT, false)),
+                ScreenerQuery.parse(null, "volume DESC, change_percent").getOrders());
+        assertEquals(List.of(), ScreenerQuery.parse(null, null).getOrders());
+    }
+
+    @Test
+    void rejectsInvalidExpressions() {
+        assertError("未知字段 pe_ratio", "pe_ratio > 10");
+        assertError("应为比较运算符", "volume 10");
+        assertError("应为数值", "volume > abc");
+        assertError("只支持 = 和 !=", "stock_name > 'a'");
+        assertError("文本值需要用引号括起来", "stock_code = 600519");
+        assertError("缺少右括号", "(volume > 1");
+        assertError("多余的内容", "volume > 1 volume");
+        assertError("缺少结束引号", "stock_name = 'abc");
+        assertThrows(IllegalArgumentException.class, () -> ScreenerQuery.parse(null, "volume up"));
+        assertThrows(IllegalArgumentException.class, () -> ScreenerQuery.parse(null, "stock_name"));
+        assertThrows(IllegalArgumentException.class, () -> ScreenerQuery.parse("volume > 1 AND ".repeat(100), null));
+    }
+
+    private void assertError(String expected, String filter) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ScreenerQuery.parse(filter, null));
+        assertTrue(e.getMessage().contains(expected), e.getMessage());
+    }
+}
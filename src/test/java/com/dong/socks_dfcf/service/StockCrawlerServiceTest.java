@@ -0,0 +1,199 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockCrawlerServiceTest {
+
+    private final CrawlerProperties properties = new CrawlerProperties();
+    private final QuoteChangeDetector detector = new QuoteChangeDetector();
+    private final List<List<String>> writes = new ArrayList<>();
+    private boolean failWrites;
+    // 不为空时写库要等它放行
+    private volatile CountDownLatch writeGate;
+    // 默认只有一页两行
+    private ClistPageFetcher fetcher = (page, pageSize) -> {
+        List<StockData> rows = List.of(
+                StockDataFixture.quote("000001").name("平安银行").price("10.50").change("0.10", "0.96").volume(1000L).build(),
+                StockDataFixture.quote("000002").name("万科A").price("8.20").change("-0.05", "-0.61").volume(2000L).build());
+        return new ClistResponseParser.ClistPage(rows.size(), rows.size(), rows);
+    };
+
+    @Test
+    void pipelinesAllPagesWithBoundedConcurrency() {
+        properties.setPageSize(5);
+        properties.setInitialInFlightPages(3);
+        properties.setMaxInFlightPages(3);
+        properties.setParsedQueueCapacity(1);
+        properties.setPersistBatchSize(7);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        // 10页共50行，第4页返回404（不重试）
+        fetcher = (page, pageSize) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+                if (page == 4) {
+                    throw new CrawlHttpStatusException(404, "HTTP 404");
+                }
+                List<StockData> rows = new ArrayList<>();
+                for (int i = 0; i < pageSize; i++) {
+                    rows.add(StockDataFixture.quote(String.format("%06d", (page - 1) * pageSize + i)).price("1").change("0", "0").build());
+                }
+                return new ClistResponseParser.ClistPage(50, rows.size(), rows);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+
+        CrawlRunStats stats = service().crawlAllStockData();
+
+        List<String> written = writes.stream().flatMap(List::stream).sorted().toList();
+        List<String> expected = IntStream.range(0, 50).filter(i -> i / 5 != 3)
+                .mapToObj(i -> String.format("%06d", i)).toList();
+        assertEquals(expected, written);
+        assertEquals(10, stats.getTotalPages());
+        assertEquals(9, stats.getPagesCompleted());
+        assertEquals(1, stats.getPagesFailed());
+        assertEquals(45, stats.getRowsPersisted());
+        assertTrue(stats.isFinished());
+        assertTrue(maxInFlight.get() <= 3, "max in flight " + maxInFlight.get());
+        assertTrue(writes.stream().allMatch(batch -> batch.size() <= 7 + 5));
+    }
+
+    @Test
+    void unchangedRowsAreRewrittenAfterWholeBatchFailure() {
+        StockCrawlerService service = service();
+
+        failWrites = true;
+        CrawlRunStats failed = service.crawlAllStockData();
+        assertEquals(2, failed.getRowsFailed());
+
+        // 行情没有变化，但上一轮整批写库失败，这一轮仍要写入
+        failWrites = false;
+        CrawlRunStats retried = service.crawlAllStockData();
+        assertEquals(2, retried.getRowsPersisted());
+        assertEquals(List.of(List.of("000001", "000002"), List.of("000001", "000002")), writes);
+
+        // 写入成功后行情不变的行才跳过
+        assertEquals(0, service.crawlAllStockData().getRowsPersisted());
+        assertEquals(2, writes.size());
+    }
+
+    @Test
+    void singlePageCrawlForgetsRowsOfFailedBatch() {
+        StockCrawlerService service = service();
+
+        failWrites = true;
+        service.crawlStockDataByPage(1);
+        failWrites = false;
+        service.crawlStockDataByPage(1);
+
+        assertEquals(List.of(List.of("000001", "000002"), List.of("000001", "000002")), writes);
+    }
+
+    @Test
+    void rejectsRowsMissingNotNullColumnsBeforeWriting() {
+        fetcher = (page, pageSize) -> {
+            List<StockData> rows = List.of(
+                    StockDataFixture.quote("000001").name("平安银行").price("10.50").change("0.10", "0.96").build(),
+                    // 停牌：最新价、涨跌额、涨跌幅都是 "-"
+                    StockDataFixture.quote("000002").name("万科A").build(),
+                    StockDataFixture.quote("000003").name("国华网安").price("12.00").build());
+            return new ClistResponseParser.ClistPage(rows.size(), rows.size(), rows);
+        };
+
+        CrawlRunStats stats = service().crawlAllStockData();
+
+        assertEquals(List.of(List.of("000001")), writes);
+        assertEquals(3, stats.getRowsParsed());
+        assertEquals(2, stats.getRowsRejected());
+        assertEquals(1, stats.getRowsPersisted());
+        assertEquals(0, stats.getRowsFailed());
+    }
+
+    @Test
+    void rowsDroppedByCancelledEnqueueAreRewrittenNextRun() throws InterruptedException {
+        properties.setPageSize(5);
+        properties.setInitialInFlightPages(10);
+        properties.setMaxInFlightPages(10);
+        properties.setParsedQueueCapacity(1);
+        properties.setPersistBatchSize(5);
+        // 10页共50行
+        fetcher = (page, pageSize) -> {
+            List<StockData> rows = new ArrayList<>();
+            for (int i = 0; i < pageSize; i++) {
+                rows.add(StockDataFixture.quote(String.format("%06d", (page - 1) * pageSize + i)).price("1").change("0", "0").build());
+            }
+            return new ClistResponseParser.ClistPage(50, rows.size(), rows);
+        };
+        StockCrawlerService service = service();
+
+        // 第一页写库时卡住，队列只能再放一页，其余8页阻塞在入队上，然后取消
+        writeGate = new CountDownLatch(1);
+        CrawlRunStats cancelled = new CrawlRunStats();
+        Thread crawl = Thread.ofVirtual().start(() -> service.crawlAllStockData(cancelled));
+        awaitTrue(() -> cancelled.getPagesCompleted() == 10);
+        crawl.interrupt();
+        awaitTrue(() -> cancelled.getPagesFailed() == 8);
+        writeGate.countDown();
+        crawl.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(crawl.isAlive());
+        assertEquals(10, cancelled.getRowsPersisted());
+
+        // 行情没有变化，但没能入队的40行上一轮没有写库，这一轮仍要写入
+        writeGate = null;
+        CrawlRunStats retried = service.crawlAllStockData();
+        assertEquals(40, retried.getRowsPersisted());
+        List<String> written = writes.stream().flatMap(List::stream).sorted().toList();
+        assertEquals(IntStream.range(0, 50).mapToObj(i -> String.format("%06d", i)).toList(), written);
+    }
+
+    private void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private StockCrawlerService service() {
+        properties.setPageSizeAutoTune(false);
+        properties.setPersistFlushMillis(10);
+        // 只重写 write：整批抛出异常或全部成功
+        StockDataBatchWriter writer = new StockDataBatchWriter(null, null, properties, null, null, null) {
+            @Override
+            public BatchWriteResult write(List<StockData> stockDataList) {
+                CountDownLatch gate = writeGate;
+                if (gate != null) {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                writes.add(stockDataList.stream().map(StockData::getStockCode).toList());
+                if (failWrites) {
+                    throw new IllegalStateException("Connection is closed");
+                }
+                return new BatchWriteResult(stockDataList.size(), List.of());
+            }
+        };
+        return new StockCrawlerService(writer, detector, new AdaptiveConcurrencyLimiter(properties), properties, fetcher);
+    }
+}
@@ -0,0 +1,112 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StockDataBatchWriterTest {
+
+    private final List<Integer> statementSizes = new ArrayList<>();
+    private final List<String> inserted = new ArrayList<>();
+    private final List<String> upserted = new ArrayList<>();
+
+    @Test
+    void writesInChunksOfConfiguredSize() {
+        StockDataBatchWriter writer = newWriter(4);
+
+        StockDataBatchWriter.BatchWriteResult result = writer.write(rows("A", 10));
+
+        assertEquals(10, result.succeeded());
+        assertTrue(result.failures().isEmpty());
+        assertEquals(List.of(4, 4, 2), statementSizes);
+        assertEquals(10, inserted.size());
+        assertEquals(inserted, upserted);
+    }
+
+    @Test
+    void isolatesFailingRowsAndKeepsTheRestBatched() {
+        StockDataBatchWriter writer = newWriter(8);
+        List<StockData> rows = rows("A", 8);
+        rows.get(5).setStockCode("BAD1");
+
+        StockDataBatchWriter.BatchWriteResult result = writer.write(rows);
+
+        assertEquals(7, result.succeeded());
+        assertEquals(1, result.failures().size());
+        assertEquals("BAD1", result.failures().get(0).stockCode());
+        assertFalse(inserted.contains("BAD1"));
+        assertEquals(inserted, upserted);
+        // [0..7]失败 -> [0..3]成功, [4..7]失败 -> [4,5]失败 -> [4]成功, [5]失败 -> [6,7]成功
+        assertEquals(List.of(8, 4, 4, 2, 1, 1, 2), statementSizes);
+    }
+
+    private StockDataBatchWriter newWriter(int chunkSize) {
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.setInsertChunkSize(chunkSize);
+        properties.setBarIntervals(List.of());
+        StockDataMapper mapper = fakeMapper();
+        return new StockDataBatchWriter(mapper, new TransactionTemplate(new NoopTransactionManager()), properties,
+                new BarRollupService(mapper, null, properties), new TickStore(properties),
+                new IndicatorEngine(null, properties));
+    }
+
+    /**
+     * 包含 BAD 开头代码的批次整体失败（模拟单条语句原子性）
+     */
+    private StockDataMapper fakeMapper() {
+        StockDataMapper mapper = mock(StockDataMapper.class);
+        when(mapper.upsertLatestBatch(anyList())).thenAnswer(invocation -> {
+            List<StockData> batch = invocation.getArgument(0);
+            batch.forEach(s -> upserted.add(s.getStockCode()));
+            return batch.size();
+        });
+        when(mapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            List<StockData> batch = invocation.getArgument(0);
+            statementSizes.add(batch.size());
+            if (batch.stream().anyMatch(s -> s.getStockCode().startsWith("BAD"))) {
+                throw new IllegalStateException("Data truncation");
+            }
+            batch.forEach(s -> inserted.add(s.getStockCode()));
+            return batch.size();
+        });
+        return mapper;
+    }
+
+    private List<StockData> rows(String prefix, int count) {
+        List<StockData> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(StockDataFixture.quote(prefix + i).build());
+        }
+        return rows;
+    }
+
+    private static class NoopTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.mapper.StreamedRows;
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class StockDataExporterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 5, 9, 30);
+
+    @Test
+    void writesCsvWithQuotingAndGzip() throws IOException {
+        List<StockData> rows = List.of(
+                row("600519", "贵州茅台", START, "1500.12", 100L),
+                row("000001", "平安,\"银行\"", START.plusMinutes(30), null, null));
+        StockDataExporter exporter = new StockDataExporter(mapper(rows));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, exporter.export(List.of(), START, START.plusDays(1), StockDataExporter.Format.CSV, true, out));
+
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        String[] lines = csv.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals(CsvExportWriter.HEADER, lines[0]);
+        assertEquals("600519,贵州茅台,2026-01-05T09:30,1500.12,,,,,,100,,1", lines[1]);
+        assertEquals("000001,\"平安,\"\"银行\"\"\",2026-01-05T10:00,,,,,,,,,1", lines[2]);
+    }
+
+    @Test
+    void writesColumnarBlocks() throws IOException {
+        List<StockData> rows = new ArrayList<>();
+        int count = ColumnarExportWriter.BLOCK_ROWS + 3;
+        for (int i = 0; i < count; i++) {
+            rows.add(row("600519", "贵州茅台", START.plusMinutes(i), "1500.1234", i == 1 ? null : (long) i));
+        }
+        StockDataExporter exporter = new StockDataExporter(mapper(rows));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(count, exporter.export(List.of("600519"), START, START.plusDays(10),
+                StockDataExporter.Format.COLUMNAR, false, out));
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(ColumnarExportWriter.MAGIC, in.readInt());
+        int columns = in.readInt();
+        assertEquals(ColumnarExportWriter.COLUMNS.length, columns);
+        for (int i = 0; i < columns; i++) {
+            assertEquals(ColumnarExportWriter.COLUMNS[i], in.readUTF());
+        }
+        ZoneId zone = ZoneId.of(in.readUTF());
+
+        List<Integer> blockSizes = new ArrayList<>();
+        long[] volumes = new long[count];
+        int offset = 0;
+        for (int size = in.readInt(); size > 0; size = in.readInt()) {
+            blockSizes.add(size);
+            for (int i = 0; i < size; i++) {
+                assertEquals("600519", in.readUTF());
+            }
+            for (int i = 0; i < size; i++) {
+                assertEquals("贵州茅台", in.readUTF());
+            }
+            for (int i = 0; i < size; i++) {
+                assertEquals(START.plusMinutes(offset + i).atZone(zone).toEpochSecond(), in.readLong());
+            }
+            for (int i = 0; i < size; i++) {
+                assertEquals(15001234L, in.readLong());
+            }
+            // change_amount 至 low_price 五列均为空
+            for (int i = 0; i < size * 5; i++) {
+                assertEquals(ColumnarExportWriter.NULL_LONG, in.readLong());
+            }
+            for (int i = 0; i < size; i++) {
+                volumes[offset + i] = in.readLong();
+            }
+            for (int i = 0; i < size; i++) {
+                assertEquals(ColumnarExportWriter.NULL_LONG, in.readLong());
+            }
+            for (int i = 0; i < size; i++) {
+                assertEquals(1, in.readInt());
+            }
+            offset += size;
+        }
+        assertEquals(List.of(ColumnarExportWriter.BLOCK_ROWS, 3), blockSizes);
+        assertEquals(-1, in.read());
+        assertEquals(ColumnarExportWriter.NULL_LONG, volumes[1]);
+        assertEquals(count - 1L, volumes[count - 1]);
+    }
+
+    @Test
+    void clientDisconnectStopsTheQueryAndSurfacesAsIOException() {
+        List<StockData> rows = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            rows.add(row("600519", "贵州茅台", START.plusMinutes(i), "1500.12", (long) i));
+        }
+        AtomicInteger read = new AtomicInteger();
+        StockDataMapper mapper = mock(StockDataMapper.class);
+        doAnswer(StreamedRows.of(() -> rows.stream().peek(r -> read.incrementAndGet()).iterator()))
+                .when(mapper).exportTradeData(any(), any(), any(), any());
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        IOException e = assertThrows(IOException.class, () -> new StockDataExporter(mapper)
+                .export(List.of(), START, START.plusDays(10), StockDataExporter.Format.CSV, false, disconnected));
+        assertEquals("Broken pipe", e.getMessage());
+        assertTrue(read.get() < rows.size(), "query kept reading after the write failed");
+    }
+
+    private StockDataMapper mapper(List<StockData> rows) {
+        StockDataMapper mapper = mock(StockDataMapper.class);
+        doAnswer(StreamedRows.of(rows)).when(mapper).exportTradeData(any(), any(), any(), any());
+        return mapper;
+    }
+
+    private StockData row(String code, String name, LocalDateTime time, String price, Long volume) {
+        return StockDataFixture.quote(code).name(name).at(time).price(price).volume(volume).marketType(1).build();
+    }
+}
@@ -0,0 +1,189 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.config.RetentionProperties;
+import com.dong.socks_dfcf.mapper.StockBarMapper;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.mapper.StockDataPartitionMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StockDataRetentionServiceTest {
+
+    private final RetentionProperties properties = new RetentionProperties();
+    private final List<Integer> deleteLimits = new ArrayList<>();
+    private final List<String> partitions = new ArrayList<>();
+    private final List<String> ddl = new ArrayList<>();
+    private long remainingRows;
+    private final Map<String, Long> remainingBars = new HashMap<>();
+    private final List<String> barDeletes = new ArrayList<>();
+    // 不为空时删除要等它放行
+    private CountDownLatch deleteGate;
+
+    @Test
+    void deletesInChunksUntilAShortChunk() {
+        properties.setDeleteChunkSize(100);
+        properties.setDeleteChunkPauseMillis(0);
+        remainingRows = 250;
+
+        RetentionRunStats stats = service().runRetention("manual");
+
+        assertEquals(250, stats.getRowsDeleted());
+        assertEquals(List.of(100, 100, 100), deleteLimits);
+        assertEquals(false, stats.toMap().get("truncated"));
+        assertNull(stats.getError());
+    }
+
+    @Test
+    void stopsAtChunkLimitAndLeavesTheRestForTheNextRun() {
+        properties.setDeleteChunkSize(100);
+        properties.setDeleteChunkPauseMillis(0);
+        properties.setMaxDeleteChunksPerRun(2);
+        remainingRows = 1000;
+
+        StockDataRetentionService service = service();
+        RetentionRunStats stats = service.runRetention("manual");
+
+        assertEquals(200, stats.getRowsDeleted());
+        assertEquals(true, stats.toMap().get("truncated"));
+        assertEquals(200L, service.getTotals().get("rowsDeleted"));
+    }
+
+    @Test
+    void deletesExpiredBarsPerInterval() {
+        properties.setDeleteChunkSize(100);
+        properties.setDeleteChunkPauseMillis(0);
+        properties.setBarRetentionDays(new TreeMap<>(Map.of("30m", 10, "1d", 100, "1w", 0)));
+        remainingBars.put("30m", 150L);
+        remainingBars.put("1d", 20L);
+
+        StockDataRetentionService service = service();
+        RetentionRunStats stats = service.runRetention("manual");
+
+        LocalDate today = LocalDate.now();
+        assertNull(stats.getError());
+        assertEquals(List.of(
+                "1d " + today.minusDays(100).atStartOfDay() + " 100",
+                "30m " + today.minusDays(10).atStartOfDay() + " 100",
+                "30m " + today.minusDays(10).atStartOfDay() + " 100"), barDeletes);
+        assertEquals(170, stats.getBarRowsDeleted());
+        assertEquals(Map.of("1d", 20L, "30m", 150L), stats.toMap().get("barRowsDeleted"));
+        assertEquals(170L, service.getTotals().get("barRowsDeleted"));
+    }
+
+    @Test
+    void concurrentTriggersStartOnlyOneRun() throws InterruptedException {
+        properties.setDeleteChunkPauseMillis(0);
+        deleteGate = new CountDownLatch(1);
+        StockDataRetentionService service = service();
+
+        assertTrue(service.submitRetention("manual"));
+        // 后台线程还没开始删除时，运行标记就已经被占住
+        assertFalse(service.submitRetention("manual"));
+        assertNull(service.runRetention("scheduled"));
+        assertEquals(true, service.getTotals().get("running"));
+
+        deleteGate.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Boolean.TRUE.equals(service.getTotals().get("running"))) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        assertEquals(1L, service.getTotals().get("runs"));
+        assertNotNull(service.runRetention("manual"));
+    }
+
+    @Test
+    void createsPartitionsAheadAndDropsExpiredOnes() {
+        properties.setMode("partition");
+        properties.setRetentionDays(2);
+        properties.setPartitionsAhead(1);
+        LocalDate today = LocalDate.now();
+        partitions.addAll(List.of("p_history",
+                StockDataRetentionService.partitionName(today.minusDays(3)),
+                StockDataRetentionService.partitionName(today.minusDays(2)),
+                StockDataRetentionService.partitionName(today.minusDays(1)),
+                "p_future"));
+
+        RetentionRunStats stats = service().runRetention("scheduled");
+
+        assertNull(stats.getError());
+        assertEquals(List.of(
+                "add " + StockDataRetentionService.partitionName(today) + " " + today.plusDays(1),
+                "add " + StockDataRetentionService.partitionName(today.plusDays(1)) + " " + today.plusDays(2),
+                "drop p_history",
+                "drop " + StockDataRetentionService.partitionName(today.minusDays(3))), ddl);
+        assertEquals(2, stats.getPartitionsCreated());
+        assertEquals(2, stats.getPartitionsDropped());
+        assertEquals(20, stats.getPartitionRowsDropped());
+    }
+
+    @Test
+    void refusesPartitionModeOnUnpartitionedTable() {
+        properties.setMode("partition");
+
+        RetentionRunStats stats = service().runRetention("manual");
+
+        assertNotNull(stats.getError());
+        assertTrue(ddl.isEmpty());
+    }
+
+    @Test
+    void historyPartitionExpiresWithTheEarliestDay() {
+        LocalDate cutoff = LocalDate.of(2026, 3, 10);
+        List<String> names = List.of("p_history", "p20260310", "p20260311", "p_future");
+        assertEquals(List.of("p_history"), StockDataRetentionService.expiredPartitions(names, cutoff));
+        assertEquals(List.of(), StockDataRetentionService.expiredPartitions(names, cutoff.minusDays(1)));
+        assertEquals(List.of("p_history", "p20260310"), StockDataRetentionService.expiredPartitions(names, cutoff.plusDays(1)));
+    }
+
+    private StockDataRetentionService service() {
+        StockDataMapper stockDataMapper = mock(StockDataMapper.class);
+        when(stockDataMapper.deleteTradeDataBefore(any(), anyInt())).thenAnswer(invocation -> {
+            if (deleteGate != null) {
+                deleteGate.await();
+            }
+            int limit = invocation.getArgument(1);
+            deleteLimits.add(limit);
+            int deleted = (int) Math.min(limit, remainingRows);
+            remainingRows -= deleted;
+            return deleted;
+        });
+        StockDataPartitionMapper partitionMapper = mock(StockDataPartitionMapper.class);
+        when(partitionMapper.findPartitionNames()).thenAnswer(invocation -> List.copyOf(partitions));
+        when(partitionMapper.estimatePartitionRows(anyString())).thenReturn(10L);
+        doAnswer(invocation -> ddl.add("add " + invocation.getArgument(0) + " " + invocation.getArgument(1)))
+                .when(partitionMapper).addPartition(anyString(), anyString());
+        doAnswer(invocation -> ddl.add("drop " + invocation.getArgument(0)))
+                .when(partitionMapper).dropPartition(anyString());
+        StockBarMapper barMapper = mock(StockBarMapper.class);
+        when(barMapper.deleteBarsBefore(anyString(), any(), anyInt())).thenAnswer(invocation -> {
+            String interval = invocation.getArgument(0);
+            int limit = invocation.getArgument(2);
+            barDeletes.add(interval + " " + invocation.getArgument(1) + " " + limit);
+            long remaining = remainingBars.getOrDefault(interval, 0L);
+            int deleted = (int) Math.min(limit, remaining);
+            remainingBars.put(interval, remaining - deleted);
+            return deleted;
+        });
+        // 未启用本地行情存储
+        TickStore tickStore = new TickStore(new CrawlerProperties());
+        return new StockDataRetentionService(stockDataMapper, partitionMapper, barMapper, tickStore, properties);
+    }
+}
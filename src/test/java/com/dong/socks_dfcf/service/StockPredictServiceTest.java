@@ -0,0 +1,71 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.mapper.StockDataMapper;
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StockPredictServiceTest {
+
+    @Test
+    void fallsBackToAverageChangeOfRecentRows() {
+        StockPredictService service = service();
+
+        // 最近7条的涨幅为 1..7，平均 4.00；更早的行不参与
+        assertEquals("预测结果：上涨趋势，近7天平均涨幅 4.00%", service.predictStockTrend("600519"));
+        assertEquals("数据不足，无法进行预测", service.predictStockTrend("000001"));
+    }
+
+    @Test
+    void averageChangeSkipsMissingValues() {
+        List<StockData> rows = rows("600519", 10);
+        rows.get(0).setChangePercent(null);
+
+        // 第 2..7 条的平均值
+        assertEquals(new BigDecimal("4.50"), StockPredictService.averageChange(rows));
+        assertNull(StockPredictService.averageChange(rows.subList(0, StockPredictService.RULE_HISTORY_ROWS - 1)));
+        assertNull(StockPredictService.averageChange(null));
+    }
+
+    private StockPredictService service() {
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.getIndicators().setEnabled(false);
+        TrendModelService trendModelService = new TrendModelService(null, new IndicatorEngine(null, properties), null, null);
+        return new StockPredictService(mapper(), trendModelService, null);
+    }
+
+    private StockDataMapper mapper() {
+        StockDataMapper mapper = mock(StockDataMapper.class);
+        when(mapper.findRecentByStockCodes(anyList(), eq(StockPredictService.RULE_HISTORY_ROWS))).thenAnswer(invocation -> {
+            List<String> codes = invocation.getArgument(0);
+            // 600519 有12条历史，其余股票只有3条
+            int available = codes.get(0).equals("600519") ? 12 : 3;
+            return rows(codes.get(0), Math.min(available, StockPredictService.RULE_HISTORY_ROWS));
+        });
+        return mapper;
+    }
+
+    /**
+     * 交易时间降序，第 i 条的涨幅为 i + 1
+     */
+    private List<StockData> rows(String code, int count) {
+        List<StockData> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(StockDataFixture.quote(code).changePercent(BigDecimal.valueOf(i + 1))
+                    .at(LocalDateTime.of(2026, 1, 20, 15, 0).minusDays(i)).build());
+        }
+        return rows;
+    }
+}
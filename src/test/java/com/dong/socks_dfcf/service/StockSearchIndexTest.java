@@ -0,0 +1,76 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StockSearchIndexTest {
+
+    private final StockSearchIndex index = LatestQuoteSnapshot.build(List.of(
+            quote("600519", "贵州茅台"),
+            quote("000001", "平安银行"),
+            quote("601318", "中国平安"),
+            quote("600000", "浦发银行"),
+            quote("000568", "泸州老窖"),
+            quote("300750", "宁德时代")), 1).getSearchIndex();
+
+    @Test
+    void ranksCodeMatchesBeforeNameAndInfixMatches() {
+        assertEquals(List.of("600000", "600519"), codes(index.search("600", 0, 10)));
+        assertEquals(List.of("000001"), codes(index.search("000001", 0, 10)));
+        // 名称前缀优先于名称包含
+        assertEquals(List.of("000001", "601318"), codes(index.search("平安", 0, 10)));
+        assertEquals(List.of("000001", "600000"), codes(index.search("银行", 0, 10)));
+    }
+
+    @Test
+    void matchesPinyinInitialsIncludingPolyphones() {
+        assertEquals(List.of("600519"), codes(index.search("GZMT", 0, 10)));
+        assertEquals(List.of("000568"), codes(index.search("lzlj", 0, 10)));
+        // "行" 读作 hang 或 xing，两种首字母都能搜到
+        assertEquals(List.of("000001"), codes(index.search("payh", 0, 10)));
+        assertEquals(List.of("000001"), codes(index.search("payx", 0, 10)));
+        assertEquals(List.of("601318"), codes(index.search("zgpa", 0, 10)));
+    }
+
+    @Test
+    void returnsExactTotalWithPagedData() {
+        StockSearchIndex.Result result = index.search("0", 1, 2);
+        assertEquals(6, result.total());
+        assertEquals(List.of("000568", "300750"), codes(result));
+        assertEquals(6, index.search(" ", 0, 10).total());
+        assertEquals(0, index.search("不存在", 0, 10).total());
+        assertTrue(index.search("600", 10, 10).data().isEmpty());
+    }
+
+    @Test
+    void pagesAfterCursorInSearchOrder() {
+        List<String> all = codes(index.search("0", 0, 10));
+        List<String> paged = new ArrayList<>();
+        StockSearchIndex.Result page = index.search("0", 0, 4);
+        paged.addAll(codes(page));
+        StockData last = page.data().get(page.data().size() - 1);
+        page = index.searchAfter("0", page.lastRank(), last.getStockCode(), 4);
+        paged.addAll(codes(page));
+        assertEquals(all, paged);
+        assertEquals(6, page.total());
+
+        // 游标对应的股票已不在索引中：从同一匹配等级中代码更大的股票接着翻页
+        assertEquals(List.of("600519"), codes(index.searchAfter("600", 1, "600001", 10)));
+        assertTrue(index.searchAfter("600", 1, "600519", 10).data().isEmpty());
+        assertEquals(-1, index.searchAfter("600", 1, "600519", 10).lastRank());
+    }
+
+    private StockData quote(String code, String name) {
+        return StockDataFixture.quote(code).name(name).build();
+    }
+
+    private List<String> codes(StockSearchIndex.Result result) {
+        return result.data().stream().map(StockData::getStockCode).toList();
+    }
+}
@@ -0,0 +1,130 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.model.StockData;
+import com.dong.socks_dfcf.model.StockDataFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickStoreTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 5, 9, 30);
+
+    private Path dir;
+    private final CrawlerProperties properties = new CrawlerProperties();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("tick-store");
+        properties.getTicks().setEnabled(true);
+        properties.getTicks().setDir(dir.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void appendsAcrossChunksAndReadsRanges() throws IOException {
+        TickStore store = new TickStore(properties);
+        int ticks = TickFile.CHUNK_TICKS * 2 + 10;
+        List<StockData> rows = new ArrayList<>();
+        for (int i = 0; i < ticks; i++) {
+            rows.add(tick("600519", START.plusMinutes(30L * i), "1500.1234", i * 100L, "12345678.5"));
+        }
+        assertEquals(ticks, store.append(rows));
+
+        TickSeries all = store.read("600519", null, null);
+        assertEquals(ticks, all.size());
+        assertEquals(15001234L, all.priceUnscaled(ticks - 1));
+        assertEquals((ticks - 1) * 100L, all.volume(ticks - 1));
+        assertEquals(123456785000L, all.turnoverUnscaled(0));
+
+        // [第300行, 第310行)
+        TickSeries range = store.read("600519", START.plusMinutes(30L * 300), START.plusMinutes(30L * 310));
+        assertEquals(10, range.size());
+        assertEquals(300 * 100L, range.volume(0));
+        assertEquals(309 * 100L, range.volume(9));
+    }
+
+    @Test
+    void skipsStaleTicksAndSurvivesReopen() throws IOException {
+        TickStore store = new TickStore(properties);
+        assertEquals(2, store.append(List.of(
+                tick("000001", START, "10", 1, "1"),
+                tick("000001", START.plusMinutes(30), "11", 2, "2"))));
+        assertEquals(0, store.append(List.of(tick("000001", START.plusMinutes(30), "12", 3, "3"))));
+
+        TickStore reopened = new TickStore(properties);
+        assertEquals(0, reopened.append(List.of(tick("000001", START, "9", 1, "1"))));
+        assertEquals(1, reopened.append(List.of(tick("000001", START.plusMinutes(60), "13", 4, "4"))));
+        TickSeries series = reopened.read("000001", null, null);
+        assertEquals(3, series.size());
+        assertEquals(13.0, series.price(2));
+    }
+
+    @Test
+    void prunesExpiredTicksAndKeepsAppending() throws IOException {
+        TickStore store = new TickStore(properties);
+        int ticks = TickFile.CHUNK_TICKS + 44;
+        List<StockData> rows = new ArrayList<>();
+        for (int i = 0; i < ticks; i++) {
+            rows.add(tick("600519", START.plusMinutes(i), "10", i, "1"));
+        }
+        store.append(rows);
+        store.append(List.of(tick("000001", START, "10", 1, "1")));
+        TickSeries before = store.read("600519", null, null);
+
+        assertEquals(260 + 1, store.pruneBefore(START.plusMinutes(260)));
+
+        TickSeries after = store.read("600519", null, null);
+        assertEquals(40, after.size());
+        assertEquals(260L, after.volume(0));
+        assertEquals(0, store.read("000001", null, null).size());
+        // 清理前返回的视图仍指向旧文件
+        assertEquals(ticks, before.size());
+        assertEquals(0L, before.volume(0));
+
+        assertEquals(0, store.append(List.of(tick("600519", START.plusMinutes(ticks - 1), "11", 1, "1"))));
+        assertEquals(1, store.append(List.of(tick("600519", START.plusMinutes(ticks), "11", 1, "1"))));
+        TickSeries reopened = new TickStore(properties).read("600519", null, null);
+        assertEquals(41, reopened.size());
+        assertEquals(11.0, reopened.price(40));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of("000001.ticks", "600519.ticks"),
+                    files.map(path -> path.getFileName().toString()).sorted().toList());
+        }
+    }
+
+    @Test
+    void rejectsPathLikeCodesAndUnknownSymbols() throws IOException {
+        TickStore store = new TickStore(properties);
+        assertEquals(0, store.append(List.of(tick("../evil", START, "1", 1, "1"))));
+        assertEquals(0, store.read("../evil", null, null).size());
+        assertEquals(0, store.read("999999", null, null).size());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private StockData tick(String code, LocalDateTime time, String price, long volume, String turnover) {
+        return StockDataFixture.quote(code).at(time).price(price).volume(volume).turnover(turnover).build();
+    }
+}
@@ -0,0 +1,193 @@
+package com.dong.socks_dfcf.service;
+
+import com.dong.socks_dfcf.config.CrawlerProperties;
+import com.dong.socks_dfcf.config.PredictionProperties;
+import com.dong.socks_dfcf.mapper.StockBarMapper;
+import com.dong.socks_dfcf.mapper.StreamedRows;
+import com.dong.socks_dfcf.model.StockBar;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class TrendModelServiceTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2026, 1, 5);
+    private static final int SYMBOLS = 40;
+    private static final int DAYS = 120;
+
+    private Path modelDir;
+    private final List<StockBar> bars = bars();
+    // 不为空时读取日线要等它放行
+    private CountDownLatch scanGate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        modelDir = Files.createTempDirectory("trend-models");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(modelDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void extractsOneRowPerDayWithNextDayDirection() {
+        List<StockBar> oneSymbol = bars.subList(0, DAYS);
+
+        List<double[]> rows = TrendModelService.extractFeatures(oneSymbol, 100);
+
+        // 第 MIN_BARS 天起有完整特征，最后一天没有下一交易日
+        assertEquals(DAYS - TrendFeatures.MIN_BARS, rows.size());
+        int first = TrendFeatures.MIN_BARS - 1;
+        boolean up = oneSymbol.get(first + 1).getClosePrice().compareTo(oneSymbol.get(first).getClosePrice()) > 0;
+        assertEquals(up ? TrendFeatures.UP : TrendFeatures.DOWN, rows.get(0)[TrendFeatures.NAMES.size()], 0);
+        assertEquals(TrendFeatures.NAMES.size() + 1, rows.get(0).length);
+    }
+
+    @Test
+    void trainsSavesPrunesAndScores() throws Exception {
+        // 两个更早的版本，保留2个时最早的一个被删除
+        Files.writeString(modelDir.resolve("trend-rf-20250101-170000.model"), "old");
+        Files.writeString(modelDir.resolve("trend-rf-20250102-170000.model"), "old");
+        TrendModelService service = service();
+
+        ModelTrainingStats stats = service.train("manual");
+
+        assertNull(stats.getError());
+        assertEquals(SYMBOLS, stats.getSymbols());
+        assertEquals(SYMBOLS * (DAYS - TrendFeatures.MIN_BARS), stats.toMap().get("rows"));
+        List<String> files = modelFiles();
+        assertEquals(List.of("trend-rf-" + stats.getVersion() + ".model", "trend-rf-20250102-170000.model"), files);
+
+        List<TrendModelService.TrendScore> scores = service.scoreAll();
+        assertEquals(SYMBOLS, scores.size());
+        for (TrendModelService.TrendScore score : scores) {
+            assertTrue(score.upProbability() >= 0 && score.upProbability() <= 1);
+            assertEquals(stats.getVersion(), score.modelVersion());
+        }
+
+        // 重启后加载最新版本，预测结果不变
+        TrendModelService restarted = service();
+        restarted.loadLatestModel();
+        assertEquals(stats.getVersion(), restarted.getModelInfo().get("version"));
+        TrendModelService.TrendScore score = restarted.score("000000");
+        assertEquals(scores.stream().filter(s -> s.stockCode().equals("000000")).findFirst().orElseThrow().upProbability(),
+                score.upProbability(), 1e-9);
+        assertNull(restarted.score("999999"));
+    }
+
+    @Test
+    void concurrentTriggersStartOnlyOneTraining() throws Exception {
+        scanGate = new CountDownLatch(1);
+        TrendModelService service = service();
+
+        assertTrue(service.submitTraining("manual"));
+        // 后台线程还没开始训练时，训练标记就已经被占住
+        assertFalse(service.submitTraining("manual"));
+        assertNull(service.train("scheduled"));
+
+        scanGate.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (service.getLastTrainingStats() == null || service.getLastTrainingStats().toMap().get("finishedAt") == null) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+        assertNull(service.getLastTrainingStats().getError());
+        assertEquals(1, modelFiles().size());
+        assertNotNull(service.train("manual"));
+    }
+
+    @Test
+    void withoutModelScoresNothing() {
+        TrendModelService service = service();
+        service.loadLatestModel();
+
+        assertNull(service.getModelInfo());
+        assertEquals(List.of(), service.scoreAll());
+        assertNull(service.score("000000"));
+    }
+
+    private TrendModelService service() {
+        CrawlerProperties crawlerProperties = new CrawlerProperties();
+        crawlerProperties.setBarIntervals(List.of("1d"));
+        PredictionProperties predictionProperties = new PredictionProperties();
+        predictionProperties.setModelDir(modelDir.toString());
+        predictionProperties.setKeepModels(2);
+        predictionProperties.setTrees(10);
+        predictionProperties.setThreads(2);
+        StockBarMapper mapper = barMapper();
+        return new TrendModelService(mapper, new IndicatorEngine(mapper, crawlerProperties),
+                predictionProperties, crawlerProperties);
+    }
+
+    private List<String> modelFiles() throws Exception {
+        try (Stream<Path> files = Files.list(modelDir)) {
+            return files.map(file -> file.getFileName().toString()).sorted(Comparator.reverseOrder()).toList();
+        }
+    }
+
+    /**
+     * 按股票代码、日期排序的日线，收盘价为带随机扰动的周期序列，每只股票相位不同
+     */
+    private List<StockBar> bars() {
+        Random random = new Random(7);
+        List<StockBar> bars = new ArrayList<>(SYMBOLS * DAYS);
+        for (int s = 0; s < SYMBOLS; s++) {
+            String code = String.format("%06d", s);
+            double previous = 10 + s;
+            for (int d = 0; d < DAYS; d++) {
+                double close = 10 + s + 2 * Math.sin(d * 0.3 + s) + random.nextGaussian() * 0.3;
+                double high = Math.max(previous, close) + random.nextDouble() * 0.3;
+                double low = Math.min(previous, close) - random.nextDouble() * 0.3;
+                StockBar bar = new StockBar();
+                bar.setStockCode(code);
+                bar.setBarInterval("1d");
+                bar.setBarStart(FIRST_DAY.plusDays(d).atStartOfDay());
+                bar.setOpenPrice(BigDecimal.valueOf(previous));
+                bar.setHighPrice(BigDecimal.valueOf(high));
+                bar.setLowPrice(BigDecimal.valueOf(low));
+                bar.setClosePrice(BigDecimal.valueOf(close));
+                bar.setVolume(10000L);
+                bar.setTurnover(BigDecimal.valueOf(close * 10000 * 100));
+                bar.setLastTradeTime(FIRST_DAY.plusDays(d).atTime(15, 0));
+                bars.add(bar);
+                previous = close;
+            }
+        }
+        return bars;
+    }
+
+    private StockBarMapper barMapper() {
+        StockBarMapper mapper = mock(StockBarMapper.class);
+        doAnswer(invocation -> {
+            if (scanGate != null) {
+                scanGate.await();
+            }
+            return StreamedRows.of(bars).answer(invocation);
+        }).when(mapper).scanBarsSince(eq("1d"), any(), any());
+        return mapper;
+    }
+}